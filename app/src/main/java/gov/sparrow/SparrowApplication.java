@@ -0,0 +1,42 @@
+package gov.sparrow;
+
+import android.annotation.TargetApi;
+import android.app.Application;
+import android.app.job.JobScheduler;
+import android.content.Context;
+import android.os.Build;
+import gov.sparrow.datasync.SearchIndexMaintenanceJobService;
+import gov.sparrow.util.DaggerSparrowApplicationComponent;
+import gov.sparrow.util.SparrowApplicationComponent;
+import gov.sparrow.util.SparrowApplicationModule;
+
+public class SparrowApplication extends Application {
+
+    private SparrowApplicationComponent component;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            scheduleSearchIndexMaintenance();
+        }
+    }
+
+    public SparrowApplicationComponent getAppComponent() {
+        if (component == null) {
+            component = DaggerSparrowApplicationComponent.builder()
+                    .sparrowApplicationModule(new SparrowApplicationModule(this))
+                    .build();
+        }
+        return component;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void scheduleSearchIndexMaintenance() {
+        JobScheduler jobScheduler = (JobScheduler) getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler != null) {
+            jobScheduler.schedule(SearchIndexMaintenanceJobService.jobInfo(this));
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package gov.sparrow.adapter;
+
+import android.database.Cursor;
+import android.os.Bundle;
+import gov.sparrow.adapter.helpers.SortableCursorWrapper;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.NoteContract.Note;
+
+/*
+* Orders actions by list position, optionally keeping only those whose note
+* is in one notebook. When the provider partitioned the rows by completion
+* and no notebook filter applies, the rows are used in provider order and
+* the completed boundary comes from the partition counts in the extras.
+* */
+public class ActionListAdapterCursorWrapper extends SortableCursorWrapper {
+
+    private final Long notebookId;
+    private int incompleteCount = -1;
+    private int totalCount;
+
+    public ActionListAdapterCursorWrapper(Cursor cursor, Long notebookId) {
+        super(cursor, ActionListPosition.COLUMN_NAME_POSITION);
+        this.notebookId = notebookId;
+
+        Bundle extras = cursor.getExtras();
+        if (notebookId == null && extras != null
+                && extras.containsKey(Action.EXTRA_INCOMPLETE_COUNT)
+                && extras.containsKey(Action.EXTRA_COMPLETED_COUNT)) {
+            incompleteCount = extras.getInt(Action.EXTRA_INCOMPLETE_COUNT);
+            totalCount = incompleteCount + extras.getInt(Action.EXTRA_COMPLETED_COUNT);
+            useProviderOrder();
+        }
+    }
+
+    public int getFirstCompletedPosition() {
+        countPartitions();
+        return incompleteCount < totalCount ? incompleteCount : Math.max(totalCount - 1, 0);
+    }
+
+    public int getLastIncompletePosition() {
+        countPartitions();
+        return Math.max(incompleteCount - 1, 0);
+    }
+
+    @Override
+    protected boolean includeRow(Cursor cursor) {
+        return notebookId == null
+                || notebookId == cursor.getLong(cursor.getColumnIndex(Note.COLUMN_NAME_NOTEBOOK_ID));
+    }
+
+    @Override
+    protected boolean isFiltered() {
+        return notebookId != null;
+    }
+
+    private void countPartitions() {
+        if (incompleteCount >= 0) {
+            return;
+        }
+
+        Cursor cursor = getWrappedCursor();
+        int current = cursor.getPosition();
+        int columnIndex = cursor.getColumnIndex(Action.COLUMN_NAME_COMPLETED);
+        int incomplete = 0;
+        int total = 0;
+        for (int row = 0; cursor.moveToPosition(row); row++) {
+            if (!Boolean.parseBoolean(cursor.getString(columnIndex))) {
+                incomplete++;
+            }
+            total++;
+        }
+        cursor.moveToPosition(current);
+
+        incompleteCount = incomplete;
+        totalCount = total;
+    }
+
+}
@@ -0,0 +1,13 @@
+package gov.sparrow.adapter;
+
+import android.database.Cursor;
+import gov.sparrow.adapter.helpers.SortableCursorWrapper;
+import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
+
+public class NotebookListAdapterCursorWrapper extends SortableCursorWrapper {
+
+    public NotebookListAdapterCursorWrapper(Cursor cursor) {
+        super(cursor, NotebookListPosition.COLUMN_NAME_POSITION);
+    }
+
+}
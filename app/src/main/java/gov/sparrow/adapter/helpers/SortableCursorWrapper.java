@@ -0,0 +1,192 @@
+package gov.sparrow.adapter.helpers;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+import java.util.Arrays;
+
+/*
+* Presents the wrapped rows in ascending order of a position column. The
+* index is built by buildIndex(), which the list loaders call in
+* loadInBackground, or else on first positioned access; either way each rank
+* is read once into an int[]. Rows the provider already returned in rank order
+* are used as they are; otherwise (rank << 32 | row) pairs are sorted as
+* longs, which orders by rank then by cursor row without boxing.
+* */
+public abstract class SortableCursorWrapper extends CursorWrapper {
+
+    private final String positionColumnName;
+    private int[] rows;
+    private int[] ranks;
+    private boolean providerOrder;
+    private boolean presorted;
+    private int position = -1;
+
+    public SortableCursorWrapper(Cursor cursor, String positionColumnName) {
+        super(cursor);
+        this.positionColumnName = positionColumnName;
+    }
+
+    public void buildIndex() {
+        if (rows != null || providerOrder) {
+            return;
+        }
+
+        Cursor cursor = getWrappedCursor();
+        int columnIndex = cursor.getColumnIndex(positionColumnName);
+        int[] includedRows = new int[cursor.getCount()];
+        int[] includedRanks = new int[cursor.getCount()];
+        int count = 0;
+        boolean ascending = true;
+        for (int row = 0; cursor.moveToPosition(row); row++) {
+            if (!includeRow(cursor)) {
+                continue;
+            }
+            if (count == includedRows.length) {
+                // A paging cursor may report fewer rows than later pages bring.
+                includedRows = Arrays.copyOf(includedRows, count * 2 + 1);
+                includedRanks = Arrays.copyOf(includedRanks, count * 2 + 1);
+            }
+            int rank = cursor.getInt(columnIndex);
+            ascending &= count == 0 || includedRanks[count - 1] <= rank;
+            includedRows[count] = row;
+            includedRanks[count] = rank;
+            count++;
+        }
+        includedRows = Arrays.copyOf(includedRows, count);
+        includedRanks = Arrays.copyOf(includedRanks, count);
+
+        if (!ascending) {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = ((long) includedRanks[i] << 32) | includedRows[i];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < count; i++) {
+                includedRanks[i] = (int) (keys[i] >> 32);
+                includedRows[i] = (int) keys[i];
+            }
+        }
+
+        presorted = ascending;
+        ranks = includedRanks;
+        rows = includedRows;
+    }
+
+    public boolean isIndexed() {
+        return rows != null || providerOrder;
+    }
+
+    public boolean isPresorted() {
+        return presorted;
+    }
+
+    /* Returns the position column of the row at the given sorted position. */
+    public int getMappedPosition(int position) {
+        if (providerOrder) {
+            Cursor cursor = getWrappedCursor();
+            int current = cursor.getPosition();
+            cursor.moveToPosition(position);
+            int rank = cursor.getInt(cursor.getColumnIndex(positionColumnName));
+            cursor.moveToPosition(current);
+            return rank;
+        }
+        buildIndex();
+        return ranks[position];
+    }
+
+    @Override
+    public int getCount() {
+        if (rows == null && (providerOrder || !isFiltered())) {
+            return super.getCount();
+        }
+        buildIndex();
+        return rows.length;
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        if (position < 0 || position >= getCount()) {
+            return false;
+        }
+        if (!providerOrder) {
+            buildIndex();
+        }
+        boolean moved = super.moveToPosition(providerOrder ? position : rows[position]);
+        if (moved) {
+            this.position = position;
+        }
+        return moved;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return moveToPosition(position + offset);
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToLast() {
+        return moveToPosition(getCount() - 1);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(position + 1);
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        return moveToPosition(position - 1);
+    }
+
+    @Override
+    public boolean isFirst() {
+        return position == 0 && getCount() != 0;
+    }
+
+    @Override
+    public boolean isLast() {
+        int count = getCount();
+        return position == count - 1 && count != 0;
+    }
+
+    @Override
+    public boolean isBeforeFirst() {
+        return getCount() == 0 || position == -1;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        int count = getCount();
+        return count == 0 || position == count;
+    }
+
+    /* Subclasses that hide rows override this together with isFiltered(). */
+    protected boolean includeRow(Cursor cursor) {
+        return true;
+    }
+
+    protected boolean isFiltered() {
+        return false;
+    }
+
+    /*
+    * Keeps the rows in the order the provider returned them, for cursors the
+    * provider already sorted, so no rank is read until one is asked for.
+    * */
+    protected void useProviderOrder() {
+        providerOrder = true;
+        presorted = true;
+    }
+
+}
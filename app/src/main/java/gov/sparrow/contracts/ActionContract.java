@@ -0,0 +1,106 @@
+package gov.sparrow.contracts;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.SearchContract.SearchableColumns;
+
+import static gov.sparrow.contracts.SparrowContract.BASE_CONTENT_URI;
+import static gov.sparrow.contracts.SparrowContract.QUERY_PARAMETER_ANCHOR;
+import static gov.sparrow.contracts.SparrowContract.QUERY_PARAMETER_ANCHOR_ID;
+import static gov.sparrow.contracts.SparrowContract.QUERY_PARAMETER_ANCHOR_PARTITION;
+
+public final class ActionContract {
+
+    private ActionContract() {
+    }
+
+    public static abstract class Action implements BaseColumns {
+
+        public static final String TABLE_NAME = "actions";
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon().appendPath(TABLE_NAME).build();
+
+        public static final String TYPE_ITEM = ContentResolver.CURSOR_ITEM_BASE_TYPE + "/vnd.gov.sparrow.action";
+
+        public static final int ACTION_MATCH = 300;
+        public static final int ACTION_ID_MATCH = 301;
+        public static final int LINKED_ACTION_MATCH = 302;
+
+        public static final String COLUMN_NAME_TITLE = "title";
+        public static final String COLUMN_NAME_NOTE_ID = "note_id";
+        public static final String COLUMN_NAME_LINK_ID = "link_id";
+        public static final String COLUMN_NAME_LINK_START = "link_start";
+        public static final String COLUMN_NAME_LINK_END = "link_end";
+        public static final String COLUMN_NAME_COMPLETED = "completed";
+        public static final String COLUMN_NAME_DUE_DATE = "due_date";
+        public static final String COLUMN_NAME_CHECKBOX_UPDATED_AT = "checkbox_updated_at";
+        public static final String COLUMN_NAME_ARCHIVED = "archived";
+        public static final String COLUMN_NAME_CREATED_AT = "created_at";
+        public static final String COLUMN_NAME_TYPE = "type";
+
+        public static final String ALIAS_NAME_NOTE_TITLE = "note_title";
+        public static final String ALIAS_NAME_COUNT = "count";
+
+        public static final String TABLE_NOTE_POSITION_JOIN = TABLE_NAME +
+                " LEFT OUTER JOIN " + Note.TABLE_NAME +
+                " ON (" + TABLE_NAME + "." + COLUMN_NAME_NOTE_ID + " = " + Note.TABLE_NAME + "." + Note._ID + ")" +
+                " LEFT OUTER JOIN " + ActionListPosition.TABLE_NAME +
+                " ON (" + TABLE_NAME + "." + _ID + " = " + ActionListPosition.TABLE_NAME + "." + ActionListPosition.COLUMN_NAME_ACTION_ID + ")";
+
+        /* Incomplete actions first, each partition in list order. */
+        public static final String PARTITIONED_SORT_ORDER =
+                COLUMN_NAME_COMPLETED + " ASC, " + ActionListPosition.COLUMN_NAME_POSITION + " ASC";
+
+        public static final String EXTRA_INCOMPLETE_COUNT = "gov.sparrow.extra.INCOMPLETE_COUNT";
+        public static final String EXTRA_COMPLETED_COUNT = "gov.sparrow.extra.COMPLETED_COUNT";
+
+        public static Uri CONTENT_URI(long id) {
+            return ContentUris.withAppendedId(CONTENT_URI, id);
+        }
+
+        public static Uri CONTENT_URI(long noteId, long actionId) {
+            return ContentUris.withAppendedId(CONTENT_URI(noteId), actionId);
+        }
+
+        public static Uri PAGE_URI(int pageSize) {
+            return SparrowContract.pageUriBuilder(CONTENT_URI, pageSize).build();
+        }
+
+        public static Uri PAGE_URI(int pageSize, String completed, int position, long id) {
+            return SparrowContract.pageUriBuilder(CONTENT_URI, pageSize)
+                    .appendQueryParameter(QUERY_PARAMETER_ANCHOR_PARTITION, completed)
+                    .appendQueryParameter(QUERY_PARAMETER_ANCHOR, Integer.toString(position))
+                    .appendQueryParameter(QUERY_PARAMETER_ANCHOR_ID, Long.toString(id))
+                    .build();
+        }
+    }
+
+    public static abstract class ActionListPosition implements BaseColumns {
+
+        public static final String TABLE_NAME = "action_list_position";
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon().appendPath(TABLE_NAME).build();
+        public static final Uri MOVE_URI = CONTENT_URI.buildUpon().appendPath("move").build();
+        public static final Uri ORDER_URI = CONTENT_URI.buildUpon().appendPath("order").build();
+
+        public static final int ACTION_LIST_POSITION_MATCH = 310;
+        public static final int ACTION_LIST_POSITION_MOVE_MATCH = 311;
+        public static final int ACTION_LIST_POSITION_ORDER_MATCH = 312;
+
+        public static final String COLUMN_NAME_ACTION_ID = "action_id";
+        public static final String COLUMN_NAME_POSITION = "position";
+
+        /* In a move, the action under the drop point; absent to move to the end. */
+        public static final String KEY_ANCHOR_ID = "anchor_id";
+    }
+
+    public static abstract class SearchableActions implements SearchableColumns {
+
+        public static final String TABLE_NAME = "searchable_actions";
+        public static final String TERMS_TABLE_NAME = "searchable_actions_terms";
+    }
+
+}
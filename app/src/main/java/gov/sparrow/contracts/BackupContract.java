@@ -0,0 +1,18 @@
+package gov.sparrow.contracts;
+
+import android.net.Uri;
+
+import static gov.sparrow.contracts.SparrowContract.BASE_CONTENT_URI;
+
+public final class BackupContract {
+
+    public static final String PATH_BACKUP = "backup";
+
+    public static final Uri BACKUP_URI = BASE_CONTENT_URI.buildUpon().appendPath(PATH_BACKUP).build();
+
+    public static final int BACKUP_MATCH = 600;
+
+    private BackupContract() {
+    }
+
+}
@@ -0,0 +1,100 @@
+package gov.sparrow.contracts;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.SearchContract.SearchableColumns;
+
+import static gov.sparrow.contracts.SparrowContract.BASE_CONTENT_URI;
+import static gov.sparrow.contracts.SparrowContract.QUERY_PARAMETER_ANCHOR;
+import static gov.sparrow.contracts.SparrowContract.QUERY_PARAMETER_ANCHOR_ID;
+
+public final class NoteContract {
+
+    private NoteContract() {
+    }
+
+    public static abstract class Note implements BaseColumns {
+
+        public static final String TABLE_NAME = "notes";
+        public static final String PATH_EDITS = "edits";
+        public static final String PATH_LAST_SAVED = Boolean.toString(true);
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon().appendPath(TABLE_NAME).build();
+
+        public static final String TYPE_ITEM = ContentResolver.CURSOR_ITEM_BASE_TYPE + "/vnd.gov.sparrow.note";
+
+        public static final int NOTE_MATCH = 100;
+        public static final int NOTE_ID_MATCH = 101;
+        public static final int NOTE_LAST_SAVED_MATCH = 102;
+        public static final int NOTE_EDITS_MATCH = 103;
+
+        public static final String COLUMN_NAME_TITLE = "title";
+        public static final String COLUMN_NAME_BODY = "body";
+        public static final String COLUMN_NAME_PREVIEW = "preview";
+        public static final String COLUMN_NAME_WORD_COUNT = "word_count";
+        public static final String COLUMN_NAME_NOTEBOOK_ID = "notebook_id";
+        public static final String COLUMN_NAME_ARCHIVED = "archived";
+        public static final String COLUMN_NAME_CREATED_AT = "created_at";
+        public static final String COLUMN_NAME_UPDATED_AT = "updated_at";
+        public static final String COLUMN_NAME_CHUNKED = "chunked";
+        public static final String COLUMN_NAME_VERSION = "version";
+        public static final String COLUMN_NAME_TYPE = "type";
+
+        /* Not a column: carries a serialized EditDelta to EDITS_URI in place of the body. */
+        public static final String COLUMN_NAME_EDITS = "edits";
+
+        public static final String ALIAS_NAME_NOTEBOOK_TITLE = "notebook_title";
+
+        public static final String TABLE_NOTEBOOK_JOIN = TABLE_NAME +
+                " LEFT OUTER JOIN " + Notebook.TABLE_NAME +
+                " ON (" + TABLE_NAME + "." + COLUMN_NAME_NOTEBOOK_ID + " = " + Notebook.TABLE_NAME + "." + Notebook._ID + ")";
+
+        public static final int PREVIEW_LENGTH = 200;
+        public static final int CHUNKED_BODY_THRESHOLD = 64 * 1024;
+
+        public static Uri CONTENT_URI(long id) {
+            return ContentUris.withAppendedId(CONTENT_URI, id);
+        }
+
+        public static Uri CONTENT_URI(long notebookId, boolean lastSaved) {
+            return CONTENT_URI(notebookId).buildUpon().appendPath(Boolean.toString(lastSaved)).build();
+        }
+
+        public static Uri EDITS_URI(long id) {
+            return CONTENT_URI(id).buildUpon().appendPath(PATH_EDITS).build();
+        }
+
+        public static Uri PAGE_URI(int pageSize) {
+            return SparrowContract.pageUriBuilder(CONTENT_URI, pageSize).build();
+        }
+
+        public static Uri PAGE_URI(int pageSize, String updatedAt, long id) {
+            return SparrowContract.pageUriBuilder(CONTENT_URI, pageSize)
+                    .appendQueryParameter(QUERY_PARAMETER_ANCHOR, updatedAt)
+                    .appendQueryParameter(QUERY_PARAMETER_ANCHOR_ID, Long.toString(id))
+                    .build();
+        }
+    }
+
+    public static abstract class NoteChunk implements BaseColumns {
+
+        public static final String TABLE_NAME = "note_chunks";
+
+        public static final String COLUMN_NAME_NOTE_ID = "note_id";
+        public static final String COLUMN_NAME_SEQUENCE = "sequence";
+        public static final String COLUMN_NAME_TEXT = "text";
+    }
+
+    public static abstract class SearchableNotes implements SearchableColumns {
+
+        public static final String TABLE_NAME = "searchable_notes";
+        public static final String CONTENT_VIEW_NAME = "searchable_note_content";
+        public static final String TERMS_TABLE_NAME = "searchable_notes_terms";
+
+        public static final String ALIAS_NAME_NOTEBOOK_TITLE = Note.ALIAS_NAME_NOTEBOOK_TITLE;
+    }
+
+}
@@ -0,0 +1,61 @@
+package gov.sparrow.contracts;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import static gov.sparrow.contracts.SparrowContract.BASE_CONTENT_URI;
+
+public final class NotebookContract {
+
+    private NotebookContract() {
+    }
+
+    public static abstract class Notebook implements BaseColumns {
+
+        public static final String TABLE_NAME = "notebooks";
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon().appendPath(TABLE_NAME).build();
+
+        public static final String TYPE_ITEM = ContentResolver.CURSOR_ITEM_BASE_TYPE + "/vnd.gov.sparrow.notebook";
+
+        public static final int NOTEBOOK_MATCH = 200;
+        public static final int NOTEBOOK_ARCHIVE_MATCH = 201;
+
+        public static final long UNASSIGNED_NOTEBOOK_ID = -1L;
+
+        public static final String COLUMN_NAME_TITLE = "title";
+        public static final String COLUMN_NAME_ARCHIVED = "archived";
+
+        public static final String TABLE_POSITION_JOIN = TABLE_NAME +
+                " LEFT OUTER JOIN " + NotebookListPosition.TABLE_NAME +
+                " ON (" + TABLE_NAME + "." + _ID + " = " + NotebookListPosition.TABLE_NAME + "." + NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID + ")";
+
+        public static Uri ARCHIVE_URI(long id, boolean deleteAll) {
+            return ContentUris.withAppendedId(CONTENT_URI, id).buildUpon()
+                    .appendPath(Boolean.toString(deleteAll))
+                    .build();
+        }
+    }
+
+    public static abstract class NotebookListPosition implements BaseColumns {
+
+        public static final String TABLE_NAME = "notebook_list_position";
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon().appendPath(TABLE_NAME).build();
+        public static final Uri MOVE_URI = CONTENT_URI.buildUpon().appendPath("move").build();
+        public static final Uri ORDER_URI = CONTENT_URI.buildUpon().appendPath("order").build();
+
+        public static final int NOTEBOOK_LIST_POSITION_MATCH = 210;
+        public static final int NOTEBOOK_LIST_POSITION_MOVE_MATCH = 211;
+        public static final int NOTEBOOK_LIST_POSITION_ORDER_MATCH = 212;
+
+        public static final String COLUMN_NAME_NOTEBOOK_ID = "notebook_id";
+        public static final String COLUMN_NAME_POSITION = "position";
+
+        /* In a move, the notebook under the drop point; absent to move to the end. */
+        public static final String KEY_ANCHOR_ID = "anchor_id";
+    }
+
+}
@@ -0,0 +1,58 @@
+package gov.sparrow.contracts;
+
+import android.net.Uri;
+
+import static gov.sparrow.contracts.SparrowContract.BASE_CONTENT_URI;
+
+public final class SearchContract {
+
+    private SearchContract() {
+    }
+
+    public interface SearchableColumns {
+        String SHARED_COLUMN_NAME_ID = "_id";
+        String SHARED_COLUMN_NAME_TITLE = "title";
+        String SHARED_COLUMN_NAME_BODY = "body";
+        String SHARED_COLUMN_NAME_NOTEBOOK_ID = "notebook_id";
+        String SHARED_COLUMN_NAME_NOTEBOOK_TITLE = "notebook_title";
+        String SHARED_COLUMN_NAME_COMPLETED = "completed";
+        String SHARED_COLUMN_NAME_TYPE = "type";
+        String SHARED_COLUMN_NAME_DUE_DATE = "due_date";
+        String SHARED_COLUMN_NAME_CREATED_AT = "created_at";
+
+        /* Ranked results only. */
+        String SHARED_COLUMN_NAME_SCORE = "score";
+        String SHARED_COLUMN_NAME_SNIPPET = "snippet";
+        String SHARED_COLUMN_NAME_HIGHLIGHTS = "highlights";
+    }
+
+    public static abstract class Searchable {
+
+        public static final String PATH_SEARCH = "search";
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon().appendPath(PATH_SEARCH).build();
+
+        public static final int SEARCH_MATCH = 500;
+
+        public static final String PARAM_MODE = "mode";
+        public static final String MODE_RANKED = "ranked";
+        public static final String MODE_FUZZY = "fuzzy";
+
+        /* Identifies one search-as-you-type session so later keystrokes can refine earlier results. */
+        public static final String PARAM_SESSION = "session";
+
+        public static final Uri RANKED_CONTENT_URI = CONTENT_URI.buildUpon()
+                .appendQueryParameter(PARAM_MODE, MODE_RANKED)
+                .build();
+        public static final Uri FUZZY_CONTENT_URI = CONTENT_URI.buildUpon()
+                .appendQueryParameter(PARAM_MODE, MODE_FUZZY)
+                .build();
+
+        public static final int RANKED_LIMIT = 50;
+
+        public static final String METHOD_MAINTAIN_INDEX = "maintain_index";
+        public static final String EXTRA_OPTIMIZE = "gov.sparrow.extra.OPTIMIZE";
+        public static final String EXTRA_MERGE_STEPS = "gov.sparrow.extra.MERGE_STEPS";
+    }
+
+}
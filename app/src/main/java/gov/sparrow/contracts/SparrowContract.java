@@ -0,0 +1,27 @@
+package gov.sparrow.contracts;
+
+import android.net.Uri;
+
+public final class SparrowContract {
+
+    public static final String SPARROW_CONTENT_AUTHORITY = "gov.sparrow.provider.SparrowProvider";
+    public static final Uri BASE_CONTENT_URI = Uri.parse("content://" + SPARROW_CONTENT_AUTHORITY);
+
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+    public static final String QUERY_PARAMETER_ANCHOR = "anchor";
+    public static final String QUERY_PARAMETER_ANCHOR_ID = "anchor_id";
+    public static final String QUERY_PARAMETER_ANCHOR_PARTITION = "anchor_partition";
+
+    public static final String EXTRA_TOTAL_COUNT = "gov.sparrow.extra.TOTAL_COUNT";
+
+    public static final String METHOD_REBALANCE_LIST_POSITIONS = "rebalance_list_positions";
+
+    private SparrowContract() {
+    }
+
+    static Uri.Builder pageUriBuilder(Uri contentUri, int pageSize) {
+        return contentUri.buildUpon()
+                .appendQueryParameter(QUERY_PARAMETER_LIMIT, Integer.toString(pageSize));
+    }
+
+}
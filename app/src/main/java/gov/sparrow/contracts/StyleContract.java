@@ -0,0 +1,27 @@
+package gov.sparrow.contracts;
+
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import static gov.sparrow.contracts.SparrowContract.BASE_CONTENT_URI;
+
+public final class StyleContract {
+
+    private StyleContract() {
+    }
+
+    public static abstract class Style implements BaseColumns {
+
+        public static final String TABLE_NAME = "styles";
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon().appendPath(TABLE_NAME).build();
+
+        public static final int STYLE_MATCH = 400;
+
+        public static final String COLUMN_NAME_NOTE_ID = "note_id";
+        public static final String COLUMN_NAME_TYPE = "type";
+        public static final String COLUMN_NAME_START = "start";
+        public static final String COLUMN_NAME_END = "end";
+    }
+
+}
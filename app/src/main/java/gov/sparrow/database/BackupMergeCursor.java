@@ -0,0 +1,59 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import android.database.MergeCursor;
+
+/*
+* Every notebook, note, action and style row, in that order. The chunks of
+* chunked note bodies ride alongside, outside the merged rows.
+* */
+public class BackupMergeCursor extends MergeCursor {
+
+    private final Cursor notebooks;
+    private final Cursor notes;
+    private final Cursor actions;
+    private final Cursor styles;
+    private final Cursor noteChunks;
+
+    public BackupMergeCursor(Cursor notebooks, Cursor notes, Cursor actions, Cursor styles) {
+        this(notebooks, notes, actions, styles, null);
+    }
+
+    public BackupMergeCursor(Cursor notebooks, Cursor notes, Cursor actions, Cursor styles, Cursor noteChunks) {
+        super(new Cursor[]{notebooks, notes, actions, styles});
+        this.notebooks = notebooks;
+        this.notes = notes;
+        this.actions = actions;
+        this.styles = styles;
+        this.noteChunks = noteChunks;
+    }
+
+    public int getNotebookCount() {
+        return notebooks.getCount();
+    }
+
+    public int getNoteCount() {
+        return notes.getCount();
+    }
+
+    public int getActionCount() {
+        return actions.getCount();
+    }
+
+    public int getStyleCount() {
+        return styles.getCount();
+    }
+
+    public Cursor getNoteChunks() {
+        return noteChunks;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (noteChunks != null) {
+            noteChunks.close();
+        }
+    }
+
+}
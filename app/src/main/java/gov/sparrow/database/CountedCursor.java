@@ -0,0 +1,26 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.os.Bundle;
+import gov.sparrow.contracts.SparrowContract;
+
+/*
+* Carries the total row count of a paged query alongside its first page.
+* */
+public class CountedCursor extends CursorWrapper {
+
+    private final Bundle extras;
+
+    public CountedCursor(Cursor cursor, int totalCount) {
+        super(cursor);
+        extras = new Bundle();
+        extras.putInt(SparrowContract.EXTRA_TOTAL_COUNT, totalCount);
+    }
+
+    @Override
+    public Bundle getExtras() {
+        return extras;
+    }
+
+}
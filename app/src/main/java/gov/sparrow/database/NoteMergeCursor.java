@@ -0,0 +1,28 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import android.database.MergeCursor;
+
+/*
+* A note row followed by its action link rows and then its style rows.
+* */
+public class NoteMergeCursor extends MergeCursor {
+
+    private final Cursor actionLinks;
+    private final Cursor styles;
+
+    public NoteMergeCursor(Cursor note, Cursor actionLinks, Cursor styles) {
+        super(new Cursor[]{note, actionLinks, styles});
+        this.actionLinks = actionLinks;
+        this.styles = styles;
+    }
+
+    public int getActionLinkCount() {
+        return actionLinks.getCount();
+    }
+
+    public int getStyleCount() {
+        return styles.getCount();
+    }
+
+}
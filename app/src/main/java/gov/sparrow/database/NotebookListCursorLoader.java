@@ -0,0 +1,36 @@
+package gov.sparrow.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.v4.content.CursorLoader;
+import gov.sparrow.adapter.NotebookListAdapterCursorWrapper;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
+
+/*
+* Loads the notebook list and indexes it by list position in the background,
+* so the adapter is handed a cursor it can bind without reading any ranks.
+* */
+public class NotebookListCursorLoader extends CursorLoader {
+
+    public NotebookListCursorLoader(Context context,
+                                    String[] projection,
+                                    String selection,
+                                    String[] selectionArgs) {
+        super(context, Notebook.CONTENT_URI, projection, selection, selectionArgs,
+                NotebookListPosition.COLUMN_NAME_POSITION + " ASC");
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        Cursor cursor = super.loadInBackground();
+        if (cursor == null) {
+            return null;
+        }
+
+        NotebookListAdapterCursorWrapper notebooks = new NotebookListAdapterCursorWrapper(cursor);
+        notebooks.buildIndex();
+        return notebooks;
+    }
+
+}
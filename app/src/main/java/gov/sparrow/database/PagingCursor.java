@@ -0,0 +1,207 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.os.Bundle;
+import gov.sparrow.contracts.SparrowContract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* Presents keyset-paged query results as one cursor. Only the first page is
+* read up front; moving past the loaded rows asks the PageLoader for the page
+* after the last loaded one. getCount() reports the total carried by the first
+* page so list views can size themselves before the later pages arrive.
+* */
+public class PagingCursor extends CursorWrapper {
+
+    public interface PageLoader {
+        /*
+        * Returns the page that follows the last row of lastPage, or null.
+        * */
+        Cursor loadPage(Cursor lastPage);
+    }
+
+    private final List<Cursor> pages = new ArrayList<>();
+    private final List<Integer> pageStarts = new ArrayList<>();
+    private final int pageSize;
+    private final PageLoader pageLoader;
+    private final int totalCount;
+    private int loadedCount;
+    private boolean hasMorePages;
+    private int position = -1;
+
+    public PagingCursor(Cursor firstPage, int pageSize, PageLoader pageLoader) {
+        super(firstPage);
+        this.pageSize = pageSize;
+        this.pageLoader = pageLoader;
+
+        Bundle extras = firstPage.getExtras();
+        totalCount = extras != null && extras.containsKey(SparrowContract.EXTRA_TOTAL_COUNT)
+                ? extras.getInt(SparrowContract.EXTRA_TOTAL_COUNT)
+                : -1;
+        addPage(firstPage);
+    }
+
+    public boolean hasMorePages() {
+        return hasMorePages;
+    }
+
+    @Override
+    public int getCount() {
+        if (!hasMorePages || totalCount < 0) {
+            return loadedCount;
+        }
+        return Math.max(totalCount, loadedCount);
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        while (position >= loadedCount && hasMorePages) {
+            Cursor lastPage = pages.get(pages.size() - 1);
+            Cursor nextPage = pageLoader.loadPage(lastPage);
+            if (nextPage == null) {
+                hasMorePages = false;
+            } else {
+                addPage(nextPage);
+            }
+        }
+        if (position < 0 || position >= loadedCount) {
+            this.position = position < 0 ? -1 : loadedCount;
+            return false;
+        }
+        this.position = position;
+        return true;
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return moveToPosition(position + offset);
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToLast() {
+        return moveToPosition(getCount() - 1);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(position + 1);
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        return moveToPosition(position - 1);
+    }
+
+    @Override
+    public boolean isFirst() {
+        return position == 0 && getCount() != 0;
+    }
+
+    @Override
+    public boolean isLast() {
+        int count = getCount();
+        return position == count - 1 && count != 0;
+    }
+
+    @Override
+    public boolean isBeforeFirst() {
+        return getCount() == 0 || position == -1;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        int count = getCount();
+        return count == 0 || position == count;
+    }
+
+    @Override
+    public Bundle getExtras() {
+        return pages.get(0).getExtras();
+    }
+
+    @Override
+    public String getString(int column) {
+        return currentRow().getString(column);
+    }
+
+    @Override
+    public short getShort(int column) {
+        return currentRow().getShort(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return currentRow().getInt(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        return currentRow().getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return currentRow().getFloat(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return currentRow().getDouble(column);
+    }
+
+    @Override
+    public byte[] getBlob(int column) {
+        return currentRow().getBlob(column);
+    }
+
+    @Override
+    public int getType(int column) {
+        return currentRow().getType(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return currentRow().isNull(column);
+    }
+
+    @Override
+    public void close() {
+        for (Cursor page : pages) {
+            page.close();
+        }
+    }
+
+    private void addPage(Cursor page) {
+        int count = page.getCount();
+        pages.add(page);
+        pageStarts.add(loadedCount);
+        loadedCount += count;
+        hasMorePages = count > 0 && count >= pageSize;
+    }
+
+    private Cursor currentRow() {
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            int start = pageStarts.get(i);
+            if (position >= start) {
+                Cursor page = pages.get(i);
+                page.moveToPosition(position - start);
+                return page;
+            }
+        }
+        throw new IllegalStateException("No page holds position " + position);
+    }
+
+}
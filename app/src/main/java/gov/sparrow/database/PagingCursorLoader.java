@@ -0,0 +1,132 @@
+package gov.sparrow.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.CursorLoader;
+import gov.sparrow.adapter.ActionListAdapterCursorWrapper;
+import gov.sparrow.adapter.helpers.SortableCursorWrapper;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.NoteContract.Note;
+
+/*
+* Loads the first page of a keyset-paged list and hands back a PagingCursor
+* that fetches each later page on demand, anchored on the last row it read.
+* The action list is handed back already wrapped and indexed for its adapter,
+* so no rank is read on the main thread.
+* */
+public class PagingCursorLoader extends CursorLoader {
+
+    interface PageAnchor {
+        Uri nextPageUri(Cursor lastRow, int pageSize);
+    }
+
+    interface ListWrapper {
+        SortableCursorWrapper wrap(Cursor cursor);
+    }
+
+    private static final PageAnchor NOTE_ANCHOR = new PageAnchor() {
+        @Override
+        public Uri nextPageUri(Cursor lastRow, int pageSize) {
+            return Note.PAGE_URI(
+                    pageSize,
+                    lastRow.getString(lastRow.getColumnIndexOrThrow(Note.COLUMN_NAME_UPDATED_AT)),
+                    lastRow.getLong(lastRow.getColumnIndexOrThrow(Note._ID)));
+        }
+    };
+
+    private static final PageAnchor ACTION_ANCHOR = new PageAnchor() {
+        @Override
+        public Uri nextPageUri(Cursor lastRow, int pageSize) {
+            return Action.PAGE_URI(
+                    pageSize,
+                    lastRow.getString(lastRow.getColumnIndexOrThrow(Action.COLUMN_NAME_COMPLETED)),
+                    lastRow.getInt(lastRow.getColumnIndexOrThrow(ActionListPosition.COLUMN_NAME_POSITION)),
+                    lastRow.getLong(lastRow.getColumnIndexOrThrow(Action._ID)));
+        }
+    };
+
+    private final int pageSize;
+    private final PageAnchor pageAnchor;
+    private final ListWrapper listWrapper;
+
+    PagingCursorLoader(Context context,
+                       Uri uri,
+                       String[] projection,
+                       String selection,
+                       String[] selectionArgs,
+                       String sortOrder,
+                       int pageSize,
+                       PageAnchor pageAnchor,
+                       ListWrapper listWrapper) {
+        super(context, uri, projection, selection, selectionArgs, sortOrder);
+        this.pageSize = pageSize;
+        this.pageAnchor = pageAnchor;
+        this.listWrapper = listWrapper;
+    }
+
+    public static PagingCursorLoader forNotes(Context context,
+                                              String[] projection,
+                                              String selection,
+                                              String[] selectionArgs,
+                                              int pageSize) {
+        return new PagingCursorLoader(context, Note.PAGE_URI(pageSize),
+                projection, selection, selectionArgs, null, pageSize, NOTE_ANCHOR, null);
+    }
+
+    public static PagingCursorLoader forActions(Context context,
+                                                String[] projection,
+                                                String selection,
+                                                String[] selectionArgs,
+                                                int pageSize) {
+        return forActions(context, projection, selection, selectionArgs, pageSize, null);
+    }
+
+    /* A notebook id keeps only that notebook's actions, indexed across every page. */
+    public static PagingCursorLoader forActions(Context context,
+                                                String[] projection,
+                                                String selection,
+                                                String[] selectionArgs,
+                                                int pageSize,
+                                                final Long notebookId) {
+        return new PagingCursorLoader(context, Action.PAGE_URI(pageSize),
+                projection, selection, selectionArgs, Action.PARTITIONED_SORT_ORDER, pageSize, ACTION_ANCHOR,
+                new ListWrapper() {
+                    @Override
+                    public SortableCursorWrapper wrap(Cursor cursor) {
+                        return new ActionListAdapterCursorWrapper(cursor, notebookId);
+                    }
+                });
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        Cursor firstPage = super.loadInBackground();
+        if (firstPage == null) {
+            return null;
+        }
+        PagingCursor cursor = new PagingCursor(firstPage, pageSize, new PagingCursor.PageLoader() {
+            @Override
+            public Cursor loadPage(Cursor lastPage) {
+                if (!lastPage.moveToLast()) {
+                    return null;
+                }
+                return getContext().getContentResolver().query(
+                        pageAnchor.nextPageUri(lastPage, pageSize),
+                        getProjection(),
+                        getSelection(),
+                        getSelectionArgs(),
+                        getSortOrder());
+            }
+        });
+        if (listWrapper == null) {
+            return cursor;
+        }
+
+        SortableCursorWrapper list = listWrapper.wrap(cursor);
+        list.buildIndex();
+        return list;
+    }
+
+}
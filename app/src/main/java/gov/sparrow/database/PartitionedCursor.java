@@ -0,0 +1,30 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.os.Bundle;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.SparrowContract;
+
+/*
+* Action rows ordered incomplete first, with the size of each partition so
+* adapters can find the completed boundary without scanning.
+* */
+public class PartitionedCursor extends CursorWrapper {
+
+    private final Bundle extras;
+
+    public PartitionedCursor(Cursor cursor, int incompleteCount, int completedCount) {
+        super(cursor);
+        extras = new Bundle();
+        extras.putInt(Action.EXTRA_INCOMPLETE_COUNT, incompleteCount);
+        extras.putInt(Action.EXTRA_COMPLETED_COUNT, completedCount);
+        extras.putInt(SparrowContract.EXTRA_TOTAL_COUNT, incompleteCount + completedCount);
+    }
+
+    @Override
+    public Bundle getExtras() {
+        return extras;
+    }
+
+}
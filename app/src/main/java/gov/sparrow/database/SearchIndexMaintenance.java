@@ -0,0 +1,57 @@
+package gov.sparrow.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import gov.sparrow.contracts.ActionContract.SearchableActions;
+import gov.sparrow.contracts.NoteContract.SearchableNotes;
+
+/*
+* Keeps the FTS segment count down in small steps. Each merge step is its own
+* autocommit statement so it never holds the write lock for long, and a table
+* is done once a step writes fewer than two rows.
+* */
+public class SearchIndexMaintenance {
+
+    public static final int MERGE_PAGES = 300;
+    public static final int MERGE_MIN_SEGMENTS = 8;
+
+    static final String TOTAL_CHANGES_SQL = "SELECT total_changes()";
+
+    private static final String[] TABLES = {SearchableNotes.TABLE_NAME, SearchableActions.TABLE_NAME};
+
+    public static String mergeSql(String tableName) {
+        return "INSERT INTO " + tableName + "(" + tableName + ") VALUES('merge=" +
+                MERGE_PAGES + "," + MERGE_MIN_SEGMENTS + "');";
+    }
+
+    /*
+    * Returns the number of merge steps run, which is at most maxSteps.
+    * */
+    public int merge(SQLiteDatabase db, int maxSteps) {
+        int steps = 0;
+        SQLiteStatement totalChanges = db.compileStatement(TOTAL_CHANGES_SQL);
+        try {
+            for (String table : TABLES) {
+                String mergeSql = mergeSql(table);
+                while (steps < maxSteps) {
+                    long before = totalChanges.simpleQueryForLong();
+                    db.execSQL(mergeSql);
+                    steps++;
+                    if (totalChanges.simpleQueryForLong() - before < 2) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            totalChanges.close();
+        }
+        return steps;
+    }
+
+    public void optimize(SQLiteDatabase db) {
+        for (String table : TABLES) {
+            db.execSQL("INSERT INTO " + table + "(" + table + ") VALUES('optimize');");
+        }
+    }
+
+}
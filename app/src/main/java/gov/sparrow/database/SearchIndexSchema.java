@@ -0,0 +1,182 @@
+package gov.sparrow.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.SearchableActions;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NoteContract.NoteChunk;
+import gov.sparrow.contracts.NoteContract.SearchableNotes;
+import gov.sparrow.provider.SqliteFeatures;
+
+/*
+* Owns the FTS tables behind search. Both are external-content fts4 tables:
+* notes read their text through a view that reassembles chunked bodies, and
+* triggers keep the index in step with every write to the source tables.
+* */
+public class SearchIndexSchema {
+
+    public enum Tokenizer {
+        SIMPLE("simple"),
+        PORTER("porter"),
+        UNICODE61("unicode61 \"remove_diacritics=1\"");
+
+        private final String sql;
+
+        Tokenizer(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    public static final Tokenizer DEFAULT_TOKENIZER = Tokenizer.UNICODE61;
+
+    private static final String PREFIX_INDEXES = "prefix=\"2,3\"";
+    private static final String SUSPENDED_TABLE_NAME = "search_index_suspended";
+
+    public static final String NOTE_BODY_COLUMN =
+            "CASE WHEN " + Note.TABLE_NAME + "." + Note.COLUMN_NAME_CHUNKED + "='true'" +
+                    " THEN (SELECT group_concat(" + NoteChunk.COLUMN_NAME_TEXT + ", '') FROM" +
+                    " (SELECT " + NoteChunk.COLUMN_NAME_TEXT + " FROM " + NoteChunk.TABLE_NAME +
+                    " WHERE " + NoteChunk.COLUMN_NAME_NOTE_ID + "=" + Note.TABLE_NAME + "." + Note._ID +
+                    " ORDER BY " + NoteChunk.COLUMN_NAME_SEQUENCE + "))" +
+                    " ELSE " + Note.TABLE_NAME + "." + Note.COLUMN_NAME_BODY + " END AS " + Note.COLUMN_NAME_BODY;
+
+    public static final String CREATE_NOTE_CONTENT_VIEW_SQL =
+            "CREATE VIEW " + SearchableNotes.CONTENT_VIEW_NAME + " AS" +
+                    " SELECT " + Note.TABLE_NAME + "." + Note._ID + " AS rowid, " +
+                    Note.TABLE_NAME + "." + Note.COLUMN_NAME_TITLE + " AS " + Note.COLUMN_NAME_TITLE + ", " +
+                    NOTE_BODY_COLUMN +
+                    " FROM " + Note.TABLE_NAME + ";";
+
+    public static final String CREATE_SUSPENDED_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS " + SUSPENDED_TABLE_NAME + "(note_id INTEGER PRIMARY KEY);";
+
+    public static final String INDEX_NOTE_SQL =
+            "INSERT INTO " + SearchableNotes.TABLE_NAME + "(docid, title, body)" +
+                    " SELECT rowid, title, body FROM " + SearchableNotes.CONTENT_VIEW_NAME + " WHERE rowid=?;";
+    public static final String UNINDEX_NOTE_SQL = "DELETE FROM " + SearchableNotes.TABLE_NAME + " WHERE docid=?;";
+
+    /* A suspended note is skipped by the triggers while its chunks are rewritten. */
+    public static final String SUSPEND_NOTE_SQL = "INSERT INTO " + SUSPENDED_TABLE_NAME + "(note_id) VALUES(?);";
+    public static final String RESUME_NOTE_SQL = "DELETE FROM " + SUSPENDED_TABLE_NAME + " WHERE note_id=?;";
+
+    private static final String NOTE_INDEXED_COLUMNS =
+            Note.COLUMN_NAME_TITLE + ", " + Note.COLUMN_NAME_BODY + ", " + Note.COLUMN_NAME_CHUNKED;
+
+    public static final String[] NOTE_TRIGGERS = {
+            "CREATE TRIGGER searchable_notes_bu BEFORE UPDATE OF " + NOTE_INDEXED_COLUMNS + " ON " + Note.TABLE_NAME +
+                    " WHEN old._id NOT IN (SELECT note_id FROM " + SUSPENDED_TABLE_NAME + ") BEGIN" +
+                    " " + UNINDEX_NOTE_SQL.replace("?", "old._id") + " END;",
+            "CREATE TRIGGER searchable_notes_bd BEFORE DELETE ON " + Note.TABLE_NAME + " BEGIN" +
+                    " " + UNINDEX_NOTE_SQL.replace("?", "old._id") + " END;",
+            "CREATE TRIGGER searchable_notes_au AFTER UPDATE OF " + NOTE_INDEXED_COLUMNS + " ON " + Note.TABLE_NAME +
+                    " WHEN new._id NOT IN (SELECT note_id FROM " + SUSPENDED_TABLE_NAME + ") BEGIN" +
+                    " " + INDEX_NOTE_SQL.replace("?", "new._id") + " END;",
+            "CREATE TRIGGER searchable_notes_ai AFTER INSERT ON " + Note.TABLE_NAME +
+                    " WHEN new._id NOT IN (SELECT note_id FROM " + SUSPENDED_TABLE_NAME + ") BEGIN" +
+                    " " + INDEX_NOTE_SQL.replace("?", "new._id") + " END;"
+    };
+
+    private static final String INDEX_ACTION_SQL =
+            "INSERT INTO " + SearchableActions.TABLE_NAME + "(docid, title) VALUES(new._id, new.title);";
+    private static final String UNINDEX_ACTION_SQL =
+            "DELETE FROM " + SearchableActions.TABLE_NAME + " WHERE docid=old._id;";
+
+    public static final String[] ACTION_TRIGGERS = {
+            "CREATE TRIGGER searchable_actions_bu BEFORE UPDATE OF " + Action.COLUMN_NAME_TITLE + " ON " + Action.TABLE_NAME +
+                    " BEGIN " + UNINDEX_ACTION_SQL + " END;",
+            "CREATE TRIGGER searchable_actions_bd BEFORE DELETE ON " + Action.TABLE_NAME +
+                    " BEGIN " + UNINDEX_ACTION_SQL + " END;",
+            "CREATE TRIGGER searchable_actions_au AFTER UPDATE OF " + Action.COLUMN_NAME_TITLE + " ON " + Action.TABLE_NAME +
+                    " BEGIN " + INDEX_ACTION_SQL + " END;",
+            "CREATE TRIGGER searchable_actions_ai AFTER INSERT ON " + Action.TABLE_NAME +
+                    " BEGIN " + INDEX_ACTION_SQL + " END;"
+    };
+
+    private static final String[] NOTE_TRIGGER_NAMES = {
+            "searchable_notes_bu", "searchable_notes_bd", "searchable_notes_au", "searchable_notes_ai"
+    };
+    private static final String[] ACTION_TRIGGER_NAMES = {
+            "searchable_actions_bu", "searchable_actions_bd", "searchable_actions_au", "searchable_actions_ai"
+    };
+
+    private final SqliteFeatures sqliteFeatures;
+
+    public SearchIndexSchema(SqliteFeatures sqliteFeatures) {
+        this.sqliteFeatures = sqliteFeatures;
+    }
+
+    public static String createNotesSql(Tokenizer tokenizer) {
+        return "CREATE VIRTUAL TABLE " + SearchableNotes.TABLE_NAME + " USING fts4(" +
+                "content=\"" + SearchableNotes.CONTENT_VIEW_NAME + "\", " +
+                Note.COLUMN_NAME_TITLE + ", " + Note.COLUMN_NAME_BODY + ", " +
+                "tokenize=" + tokenizer.sql + ", " + PREFIX_INDEXES + ");";
+    }
+
+    public static String createActionsSql(Tokenizer tokenizer) {
+        return "CREATE VIRTUAL TABLE " + SearchableActions.TABLE_NAME + " USING fts4(" +
+                "content=\"" + Action.TABLE_NAME + "\", " +
+                Action.COLUMN_NAME_TITLE + ", " +
+                "tokenize=" + tokenizer.sql + ", " + PREFIX_INDEXES + ");";
+    }
+
+    public void create(SQLiteDatabase db) {
+        rebuild(db, DEFAULT_TOKENIZER);
+    }
+
+    /*
+    * Drops and recreates both FTS tables, their vocabulary tables and triggers,
+    * then repopulates them from the content tables in a single transaction.
+    * */
+    public void rebuild(SQLiteDatabase db, Tokenizer tokenizer) {
+        if (tokenizer == Tokenizer.UNICODE61 && !sqliteFeatures.supportsUnicodeTokenizer(db)) {
+            tokenizer = Tokenizer.SIMPLE;
+        }
+
+        db.beginTransaction();
+        try {
+            dropTriggers(db, NOTE_TRIGGER_NAMES);
+            db.execSQL("DROP TABLE IF EXISTS " + SearchableNotes.TERMS_TABLE_NAME + ";");
+            db.execSQL("DROP TABLE IF EXISTS " + SearchableNotes.TABLE_NAME + ";");
+            db.execSQL("DROP VIEW IF EXISTS " + SearchableNotes.CONTENT_VIEW_NAME + ";");
+            db.execSQL(CREATE_SUSPENDED_TABLE_SQL);
+            db.execSQL(CREATE_NOTE_CONTENT_VIEW_SQL);
+            db.execSQL(createNotesSql(tokenizer));
+            db.execSQL(createTermsSql(SearchableNotes.TERMS_TABLE_NAME, SearchableNotes.TABLE_NAME));
+            db.execSQL(rebuildSql(SearchableNotes.TABLE_NAME));
+            createTriggers(db, NOTE_TRIGGERS);
+
+            dropTriggers(db, ACTION_TRIGGER_NAMES);
+            db.execSQL("DROP TABLE IF EXISTS " + SearchableActions.TERMS_TABLE_NAME + ";");
+            db.execSQL("DROP TABLE IF EXISTS " + SearchableActions.TABLE_NAME + ";");
+            db.execSQL(createActionsSql(tokenizer));
+            db.execSQL(createTermsSql(SearchableActions.TERMS_TABLE_NAME, SearchableActions.TABLE_NAME));
+            db.execSQL(rebuildSql(SearchableActions.TABLE_NAME));
+            createTriggers(db, ACTION_TRIGGERS);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String createTermsSql(String termsTableName, String tableName) {
+        return "CREATE VIRTUAL TABLE " + termsTableName + " USING fts4aux(" + tableName + ");";
+    }
+
+    private static String rebuildSql(String tableName) {
+        return "INSERT INTO " + tableName + "(" + tableName + ") VALUES('rebuild');";
+    }
+
+    private static void dropTriggers(SQLiteDatabase db, String[] names) {
+        for (String name : names) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + name + ";");
+        }
+    }
+
+    private static void createTriggers(SQLiteDatabase db, String[] triggers) {
+        for (String trigger : triggers) {
+            db.execSQL(trigger);
+        }
+    }
+
+}
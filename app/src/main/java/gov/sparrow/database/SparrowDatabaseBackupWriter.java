@@ -0,0 +1,162 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import com.google.gson.stream.JsonWriter;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NoteContract.NoteChunk;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.StyleContract.Style;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.zip.GZIPOutputStream;
+
+/*
+* Streams a backup cursor to a gzipped JSON file one row at a time, so the
+* backup never holds more than a single note body in memory.
+* */
+public class SparrowDatabaseBackupWriter {
+
+    public void backupToFile(BackupMergeCursor cursor, File file) throws IOException {
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(file)), "UTF-8")));
+        try {
+            int position = 0;
+            writer.beginObject();
+
+            writer.name("notebooks").beginArray();
+            for (int i = 0; i < cursor.getNotebookCount(); i++) {
+                cursor.moveToPosition(position++);
+                writeNotebook(writer, cursor);
+            }
+            writer.endArray();
+
+            Cursor noteChunks = cursor.getNoteChunks();
+            if (noteChunks != null) {
+                noteChunks.moveToFirst();
+            }
+            writer.name("notes").beginArray();
+            for (int i = 0; i < cursor.getNoteCount(); i++) {
+                cursor.moveToPosition(position++);
+                writeNote(writer, cursor, noteChunks);
+            }
+            writer.endArray();
+
+            writer.name("actions").beginArray();
+            for (int i = 0; i < cursor.getActionCount(); i++) {
+                cursor.moveToPosition(position++);
+                writeAction(writer, cursor);
+            }
+            writer.endArray();
+
+            writer.name("styles").beginArray();
+            for (int i = 0; i < cursor.getStyleCount(); i++) {
+                cursor.moveToPosition(position++);
+                writeStyle(writer, cursor);
+            }
+            writer.endArray();
+
+            writer.endObject();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeNotebook(JsonWriter writer, Cursor cursor) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(getLong(cursor, Notebook._ID));
+        writer.name("title").value(getString(cursor, Notebook.COLUMN_NAME_TITLE));
+        writer.name("archived").value(getBoolean(cursor, Notebook.COLUMN_NAME_ARCHIVED));
+        writer.endObject();
+    }
+
+    private void writeNote(JsonWriter writer, Cursor cursor, Cursor noteChunks) throws IOException {
+        long id = getLong(cursor, Note._ID);
+        int chunkedIndex = cursor.getColumnIndex(Note.COLUMN_NAME_CHUNKED);
+        boolean chunked = chunkedIndex != -1 && Boolean.parseBoolean(cursor.getString(chunkedIndex));
+
+        writer.beginObject();
+        writer.name("id").value(id);
+        writer.name("title").value(getString(cursor, Note.COLUMN_NAME_TITLE));
+        writer.name("body").value(chunked ? readChunks(noteChunks, id) : getString(cursor, Note.COLUMN_NAME_BODY));
+        writer.name("notebookId").value(getLong(cursor, Note.COLUMN_NAME_NOTEBOOK_ID));
+        writer.name("archived").value(getBoolean(cursor, Note.COLUMN_NAME_ARCHIVED));
+        writer.name("createdAt").value(getString(cursor, Note.COLUMN_NAME_CREATED_AT));
+        writer.name("lastSaved").value(getString(cursor, Note.COLUMN_NAME_UPDATED_AT));
+        writer.endObject();
+    }
+
+    /*
+    * Chunk rows are ordered by note id, as are the notes, so the chunk cursor
+    * only ever moves forward.
+    * */
+    private String readChunks(Cursor noteChunks, long noteId) {
+        StringBuilder body = new StringBuilder();
+        if (noteChunks == null) {
+            return body.toString();
+        }
+        int noteIdIndex = noteChunks.getColumnIndexOrThrow(NoteChunk.COLUMN_NAME_NOTE_ID);
+        int textIndex = noteChunks.getColumnIndexOrThrow(NoteChunk.COLUMN_NAME_TEXT);
+        while (!noteChunks.isAfterLast() && noteChunks.getLong(noteIdIndex) < noteId) {
+            noteChunks.moveToNext();
+        }
+        while (!noteChunks.isAfterLast() && noteChunks.getLong(noteIdIndex) == noteId) {
+            body.append(noteChunks.getString(textIndex));
+            noteChunks.moveToNext();
+        }
+        return body.toString();
+    }
+
+    private void writeAction(JsonWriter writer, Cursor cursor) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(getLong(cursor, Action._ID));
+        writer.name("title").value(getString(cursor, Action.COLUMN_NAME_TITLE));
+        int noteIdIndex = cursor.getColumnIndexOrThrow(Action.COLUMN_NAME_NOTE_ID);
+        if (!cursor.isNull(noteIdIndex)) {
+            writer.name("noteId").value(cursor.getLong(noteIdIndex));
+        }
+        int linkIdIndex = cursor.getColumnIndexOrThrow(Action.COLUMN_NAME_LINK_ID);
+        if (!cursor.isNull(linkIdIndex)) {
+            writer.name("linkId").value(cursor.getString(linkIdIndex));
+        }
+        writer.name("linkStart").value(getInt(cursor, Action.COLUMN_NAME_LINK_START));
+        writer.name("linkEnd").value(getInt(cursor, Action.COLUMN_NAME_LINK_END));
+        writer.name("completed").value(getBoolean(cursor, Action.COLUMN_NAME_COMPLETED));
+        writer.name("archived").value(getBoolean(cursor, Action.COLUMN_NAME_ARCHIVED));
+        writer.name("dueDate").value(getString(cursor, Action.COLUMN_NAME_DUE_DATE));
+        writer.name("createdAt").value(getString(cursor, Action.COLUMN_NAME_CREATED_AT));
+        writer.name("checkboxUpdatedAt").value(getString(cursor, Action.COLUMN_NAME_CHECKBOX_UPDATED_AT));
+        writer.endObject();
+    }
+
+    private void writeStyle(JsonWriter writer, Cursor cursor) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(getLong(cursor, Style._ID));
+        writer.name("noteId").value(getLong(cursor, Style.COLUMN_NAME_NOTE_ID));
+        writer.name("type").value(getString(cursor, Style.COLUMN_NAME_TYPE));
+        writer.name("start").value(getInt(cursor, Style.COLUMN_NAME_START));
+        writer.name("end").value(getInt(cursor, Style.COLUMN_NAME_END));
+        writer.endObject();
+    }
+
+    private static long getLong(Cursor cursor, String column) {
+        return cursor.getLong(cursor.getColumnIndexOrThrow(column));
+    }
+
+    private static int getInt(Cursor cursor, String column) {
+        return cursor.getInt(cursor.getColumnIndexOrThrow(column));
+    }
+
+    private static String getString(Cursor cursor, String column) {
+        return cursor.getString(cursor.getColumnIndexOrThrow(column));
+    }
+
+    private static boolean getBoolean(Cursor cursor, String column) {
+        return Boolean.parseBoolean(getString(cursor, column));
+    }
+
+}
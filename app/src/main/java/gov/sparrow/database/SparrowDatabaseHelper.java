@@ -0,0 +1,204 @@
+package gov.sparrow.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.ActionContract.SearchableActions;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NoteContract.NoteChunk;
+import gov.sparrow.contracts.NoteContract.SearchableNotes;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
+import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.provider.ListPositionHelper;
+
+public class SparrowDatabaseHelper extends SQLiteOpenHelper {
+
+    public static final String DATABASE_NAME = "sparrow.db";
+    public static final int DATABASE_VERSION = 4;
+
+    public static final String BLANK_NOTE_TITLE = "Untitled";
+
+    private static final String TIMESTAMP_DEFAULT = "(strftime('%Y-%m-%d %H:%M:%f', 'now'))";
+
+    private static final String CREATE_NOTEBOOKS_SQL =
+            "CREATE TABLE " + Notebook.TABLE_NAME + " (" +
+                    Notebook._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    Notebook.COLUMN_NAME_TITLE + " TEXT NOT NULL, " +
+                    Notebook.COLUMN_NAME_ARCHIVED + " TEXT NOT NULL DEFAULT 'false');";
+
+    private static final String CREATE_NOTES_SQL =
+            "CREATE TABLE " + Note.TABLE_NAME + " (" +
+                    Note._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    Note.COLUMN_NAME_TITLE + " TEXT, " +
+                    Note.COLUMN_NAME_BODY + " TEXT, " +
+                    Note.COLUMN_NAME_NOTEBOOK_ID + " INTEGER NOT NULL DEFAULT " + Notebook.UNASSIGNED_NOTEBOOK_ID + ", " +
+                    Note.COLUMN_NAME_ARCHIVED + " TEXT NOT NULL DEFAULT 'false', " +
+                    Note.COLUMN_NAME_TYPE + " TEXT NOT NULL DEFAULT '" + SearchableNotes.TABLE_NAME + "', " +
+                    Note.COLUMN_NAME_CREATED_AT + " TEXT NOT NULL DEFAULT " + TIMESTAMP_DEFAULT + ", " +
+                    Note.COLUMN_NAME_UPDATED_AT + " TEXT NOT NULL DEFAULT " + TIMESTAMP_DEFAULT + ");";
+
+    private static final String CREATE_ACTIONS_SQL =
+            "CREATE TABLE " + Action.TABLE_NAME + " (" +
+                    Action._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    Action.COLUMN_NAME_TITLE + " TEXT, " +
+                    Action.COLUMN_NAME_NOTE_ID + " INTEGER, " +
+                    Action.COLUMN_NAME_LINK_ID + " TEXT, " +
+                    Action.COLUMN_NAME_LINK_START + " INTEGER, " +
+                    Action.COLUMN_NAME_LINK_END + " INTEGER, " +
+                    Action.COLUMN_NAME_COMPLETED + " TEXT NOT NULL DEFAULT 'false', " +
+                    Action.COLUMN_NAME_DUE_DATE + " TEXT, " +
+                    Action.COLUMN_NAME_CHECKBOX_UPDATED_AT + " TEXT, " +
+                    Action.COLUMN_NAME_ARCHIVED + " TEXT NOT NULL DEFAULT 'false', " +
+                    Action.COLUMN_NAME_TYPE + " TEXT NOT NULL DEFAULT '" + SearchableActions.TABLE_NAME + "', " +
+                    Action.COLUMN_NAME_CREATED_AT + " TEXT NOT NULL DEFAULT " + TIMESTAMP_DEFAULT + ", " +
+                    "UNIQUE (" + Action.COLUMN_NAME_LINK_ID + ", " + Action.COLUMN_NAME_NOTE_ID + "));";
+
+    private static final String CREATE_STYLES_SQL =
+            "CREATE TABLE " + Style.TABLE_NAME + " (" +
+                    Style._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    Style.COLUMN_NAME_NOTE_ID + " INTEGER NOT NULL, " +
+                    Style.COLUMN_NAME_TYPE + " TEXT NOT NULL, " +
+                    Style.COLUMN_NAME_START + " INTEGER NOT NULL, " +
+                    Style.COLUMN_NAME_END + " INTEGER NOT NULL);";
+
+    /*
+    * The list position tables carry no _id of their own, so joining them onto
+    * actions or notebooks never makes a bare _id ambiguous.
+    * */
+    private static final String CREATE_ACTION_LIST_POSITION_SQL =
+            "CREATE TABLE " + ActionListPosition.TABLE_NAME + " (" +
+                    ActionListPosition.COLUMN_NAME_ACTION_ID + " INTEGER NOT NULL UNIQUE, " +
+                    ActionListPosition.COLUMN_NAME_POSITION + " INTEGER NOT NULL);";
+
+    private static final String CREATE_NOTEBOOK_LIST_POSITION_SQL =
+            "CREATE TABLE " + NotebookListPosition.TABLE_NAME + " (" +
+                    NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID + " INTEGER NOT NULL UNIQUE, " +
+                    NotebookListPosition.COLUMN_NAME_POSITION + " INTEGER NOT NULL);";
+
+    private static final String CREATE_NOTE_CHUNKS_SQL =
+            "CREATE TABLE " + NoteChunk.TABLE_NAME + " (" +
+                    NoteChunk._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    NoteChunk.COLUMN_NAME_NOTE_ID + " INTEGER NOT NULL, " +
+                    NoteChunk.COLUMN_NAME_SEQUENCE + " INTEGER NOT NULL, " +
+                    NoteChunk.COLUMN_NAME_TEXT + " TEXT NOT NULL, " +
+                    "UNIQUE (" + NoteChunk.COLUMN_NAME_NOTE_ID + ", " + NoteChunk.COLUMN_NAME_SEQUENCE + "));";
+
+    private static final String[] CREATE_INDEXES_SQL = {
+            "CREATE INDEX notes_updated_at ON " + Note.TABLE_NAME +
+                    " (" + Note.COLUMN_NAME_UPDATED_AT + ", " + Note._ID + ");",
+            "CREATE INDEX notes_notebook_id ON " + Note.TABLE_NAME + " (" + Note.COLUMN_NAME_NOTEBOOK_ID + ");",
+            "CREATE INDEX actions_note_id ON " + Action.TABLE_NAME + " (" + Action.COLUMN_NAME_NOTE_ID + ");",
+            "CREATE INDEX styles_note_id ON " + Style.TABLE_NAME + " (" + Style.COLUMN_NAME_NOTE_ID + ");",
+            "CREATE INDEX action_list_position_position ON " + ActionListPosition.TABLE_NAME +
+                    " (" + ActionListPosition.COLUMN_NAME_POSITION + ");",
+            "CREATE INDEX notebook_list_position_position ON " + NotebookListPosition.TABLE_NAME +
+                    " (" + NotebookListPosition.COLUMN_NAME_POSITION + ");"
+    };
+
+    /* New actions and notebooks go to the end of their lists, ranked by ListPositionHelper.appendRankSql. */
+    private static final String[] CREATE_POSITION_TRIGGERS_SQL = {
+            "CREATE TRIGGER action_list_position_ai AFTER INSERT ON " + Action.TABLE_NAME + " BEGIN" +
+                    " INSERT INTO " + ActionListPosition.TABLE_NAME +
+                    " (" + ActionListPosition.COLUMN_NAME_ACTION_ID + ", " + ActionListPosition.COLUMN_NAME_POSITION + ")" +
+                    " VALUES (new." + Action._ID + ", " +
+                    ListPositionHelper.appendRankSql(ActionListPosition.TABLE_NAME, ActionListPosition.COLUMN_NAME_POSITION) + "); END;",
+            "CREATE TRIGGER notebook_list_position_ai AFTER INSERT ON " + Notebook.TABLE_NAME + " BEGIN" +
+                    " INSERT INTO " + NotebookListPosition.TABLE_NAME +
+                    " (" + NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID + ", " + NotebookListPosition.COLUMN_NAME_POSITION + ")" +
+                    " VALUES (new." + Notebook._ID + ", " +
+                    ListPositionHelper.appendRankSql(NotebookListPosition.TABLE_NAME, NotebookListPosition.COLUMN_NAME_POSITION) + "); END;"
+    };
+
+    private final Context context;
+    private final SearchIndexSchema searchIndexSchema;
+    private SQLiteDatabase readConnection;
+
+    public SparrowDatabaseHelper(Context context, SearchIndexSchema searchIndexSchema) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+        this.searchIndexSchema = searchIndexSchema;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(CREATE_NOTEBOOKS_SQL);
+        db.execSQL(CREATE_NOTES_SQL);
+        db.execSQL(CREATE_ACTIONS_SQL);
+        db.execSQL(CREATE_STYLES_SQL);
+        db.execSQL(CREATE_ACTION_LIST_POSITION_SQL);
+        db.execSQL(CREATE_NOTEBOOK_LIST_POSITION_SQL);
+        for (String sql : CREATE_POSITION_TRIGGERS_SQL) {
+            db.execSQL(sql);
+        }
+        upgradeToSummaryColumns(db);
+        upgradeToChunkedBodies(db);
+        for (String sql : CREATE_INDEXES_SQL) {
+            db.execSQL(sql);
+        }
+        searchIndexSchema.create(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            upgradeToSummaryColumns(db);
+            db.execSQL("UPDATE " + Note.TABLE_NAME + " SET " +
+                    Note.COLUMN_NAME_PREVIEW + "=substr(" + Note.COLUMN_NAME_BODY + ", 1, " + Note.PREVIEW_LENGTH + ");");
+        }
+        if (oldVersion < 3) {
+            upgradeToChunkedBodies(db);
+        }
+        if (oldVersion < 4) {
+            searchIndexSchema.rebuild(db, SearchIndexSchema.DEFAULT_TOKENIZER);
+        }
+    }
+
+    /*
+    * Opens a second, read-only connection for a long read such as the backup.
+    * It reads beside the writer under WAL and must be closed by the caller.
+    * */
+    public SQLiteDatabase openSnapshotConnection() {
+        getReadableDatabase();
+        return SQLiteDatabase.openDatabase(
+                context.getDatabasePath(DATABASE_NAME).getPath(),
+                null,
+                SQLiteDatabase.OPEN_READONLY);
+    }
+
+    /*
+    * A shared read-only connection for short reads of several statements. It has
+    * a single connection, so a savepoint on it holds one snapshot across them;
+    * callers lock on it for the length of the read.
+    * */
+    public synchronized SQLiteDatabase getReadConnection() {
+        if (readConnection == null || !readConnection.isOpen()) {
+            readConnection = openSnapshotConnection();
+        }
+        return readConnection;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (readConnection != null) {
+            readConnection.close();
+            readConnection = null;
+        }
+        super.close();
+    }
+
+    private static void upgradeToSummaryColumns(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + Note.TABLE_NAME + " ADD COLUMN " + Note.COLUMN_NAME_PREVIEW + " TEXT;");
+        db.execSQL("ALTER TABLE " + Note.TABLE_NAME + " ADD COLUMN " + Note.COLUMN_NAME_WORD_COUNT + " INTEGER NOT NULL DEFAULT 0;");
+        db.execSQL("ALTER TABLE " + Note.TABLE_NAME + " ADD COLUMN " + Note.COLUMN_NAME_VERSION + " INTEGER NOT NULL DEFAULT 0;");
+    }
+
+    private static void upgradeToChunkedBodies(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + Note.TABLE_NAME + " ADD COLUMN " + Note.COLUMN_NAME_CHUNKED + " TEXT NOT NULL DEFAULT 'false';");
+        db.execSQL(CREATE_NOTE_CHUNKS_SQL);
+    }
+
+}
@@ -0,0 +1,116 @@
+package gov.sparrow.datasync;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.os.AsyncTask;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import gov.sparrow.contracts.ActionContract;
+import gov.sparrow.contracts.NoteContract;
+import gov.sparrow.contracts.NotebookContract;
+import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.contracts.StyleContract;
+import gov.sparrow.models.Action;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.Notebook;
+import gov.sparrow.models.Style;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+
+/*
+* Replaces the database with the contents of a gzipped JSON backup. The backup
+* is read one row at a time, mirroring how SparrowDatabaseBackupWriter streams
+* it out, and applied as a single batch so a bad file leaves the data intact.
+* */
+public class AsyncRestoreTask extends AsyncTask<File, Void, Void> {
+
+    private static final String TAG = AsyncRestoreTask.class.getSimpleName();
+
+    private final ContentResolver contentResolver;
+    private final Gson jsonMapper;
+    private final SparrowRestoreManager.RestoreTaskListener listener;
+
+    public AsyncRestoreTask(ContentResolver contentResolver,
+                            Gson jsonMapper,
+                            SparrowRestoreManager.RestoreTaskListener listener) {
+        this.contentResolver = contentResolver;
+        this.jsonMapper = jsonMapper;
+        this.listener = listener;
+    }
+
+    @Override
+    protected Void doInBackground(File... files) {
+        try {
+            ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+            operations.add(ContentProviderOperation.newDelete(StyleContract.Style.CONTENT_URI).build());
+            operations.add(ContentProviderOperation.newDelete(ActionContract.Action.CONTENT_URI).build());
+            operations.add(ContentProviderOperation.newDelete(NoteContract.Note.CONTENT_URI).build());
+            operations.add(ContentProviderOperation.newDelete(NotebookContract.Notebook.CONTENT_URI).build());
+
+            JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(files[0])), "UTF-8")));
+            try {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    readTable(reader, reader.nextName(), operations);
+                }
+                reader.endObject();
+            } finally {
+                reader.close();
+            }
+
+            contentResolver.applyBatch(SparrowContract.SPARROW_CONTENT_AUTHORITY, operations);
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to restore backup", e);
+        }
+        return null;
+    }
+
+    @Override
+    protected void onPostExecute(Void result) {
+        listener.onRestoreTaskComplete();
+    }
+
+    private void readTable(JsonReader reader, String name, ArrayList<ContentProviderOperation> operations) throws Exception {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            switch (name) {
+                case "notebooks":
+                    Notebook notebook = jsonMapper.fromJson(reader, Notebook.class);
+                    operations.add(ContentProviderOperation.newInsert(NotebookContract.Notebook.CONTENT_URI)
+                            .withValues(notebook.getContentValues())
+                            .build());
+                    break;
+                case "notes":
+                    Note note = jsonMapper.fromJson(reader, Note.class);
+                    operations.add(ContentProviderOperation.newInsert(NoteContract.Note.CONTENT_URI)
+                            .withValues(note.getContentValues())
+                            .build());
+                    break;
+                case "actions":
+                    Action action = jsonMapper.fromJson(reader, Action.class);
+                    operations.add(ContentProviderOperation.newInsert(ActionContract.Action.CONTENT_URI)
+                            .withValues(action.getContentValues())
+                            .build());
+                    break;
+                case "styles":
+                    Style style = jsonMapper.fromJson(reader, Style.class);
+                    operations.add(ContentProviderOperation.newInsert(StyleContract.Style.CONTENT_URI)
+                            .withValues(style.getContentValues())
+                            .build());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endArray();
+    }
+
+}
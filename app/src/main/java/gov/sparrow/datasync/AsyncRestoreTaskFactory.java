@@ -0,0 +1,14 @@
+package gov.sparrow.datasync;
+
+import android.content.ContentResolver;
+import com.google.gson.Gson;
+
+public class AsyncRestoreTaskFactory {
+
+    public AsyncRestoreTask newAsyncRestoreTask(ContentResolver contentResolver,
+                                                Gson jsonMapper,
+                                                SparrowRestoreManager.RestoreTaskListener listener) {
+        return new AsyncRestoreTask(contentResolver, jsonMapper, listener);
+    }
+
+}
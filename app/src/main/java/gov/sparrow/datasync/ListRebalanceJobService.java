@@ -0,0 +1,71 @@
+package gov.sparrow.datasync;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.util.Log;
+import gov.sparrow.contracts.SparrowContract;
+
+/*
+* Renumbers the action and notebook list ranks once the device is idle, after
+* a move has used up the gap between two ranks. Scheduling again before it
+* runs replaces the pending job. Below Lollipop nothing is scheduled; moves
+* keep making room beside their target instead.
+* */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class ListRebalanceJobService extends JobService {
+
+    public static final int JOB_ID = 2;
+
+    private static final String TAG = ListRebalanceJobService.class.getSimpleName();
+
+    public static JobInfo jobInfo(Context context) {
+        return new JobInfo.Builder(JOB_ID, new ComponentName(context, ListRebalanceJobService.class))
+                .setRequiresDeviceIdle(true)
+                .build();
+    }
+
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler != null) {
+            jobScheduler.schedule(jobInfo(context));
+        }
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... voids) {
+                try {
+                    getContentResolver().call(SparrowContract.BASE_CONTENT_URI,
+                            SparrowContract.METHOD_REBALANCE_LIST_POSITIONS, null, null);
+                } catch (Exception e) {
+                    Log.e(TAG, "Unable to rebalance list positions", e);
+                }
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Void result) {
+                jobFinished(params, false);
+            }
+        }.execute();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return true;
+    }
+
+}
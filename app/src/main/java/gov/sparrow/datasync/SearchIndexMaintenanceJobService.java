@@ -0,0 +1,64 @@
+package gov.sparrow.datasync;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+import gov.sparrow.contracts.SearchContract.Searchable;
+
+/*
+* Merges the search index's segments while the device is idle and charging,
+* so search-as-you-type never pays for the merge. Each run also optimizes.
+* */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class SearchIndexMaintenanceJobService extends JobService {
+
+    public static final int JOB_ID = 1;
+    public static final long INTERVAL_MS = 24 * 60 * 60 * 1000L;
+
+    private static final String TAG = SearchIndexMaintenanceJobService.class.getSimpleName();
+
+    public static JobInfo jobInfo(Context context) {
+        return new JobInfo.Builder(JOB_ID, new ComponentName(context, SearchIndexMaintenanceJobService.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPersisted(true)
+                .setPeriodic(INTERVAL_MS)
+                .build();
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... voids) {
+                Bundle extras = new Bundle();
+                extras.putBoolean(Searchable.EXTRA_OPTIMIZE, true);
+                try {
+                    getContentResolver().call(Searchable.CONTENT_URI, Searchable.METHOD_MAINTAIN_INDEX, null, extras);
+                } catch (Exception e) {
+                    Log.e(TAG, "Unable to maintain search index", e);
+                }
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Void result) {
+                jobFinished(params, false);
+            }
+        }.execute();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return true;
+    }
+
+}
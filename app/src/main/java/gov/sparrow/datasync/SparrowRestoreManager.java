@@ -0,0 +1,66 @@
+package gov.sparrow.datasync;
+
+import android.content.ContentResolver;
+import com.google.gson.Gson;
+import gov.sparrow.util.TimeUtil;
+
+import java.io.File;
+
+public class SparrowRestoreManager {
+
+    private final ContentResolver contentResolver;
+    private final TimeUtil timeUtil;
+    private final Gson jsonMapper;
+    private final File directory;
+
+    public SparrowRestoreManager(ContentResolver contentResolver, TimeUtil timeUtil, Gson jsonMapper, File directory) {
+        this.contentResolver = contentResolver;
+        this.timeUtil = timeUtil;
+        this.jsonMapper = jsonMapper;
+        this.directory = directory;
+    }
+
+    /* Returns the most recent backup, or null when there is none to restore. */
+    public RestoreData getRestoreData() {
+        if (!directory.isDirectory()) {
+            return null;
+        }
+        File[] files = directory.listFiles();
+        if (files == null || files.length == 0) {
+            return null;
+        }
+
+        File latest = files[0];
+        for (File file : files) {
+            if (file.lastModified() > latest.lastModified()) {
+                latest = file;
+            }
+        }
+        return new RestoreData(new AsyncRestoreTaskFactory(), latest);
+    }
+
+    public class RestoreData {
+
+        private final AsyncRestoreTaskFactory asyncRestoreTaskFactory;
+        private final File file;
+
+        public RestoreData(AsyncRestoreTaskFactory asyncRestoreTaskFactory, File file) {
+            this.asyncRestoreTaskFactory = asyncRestoreTaskFactory;
+            this.file = file;
+        }
+
+        public String getDate() {
+            return timeUtil.getFormattedBackupDate(file.lastModified());
+        }
+
+        public void restore(RestoreTaskListener listener) {
+            asyncRestoreTaskFactory.newAsyncRestoreTask(contentResolver, jsonMapper, listener).execute(file);
+        }
+
+    }
+
+    public interface RestoreTaskListener {
+        void onRestoreTaskComplete();
+    }
+
+}
@@ -0,0 +1,69 @@
+package gov.sparrow.datasync;
+
+import android.accounts.Account;
+import android.content.AbstractThreadedSyncAdapter;
+import android.content.ContentProviderClient;
+import android.content.Context;
+import android.content.SyncResult;
+import android.os.Bundle;
+import android.os.Environment;
+import android.util.Log;
+import gov.sparrow.contracts.BackupContract;
+import gov.sparrow.database.BackupMergeCursor;
+import gov.sparrow.database.SparrowDatabaseBackupWriter;
+import gov.sparrow.util.TimeUtil;
+
+import java.io.File;
+
+/* Backs the database up to external storage on each sync. */
+public class SyncAdapter extends AbstractThreadedSyncAdapter {
+
+    public static final String BACKUP_DIRECTORY = "sparrow";
+
+    private static final String TAG = SyncAdapter.class.getSimpleName();
+
+    private final SparrowDatabaseBackupWriter sparrowDatabaseBackupWriter;
+    private final TimeUtil timeUtil;
+
+    public SyncAdapter(Context context,
+                       boolean autoInitialize,
+                       SparrowDatabaseBackupWriter sparrowDatabaseBackupWriter,
+                       TimeUtil timeUtil) {
+        super(context, autoInitialize);
+        this.sparrowDatabaseBackupWriter = sparrowDatabaseBackupWriter;
+        this.timeUtil = timeUtil;
+    }
+
+    public static String makePath(String directoryPath, String fileName) {
+        return directoryPath + "/" + fileName;
+    }
+
+    @Override
+    public void onPerformSync(Account account,
+                              Bundle extras,
+                              String authority,
+                              ContentProviderClient provider,
+                              SyncResult syncResult) {
+        BackupMergeCursor cursor = null;
+        try {
+            cursor = (BackupMergeCursor) provider.query(BackupContract.BACKUP_URI, null, null, null, null);
+            String directoryPath = makePath(Environment.getExternalStorageDirectory().getPath(), BACKUP_DIRECTORY);
+            File directory = new File(directoryPath);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                Log.w(TAG, "Could not create backup directory " + directory);
+            }
+            String fileName = "backup_" + timeUtil.getBackUpTimeNow() + ".json.gz";
+            sparrowDatabaseBackupWriter.backupToFile(cursor, new File(makePath(directoryPath, fileName)));
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to back up database", e);
+            if (syncResult != null) {
+                syncResult.stats.numIoExceptions++;
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package gov.sparrow.managers;
+
+/*
+* Chooses how long autosave waits before committing. It waits longer while the
+* user types steadily, commits quickly after a large change, never commits
+* faster than a few commit latencies apart and never lets an edit go unsaved
+* for more than MAX_STALENESS_MS.
+* */
+public class AutosaveDelayPolicy implements SaveTask.CommitObserver {
+
+    public static final long BASE_DELAY_MS = 1000L;
+    public static final long MIN_DELAY_MS = 250L;
+    public static final long MAX_DELAY_MS = 5000L;
+    public static final long MAX_STALENESS_MS = 10000L;
+    public static final long TYPING_INTERVAL_MS = 300L;
+    public static final int LARGE_CHANGE_CHARS = 500;
+    public static final int LATENCY_MULTIPLIER = 4;
+
+    /* Weight of the newest sample in the smoothed commit latency. */
+    private static final double LATENCY_SMOOTHING = 0.25;
+
+    private long lastChangeAt = -1L;
+    private long windowStartAt = -1L;
+    private long typingDelay = BASE_DELAY_MS;
+    private long lastDelay;
+    private int scheduleCount;
+    private int commitCount;
+    private int committedNoteCount;
+    private long lastCommitLatency;
+    private double commitLatency = -1;
+
+    /*
+    * now is the uptime of the change being scheduled and pendingSize the number
+    * of characters waiting to be committed.
+    * */
+    public synchronized long nextDelay(long now, int pendingSize) {
+        if (windowStartAt < 0) {
+            windowStartAt = now;
+        }
+        if (lastChangeAt >= 0 && now - lastChangeAt < TYPING_INTERVAL_MS) {
+            typingDelay = Math.min(typingDelay * 2, MAX_DELAY_MS);
+        } else {
+            typingDelay = BASE_DELAY_MS;
+        }
+        lastChangeAt = now;
+
+        long delay = pendingSize >= LARGE_CHANGE_CHARS ? MIN_DELAY_MS : typingDelay;
+        if (commitLatency >= 0) {
+            delay = Math.max(delay, Math.round(commitLatency) * LATENCY_MULTIPLIER);
+        }
+        delay = Math.max(0L, Math.min(delay, windowStartAt + MAX_STALENESS_MS - now));
+
+        scheduleCount++;
+        lastDelay = delay;
+        return delay;
+    }
+
+    @Override
+    public synchronized void onCommitted(long latencyMillis, int noteCount) {
+        commitLatency = commitLatency < 0
+                ? latencyMillis
+                : commitLatency + LATENCY_SMOOTHING * (latencyMillis - commitLatency);
+        lastCommitLatency = latencyMillis;
+        commitCount++;
+        committedNoteCount += noteCount;
+        windowStartAt = -1L;
+    }
+
+    public synchronized long getLastDelay() {
+        return lastDelay;
+    }
+
+    public synchronized int getScheduleCount() {
+        return scheduleCount;
+    }
+
+    public synchronized int getCommitCount() {
+        return commitCount;
+    }
+
+    public synchronized int getCommittedNoteCount() {
+        return committedNoteCount;
+    }
+
+    public synchronized long getLastCommitLatency() {
+        return lastCommitLatency;
+    }
+
+    public synchronized long getCommitLatency() {
+        return commitLatency < 0 ? 0L : Math.round(commitLatency);
+    }
+
+}
@@ -0,0 +1,476 @@
+package gov.sparrow.managers;
+
+import android.util.Log;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.builders.NoteBuilder;
+import gov.sparrow.models.links.ActionLink;
+import gov.sparrow.models.links.StyleLink;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/*
+* An append-only journal of the edits autosave has not committed yet, so they
+* survive a crash between commits. Each note writes to its current segment
+* file; sealing a segment starts a new one, and sealed segments are deleted
+* once their edits are committed.
+*
+* Every record is [length][crc32][payload]. Replay stops at the first record
+* that is short or fails its check, which is what a torn trailing write looks
+* like.
+* */
+public class EditJournal {
+
+    public static final long SYNC_INTERVAL_MS = 1000L;
+
+    private static final String TAG = EditJournal.class.getSimpleName();
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte RECORD_SNAPSHOT = 1;
+    private static final byte RECORD_TITLE = 2;
+    private static final byte RECORD_EDIT = 3;
+
+    private final File directory;
+    private final Map<Long, Long> currentSegments = new HashMap<>();
+    private final Map<Long, Segment> openSegments = new HashMap<>();
+    private boolean dirty;
+    private long lastSyncAt = -1L;
+
+    public EditJournal(File directory) {
+        this.directory = directory;
+    }
+
+    public synchronized void appendSnapshot(Note note) {
+        try {
+            Payload payload = payload(RECORD_SNAPSHOT, note.getId());
+            writeString(payload, note.getTitle());
+            writeString(payload, note.getBody());
+            payload.writeBoolean(note.getNotebookId() != null);
+            if (note.getNotebookId() != null) {
+                payload.writeLong(note.getNotebookId());
+            }
+            writeString(payload, note.getLastSaved());
+
+            List<ActionLink> actionLinks = note.getActionLinks();
+            payload.writeInt(actionLinks == null ? 0 : actionLinks.size());
+            if (actionLinks != null) {
+                for (ActionLink link : actionLinks) {
+                    writeString(payload, link.getLinkId());
+                    payload.writeInt(link.getStart());
+                    payload.writeInt(link.getEnd());
+                    payload.writeBoolean(link.isCompleted());
+                }
+            }
+
+            List<StyleLink> styleLinks = note.getStyleLinks();
+            payload.writeInt(styleLinks == null ? 0 : styleLinks.size());
+            if (styleLinks != null) {
+                for (StyleLink style : styleLinks) {
+                    writeString(payload, style.getType());
+                    payload.writeInt(style.getStart());
+                    payload.writeInt(style.getEnd());
+                }
+            }
+            append(note.getId(), payload);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not journal note " + note.getId(), e);
+        }
+    }
+
+    public synchronized void appendTitle(long noteId, String title) {
+        try {
+            Payload payload = payload(RECORD_TITLE, noteId);
+            writeString(payload, title);
+            append(noteId, payload);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not journal title of note " + noteId, e);
+        }
+    }
+
+    public synchronized void appendEdit(long noteId, int start, int removedLength, String text) {
+        try {
+            Payload payload = payload(RECORD_EDIT, noteId);
+            payload.writeInt(start);
+            payload.writeInt(removedLength);
+            writeString(payload, text);
+            append(noteId, payload);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not journal edit of note " + noteId, e);
+        }
+    }
+
+    /* Syncs buffered records when SYNC_INTERVAL_MS has passed since the last sync. */
+    public synchronized boolean syncIfDue(long now) {
+        if (!dirty || (lastSyncAt >= 0 && now - lastSyncAt < SYNC_INTERVAL_MS)) {
+            return false;
+        }
+        sync();
+        lastSyncAt = now;
+        return true;
+    }
+
+    public synchronized void sync() {
+        for (Segment segment : openSegments.values()) {
+            try {
+                segment.sync();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not sync journal segment " + segment.file, e);
+            }
+        }
+        dirty = false;
+    }
+
+    /*
+    * Closes the note's current segment and returns its number. Later records go
+    * to a new segment, so truncating up to the returned number keeps them.
+    * */
+    public synchronized long seal(long noteId) {
+        long sealed = currentSegment(noteId);
+        closeSegment(noteId);
+        currentSegments.put(noteId, sealed + 1);
+        return sealed;
+    }
+
+    /* Deletes the note's segments up to and including segment. */
+    public synchronized void truncate(long noteId, long segment) {
+        for (Map.Entry<Long, File> entry : segmentFiles(noteId).entrySet()) {
+            if (entry.getKey() <= segment) {
+                if (openSegments.containsKey(noteId) && entry.getKey() == currentSegment(noteId)) {
+                    closeSegment(noteId);
+                }
+                entry.getValue().delete();
+            }
+        }
+    }
+
+    public synchronized void clear(long noteId) {
+        long next = currentSegment(noteId) + 1;
+        closeSegment(noteId);
+        for (File file : segmentFiles(noteId).values()) {
+            file.delete();
+        }
+        currentSegments.put(noteId, next);
+    }
+
+    /*
+    * Rebuilds each journaled note from its last snapshot and the records after
+    * it. Edits also shift the note's action and style ranges.
+    * */
+    public synchronized List<Note> replay() {
+        Map<Long, NoteState> states = new TreeMap<>();
+        for (Map.Entry<Long, TreeMap<Long, File>> note : allSegmentFiles().entrySet()) {
+            NoteState state = null;
+            for (File file : note.getValue().values()) {
+                state = replaySegment(file, state);
+            }
+            if (state != null) {
+                states.put(note.getKey(), state);
+            }
+        }
+
+        List<Note> notes = new ArrayList<>();
+        for (NoteState state : states.values()) {
+            notes.add(state.build());
+        }
+        return notes;
+    }
+
+    public synchronized void close() {
+        for (Long noteId : new ArrayList<>(openSegments.keySet())) {
+            closeSegment(noteId);
+        }
+    }
+
+    private NoteState replaySegment(File file, NoteState state) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            byte[] payload;
+            while ((payload = readRecord(in)) != null) {
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = record.readByte();
+                long noteId = record.readLong();
+                if (type == RECORD_SNAPSHOT) {
+                    state = readSnapshot(record, noteId);
+                } else if (state == null) {
+                    continue;
+                } else if (type == RECORD_TITLE) {
+                    state.title = readString(record);
+                } else if (type == RECORD_EDIT) {
+                    state.applyEdit(record.readInt(), record.readInt(), readString(record));
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not replay journal segment " + file, e);
+        } finally {
+            closeQuietly(in);
+        }
+        return state;
+    }
+
+    /* Returns the next intact payload, or null at the end or at a torn record. */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            long crc = in.readInt() & 0xffffffffL;
+            if (length <= 0 || length > in.available()) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 check = new CRC32();
+            check.update(payload);
+            return check.getValue() == crc ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static NoteState readSnapshot(DataInputStream record, long noteId) throws IOException {
+        NoteState state = new NoteState(noteId);
+        state.title = readString(record);
+        state.body = readString(record);
+        state.notebookId = record.readBoolean() ? record.readLong() : null;
+        state.lastSaved = readString(record);
+
+        int linkCount = record.readInt();
+        for (int i = 0; i < linkCount; i++) {
+            state.actionLinks.add(new ActionLink(readString(record), record.readInt(), record.readInt(), record.readBoolean()));
+        }
+        int styleCount = record.readInt();
+        for (int i = 0; i < styleCount; i++) {
+            state.styleLinks.add(new StyleLink(readString(record), record.readInt(), record.readInt()));
+        }
+        return state;
+    }
+
+    private Payload payload(byte type, long noteId) throws IOException {
+        Payload payload = new Payload();
+        payload.writeByte(type);
+        payload.writeLong(noteId);
+        return payload;
+    }
+
+    private void append(long noteId, Payload payload) throws IOException {
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        Segment segment = openSegment(noteId);
+        segment.out.writeInt(bytes.length);
+        segment.out.writeInt((int) crc.getValue());
+        segment.out.write(bytes);
+        dirty = true;
+    }
+
+    private Segment openSegment(long noteId) throws IOException {
+        Segment segment = openSegments.get(noteId);
+        if (segment == null) {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create journal directory " + directory);
+            }
+            segment = new Segment(new File(directory, noteId + "_" + currentSegment(noteId) + SEGMENT_SUFFIX));
+            openSegments.put(noteId, segment);
+        }
+        return segment;
+    }
+
+    private void closeSegment(long noteId) {
+        Segment segment = openSegments.remove(noteId);
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not sync journal segment " + segment.file, e);
+        } finally {
+            closeQuietly(segment.out);
+        }
+    }
+
+    /* Appends continue after the highest segment already on disk. */
+    private long currentSegment(long noteId) {
+        Long segment = currentSegments.get(noteId);
+        if (segment == null) {
+            TreeMap<Long, File> files = segmentFiles(noteId);
+            segment = files.isEmpty() ? 0L : files.lastKey() + 1;
+            currentSegments.put(noteId, segment);
+        }
+        return segment;
+    }
+
+    private TreeMap<Long, File> segmentFiles(long noteId) {
+        TreeMap<Long, File> files = allSegmentFiles().get(noteId);
+        return files == null ? new TreeMap<Long, File>() : files;
+    }
+
+    private Map<Long, TreeMap<Long, File>> allSegmentFiles() {
+        Map<Long, TreeMap<Long, File>> segments = new TreeMap<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return segments;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            int separator = name.indexOf('_');
+            if (separator < 0 || !name.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            try {
+                long noteId = Long.parseLong(name.substring(0, separator));
+                long segment = Long.parseLong(name.substring(separator + 1, name.length() - SEGMENT_SUFFIX.length()));
+                TreeMap<Long, File> noteSegments = segments.get(noteId);
+                if (noteSegments == null) {
+                    noteSegments = new TreeMap<>();
+                    segments.put(noteId, noteSegments);
+                }
+                noteSegments.put(segment, file);
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Ignoring unexpected journal file " + name);
+            }
+        }
+        return segments;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not close journal stream", e);
+        }
+    }
+
+    private static class Payload extends DataOutputStream {
+        Payload() {
+            super(new ByteArrayOutputStream());
+        }
+
+        byte[] toByteArray() throws IOException {
+            flush();
+            return ((ByteArrayOutputStream) out).toByteArray();
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final FileOutputStream fileOut;
+        private final DataOutputStream out;
+
+        Segment(File file) throws IOException {
+            this.file = file;
+            this.fileOut = new FileOutputStream(file, true);
+            this.out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        }
+
+        void sync() throws IOException {
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    private static class NoteState {
+        private final long id;
+        private String title;
+        private String body;
+        private Long notebookId;
+        private String lastSaved;
+        private final List<ActionLink> actionLinks = new ArrayList<>();
+        private final List<StyleLink> styleLinks = new ArrayList<>();
+
+        NoteState(long id) {
+            this.id = id;
+        }
+
+        /*
+        * A range starting at or after the edited text moves with it; one ending
+        * exactly where text is inserted keeps its end.
+        * */
+        void applyEdit(int start, int removedLength, String text) {
+            int end = start + removedLength;
+            int delta = text.length() - removedLength;
+            body = body.substring(0, start) + text + body.substring(end);
+
+            for (int i = 0; i < actionLinks.size(); i++) {
+                ActionLink link = actionLinks.get(i);
+                actionLinks.set(i, new ActionLink(link.getLinkId(),
+                        shiftStart(link.getStart(), start, end, delta),
+                        shiftEnd(link.getEnd(), start, end, delta),
+                        link.isCompleted()));
+            }
+            for (int i = 0; i < styleLinks.size(); i++) {
+                StyleLink style = styleLinks.get(i);
+                styleLinks.set(i, new StyleLink(style.getType(),
+                        shiftStart(style.getStart(), start, end, delta),
+                        shiftEnd(style.getEnd(), start, end, delta)));
+            }
+        }
+
+        private static int shiftStart(int position, int start, int end, int delta) {
+            if (position < start) {
+                return position;
+            }
+            return position >= end ? position + delta : start;
+        }
+
+        private static int shiftEnd(int position, int start, int end, int delta) {
+            if (position <= start) {
+                return position;
+            }
+            return position >= end ? position + delta : start;
+        }
+
+        Note build() {
+            return NoteBuilder.noteBuilder()
+                    .id(id)
+                    .title(title)
+                    .body(body)
+                    .notebookId(notebookId)
+                    .lastSaved(lastSaved)
+                    .actionLinks(actionLinks)
+                    .styleLinks(styleLinks)
+                    .build();
+        }
+    }
+
+}
@@ -0,0 +1,370 @@
+package gov.sparrow.managers;
+
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.style.StyleSpan;
+import android.util.Log;
+import gov.sparrow.models.EditDelta;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.NoteSave;
+import gov.sparrow.models.builders.NoteBuilder;
+import gov.sparrow.models.links.ActionLink;
+import gov.sparrow.models.links.StyleLink;
+import gov.sparrow.models.spans.ActionLinkSpan;
+import gov.sparrow.repository.NoteRepository;
+import gov.sparrow.util.TimeUtil;
+import gov.sparrow.views.EditTracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/*
+* Batches autosaves. Every note edited before the pending save runs is written
+* with it in one transaction. A pending entry holds the live Editables; the
+* note is copied out of them only when the save takes its snapshot, so
+* rescheduling on each keystroke reads nothing.
+* */
+public class SaveManager {
+
+    public static final long DELAY = AutosaveDelayPolicy.BASE_DELAY_MS;
+    public static final TimeUnit TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    private static final String TAG = SaveManager.class.getSimpleName();
+
+    private final TimeUtil timeUtil;
+    private final ScheduledExecutorService scheduler;
+    private final NoteRepository noteRepository;
+    private final AutosaveDelayPolicy delayPolicy;
+    private final EditJournal editJournal;
+    private final Handler handler;
+
+    private final Map<Long, Integer> baseVersions = new HashMap<>();
+    private final Map<Long, EditDelta> deltas = new HashMap<>();
+    private final Map<Long, CapturedSpans> capturedSpans = new HashMap<>();
+    private final Set<Long> journaled = new HashSet<>();
+    private LinkedHashMap<Long, PendingSave> pending = new LinkedHashMap<>();
+    private SaveTask currentTask;
+    private Future<?> currentFuture;
+    private boolean enabled;
+
+    public SaveManager(TimeUtil timeUtil,
+                       ScheduledExecutorService scheduler,
+                       NoteRepository noteRepository,
+                       AutosaveDelayPolicy delayPolicy,
+                       EditJournal editJournal) {
+        this.timeUtil = timeUtil;
+        this.scheduler = scheduler;
+        this.noteRepository = noteRepository;
+        this.delayPolicy = delayPolicy;
+        this.editJournal = editJournal;
+        this.handler = new Handler(Looper.getMainLooper());
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            if (currentFuture != null) {
+                currentFuture.cancel(true);
+            }
+            currentFuture = null;
+            currentTask = null;
+            pending = new LinkedHashMap<>();
+        }
+    }
+
+    /* Body edits are only kept as a delta once the note's stored version is known. */
+    public synchronized void setBaseVersion(long noteId, int version) {
+        baseVersions.put(noteId, version);
+        deltas.put(noteId, new EditDelta(version));
+    }
+
+    public synchronized void recordBodyEdit(long noteId, int start, int removedLength, String text) {
+        EditDelta delta = deltas.get(noteId);
+        if (delta != null) {
+            delta.record(start, removedLength, text);
+        }
+        if (journaled.contains(noteId)) {
+            editJournal.appendEdit(noteId, start, removedLength, text);
+        }
+    }
+
+    public synchronized void scheduleSave(long noteId, Editable title, Editable body, SaveCompleteListener saveListener) {
+        if (!enabled) {
+            return;
+        }
+        schedule(noteId, title, null, body, null, true, saveListener);
+    }
+
+    /* Nothing is written while both trackers are clean, and spans are only rescanned when they changed. */
+    public synchronized void scheduleSave(long noteId,
+                                         Editable title,
+                                         EditTracker titleTracker,
+                                         Editable body,
+                                         EditTracker bodyTracker,
+                                         SaveCompleteListener saveListener) {
+        if (!enabled) {
+            return;
+        }
+        if (!titleTracker.isDirty() && !bodyTracker.isDirty() && !isPending(noteId)) {
+            saveListener.onSaveComplete();
+            return;
+        }
+        schedule(noteId, title, titleTracker, body, bodyTracker, bodyTracker.isSpanDirty(), saveListener);
+    }
+
+    /* Flushes the pending batch now, with this note in it. */
+    public synchronized void save(long noteId, Editable title, Editable body, SaveCompleteListener saveListener) {
+        if (!enabled) {
+            return;
+        }
+        if (!isBatchOpen() || pending.isEmpty()) {
+            saveListener.onSaveComplete();
+            return;
+        }
+
+        addPending(noteId, title, null, body, null, true, saveListener);
+        cancelScheduledSave();
+        currentTask = newTask();
+        currentTask.getSaves();
+        currentFuture = scheduler.submit(currentTask);
+    }
+
+    /*
+    * Writes back whatever the journal holds from a session that ended before
+    * its saves committed, then drops it.
+    * */
+    public void recoverJournal(final RecoveryListener recoveryListener) {
+        scheduler.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<Note> recovered = editJournal.replay();
+                    if (!recovered.isEmpty()) {
+                        List<NoteSave> saves = new ArrayList<>();
+                        String lastSaved = timeUtil.getTimeNow();
+                        for (Note note : recovered) {
+                            saves.add(new NoteSave(NoteBuilder.noteBuilder()
+                                    .id(note.getId())
+                                    .title(note.getTitle())
+                                    .body(note.getBody())
+                                    .notebookId(note.getNotebookId())
+                                    .lastSaved(lastSaved)
+                                    .actionLinks(note.getActionLinks())
+                                    .styleLinks(note.getStyleLinks())
+                                    .build(), null));
+                        }
+                        if (noteRepository.updateNotes(saves)) {
+                            for (Note note : recovered) {
+                                editJournal.clear(note.getId());
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Unable to recover journaled notes", e);
+                } finally {
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            recoveryListener.onRecoveryComplete();
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void schedule(long noteId,
+                          Editable title,
+                          EditTracker titleTracker,
+                          Editable body,
+                          EditTracker bodyTracker,
+                          boolean spanDirty,
+                          SaveCompleteListener saveListener) {
+        editJournal.syncIfDue(timeUtil.uptimeMillis());
+        addPending(noteId, title, titleTracker, body, bodyTracker, spanDirty, saveListener);
+        cancelScheduledSave();
+
+        long delay = delayPolicy.nextDelay(timeUtil.uptimeMillis(), pendingEditSize());
+        currentTask = newTask();
+        currentFuture = scheduler.schedule(currentTask, delay, TIME_UNIT);
+    }
+
+    /* A batch closes when its task takes the snapshot; later edits start a new one. */
+    private boolean isBatchOpen() {
+        return currentTask == null || !currentTask.hasStarted();
+    }
+
+    private boolean isPending(long noteId) {
+        return isBatchOpen() && pending.containsKey(noteId);
+    }
+
+    private void addPending(long noteId,
+                            Editable title,
+                            EditTracker titleTracker,
+                            Editable body,
+                            EditTracker bodyTracker,
+                            boolean spanDirty,
+                            SaveCompleteListener saveListener) {
+        if (!isBatchOpen()) {
+            pending = new LinkedHashMap<>();
+            currentTask = null;
+            currentFuture = null;
+        }
+        PendingSave entry = pending.get(noteId);
+        if (entry == null) {
+            entry = new PendingSave();
+            pending.put(noteId, entry);
+        }
+        entry.title = title;
+        entry.titleTracker = titleTracker;
+        entry.body = body;
+        entry.bodyTracker = bodyTracker;
+        entry.spanDirty |= spanDirty;
+        entry.saveListener = saveListener;
+    }
+
+    private void cancelScheduledSave() {
+        if (currentFuture != null && currentTask != null && !currentTask.hasStarted()) {
+            currentFuture.cancel(false);
+        }
+    }
+
+    private int pendingEditSize() {
+        int size = 0;
+        for (Long noteId : pending.keySet()) {
+            EditDelta delta = deltas.get(noteId);
+            if (delta != null) {
+                size += delta.getPayloadSize();
+            }
+        }
+        return size;
+    }
+
+    private SaveTask newTask() {
+        final LinkedHashMap<Long, PendingSave> batch = pending;
+        List<SaveCompleteListener> saveListeners = new ArrayList<>();
+        for (PendingSave entry : batch.values()) {
+            saveListeners.add(entry.saveListener);
+        }
+        SaveTask task = new SaveTask(noteRepository, new SaveTask.SnapshotSource() {
+            @Override
+            public List<NoteSave> snapshot(SaveTask task) {
+                return takeSnapshot(task, batch);
+            }
+        }, saveListeners, handler);
+        task.setCommitObserver(delayPolicy);
+        return task;
+    }
+
+    /*
+    * Copies each pending note out of its Editables, hands its delta to the task
+    * and starts the next delta from the following version. The journal segment
+    * written so far is sealed for the task to drop once the batch commits, and
+    * the snapshot starts the next one.
+    * */
+    private synchronized List<NoteSave> takeSnapshot(SaveTask task, Map<Long, PendingSave> batch) {
+        List<NoteSave> saves = new ArrayList<>();
+        Map<Long, Long> segments = new HashMap<>();
+        String lastSaved = timeUtil.getTimeNow();
+
+        for (Map.Entry<Long, PendingSave> pendingEntry : batch.entrySet()) {
+            long noteId = pendingEntry.getKey();
+            PendingSave entry = pendingEntry.getValue();
+            String body = entry.body.toString();
+
+            CapturedSpans spans = capturedSpans.get(noteId);
+            if (entry.spanDirty || spans == null) {
+                spans = captureSpans(entry.body);
+                capturedSpans.put(noteId, spans);
+                entry.spanDirty = false;
+            }
+
+            Note note = NoteBuilder.noteBuilder()
+                    .id(noteId)
+                    .title(entry.title.toString())
+                    .body(body)
+                    .lastSaved(lastSaved)
+                    .actionLinks(spans.actionLinks)
+                    .styleLinks(spans.styleLinks)
+                    .build();
+
+            EditDelta delta = null;
+            Integer baseVersion = baseVersions.get(noteId);
+            if (baseVersion != null) {
+                delta = deltas.get(noteId);
+                baseVersions.put(noteId, baseVersion + 1);
+                deltas.put(noteId, new EditDelta(baseVersion + 1));
+            }
+            saves.add(new NoteSave(note, delta));
+
+            segments.put(noteId, editJournal.seal(noteId));
+            editJournal.appendSnapshot(note);
+            journaled.add(noteId);
+
+            if (entry.titleTracker != null) {
+                entry.titleTracker.markClean();
+            }
+            if (entry.bodyTracker != null) {
+                entry.bodyTracker.markClean();
+            }
+        }
+
+        task.setJournal(editJournal, segments);
+        return saves;
+    }
+
+    private static CapturedSpans captureSpans(Editable body) {
+        CapturedSpans spans = new CapturedSpans();
+        int length = body.length();
+        for (ActionLinkSpan span : body.getSpans(0, length, ActionLinkSpan.class)) {
+            spans.actionLinks.add(new ActionLink(
+                    span.getUuid(),
+                    body.getSpanStart(span),
+                    body.getSpanEnd(span),
+                    span.isCompleted()));
+        }
+        for (StyleSpan span : body.getSpans(0, length, StyleSpan.class)) {
+            if (span.getStyle() == Typeface.BOLD) {
+                spans.styleLinks.add(new StyleLink(StyleLink.BOLD_STYLE, body.getSpanStart(span), body.getSpanEnd(span)));
+            }
+        }
+        return spans;
+    }
+
+    private static class PendingSave {
+        private Editable title;
+        private EditTracker titleTracker;
+        private Editable body;
+        private EditTracker bodyTracker;
+        private boolean spanDirty;
+        private SaveCompleteListener saveListener;
+    }
+
+    private static class CapturedSpans {
+        private final List<ActionLink> actionLinks = new ArrayList<>();
+        private final List<StyleLink> styleLinks = new ArrayList<>();
+    }
+
+    public interface SaveCompleteListener {
+        void onSaveComplete();
+    }
+
+    public interface RecoveryListener {
+        void onRecoveryComplete();
+    }
+
+}
@@ -0,0 +1,202 @@
+package gov.sparrow.managers;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import gov.sparrow.models.EditDelta;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.NoteSave;
+import gov.sparrow.repository.NoteRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SaveTask implements Runnable {
+
+    private static final String TAG = SaveTask.class.getSimpleName();
+
+    private final NoteRepository noteRepository;
+    private final SnapshotSource snapshotSource;
+    private final List<SaveManager.SaveCompleteListener> saveListeners;
+    private final Handler handler;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile List<NoteSave> saves;
+    private CommitObserver commitObserver;
+    private EditJournal journal;
+    private Map<Long, Long> journalSegments = Collections.emptyMap();
+
+    public SaveTask(NoteRepository noteRepository,
+                    Note note,
+                    Handler handler,
+                    SaveManager.SaveCompleteListener saveListener) {
+        this(noteRepository, note, null, handler, saveListener);
+    }
+
+    public SaveTask(NoteRepository noteRepository,
+                    Note note,
+                    EditDelta delta,
+                    Handler handler,
+                    SaveManager.SaveCompleteListener saveListener) {
+        this(noteRepository,
+                Collections.singletonList(new NoteSave(note, delta)),
+                Collections.singletonList(saveListener),
+                handler);
+    }
+
+    public SaveTask(NoteRepository noteRepository,
+                    final List<NoteSave> saves,
+                    List<SaveManager.SaveCompleteListener> saveListeners,
+                    Handler handler) {
+        this(noteRepository, new SnapshotSource() {
+            @Override
+            public List<NoteSave> snapshot(SaveTask task) {
+                return saves;
+            }
+        }, saveListeners, handler);
+    }
+
+    SaveTask(NoteRepository noteRepository,
+             SnapshotSource snapshotSource,
+             List<SaveManager.SaveCompleteListener> saveListeners,
+             Handler handler) {
+        this.noteRepository = noteRepository;
+        this.snapshotSource = snapshotSource;
+        this.saveListeners = saveListeners;
+        this.handler = handler;
+    }
+
+    /*
+    * The notes this task writes. The first call takes the snapshot and marks the
+    * task started; from then on edits go to the next batch.
+    * */
+    public List<NoteSave> getSaves() {
+        if (started.compareAndSet(false, true)) {
+            saves = snapshotSource.snapshot(this);
+        }
+        return saves;
+    }
+
+    public boolean hasStarted() {
+        return started.get();
+    }
+
+    public CommitObserver getCommitObserver() {
+        return commitObserver;
+    }
+
+    public void setCommitObserver(CommitObserver commitObserver) {
+        this.commitObserver = commitObserver;
+    }
+
+    public EditJournal getJournal() {
+        return journal;
+    }
+
+    public Map<Long, Long> getJournalSegments() {
+        return journalSegments;
+    }
+
+    /* The journal segments sealed for this batch are dropped once it commits. */
+    public void setJournal(EditJournal journal, Map<Long, Long> journalSegments) {
+        this.journal = journal;
+        this.journalSegments = journalSegments;
+    }
+
+    @Override
+    public void run() {
+        try {
+            List<NoteSave> saves = takeSnapshot();
+            long startedAt = System.currentTimeMillis();
+            write(saves);
+            if (commitObserver != null) {
+                commitObserver.onCommitted(System.currentTimeMillis() - startedAt, saves.size());
+            }
+            if (journal != null) {
+                for (Map.Entry<Long, Long> segment : journalSegments.entrySet()) {
+                    journal.truncate(segment.getKey(), segment.getValue());
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to save notes", e);
+        } finally {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (SaveManager.SaveCompleteListener saveListener : saveListeners) {
+                        saveListener.onSaveComplete();
+                    }
+                }
+            });
+        }
+    }
+
+    /*
+    * The live Editables belong to the main thread, so a scheduled task reads them
+    * there and waits for the copy before writing on its own thread.
+    * */
+    private List<NoteSave> takeSnapshot() throws InterruptedException {
+        Looper looper = handler.getLooper();
+        if (hasStarted() || looper == null || looper.getThread() == Thread.currentThread()) {
+            return getSaves();
+        }
+
+        final CountDownLatch taken = new CountDownLatch(1);
+        boolean posted = handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    getSaves();
+                } finally {
+                    taken.countDown();
+                }
+            }
+        });
+        if (!posted) {
+            return getSaves();
+        }
+        taken.await();
+        return saves;
+    }
+
+    private void write(List<NoteSave> saves) throws Exception {
+        if (saves.size() == 1) {
+            NoteSave save = saves.get(0);
+            Note note = save.getNote();
+            if (save.getDelta() != null && noteRepository.updateNoteBody(
+                    note.getId(),
+                    note.getTitle(),
+                    save.getDelta(),
+                    note.getLastSaved(),
+                    note.getActionLinks(),
+                    note.getStyleLinks())) {
+                return;
+            }
+            noteRepository.updateNote(
+                    note.getId(),
+                    note.getTitle(),
+                    note.getBody(),
+                    note.getLastSaved(),
+                    note.getActionLinks(),
+                    note.getStyleLinks());
+        } else if (!saves.isEmpty() && !noteRepository.updateNotes(saves)) {
+            List<NoteSave> fullSaves = new ArrayList<>();
+            for (NoteSave save : saves) {
+                fullSaves.add(new NoteSave(save.getNote(), null));
+            }
+            noteRepository.updateNotes(fullSaves);
+        }
+    }
+
+    public interface CommitObserver {
+        void onCommitted(long latencyMillis, int noteCount);
+    }
+
+    interface SnapshotSource {
+        List<NoteSave> snapshot(SaveTask task);
+    }
+
+}
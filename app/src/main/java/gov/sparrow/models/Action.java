@@ -0,0 +1,104 @@
+package gov.sparrow.models;
+
+import android.content.ContentValues;
+import gov.sparrow.contracts.ActionContract;
+
+public class Action {
+
+    private final Long id;
+    private final String title;
+    private final Long noteId;
+    private final String linkId;
+    private final int linkStart;
+    private final int linkEnd;
+    private final boolean completed;
+    private final boolean archived;
+    private final String dueDate;
+    private final String createdAt;
+    private final String checkboxUpdatedAt;
+
+    public Action(Long id,
+                  String title,
+                  Long noteId,
+                  String linkId,
+                  int linkStart,
+                  int linkEnd,
+                  boolean completed,
+                  boolean archived,
+                  String dueDate,
+                  String createdAt,
+                  String checkboxUpdatedAt) {
+        this.id = id;
+        this.title = title;
+        this.noteId = noteId;
+        this.linkId = linkId;
+        this.linkStart = linkStart;
+        this.linkEnd = linkEnd;
+        this.completed = completed;
+        this.archived = archived;
+        this.dueDate = dueDate;
+        this.createdAt = createdAt;
+        this.checkboxUpdatedAt = checkboxUpdatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public String getLinkId() {
+        return linkId;
+    }
+
+    public int getLinkStart() {
+        return linkStart;
+    }
+
+    public int getLinkEnd() {
+        return linkEnd;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public String getDueDate() {
+        return dueDate;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getCheckboxUpdatedAt() {
+        return checkboxUpdatedAt;
+    }
+
+    public ContentValues getContentValues() {
+        ContentValues values = new ContentValues();
+        values.put(ActionContract.Action._ID, id);
+        values.put(ActionContract.Action.COLUMN_NAME_TITLE, title);
+        values.put(ActionContract.Action.COLUMN_NAME_NOTE_ID, noteId);
+        values.put(ActionContract.Action.COLUMN_NAME_LINK_ID, linkId);
+        values.put(ActionContract.Action.COLUMN_NAME_LINK_START, linkStart);
+        values.put(ActionContract.Action.COLUMN_NAME_LINK_END, linkEnd);
+        values.put(ActionContract.Action.COLUMN_NAME_COMPLETED, Boolean.toString(completed));
+        values.put(ActionContract.Action.COLUMN_NAME_ARCHIVED, Boolean.toString(archived));
+        values.put(ActionContract.Action.COLUMN_NAME_DUE_DATE, dueDate);
+        values.put(ActionContract.Action.COLUMN_NAME_CREATED_AT, createdAt);
+        values.put(ActionContract.Action.COLUMN_NAME_CHECKBOX_UPDATED_AT, checkboxUpdatedAt);
+        return values;
+    }
+
+}
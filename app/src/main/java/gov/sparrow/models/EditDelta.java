@@ -0,0 +1,127 @@
+package gov.sparrow.models;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+* The edits made to a note body since the version it was loaded at. Saving the
+* delta instead of the whole body keeps the payload proportional to the typing,
+* not to the note.
+* */
+public class EditDelta {
+
+    private static final Gson GSON = new Gson();
+
+    private final int baseVersion;
+    private final List<Edit> edits;
+
+    public EditDelta(int baseVersion) {
+        this.baseVersion = baseVersion;
+        this.edits = new ArrayList<>();
+    }
+
+    public static EditDelta fromJson(String json) {
+        return GSON.fromJson(json, EditDelta.class);
+    }
+
+    public String toJson() {
+        return GSON.toJson(this);
+    }
+
+    public int getBaseVersion() {
+        return baseVersion;
+    }
+
+    public List<Edit> getEdits() {
+        return Collections.unmodifiableList(edits);
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    public int getPayloadSize() {
+        int size = 0;
+        for (Edit edit : edits) {
+            size += edit.text.length();
+        }
+        return size;
+    }
+
+    /*
+    * Replaces removedLength characters at start with text. An edit that lands
+    * inside the text of the previous one is folded into it, so a run of typing
+    * or backspacing stays a single edit.
+    * */
+    public void record(int start, int removedLength, String text) {
+        if (!edits.isEmpty()) {
+            Edit last = edits.get(edits.size() - 1);
+            int offset = start - last.start;
+            if (offset >= 0 && offset + removedLength <= last.text.length()) {
+                last.text = last.text.substring(0, offset) + text + last.text.substring(offset + removedLength);
+                return;
+            }
+        }
+        edits.add(new Edit(start, removedLength, text));
+    }
+
+    public String applyTo(String body) {
+        StringBuilder builder = new StringBuilder(body);
+        for (Edit edit : edits) {
+            if (edit.start > builder.length()) {
+                throw new IndexOutOfBoundsException("edit at " + edit.start + " is past the end of the body");
+            }
+            builder.replace(edit.start, edit.start + edit.removedLength, edit.text);
+        }
+        return builder.toString();
+    }
+
+    public static final class Edit {
+
+        private final int start;
+        private final int removedLength;
+        private String text;
+
+        Edit(int start, int removedLength, String text) {
+            this.start = start;
+            this.removedLength = removedLength;
+            this.text = text;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getRemovedLength() {
+            return removedLength;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Edit edit = (Edit) o;
+            return start == edit.start
+                    && removedLength == edit.removedLength
+                    && (text != null ? text.equals(edit.text) : edit.text == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = start;
+            result = 31 * result + removedLength;
+            result = 31 * result + (text != null ? text.hashCode() : 0);
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+package gov.sparrow.models;
+
+import android.content.ContentValues;
+import gov.sparrow.contracts.NoteContract;
+import gov.sparrow.models.links.ActionLink;
+import gov.sparrow.models.links.StyleLink;
+
+import java.util.List;
+
+public class Note {
+
+    private final Long id;
+    private final String title;
+    private final String body;
+    private final Long notebookId;
+    private final boolean archived;
+    private final String createdAt;
+    private final String lastSaved;
+    private final transient List<ActionLink> actionLinks;
+    private final transient List<StyleLink> styleLinks;
+
+    public Note(Long id,
+                String title,
+                String body,
+                Long notebookId,
+                boolean archived,
+                String createdAt,
+                String lastSaved,
+                List<ActionLink> actionLinks,
+                List<StyleLink> styleLinks) {
+        this.id = id;
+        this.title = title;
+        this.body = body;
+        this.notebookId = notebookId;
+        this.archived = archived;
+        this.createdAt = createdAt;
+        this.lastSaved = lastSaved;
+        this.actionLinks = actionLinks;
+        this.styleLinks = styleLinks;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public Long getNotebookId() {
+        return notebookId;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getLastSaved() {
+        return lastSaved;
+    }
+
+    public List<ActionLink> getActionLinks() {
+        return actionLinks;
+    }
+
+    public List<StyleLink> getStyleLinks() {
+        return styleLinks;
+    }
+
+    public ContentValues getContentValues() {
+        ContentValues values = new ContentValues();
+        values.put(NoteContract.Note._ID, id);
+        values.put(NoteContract.Note.COLUMN_NAME_TITLE, title);
+        values.put(NoteContract.Note.COLUMN_NAME_BODY, body);
+        values.put(NoteContract.Note.COLUMN_NAME_NOTEBOOK_ID, notebookId);
+        values.put(NoteContract.Note.COLUMN_NAME_ARCHIVED, Boolean.toString(archived));
+        values.put(NoteContract.Note.COLUMN_NAME_CREATED_AT, createdAt);
+        values.put(NoteContract.Note.COLUMN_NAME_UPDATED_AT, lastSaved);
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Note note = (Note) o;
+        return archived == note.archived
+                && equal(id, note.id)
+                && equal(title, note.title)
+                && equal(body, note.body)
+                && equal(notebookId, note.notebookId)
+                && equal(createdAt, note.createdAt)
+                && equal(lastSaved, note.lastSaved)
+                && equal(actionLinks, note.actionLinks)
+                && equal(styleLinks, note.styleLinks);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id != null ? id.hashCode() : 0;
+        result = 31 * result + (title != null ? title.hashCode() : 0);
+        result = 31 * result + (body != null ? body.hashCode() : 0);
+        result = 31 * result + (notebookId != null ? notebookId.hashCode() : 0);
+        result = 31 * result + (archived ? 1 : 0);
+        result = 31 * result + (lastSaved != null ? lastSaved.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Note{id=" + id + ", title='" + title + "', notebookId=" + notebookId + ", lastSaved='" + lastSaved + "'}";
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+}
@@ -0,0 +1,42 @@
+package gov.sparrow.models;
+
+/*
+* A note queued for saving, with the body edits since its base version when
+* the editor tracked them, or null to save the full body.
+* */
+public class NoteSave {
+
+    private final Note note;
+    private final EditDelta delta;
+
+    public NoteSave(Note note, EditDelta delta) {
+        this.note = note;
+        this.delta = delta;
+    }
+
+    public Note getNote() {
+        return note;
+    }
+
+    public EditDelta getDelta() {
+        return delta;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        NoteSave that = (NoteSave) o;
+        return (note != null ? note.equals(that.note) : that.note == null)
+                && (delta != null ? delta.equals(that.delta) : that.delta == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = note != null ? note.hashCode() : 0;
+        result = 31 * result + (delta != null ? delta.hashCode() : 0);
+        return result;
+    }
+
+}
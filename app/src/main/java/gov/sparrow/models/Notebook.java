@@ -0,0 +1,38 @@
+package gov.sparrow.models;
+
+import android.content.ContentValues;
+import gov.sparrow.contracts.NotebookContract;
+
+public class Notebook {
+
+    private final long id;
+    private final String title;
+    private final boolean archived;
+
+    public Notebook(long id, String title, boolean archived) {
+        this.id = id;
+        this.title = title;
+        this.archived = archived;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public ContentValues getContentValues() {
+        ContentValues values = new ContentValues();
+        values.put(NotebookContract.Notebook._ID, id);
+        values.put(NotebookContract.Notebook.COLUMN_NAME_TITLE, title);
+        values.put(NotebookContract.Notebook.COLUMN_NAME_ARCHIVED, Boolean.toString(archived));
+        return values;
+    }
+
+}
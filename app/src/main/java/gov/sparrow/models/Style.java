@@ -0,0 +1,52 @@
+package gov.sparrow.models;
+
+import android.content.ContentValues;
+import gov.sparrow.contracts.StyleContract;
+
+public class Style {
+
+    private final Long id;
+    private final Long noteId;
+    private final String type;
+    private final int start;
+    private final int end;
+
+    public Style(Long id, Long noteId, String type, int start, int end) {
+        this.id = id;
+        this.noteId = noteId;
+        this.type = type;
+        this.start = start;
+        this.end = end;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public ContentValues getContentValues() {
+        ContentValues values = new ContentValues();
+        values.put(StyleContract.Style._ID, id);
+        values.put(StyleContract.Style.COLUMN_NAME_NOTE_ID, noteId);
+        values.put(StyleContract.Style.COLUMN_NAME_TYPE, type);
+        values.put(StyleContract.Style.COLUMN_NAME_START, start);
+        values.put(StyleContract.Style.COLUMN_NAME_END, end);
+        return values;
+    }
+
+}
@@ -0,0 +1,86 @@
+package gov.sparrow.models.builders;
+
+import gov.sparrow.models.Action;
+
+public class ActionBuilder {
+
+    private Long id;
+    private String title;
+    private Long noteId;
+    private String linkId;
+    private int linkStart;
+    private int linkEnd;
+    private boolean completed;
+    private boolean archived;
+    private String dueDate;
+    private String createdAt;
+    private String checkboxUpdatedAt;
+
+    private ActionBuilder() {
+    }
+
+    public static ActionBuilder actionBuilder() {
+        return new ActionBuilder();
+    }
+
+    public ActionBuilder id(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public ActionBuilder title(String title) {
+        this.title = title;
+        return this;
+    }
+
+    public ActionBuilder noteId(Long noteId) {
+        this.noteId = noteId;
+        return this;
+    }
+
+    public ActionBuilder linkId(String linkId) {
+        this.linkId = linkId;
+        return this;
+    }
+
+    public ActionBuilder linkStart(int linkStart) {
+        this.linkStart = linkStart;
+        return this;
+    }
+
+    public ActionBuilder linkEnd(int linkEnd) {
+        this.linkEnd = linkEnd;
+        return this;
+    }
+
+    public ActionBuilder completed(boolean completed) {
+        this.completed = completed;
+        return this;
+    }
+
+    public ActionBuilder archived(boolean archived) {
+        this.archived = archived;
+        return this;
+    }
+
+    public ActionBuilder dueDate(String dueDate) {
+        this.dueDate = dueDate;
+        return this;
+    }
+
+    public ActionBuilder createdAt(String createdAt) {
+        this.createdAt = createdAt;
+        return this;
+    }
+
+    public ActionBuilder checkboxUpdatedAt(String checkboxUpdatedAt) {
+        this.checkboxUpdatedAt = checkboxUpdatedAt;
+        return this;
+    }
+
+    public Action build() {
+        return new Action(id, title, noteId, linkId, linkStart, linkEnd, completed, archived,
+                dueDate, createdAt, checkboxUpdatedAt);
+    }
+
+}
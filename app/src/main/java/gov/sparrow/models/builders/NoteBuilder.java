@@ -0,0 +1,77 @@
+package gov.sparrow.models.builders;
+
+import gov.sparrow.models.Note;
+import gov.sparrow.models.links.ActionLink;
+import gov.sparrow.models.links.StyleLink;
+
+import java.util.List;
+
+public class NoteBuilder {
+
+    private Long id;
+    private String title;
+    private String body;
+    private Long notebookId;
+    private boolean archived;
+    private String createdAt;
+    private String lastSaved;
+    private List<ActionLink> actionLinks;
+    private List<StyleLink> styleLinks;
+
+    private NoteBuilder() {
+    }
+
+    public static NoteBuilder noteBuilder() {
+        return new NoteBuilder();
+    }
+
+    public NoteBuilder id(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public NoteBuilder title(String title) {
+        this.title = title;
+        return this;
+    }
+
+    public NoteBuilder body(String body) {
+        this.body = body;
+        return this;
+    }
+
+    public NoteBuilder notebookId(Long notebookId) {
+        this.notebookId = notebookId;
+        return this;
+    }
+
+    public NoteBuilder archived(boolean archived) {
+        this.archived = archived;
+        return this;
+    }
+
+    public NoteBuilder createdAt(String createdAt) {
+        this.createdAt = createdAt;
+        return this;
+    }
+
+    public NoteBuilder lastSaved(String lastSaved) {
+        this.lastSaved = lastSaved;
+        return this;
+    }
+
+    public NoteBuilder actionLinks(List<ActionLink> actionLinks) {
+        this.actionLinks = actionLinks;
+        return this;
+    }
+
+    public NoteBuilder styleLinks(List<StyleLink> styleLinks) {
+        this.styleLinks = styleLinks;
+        return this;
+    }
+
+    public Note build() {
+        return new Note(id, title, body, notebookId, archived, createdAt, lastSaved, actionLinks, styleLinks);
+    }
+
+}
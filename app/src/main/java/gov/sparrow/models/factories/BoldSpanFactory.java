@@ -0,0 +1,13 @@
+package gov.sparrow.models.factories;
+
+import android.graphics.Typeface;
+import android.text.style.StyleSpan;
+
+public class BoldSpanFactory implements SpanFactory {
+
+    @Override
+    public Object makeSpan() {
+        return new StyleSpan(Typeface.BOLD);
+    }
+
+}
@@ -0,0 +1,7 @@
+package gov.sparrow.models.factories;
+
+public interface SpanFactory {
+
+    Object makeSpan();
+
+}
@@ -0,0 +1,54 @@
+package gov.sparrow.models.links;
+
+public class ActionLink {
+
+    private final String linkId;
+    private final int start;
+    private final int end;
+    private final boolean completed;
+
+    public ActionLink(String linkId, int start, int end, boolean completed) {
+        this.linkId = linkId;
+        this.start = start;
+        this.end = end;
+        this.completed = completed;
+    }
+
+    public String getLinkId() {
+        return linkId;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ActionLink that = (ActionLink) o;
+        return start == that.start
+                && end == that.end
+                && completed == that.completed
+                && (linkId != null ? linkId.equals(that.linkId) : that.linkId == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = linkId != null ? linkId.hashCode() : 0;
+        result = 31 * result + start;
+        result = 31 * result + end;
+        result = 31 * result + (completed ? 1 : 0);
+        return result;
+    }
+
+}
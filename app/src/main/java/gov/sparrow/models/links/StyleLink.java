@@ -0,0 +1,48 @@
+package gov.sparrow.models.links;
+
+public class StyleLink {
+
+    public static final String BOLD_STYLE = "bold";
+
+    private final String type;
+    private final int start;
+    private final int end;
+
+    public StyleLink(String type, int start, int end) {
+        this.type = type;
+        this.start = start;
+        this.end = end;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        StyleLink that = (StyleLink) o;
+        return start == that.start
+                && end == that.end
+                && (type != null ? type.equals(that.type) : that.type == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type != null ? type.hashCode() : 0;
+        result = 31 * result + start;
+        result = 31 * result + end;
+        return result;
+    }
+
+}
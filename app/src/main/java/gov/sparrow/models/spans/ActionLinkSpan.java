@@ -0,0 +1,43 @@
+package gov.sparrow.models.spans;
+
+import android.text.style.BackgroundColorSpan;
+
+public class ActionLinkSpan extends BackgroundColorSpan {
+
+    private final String uuid;
+    private final boolean completed;
+
+    public ActionLinkSpan(String uuid, int color, boolean completed) {
+        super(color);
+        this.uuid = uuid;
+        this.completed = completed;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ActionLinkSpan that = (ActionLinkSpan) o;
+        return completed == that.completed
+                && getBackgroundColor() == that.getBackgroundColor()
+                && (uuid != null ? uuid.equals(that.uuid) : that.uuid == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = uuid != null ? uuid.hashCode() : 0;
+        result = 31 * result + getBackgroundColor();
+        result = 31 * result + (completed ? 1 : 0);
+        return result;
+    }
+
+}
@@ -0,0 +1,119 @@
+package gov.sparrow.provider;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.provider.services.NoteService;
+
+/*
+* Writes a linked action's new title into its note's body. The body is spliced
+* in Java and written once; styles and links at or after the old link end are
+* then shifted by the length change in one statement each.
+* */
+public class LinkedActionSplicer {
+
+    public static final String SOURCE_SQL =
+            "SELECT " + Note.TABLE_NAME + "." + Note.COLUMN_NAME_BODY + ", " +
+                    Note.TABLE_NAME + "." + Note.COLUMN_NAME_CHUNKED + ", " +
+                    Action.TABLE_NAME + "." + Action.COLUMN_NAME_LINK_START + ", " +
+                    Action.TABLE_NAME + "." + Action.COLUMN_NAME_LINK_END +
+                    " FROM " + Action.TABLE_NAME + " INNER JOIN " + Note.TABLE_NAME +
+                    " ON (" + Action.TABLE_NAME + "." + Action.COLUMN_NAME_NOTE_ID + " = " + Note.TABLE_NAME + "." + Note._ID + ")" +
+                    " WHERE " + Action.TABLE_NAME + "." + Action._ID + "=? AND " +
+                    Action.TABLE_NAME + "." + Action.COLUMN_NAME_NOTE_ID + "=?;";
+
+    public static final String UPDATE_NOTE_BODY_SQL =
+            "UPDATE " + Note.TABLE_NAME + " SET " +
+                    Note.COLUMN_NAME_BODY + "=?, " +
+                    Note.COLUMN_NAME_PREVIEW + "=?, " +
+                    Note.COLUMN_NAME_WORD_COUNT + "=" + Note.COLUMN_NAME_WORD_COUNT + "+?, " +
+                    Note.COLUMN_NAME_VERSION + "=" + Note.COLUMN_NAME_VERSION + "+1" +
+                    " WHERE " + Note._ID + "=?;";
+
+    /* ?1 is the old link end, ?2 the length change and ?3 the note id. */
+    public static final String SHIFT_STYLES_SQL = shiftSql(
+            Style.TABLE_NAME, Style.COLUMN_NAME_START, Style.COLUMN_NAME_END, Style.COLUMN_NAME_NOTE_ID);
+    public static final String SHIFT_ACTION_LINKS_SQL = shiftSql(
+            Action.TABLE_NAME, Action.COLUMN_NAME_LINK_START, Action.COLUMN_NAME_LINK_END, Action.COLUMN_NAME_NOTE_ID);
+
+    private final NoteChunkStore noteChunkStore;
+    private final NoteService noteService;
+
+    public LinkedActionSplicer(NoteChunkStore noteChunkStore, NoteService noteService) {
+        this.noteChunkStore = noteChunkStore;
+        this.noteService = noteService;
+    }
+
+    /*
+    * A range that ends at or after the old link end moves its end; its start
+    * moves only when it also starts there, so a range around the link grows
+    * or shrinks with it.
+    * */
+    static String shiftSql(String tableName, String columnNameStart, String columnNameEnd, String columnNameNoteId) {
+        return "UPDATE " + tableName + " SET " +
+                columnNameStart + " = CASE WHEN " + columnNameStart + " >= ?1 THEN " + columnNameStart + " + ?2" +
+                " ELSE " + columnNameStart + " END, " +
+                columnNameEnd + " = " + columnNameEnd + " + ?2" +
+                " WHERE " + columnNameNoteId + " = ?3 AND " + columnNameEnd + " >= ?1;";
+    }
+
+    /*
+    * Returns the number of statements written: 0 when the title is unchanged or
+    * the action is not linked to the note, 1 when only the body changed and 3
+    * when downstream offsets were shifted too.
+    * */
+    public int splice(SQLiteDatabase db, long noteId, long actionId, String title) {
+        String body;
+        boolean chunked;
+        int linkStart;
+        int linkEnd;
+        Cursor cursor = db.rawQuery(SOURCE_SQL, new String[]{Long.toString(actionId), Long.toString(noteId)});
+        try {
+            if (cursor == null || !cursor.moveToFirst()) {
+                return 0;
+            }
+            body = cursor.getString(0);
+            chunked = Boolean.TRUE.toString().equals(cursor.getString(1));
+            linkStart = cursor.getInt(2);
+            linkEnd = cursor.getInt(3);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        if (chunked) {
+            body = noteChunkStore.read(db, noteId);
+        }
+        String oldTitle = body.substring(linkStart, linkEnd);
+        if (oldTitle.equals(title)) {
+            return 0;
+        }
+
+        String newBody = body.substring(0, linkStart) + title + body.substring(linkEnd);
+        if (!chunked && newBody.length() <= Note.CHUNKED_BODY_THRESHOLD) {
+            db.execSQL(UPDATE_NOTE_BODY_SQL, new Object[]{
+                    newBody,
+                    NoteService.preview(newBody),
+                    NoteService.wordCount(title) - NoteService.wordCount(oldTitle),
+                    noteId});
+        } else {
+            ContentValues values = new ContentValues();
+            values.put(Note.COLUMN_NAME_BODY, newBody);
+            noteService.writeNote(db, values, Note._ID + "=?", new String[]{Long.toString(noteId)});
+        }
+
+        int delta = title.length() - oldTitle.length();
+        if (delta == 0) {
+            return 1;
+        }
+        Object[] shiftArgs = {linkEnd, delta, noteId};
+        db.execSQL(SHIFT_STYLES_SQL, shiftArgs);
+        db.execSQL(SHIFT_ACTION_LINKS_SQL, shiftArgs);
+        return 3;
+    }
+
+}
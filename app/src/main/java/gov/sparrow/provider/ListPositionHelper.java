@@ -0,0 +1,271 @@
+package gov.sparrow.provider;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/*
+* Orders list rows by a sparse integer rank. A new row is ranked RANK_SPACING
+* after the current last rank, or 0 in an empty list. A move writes only the
+* moved row, ranked halfway between the target row and its neighbour. When
+* that gap is used up, the move shifts the run of adjacent ranks beside the
+* target by one to make room, and the table is renumbered to
+* ordinal * RANK_SPACING later, by a rebalance scheduled for when the device
+* is idle.
+* */
+public class ListPositionHelper {
+
+    public static final int RANK_SPACING = 1024;
+
+    public static final String CREATE_ORDINALS_SQL =
+            "CREATE TEMP TABLE IF NOT EXISTS rank_ordinals (ordinal INTEGER PRIMARY KEY, row_id INTEGER NOT NULL);";
+    public static final String CLEAR_ORDINALS_SQL = "DELETE FROM temp.rank_ordinals;";
+    public static final String INSERT_ORDINAL_SQL = "INSERT INTO temp.rank_ordinals (row_id) VALUES (?);";
+    private static final String DROP_ORDINALS_SQL = "DROP TABLE temp.rank_ordinals;";
+
+    private final StatementCache statementCache;
+    private final RebalanceScheduler rebalanceScheduler;
+
+    public ListPositionHelper(StatementCache statementCache, RebalanceScheduler rebalanceScheduler) {
+        this.statementCache = statementCache;
+        this.rebalanceScheduler = rebalanceScheduler;
+    }
+
+    /* The rank a new row takes: one spacing after the last rank. */
+    public static String appendRankSql(String tableName, String columnNamePosition) {
+        return "(SELECT COALESCE(MAX(" + columnNamePosition + ") + " + RANK_SPACING + ", 0) FROM " + tableName + ")";
+    }
+
+    public static String moveRankSql(String tableName, String columnNamePosition, String columnNameId) {
+        return "UPDATE " + tableName + " SET " + columnNamePosition + " = ? WHERE " + columnNameId + " = ?;";
+    }
+
+    /*
+    * The first free rank past the run of adjacent ranks that starts at ?, in the
+    * move direction.
+    * */
+    public static String freeRankSql(String tableName, String columnNamePosition, boolean after) {
+        String step = after ? " + 1" : " - 1";
+        return "SELECT " + columnNamePosition + step + " FROM " + tableName +
+                " WHERE " + columnNamePosition + (after ? " >= ?" : " <= ?") +
+                " AND " + columnNamePosition + step + " NOT IN (SELECT " + columnNamePosition + " FROM " + tableName + ")" +
+                " ORDER BY " + columnNamePosition + (after ? " ASC" : " DESC") + " LIMIT 1";
+    }
+
+    /* Moves the ranks strictly between ?1 and the free rank ?2 one step towards ?2. */
+    public static String shiftRunSql(String tableName, String columnNamePosition, boolean after) {
+        return "UPDATE " + tableName + " SET " + columnNamePosition + " = " + columnNamePosition + (after ? " + 1" : " - 1") +
+                " WHERE " + columnNamePosition + (after ? " > ?1 AND " : " < ?1 AND ") +
+                columnNamePosition + (after ? " < ?2;" : " > ?2;");
+    }
+
+    public static String[] rebalanceSql(String tableName, String columnNamePosition, String columnNameId) {
+        return new String[]{
+                CREATE_ORDINALS_SQL,
+                CLEAR_ORDINALS_SQL,
+                "INSERT INTO temp.rank_ordinals (row_id) SELECT " + columnNameId + " FROM " + tableName +
+                        " ORDER BY " + columnNamePosition + ", " + columnNameId + ";",
+                "UPDATE " + tableName + " SET " + columnNamePosition + " = ((" +
+                        "SELECT ordinal FROM temp.rank_ordinals WHERE row_id = " + tableName + "." + columnNameId +
+                        ") - 1) * " + RANK_SPACING + ";",
+                DROP_ORDINALS_SQL
+        };
+    }
+
+    public static String appendUnlistedSql(String tableName, String columnNamePosition, String columnNameId) {
+        return "INSERT INTO temp.rank_ordinals (row_id) SELECT " + columnNameId + " FROM " + tableName +
+                " WHERE " + columnNameId + " NOT IN (SELECT row_id FROM temp.rank_ordinals)" +
+                " ORDER BY " + columnNamePosition + ", " + columnNameId + ";";
+    }
+
+    public static String assignRankSql(String tableName, String columnNamePosition, String columnNameId) {
+        String rank = "(SELECT (ordinal - 1) * " + RANK_SPACING +
+                " FROM temp.rank_ordinals WHERE row_id = " + tableName + "." + columnNameId + ")";
+        return "UPDATE " + tableName + " SET " + columnNamePosition + " = " + rank +
+                " WHERE " + columnNamePosition + " IS NOT " + rank + ";";
+    }
+
+    /*
+    * The position in values is the rank of the row under the drop point. Returns
+    * the number of rows written, which is zero when the row is already there and
+    * one unless room had to be made beside the target.
+    * */
+    public int update(SQLiteDatabase db,
+                      ContentValues values,
+                      String tableName,
+                      String columnNamePosition,
+                      String columnNameId,
+                      String[] selectionArgs) {
+        db.beginTransaction();
+        try {
+            int count = move(db, values.getAsLong(columnNamePosition), tableName, columnNamePosition, columnNameId, selectionArgs);
+            db.setTransactionSuccessful();
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /*
+    * Moves the row onto the anchor row, as a drop on it would, or after the last
+    * row when there is no anchor. The target rank is read by id or from the top
+    * of the rank index, so no move scans past the rows it touches. Writes
+    * nothing when the anchor is gone.
+    * */
+    public int moveToAnchor(SQLiteDatabase db,
+                            String tableName,
+                            String columnNamePosition,
+                            String columnNameId,
+                            String id,
+                            Long anchorId) {
+        Long targetRank = anchorId != null
+                ? queryRank(db, tableName, columnNamePosition, columnNameId + "=?", new String[]{Long.toString(anchorId)}, null, null)
+                : queryRank(db, tableName, columnNamePosition, null, null, columnNamePosition + " DESC", "1");
+        if (targetRank == null) {
+            return 0;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(columnNamePosition, targetRank);
+        return update(db, values, tableName, columnNamePosition, columnNameId, new String[]{id});
+    }
+
+    /*
+    * Ranks the listed ids first, in the given order, then every other row in its
+    * current order. Only rows whose rank changes are written.
+    * */
+    public int assignRanks(SQLiteDatabase db, String tableName, String columnNamePosition, String columnNameId, long[] ids) {
+        db.beginTransaction();
+        try {
+            db.execSQL(CREATE_ORDINALS_SQL);
+            db.execSQL(CLEAR_ORDINALS_SQL);
+
+            SQLiteStatement ordinalStatement = statementCache.get(db, StatementCache.INSERT_ORDINAL, INSERT_ORDINAL_SQL);
+            for (long id : ids) {
+                ordinalStatement.bindLong(1, id);
+                ordinalStatement.executeInsert();
+            }
+            db.execSQL(appendUnlistedSql(tableName, columnNamePosition, columnNameId));
+
+            int count = statementCache.get(db, StatementCache.ASSIGN_RANKS,
+                    assignRankSql(tableName, columnNamePosition, columnNameId)).executeUpdateDelete();
+
+            db.execSQL(CLEAR_ORDINALS_SQL);
+            db.setTransactionSuccessful();
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void rebalance(SQLiteDatabase db, String tableName, String columnNamePosition, String columnNameId) {
+        db.beginTransaction();
+        try {
+            for (String statement : rebalanceSql(tableName, columnNamePosition, columnNameId)) {
+                db.execSQL(statement);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private int move(SQLiteDatabase db,
+                     long targetRank,
+                     String tableName,
+                     String columnNamePosition,
+                     String columnNameId,
+                     String[] selectionArgs) {
+        Long currentRank = queryRank(db, tableName, columnNamePosition, columnNameId + "=?", selectionArgs, null, null);
+        if (currentRank == null || currentRank == targetRank) {
+            return 0;
+        }
+
+        boolean movingDown = currentRank < targetRank;
+        int shifted = 0;
+        Long rank = rankBeside(db, targetRank, movingDown, tableName, columnNamePosition);
+        if (rank == null) {
+            shifted = makeRoom(db, targetRank, movingDown, tableName, columnNamePosition);
+            rank = movingDown ? targetRank + 1 : targetRank - 1;
+            rebalanceScheduler.scheduleRebalance();
+        }
+
+        SQLiteStatement statement = statementCache.get(db, StatementCache.MOVE_RANK,
+                moveRankSql(tableName, columnNamePosition, columnNameId));
+        statement.bindLong(1, rank);
+        statement.bindString(2, selectionArgs[0]);
+        return shifted + statement.executeUpdateDelete();
+    }
+
+    /*
+    * Frees the rank beside the target by shifting the adjacent ranks past it one
+    * step, up to the first free rank. Returns the number of rows shifted.
+    * */
+    private int makeRoom(SQLiteDatabase db, long targetRank, boolean after, String tableName, String columnNamePosition) {
+        long freeRank;
+        Cursor cursor = db.rawQuery(freeRankSql(tableName, columnNamePosition, after), new String[]{Long.toString(targetRank)});
+        try {
+            cursor.moveToFirst();
+            freeRank = cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+
+        SQLiteStatement statement = db.compileStatement(shiftRunSql(tableName, columnNamePosition, after));
+        try {
+            statement.bindLong(1, targetRank);
+            statement.bindLong(2, freeRank);
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /*
+    * Returns the rank halfway between the target and its neighbour in the move
+    * direction, or null when the gap is too small to split.
+    * */
+    private Long rankBeside(SQLiteDatabase db, long targetRank, boolean after, String tableName, String columnNamePosition) {
+        String[] args = {Long.toString(targetRank)};
+        if (after) {
+            Long next = queryRank(db, tableName, columnNamePosition, columnNamePosition + ">?", args, columnNamePosition + " ASC", "1");
+            if (next == null) {
+                return targetRank + RANK_SPACING;
+            }
+            return next - targetRank < 2 ? null : targetRank + (next - targetRank) / 2;
+        }
+
+        Long previous = queryRank(db, tableName, columnNamePosition, columnNamePosition + "<?", args, columnNamePosition + " DESC", "1");
+        if (previous == null) {
+            return targetRank - RANK_SPACING;
+        }
+        return targetRank - previous < 2 ? null : previous + (targetRank - previous) / 2;
+    }
+
+    private Long queryRank(SQLiteDatabase db,
+                           String tableName,
+                           String columnNamePosition,
+                           String selection,
+                           String[] selectionArgs,
+                           String orderBy,
+                           String limit) {
+        String[] projection = {columnNamePosition};
+        Cursor cursor = limit == null
+                ? db.query(tableName, projection, selection, selectionArgs, null, null, orderBy)
+                : db.query(tableName, projection, selection, selectionArgs, null, null, orderBy, limit);
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public interface RebalanceScheduler {
+        void scheduleRebalance();
+    }
+
+}
@@ -0,0 +1,105 @@
+package gov.sparrow.provider;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import gov.sparrow.contracts.NoteContract.NoteChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* Stores a very large note body as fixed-size chunks so a save only rewrites
+* the chunks whose text changed instead of the whole body row.
+* */
+public class NoteChunkStore {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+
+    private static final String[] CHUNK_PROJECTION = {NoteChunk.COLUMN_NAME_SEQUENCE, NoteChunk.COLUMN_NAME_TEXT};
+    private static final String SELECTION_BY_NOTE = NoteChunk.COLUMN_NAME_NOTE_ID + "=?";
+    private static final String SELECTION_BY_SEQUENCE =
+            NoteChunk.COLUMN_NAME_NOTE_ID + "=? AND " + NoteChunk.COLUMN_NAME_SEQUENCE + "=?";
+    private static final String SELECTION_FROM_SEQUENCE =
+            NoteChunk.COLUMN_NAME_NOTE_ID + "=? AND " + NoteChunk.COLUMN_NAME_SEQUENCE + ">=?";
+
+    private final int chunkSize;
+
+    public NoteChunkStore() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public NoteChunkStore(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /*
+    * Returns the number of chunk rows inserted or updated.
+    * */
+    public int write(SQLiteDatabase db, long noteId, String body) {
+        List<String> existing = readChunks(db, noteId);
+        String id = Long.toString(noteId);
+
+        int written = 0;
+        int sequence = 0;
+        for (int start = 0; start < body.length(); start += chunkSize, sequence++) {
+            String text = body.substring(start, Math.min(body.length(), start + chunkSize));
+
+            if (sequence >= existing.size()) {
+                ContentValues values = new ContentValues();
+                values.put(NoteChunk.COLUMN_NAME_NOTE_ID, noteId);
+                values.put(NoteChunk.COLUMN_NAME_SEQUENCE, sequence);
+                values.put(NoteChunk.COLUMN_NAME_TEXT, text);
+                db.insert(NoteChunk.TABLE_NAME, null, values);
+                written++;
+            } else if (!text.equals(existing.get(sequence))) {
+                ContentValues values = new ContentValues();
+                values.put(NoteChunk.COLUMN_NAME_TEXT, text);
+                db.update(NoteChunk.TABLE_NAME, values, SELECTION_BY_SEQUENCE, new String[]{id, Integer.toString(sequence)});
+                written++;
+            }
+        }
+
+        if (sequence < existing.size()) {
+            db.delete(NoteChunk.TABLE_NAME, SELECTION_FROM_SEQUENCE, new String[]{id, Integer.toString(sequence)});
+        }
+        return written;
+    }
+
+    public String read(SQLiteDatabase db, long noteId) {
+        StringBuilder body = new StringBuilder();
+        for (String chunk : readChunks(db, noteId)) {
+            body.append(chunk);
+        }
+        return body.toString();
+    }
+
+    public int delete(SQLiteDatabase db, long noteId) {
+        return db.delete(NoteChunk.TABLE_NAME, SELECTION_BY_NOTE, new String[]{Long.toString(noteId)});
+    }
+
+    private List<String> readChunks(SQLiteDatabase db, long noteId) {
+        List<String> chunks = new ArrayList<>();
+        Cursor cursor = db.query(
+                NoteChunk.TABLE_NAME,
+                CHUNK_PROJECTION,
+                SELECTION_BY_NOTE,
+                new String[]{Long.toString(noteId)},
+                null,
+                null,
+                NoteChunk.COLUMN_NAME_SEQUENCE + " ASC");
+        if (cursor == null) {
+            return chunks;
+        }
+        try {
+            int textIndex = cursor.getColumnIndexOrThrow(NoteChunk.COLUMN_NAME_TEXT);
+            while (cursor.moveToNext()) {
+                chunks.add(cursor.getString(textIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+        return chunks;
+    }
+
+}
@@ -0,0 +1,11 @@
+package gov.sparrow.provider;
+
+import android.database.sqlite.SQLiteQueryBuilder;
+
+public class SQLiteQueryBuilderFactory {
+
+    public SQLiteQueryBuilder getInstance() {
+        return new SQLiteQueryBuilder();
+    }
+
+}
@@ -0,0 +1,400 @@
+package gov.sparrow.provider;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.OperationApplicationException;
+import android.content.UriMatcher;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import gov.sparrow.SparrowApplication;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.BackupContract;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
+import gov.sparrow.contracts.SearchContract.Searchable;
+import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.database.SparrowDatabaseHelper;
+import gov.sparrow.provider.services.ActionService;
+import gov.sparrow.provider.services.BackupService;
+import gov.sparrow.provider.services.NoteService;
+import gov.sparrow.provider.services.NotebookService;
+import gov.sparrow.provider.services.SearchService;
+import gov.sparrow.provider.services.StyleService;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static gov.sparrow.contracts.SparrowContract.SPARROW_CONTENT_AUTHORITY;
+
+public class SparrowProvider extends ContentProvider {
+
+    private static final UriMatcher uriMatcher = buildUriMatcher();
+
+    @Inject SparrowDatabaseHelper sparrowDatabaseHelper;
+    @Inject SQLiteQueryBuilderFactory sqLiteQueryBuilderFactory;
+    @Inject NotebookService notebookService;
+    @Inject NoteService noteService;
+    @Inject ActionService actionService;
+    @Inject StyleService styleService;
+    @Inject SearchService searchService;
+    @Inject BackupService backupService;
+
+    /* Set while applyBatch runs on this thread; services notify through it. */
+    private final ThreadLocal<BatchContext> batchContext = new ThreadLocal<>();
+
+    private static UriMatcher buildUriMatcher() {
+        UriMatcher matcher = new UriMatcher(UriMatcher.NO_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Note.TABLE_NAME, Note.NOTE_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Note.TABLE_NAME + "/#", Note.NOTE_ID_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Note.TABLE_NAME + "/#/" + Note.PATH_LAST_SAVED, Note.NOTE_LAST_SAVED_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Note.TABLE_NAME + "/#/" + Note.PATH_EDITS, Note.NOTE_EDITS_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Notebook.TABLE_NAME, Notebook.NOTEBOOK_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Notebook.TABLE_NAME + "/#/*", Notebook.NOTEBOOK_ARCHIVE_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, NotebookListPosition.TABLE_NAME, NotebookListPosition.NOTEBOOK_LIST_POSITION_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, NotebookListPosition.TABLE_NAME + "/move", NotebookListPosition.NOTEBOOK_LIST_POSITION_MOVE_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, NotebookListPosition.TABLE_NAME + "/order", NotebookListPosition.NOTEBOOK_LIST_POSITION_ORDER_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Action.TABLE_NAME, Action.ACTION_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Action.TABLE_NAME + "/#", Action.ACTION_ID_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Action.TABLE_NAME + "/#/#", Action.LINKED_ACTION_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, ActionListPosition.TABLE_NAME, ActionListPosition.ACTION_LIST_POSITION_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, ActionListPosition.TABLE_NAME + "/move", ActionListPosition.ACTION_LIST_POSITION_MOVE_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, ActionListPosition.TABLE_NAME + "/order", ActionListPosition.ACTION_LIST_POSITION_ORDER_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Style.TABLE_NAME, Style.STYLE_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, Searchable.PATH_SEARCH, Searchable.SEARCH_MATCH);
+        matcher.addURI(SPARROW_CONTENT_AUTHORITY, BackupContract.PATH_BACKUP, BackupContract.BACKUP_MATCH);
+        return matcher;
+    }
+
+    @Override
+    public boolean onCreate() {
+        ((SparrowApplication) getContext().getApplicationContext()).getAppComponent().inject(this);
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return query(uri, projection, selection, selectionArgs, sortOrder, null);
+    }
+
+    @Override
+    public Cursor query(Uri uri,
+                        String[] projection,
+                        String selection,
+                        String[] selectionArgs,
+                        String sortOrder,
+                        CancellationSignal cancellationSignal) {
+        Cursor cursor;
+        SQLiteQueryBuilder builder = sqLiteQueryBuilderFactory.getInstance();
+
+        switch (uriMatcher.match(uri)) {
+            case Notebook.NOTEBOOK_MATCH:
+                cursor = notebookService.queryNotebooks(sparrowDatabaseHelper.getReadableDatabase(), builder, projection, selection, selectionArgs, sortOrder);
+                break;
+            case Note.NOTE_MATCH:
+                if (isPage(uri)) {
+                    cursor = noteService.queryNotesPage(sparrowDatabaseHelper.getReadableDatabase(), builder, uri, projection, selection, selectionArgs);
+                } else {
+                    cursor = noteService.queryNotes(sparrowDatabaseHelper.getReadableDatabase(), builder, projection, selection, selectionArgs, sortOrder);
+                }
+                break;
+            case Note.NOTE_ID_MATCH:
+                SQLiteDatabase readConnection = sparrowDatabaseHelper.getReadConnection();
+                synchronized (readConnection) {
+                    cursor = noteService.queryNote(readConnection, builder, projection, selection, selectionArgs, sortOrder);
+                }
+                break;
+            case Note.NOTE_LAST_SAVED_MATCH:
+                cursor = noteService.queryLastSavedNote(sparrowDatabaseHelper.getReadableDatabase(), builder, projection, selection, selectionArgs, sortOrder);
+                break;
+            case Action.ACTION_MATCH:
+                if (isPage(uri)) {
+                    cursor = actionService.queryActionsPage(sparrowDatabaseHelper.getReadableDatabase(), builder, uri, projection, selection, selectionArgs);
+                } else {
+                    cursor = actionService.queryActions(sparrowDatabaseHelper.getReadableDatabase(), builder, projection, selection, selectionArgs, sortOrder);
+                }
+                break;
+            case Style.STYLE_MATCH:
+                cursor = styleService.queryStyles(sparrowDatabaseHelper.getReadableDatabase(), builder, projection, selection, selectionArgs, sortOrder);
+                break;
+            case Searchable.SEARCH_MATCH:
+                if (selectionArgs == null || selectionArgs.length == 0) {
+                    return null;
+                }
+                cursor = querySearch(uri, builder, selectionArgs[0], sortOrder, cancellationSignal);
+                break;
+            case BackupContract.BACKUP_MATCH:
+                cursor = backupService.queryBackup(sparrowDatabaseHelper.openSnapshotConnection(), builder);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown uri: " + uri);
+        }
+
+        if (cursor != null) {
+            cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        }
+        return cursor;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        switch (uriMatcher.match(uri)) {
+            case Note.NOTE_ID_MATCH:
+                return Note.TYPE_ITEM;
+            case Action.ACTION_ID_MATCH:
+                return Action.TYPE_ITEM;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        int match = uriMatcher.match(uri);
+        try {
+            return insert(match, uri, values);
+        } finally {
+            searchableChanged(match);
+        }
+    }
+
+    private Uri insert(int match, Uri uri, ContentValues values) {
+        switch (match) {
+            case Notebook.NOTEBOOK_MATCH:
+                return notebookService.insertNotebook(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values);
+            case Note.NOTE_MATCH:
+                return noteService.insertNote(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values);
+            case Action.ACTION_MATCH:
+                return actionService.upsertAction(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values);
+            case Style.STYLE_MATCH:
+                return styleService.insertStyles(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values);
+            default:
+                throw new IllegalArgumentException("Unknown uri: " + uri);
+        }
+    }
+
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        switch (uriMatcher.match(uri)) {
+            case ActionListPosition.ACTION_LIST_POSITION_MOVE_MATCH:
+                return actionService.moveActions(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values);
+            case ActionListPosition.ACTION_LIST_POSITION_ORDER_MATCH:
+                return actionService.reorderActions(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values);
+            case NotebookListPosition.NOTEBOOK_LIST_POSITION_MOVE_MATCH:
+                return notebookService.moveNotebooks(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values);
+            case NotebookListPosition.NOTEBOOK_LIST_POSITION_ORDER_MATCH:
+                return notebookService.reorderNotebooks(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values);
+            default:
+                return super.bulkInsert(uri, values);
+        }
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        int match = uriMatcher.match(uri);
+        try {
+            return delete(match, uri, selection, selectionArgs);
+        } finally {
+            searchableChanged(match);
+        }
+    }
+
+    private int delete(int match, Uri uri, String selection, String[] selectionArgs) {
+        switch (match) {
+            case Notebook.NOTEBOOK_MATCH:
+                return notebookService.deleteNotebooks(sparrowDatabaseHelper.getWritableDatabase(), selection, selectionArgs);
+            case Notebook.NOTEBOOK_ARCHIVE_MATCH:
+                boolean deleteAll = Boolean.parseBoolean(uri.getLastPathSegment());
+                return notebookService.archiveNotebook(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), deleteAll, selection, selectionArgs);
+            case Note.NOTE_MATCH:
+                return noteService.deleteNotes(sparrowDatabaseHelper.getWritableDatabase(), selection, selectionArgs);
+            case Note.NOTE_ID_MATCH:
+                return noteService.archiveNote(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), selection, selectionArgs);
+            case Action.ACTION_MATCH:
+                return actionService.deleteActions(sparrowDatabaseHelper.getWritableDatabase(), selection, selectionArgs);
+            case Action.ACTION_ID_MATCH:
+                return actionService.archiveAction(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), selection, selectionArgs);
+            case Style.STYLE_MATCH:
+                return styleService.deleteStyles(sparrowDatabaseHelper.getWritableDatabase(), selection, selectionArgs);
+            default:
+                throw new IllegalArgumentException("Unknown uri: " + uri);
+        }
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        int match = uriMatcher.match(uri);
+        try {
+            return update(match, uri, values, selection, selectionArgs);
+        } finally {
+            searchableChanged(match);
+        }
+    }
+
+    private int update(int match, Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        switch (match) {
+            case Notebook.NOTEBOOK_MATCH:
+                return notebookService.updateNotebook(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values, selection, selectionArgs);
+            case NotebookListPosition.NOTEBOOK_LIST_POSITION_MATCH:
+                return notebookService.updateNotebookListPosition(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values, selectionArgs);
+            case Note.NOTE_MATCH:
+                return noteService.updateNote(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values, selection, selectionArgs);
+            case Note.NOTE_EDITS_MATCH:
+                return noteService.applyBodyEdits(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), uri, values);
+            case Action.ACTION_MATCH:
+                return actionService.updateAction(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values, selection, selectionArgs);
+            case Action.LINKED_ACTION_MATCH:
+                return actionService.updateLinkedAction(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), uri, values, selection, selectionArgs);
+            case ActionListPosition.ACTION_LIST_POSITION_MATCH:
+                return actionService.updateActionListPosition(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values, selectionArgs);
+            case Style.STYLE_MATCH:
+                return styleService.updateStyle(serviceContext(), sparrowDatabaseHelper.getWritableDatabase(), values, selection, selectionArgs);
+            default:
+                throw new IllegalArgumentException("Unknown uri: " + uri);
+        }
+    }
+
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (SparrowContract.METHOD_REBALANCE_LIST_POSITIONS.equals(method)) {
+            SQLiteDatabase db = sparrowDatabaseHelper.getWritableDatabase();
+            actionService.rebalanceActionListPositions(getContext(), db);
+            notebookService.rebalanceNotebookListPositions(getContext(), db);
+            return null;
+        }
+        if (!Searchable.METHOD_MAINTAIN_INDEX.equals(method)) {
+            return null;
+        }
+
+        boolean optimize = extras != null && extras.getBoolean(Searchable.EXTRA_OPTIMIZE);
+        Bundle result = new Bundle();
+        result.putInt(Searchable.EXTRA_MERGE_STEPS,
+                searchService.maintainIndex(sparrowDatabaseHelper.getWritableDatabase(), optimize));
+        return result;
+    }
+
+    /*
+    * Runs the batch in one transaction. The URIs the services notify are
+    * collected and each is notified once, after the transaction commits; a
+    * failed batch notifies nothing.
+    * */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase db = sparrowDatabaseHelper.getWritableDatabase();
+        BatchContext batch = new BatchContext(getContext());
+
+        ContentProviderResult[] results;
+        db.beginTransaction();
+        batchContext.set(batch);
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            batchContext.remove();
+            db.endTransaction();
+            searchService.onSearchableChanged();
+        }
+
+        ContentResolver contentResolver = getContext().getContentResolver();
+        for (Uri uri : batch.getNotifiedUris()) {
+            contentResolver.notifyChange(uri, null);
+        }
+        return results;
+    }
+
+    private Cursor querySearch(Uri uri,
+                               SQLiteQueryBuilder builder,
+                               String text,
+                               String sortOrder,
+                               CancellationSignal cancellationSignal) {
+        SQLiteDatabase db = sparrowDatabaseHelper.getReadableDatabase();
+        String mode = uri.getQueryParameter(Searchable.PARAM_MODE);
+        if (Searchable.MODE_FUZZY.equals(mode)) {
+            return searchService.queryFuzzy(db, builder, text, Searchable.RANKED_LIMIT);
+        }
+        if (Searchable.MODE_RANKED.equals(mode)) {
+            return searchService.queryRanked(db, builder, text, Searchable.RANKED_LIMIT);
+        }
+        if (cancellationSignal != null) {
+            return searchService.query(db, builder, text, sortOrder,
+                    uri.getQueryParameter(Searchable.PARAM_SESSION), cancellationSignal);
+        }
+        return searchService.query(db, builder, text, sortOrder);
+    }
+
+    /*
+    * Writes to notes and actions reach the FTS tables through triggers. The
+    * search caches are dropped once the write has returned; a batch drops them
+    * again after it commits, since a reader may reload them mid-transaction.
+    * */
+    private void searchableChanged(int match) {
+        switch (match) {
+            case Notebook.NOTEBOOK_ARCHIVE_MATCH:
+            case Note.NOTE_MATCH:
+            case Note.NOTE_ID_MATCH:
+            case Note.NOTE_EDITS_MATCH:
+            case Action.ACTION_MATCH:
+            case Action.ACTION_ID_MATCH:
+            case Action.LINKED_ACTION_MATCH:
+                searchService.onSearchableChanged();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Context serviceContext() {
+        BatchContext batch = batchContext.get();
+        return batch != null ? batch : getContext();
+    }
+
+    private static boolean isPage(Uri uri) {
+        return uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_LIMIT) != null;
+    }
+
+    private static class BatchContext extends ContextWrapper {
+
+        private final Set<Uri> notifiedUris = new LinkedHashSet<>();
+        private final ContentResolver contentResolver;
+
+        BatchContext(Context base) {
+            super(base);
+            contentResolver = new ContentResolver(base) {
+                @Override
+                public void notifyChange(Uri uri, ContentObserver observer) {
+                    notifiedUris.add(uri);
+                }
+
+                @Override
+                public void notifyChange(Uri uri, ContentObserver observer, boolean syncToNetwork) {
+                    notifiedUris.add(uri);
+                }
+            };
+        }
+
+        @Override
+        public ContentResolver getContentResolver() {
+            return contentResolver;
+        }
+
+        Set<Uri> getNotifiedUris() {
+            return notifiedUris;
+        }
+    }
+
+}
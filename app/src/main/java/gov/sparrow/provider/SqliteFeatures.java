@@ -0,0 +1,71 @@
+package gov.sparrow.provider;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/*
+* Answers which SQL features the device's SQLite build supports. The platform
+* ships whatever SQLite the OS vendor bundled, so the version is read once
+* from the database itself rather than inferred from the API level.
+* */
+public class SqliteFeatures {
+
+    public static final String VERSION_SQL = "SELECT sqlite_version()";
+
+    private static final int[] UPSERT_VERSION = {3, 24, 0};
+    private static final int[] UPSERT_RETURNING_VERSION = {3, 35, 0};
+    private static final int[] UNICODE61_VERSION = {3, 7, 13};
+
+    private int[] version;
+
+    public boolean supportsUpsert(SQLiteDatabase db) {
+        return isAtLeast(db, UPSERT_VERSION);
+    }
+
+    public boolean supportsUpsertReturning(SQLiteDatabase db) {
+        return isAtLeast(db, UPSERT_RETURNING_VERSION);
+    }
+
+    public boolean supportsUnicodeTokenizer(SQLiteDatabase db) {
+        return isAtLeast(db, UNICODE61_VERSION);
+    }
+
+    private synchronized boolean isAtLeast(SQLiteDatabase db, int[] required) {
+        if (version == null) {
+            version = readVersion(db);
+        }
+        for (int i = 0; i < required.length; i++) {
+            int part = i < version.length ? version[i] : 0;
+            if (part != required[i]) {
+                return part > required[i];
+            }
+        }
+        return true;
+    }
+
+    private static int[] readVersion(SQLiteDatabase db) {
+        SQLiteStatement statement = db.compileStatement(VERSION_SQL);
+        try {
+            return parse(statement.simpleQueryForString());
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static int[] parse(String version) {
+        if (version == null) {
+            return new int[0];
+        }
+        String[] parts = version.split("\\.");
+        int[] parsed = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parsed[i] = Integer.parseInt(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            return new int[0];
+        }
+        return parsed;
+    }
+
+}
@@ -0,0 +1,123 @@
+package gov.sparrow.provider;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+* Keeps compiled statements for the provider's hot write paths so repeated
+* saves bind new arguments instead of recompiling the same SQL. Statements
+* belong to the connection that compiled them, so the cache is keyed by
+* database first, then by operation and SQL shape. Each connection keeps at
+* most maxStatements shapes; the least recently used one is closed first.
+* */
+public class StatementCache {
+
+    public static final int DEFAULT_MAX_STATEMENTS = 32;
+
+    public static final int UPDATE_NOTE = 1;
+    public static final int INSERT_ACTION = 2;
+    public static final int UPSERT_ACTION = 3;
+    public static final int UPDATE_ACTION_BY_LINK = 4;
+    public static final int SELECT_ACTION_ID = 5;
+    public static final int DELETE_ACTIONS = 6;
+    public static final int INSERT_STYLE = 7;
+    public static final int DELETE_STYLES = 8;
+    public static final int MOVE_RANK = 9;
+    public static final int INSERT_ORDINAL = 10;
+    public static final int ASSIGN_RANKS = 11;
+
+    private final Map<SQLiteDatabase, Map<String, SQLiteStatement>> statements = new HashMap<>();
+    private final int maxStatements;
+
+    public StatementCache() {
+        this(DEFAULT_MAX_STATEMENTS);
+    }
+
+    public StatementCache(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    /* Columns in sorted order, so every write of the same shape reuses one statement. */
+    public static String[] sortedColumns(ContentValues values) {
+        String[] columns = values.keySet().toArray(new String[values.size()]);
+        Arrays.sort(columns);
+        return columns;
+    }
+
+    public static Object[] argsFor(ContentValues values, String[] columns) {
+        Object[] args = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            args[i] = values.get(columns[i]);
+        }
+        return args;
+    }
+
+    /*
+    * Binds each argument by its type. Flags are stored as 'true'/'false' text,
+    * so a Boolean binds as its string.
+    * */
+    public static void bindAll(SQLiteStatement statement, Object[] args) {
+        if (args == null) {
+            return;
+        }
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            int index = i + 1;
+            if (arg == null) {
+                statement.bindNull(index);
+            } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+                statement.bindLong(index, ((Number) arg).longValue());
+            } else if (arg instanceof Double || arg instanceof Float) {
+                statement.bindDouble(index, ((Number) arg).doubleValue());
+            } else if (arg instanceof byte[]) {
+                statement.bindBlob(index, (byte[]) arg);
+            } else {
+                statement.bindString(index, arg.toString());
+            }
+        }
+    }
+
+    public synchronized SQLiteStatement get(SQLiteDatabase db, int operation, String sql) {
+        Map<String, SQLiteStatement> compiled = statements.get(db);
+        if (compiled == null) {
+            compiled = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                    if (size() <= maxStatements) {
+                        return false;
+                    }
+                    eldest.getValue().close();
+                    return true;
+                }
+            };
+            statements.put(db, compiled);
+        }
+
+        String key = operation + ":" + sql;
+        SQLiteStatement statement = compiled.get(key);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            compiled.put(key, statement);
+        } else {
+            statement.clearBindings();
+        }
+        return statement;
+    }
+
+    public synchronized void clear(SQLiteDatabase db) {
+        Map<String, SQLiteStatement> compiled = statements.remove(db);
+        if (compiled == null) {
+            return;
+        }
+        for (SQLiteStatement statement : compiled.values()) {
+            statement.close();
+        }
+    }
+
+}
@@ -0,0 +1,391 @@
+package gov.sparrow.provider.services;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.database.PartitionedCursor;
+import gov.sparrow.provider.LinkedActionSplicer;
+import gov.sparrow.provider.ListPositionHelper;
+import gov.sparrow.provider.SqliteFeatures;
+import gov.sparrow.provider.StatementCache;
+
+import java.util.Arrays;
+
+public class ActionService {
+
+    public static final String[] PARTITION_COUNT_PROJECTION = {
+            "COUNT(CASE WHEN " + Action.COLUMN_NAME_COMPLETED + "='false' THEN 1 END) AS incomplete",
+            "COUNT(CASE WHEN " + Action.COLUMN_NAME_COMPLETED + "='true' THEN 1 END) AS completed"
+    };
+
+    public static final String SELECT_ID_BY_LINK_SQL =
+            "SELECT " + Action._ID + " FROM " + Action.TABLE_NAME +
+                    " WHERE " + Action.COLUMN_NAME_LINK_ID + "=? AND " + Action.COLUMN_NAME_NOTE_ID + "=?";
+
+    private static final String[] LINK_KEY_COLUMNS = {Action.COLUMN_NAME_LINK_ID, Action.COLUMN_NAME_NOTE_ID};
+    private static final String ID_COLUMN = Action.TABLE_NAME + "." + Action._ID;
+    private static final String PAGE_SORT_ORDER = Action.PARTITIONED_SORT_ORDER + ", " + ID_COLUMN + " ASC";
+    private static final String PAGE_ANCHOR_SELECTION =
+            Action.COLUMN_NAME_COMPLETED + ">? OR (" + Action.COLUMN_NAME_COMPLETED + "=? AND (" +
+                    ActionListPosition.COLUMN_NAME_POSITION + ">? OR (" +
+                    ActionListPosition.COLUMN_NAME_POSITION + "=? AND " + ID_COLUMN + ">?)))";
+
+    private final ListPositionHelper listPositionHelper;
+    private final LinkedActionSplicer linkedActionSplicer;
+    private final SqliteFeatures sqliteFeatures;
+    private final StatementCache statementCache;
+
+    public ActionService(ListPositionHelper listPositionHelper,
+                         LinkedActionSplicer linkedActionSplicer,
+                         SqliteFeatures sqliteFeatures,
+                         StatementCache statementCache) {
+        this.listPositionHelper = listPositionHelper;
+        this.linkedActionSplicer = linkedActionSplicer;
+        this.sqliteFeatures = sqliteFeatures;
+        this.statementCache = statementCache;
+    }
+
+    public static String insertSql(String[] columns) {
+        return "INSERT OR IGNORE INTO " + Action.TABLE_NAME + " (" + join(columns, "") + ") VALUES (" + placeholders(columns.length) + ")";
+    }
+
+    public static String updateByLinkSql(String[] columns) {
+        return "UPDATE " + Action.TABLE_NAME + " SET " + join(columns, "=?") +
+                " WHERE " + Action.COLUMN_NAME_LINK_ID + "=? AND " + Action.COLUMN_NAME_NOTE_ID + "=?";
+    }
+
+    /*
+    * One statement that inserts the action or, when its link already exists in
+    * the note, updates the other columns in place. With only the link key to
+    * save the update is a no-op, so the statement still touches the row.
+    * */
+    public static String upsertSql(String[] columns) {
+        StringBuilder updates = new StringBuilder();
+        for (String column : columns) {
+            if (Arrays.asList(LINK_KEY_COLUMNS).contains(column)) {
+                continue;
+            }
+            if (updates.length() > 0) {
+                updates.append(", ");
+            }
+            updates.append(column).append(" = excluded.").append(column);
+        }
+        if (updates.length() == 0) {
+            updates.append(Action.COLUMN_NAME_LINK_ID).append(" = ").append(Action.COLUMN_NAME_LINK_ID);
+        }
+
+        return "INSERT INTO " + Action.TABLE_NAME + " (" + join(columns, "") + ")" +
+                " VALUES (" + placeholders(columns.length) + ")" +
+                " ON CONFLICT (" + join(LINK_KEY_COLUMNS, "") + ")" +
+                " DO UPDATE SET " + updates;
+    }
+
+    public static String upsertReturningSql(String[] columns) {
+        return upsertSql(columns) + " RETURNING " + Action._ID;
+    }
+
+    public static String deleteSql(String selection) {
+        return selection == null
+                ? "DELETE FROM " + Action.TABLE_NAME
+                : "DELETE FROM " + Action.TABLE_NAME + " WHERE " + selection;
+    }
+
+    public Cursor queryActions(SQLiteDatabase db,
+                               SQLiteQueryBuilder builder,
+                               String[] projection,
+                               String selection,
+                               String[] selectionArgs,
+                               String sortOrder) {
+        builder.setTables(Action.TABLE_NOTE_POSITION_JOIN);
+        Cursor cursor = builder.query(db, projection, selection, selectionArgs, null, null, sortOrder);
+        if (cursor == null || !Action.PARTITIONED_SORT_ORDER.equals(sortOrder)) {
+            return cursor;
+        }
+        return withPartitionCounts(db, builder, cursor, selection, selectionArgs);
+    }
+
+    /*
+    * Seeks past the anchor row on (completed, position, _id), the same key the
+    * partitioned list is sorted by, so later pages never re-read earlier rows.
+    * */
+    public Cursor queryActionsPage(SQLiteDatabase db,
+                                   SQLiteQueryBuilder builder,
+                                   Uri uri,
+                                   String[] projection,
+                                   String selection,
+                                   String[] selectionArgs) {
+        String limit = uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_LIMIT);
+        String partition = uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR_PARTITION);
+        String position = uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR);
+        String anchorId = uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR_ID);
+
+        builder.setTables(Action.TABLE_NOTE_POSITION_JOIN);
+        if (partition != null && position != null && anchorId != null) {
+            String anchoredSelection = selection == null
+                    ? "(" + PAGE_ANCHOR_SELECTION + ")"
+                    : "(" + selection + ") AND (" + PAGE_ANCHOR_SELECTION + ")";
+            return builder.query(db, projection, anchoredSelection,
+                    appendArgs(selectionArgs, partition, partition, position, position, anchorId),
+                    null, null, PAGE_SORT_ORDER, limit);
+        }
+
+        Cursor page = builder.query(db, projection, selection, selectionArgs, null, null, PAGE_SORT_ORDER, limit);
+        if (page == null) {
+            return null;
+        }
+        return withPartitionCounts(db, builder, page, selection, selectionArgs);
+    }
+
+    /*
+    * Saves an action by its link. Where SQLite supports UPSERT ... RETURNING
+    * this is a single statement; from 3.24 the upsert runs on its own and the
+    * id is read back by link; before that the update runs first and the insert
+    * only when no linked row matched. A linked save notifies the owner-qualified
+    * uri, so the note cache can tell it apart from changes to other notes.
+    * */
+    public Uri upsertAction(Context context, SQLiteDatabase db, ContentValues values) {
+        String[] columns = StatementCache.sortedColumns(values);
+        Object[] args = StatementCache.argsFor(values, columns);
+        String linkId = values.getAsString(Action.COLUMN_NAME_LINK_ID);
+        String noteId = values.getAsString(Action.COLUMN_NAME_NOTE_ID);
+        boolean linked = linkId != null && noteId != null;
+
+        Uri uri;
+        if (linked && sqliteFeatures.supportsUpsertReturning(db)) {
+            uri = Action.CONTENT_URI(upsertReturningId(db, columns, args));
+        } else if (linked && sqliteFeatures.supportsUpsert(db)) {
+            uri = Action.CONTENT_URI(upsertThenSelectId(db, columns, args, linkId, noteId));
+        } else if (linked && updateByLink(db, columns, args, linkId, noteId) > 0) {
+            uri = Action.CONTENT_URI(selectIdByLink(db, linkId, noteId));
+        } else {
+            SQLiteStatement statement = statementCache.get(db, StatementCache.INSERT_ACTION, insertSql(columns));
+            StatementCache.bindAll(statement, args);
+            uri = Action.CONTENT_URI(statement.executeInsert());
+        }
+
+        context.getContentResolver().notifyChange(noteId == null
+                ? Action.CONTENT_URI
+                : Action.CONTENT_URI(Long.parseLong(noteId), ContentUris.parseId(uri)), null);
+        return uri;
+    }
+
+    public int updateAction(Context context,
+                            SQLiteDatabase db,
+                            ContentValues values,
+                            String selection,
+                            String[] selectionArgs) {
+        int count = db.update(Action.TABLE_NAME, values, selection, selectionArgs);
+        context.getContentResolver().notifyChange(Action.CONTENT_URI, null);
+        return count;
+    }
+
+    /*
+    * Renaming a linked action rewrites its span of the note body in the same
+    * transaction as the action row.
+    * */
+    public int updateLinkedAction(Context context,
+                                  SQLiteDatabase db,
+                                  Uri uri,
+                                  ContentValues values,
+                                  String selection,
+                                  String[] selectionArgs) {
+        long noteId = Long.parseLong(uri.getPathSegments().get(1));
+        long actionId = Long.parseLong(uri.getPathSegments().get(2));
+        String title = values.getAsString(Action.COLUMN_NAME_TITLE);
+
+        int count;
+        db.beginTransaction();
+        try {
+            if (title != null) {
+                linkedActionSplicer.splice(db, noteId, actionId, title);
+            }
+            count = db.update(Action.TABLE_NAME, values, selection, selectionArgs);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (title != null) {
+            context.getContentResolver().notifyChange(Note.CONTENT_URI(noteId), null);
+        }
+        context.getContentResolver().notifyChange(uri, null);
+        return count;
+    }
+
+    public int updateActionListPosition(Context context, SQLiteDatabase db, ContentValues values, String[] selectionArgs) {
+        int count = listPositionHelper.update(
+                db,
+                values,
+                ActionListPosition.TABLE_NAME,
+                ActionListPosition.COLUMN_NAME_POSITION,
+                ActionListPosition.COLUMN_NAME_ACTION_ID,
+                selectionArgs);
+        context.getContentResolver().notifyChange(Action.CONTENT_URI, null);
+        return count;
+    }
+
+    public int moveActions(Context context, SQLiteDatabase db, ContentValues[] moves) {
+        int count = 0;
+        db.beginTransaction();
+        try {
+            for (ContentValues move : moves) {
+                count += listPositionHelper.moveToAnchor(
+                        db,
+                        ActionListPosition.TABLE_NAME,
+                        ActionListPosition.COLUMN_NAME_POSITION,
+                        ActionListPosition.COLUMN_NAME_ACTION_ID,
+                        move.getAsString(ActionListPosition.COLUMN_NAME_ACTION_ID),
+                        move.getAsLong(ActionListPosition.KEY_ANCHOR_ID));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        context.getContentResolver().notifyChange(Action.CONTENT_URI, null);
+        return count;
+    }
+
+    /* Ranks change but the order does not; readers reload so later moves target fresh ranks. */
+    public void rebalanceActionListPositions(Context context, SQLiteDatabase db) {
+        listPositionHelper.rebalance(
+                db,
+                ActionListPosition.TABLE_NAME,
+                ActionListPosition.COLUMN_NAME_POSITION,
+                ActionListPosition.COLUMN_NAME_ACTION_ID);
+        context.getContentResolver().notifyChange(Action.CONTENT_URI, null);
+    }
+
+    public int reorderActions(Context context, SQLiteDatabase db, ContentValues[] ordering) {
+        long[] ids = new long[ordering.length];
+        for (int i = 0; i < ordering.length; i++) {
+            ids[i] = ordering[i].getAsLong(ActionListPosition.COLUMN_NAME_ACTION_ID);
+        }
+
+        int count = listPositionHelper.assignRanks(
+                db,
+                ActionListPosition.TABLE_NAME,
+                ActionListPosition.COLUMN_NAME_POSITION,
+                ActionListPosition.COLUMN_NAME_ACTION_ID,
+                ids);
+        context.getContentResolver().notifyChange(Action.CONTENT_URI, null);
+        return count;
+    }
+
+    public int archiveAction(Context context, SQLiteDatabase db, String selection, String[] selectionArgs) {
+        int count;
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(Action.COLUMN_NAME_ARCHIVED, Boolean.toString(true));
+            count = db.update(Action.TABLE_NAME, values, selection, selectionArgs);
+            db.delete(ActionListPosition.TABLE_NAME, ActionListPosition.COLUMN_NAME_ACTION_ID + "=?", new String[]{selectionArgs[0]});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        context.getContentResolver().notifyChange(Action.CONTENT_URI, null);
+        return count;
+    }
+
+    public int deleteActions(SQLiteDatabase db, String selection, String[] selectionArgs) {
+        SQLiteStatement statement = statementCache.get(db, StatementCache.DELETE_ACTIONS, deleteSql(selection));
+        StatementCache.bindAll(statement, selectionArgs);
+        return statement.executeUpdateDelete();
+    }
+
+    private long upsertReturningId(SQLiteDatabase db, String[] columns, Object[] args) {
+        SQLiteStatement statement = statementCache.get(db, StatementCache.UPSERT_ACTION, upsertReturningSql(columns));
+        StatementCache.bindAll(statement, args);
+        return statement.simpleQueryForLong();
+    }
+
+    /*
+    * changes() is one on both branches of the upsert, but last_insert_rowid is
+    * only set by the insert, so the id is looked up by link once the row is
+    * written rather than trusted from executeInsert.
+    * */
+    private long upsertThenSelectId(SQLiteDatabase db, String[] columns, Object[] args, String linkId, String noteId) {
+        SQLiteStatement statement = statementCache.get(db, StatementCache.UPSERT_ACTION, upsertSql(columns));
+        StatementCache.bindAll(statement, args);
+        if (statement.executeUpdateDelete() == 0) {
+            return -1;
+        }
+        return selectIdByLink(db, linkId, noteId);
+    }
+
+    private long selectIdByLink(SQLiteDatabase db, String linkId, String noteId) {
+        SQLiteStatement lookup = statementCache.get(db, StatementCache.SELECT_ACTION_ID, SELECT_ID_BY_LINK_SQL);
+        StatementCache.bindAll(lookup, new String[]{linkId, noteId});
+        return lookup.simpleQueryForLong();
+    }
+
+    private int updateByLink(SQLiteDatabase db, String[] columns, Object[] args, String linkId, String noteId) {
+        Object[] updateArgs = Arrays.copyOf(args, args.length + 2);
+        updateArgs[args.length] = linkId;
+        updateArgs[args.length + 1] = noteId;
+
+        SQLiteStatement statement = statementCache.get(db, StatementCache.UPDATE_ACTION_BY_LINK, updateByLinkSql(columns));
+        StatementCache.bindAll(statement, updateArgs);
+        return statement.executeUpdateDelete();
+    }
+
+    private Cursor withPartitionCounts(SQLiteDatabase db,
+                                       SQLiteQueryBuilder builder,
+                                       Cursor cursor,
+                                       String selection,
+                                       String[] selectionArgs) {
+        Cursor counts = builder.query(db, PARTITION_COUNT_PROJECTION, selection, selectionArgs, null, null, null);
+        if (counts == null) {
+            return cursor;
+        }
+        try {
+            if (!counts.moveToFirst()) {
+                return cursor;
+            }
+            return new PartitionedCursor(cursor, counts.getInt(0), counts.getInt(1));
+        } finally {
+            counts.close();
+        }
+    }
+
+    private static String join(String[] columns, String suffix) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                joined.append(", ");
+            }
+            joined.append(columns[i]).append(suffix);
+        }
+        return joined.toString();
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
+    private static String[] appendArgs(String[] selectionArgs, String... args) {
+        if (selectionArgs == null) {
+            return args;
+        }
+        String[] combined = new String[selectionArgs.length + args.length];
+        System.arraycopy(selectionArgs, 0, combined, 0, selectionArgs.length);
+        System.arraycopy(args, 0, combined, selectionArgs.length, args.length);
+        return combined;
+    }
+
+}
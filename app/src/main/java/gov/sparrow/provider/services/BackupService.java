@@ -0,0 +1,100 @@
+package gov.sparrow.provider.services;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NoteContract.NoteChunk;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.database.BackupMergeCursor;
+
+public class BackupService {
+
+    /*
+    * A savepoint outside any transaction opens a deferred one, so the export
+    * reads one consistent snapshot without taking the write lock.
+    * */
+    public static final String BEGIN_SNAPSHOT_SQL = "SAVEPOINT backup_snapshot;";
+    public static final String END_SNAPSHOT_SQL = "RELEASE backup_snapshot;";
+
+    /*
+    * A chunked note row holds only its preview; the writer rebuilds the body from
+    * the note_chunks cursor, so no single row ever carries a whole large body.
+    * */
+    public static final String[] NOTE_PROJECTION = {
+            Note._ID,
+            Note.COLUMN_NAME_TITLE,
+            Note.COLUMN_NAME_BODY,
+            Note.COLUMN_NAME_CHUNKED,
+            Note.COLUMN_NAME_NOTEBOOK_ID,
+            Note.COLUMN_NAME_ARCHIVED,
+            Note.COLUMN_NAME_CREATED_AT,
+            Note.COLUMN_NAME_UPDATED_AT
+    };
+
+    public static final String[] NOTE_CHUNK_PROJECTION = {
+            NoteChunk.COLUMN_NAME_NOTE_ID,
+            NoteChunk.COLUMN_NAME_TEXT
+    };
+
+    /*
+    * db is a snapshot connection of its own. Closing the returned cursor ends the
+    * snapshot and closes the connection; if a query throws, that happens before
+    * the exception propagates.
+    * */
+    public Cursor queryBackup(final SQLiteDatabase db, SQLiteQueryBuilder builder) {
+        db.execSQL(BEGIN_SNAPSHOT_SQL);
+
+        Cursor[] cursors = new Cursor[5];
+        try {
+            builder.setTables(Notebook.TABLE_NAME);
+            cursors[0] = builder.query(db, null, null, null, null, null, null);
+
+            builder.setTables(Note.TABLE_NAME);
+            cursors[1] = builder.query(db, NOTE_PROJECTION, null, null, null, null, Note._ID + " ASC");
+
+            builder.setTables(NoteChunk.TABLE_NAME);
+            cursors[2] = builder.query(db, NOTE_CHUNK_PROJECTION, null, null, null, null,
+                    NoteChunk.COLUMN_NAME_NOTE_ID + " ASC, " + NoteChunk.COLUMN_NAME_SEQUENCE + " ASC");
+
+            builder.setTables(Action.TABLE_NAME);
+            cursors[3] = builder.query(db, null, null, null, null, null, null);
+
+            builder.setTables(Style.TABLE_NAME);
+            cursors[4] = builder.query(db, null, null, null, null, null, null);
+        } catch (RuntimeException e) {
+            try {
+                for (Cursor cursor : cursors) {
+                    if (cursor != null) {
+                        cursor.close();
+                    }
+                }
+            } finally {
+                endSnapshot(db);
+            }
+            throw e;
+        }
+
+        return new BackupMergeCursor(cursors[0], cursors[1], cursors[3], cursors[4], cursors[2]) {
+            @Override
+            public void close() {
+                try {
+                    super.close();
+                } finally {
+                    endSnapshot(db);
+                }
+            }
+        };
+    }
+
+    private static void endSnapshot(SQLiteDatabase db) {
+        try {
+            db.execSQL(END_SNAPSHOT_SQL);
+        } finally {
+            db.close();
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package gov.sparrow.provider.services;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+* Okapi BM25 over an FTS4 matchinfo(table, 'pcnalx') blob. The blob holds the
+* phrase, column and row counts, the average and row length of each column,
+* then (hits in row, hits in all rows, rows with hits) per phrase and column.
+* */
+final class Bm25 {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    /* Keeps a phrase found in most rows from scoring zero or below. */
+    private static final double MIN_IDF = 1e-6;
+
+    private Bm25() {
+    }
+
+    static double score(byte[] matchInfo, double[] columnWeights) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt();
+        int columns = buffer.getInt();
+        int rows = buffer.getInt();
+
+        int[] averageLengths = new int[columns];
+        for (int column = 0; column < columns; column++) {
+            averageLengths[column] = buffer.getInt();
+        }
+        int[] lengths = new int[columns];
+        for (int column = 0; column < columns; column++) {
+            lengths[column] = buffer.getInt();
+        }
+
+        double score = 0.0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int hits = buffer.getInt();
+                buffer.getInt();
+                int rowsWithHits = buffer.getInt();
+                if (hits == 0) {
+                    continue;
+                }
+
+                double idf = Math.max(MIN_IDF, Math.log((rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5)));
+                double averageLength = Math.max(1, averageLengths[column]);
+                double tf = hits * (K1 + 1) / (hits + K1 * (1 - B + B * lengths[column] / averageLength));
+                double weight = column < columnWeights.length ? columnWeights[column] : 1.0;
+                score += weight * idf * tf;
+            }
+        }
+        return score;
+    }
+
+}
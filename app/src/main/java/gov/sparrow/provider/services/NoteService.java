@@ -0,0 +1,492 @@
+package gov.sparrow.provider.services;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.database.CountedCursor;
+import gov.sparrow.database.NoteMergeCursor;
+import gov.sparrow.database.SearchIndexSchema;
+import gov.sparrow.models.EditDelta;
+import gov.sparrow.provider.NoteChunkStore;
+import gov.sparrow.provider.StatementCache;
+
+import java.util.Arrays;
+
+public class NoteService {
+
+    public static final String ACTION_LIST_POSITION_WHERE_CLAUSE =
+            ActionListPosition.COLUMN_NAME_ACTION_ID + " IN (SELECT " + Action._ID + " FROM " + Action.TABLE_NAME +
+                    " WHERE " + Action.COLUMN_NAME_NOTE_ID + "=?)";
+
+    /*
+    * The note list shows the preview and word count, so it never reads the body.
+    * */
+    public static final String[] LIST_PROJECTION = {
+            Note.TABLE_NAME + "." + Note._ID,
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_TITLE,
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_PREVIEW,
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_WORD_COUNT,
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_NOTEBOOK_ID,
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_ARCHIVED,
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_CREATED_AT,
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_UPDATED_AT,
+            Notebook.TABLE_NAME + "." + Notebook.COLUMN_NAME_TITLE + " AS " + Note.ALIAS_NAME_NOTEBOOK_TITLE
+    };
+
+    public static final String[] COUNT_PROJECTION = {"COUNT(*)"};
+
+    /*
+    * A savepoint outside any transaction opens a deferred one: a plain read
+    * snapshot, unlike beginTransactionNonExclusive, which is BEGIN IMMEDIATE.
+    * */
+    public static final String BEGIN_READ_SQL = "SAVEPOINT note_read;";
+    public static final String END_READ_SQL = "RELEASE note_read;";
+
+    private static final String SELECTION_BY_ID = Note._ID + "=?";
+    private static final String NOTE_COLUMN_PREFIX = Note.TABLE_NAME + ".";
+    private static final String NOTEBOOK_COLUMN_PREFIX = Notebook.TABLE_NAME + ".";
+    private static final String PAGE_SORT_ORDER =
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_UPDATED_AT + " DESC, " + Note.TABLE_NAME + "." + Note._ID + " DESC";
+    private static final String PAGE_ANCHOR_SELECTION =
+            Note.TABLE_NAME + "." + Note.COLUMN_NAME_UPDATED_AT + "<? OR (" +
+                    Note.TABLE_NAME + "." + Note.COLUMN_NAME_UPDATED_AT + "=? AND " + Note.TABLE_NAME + "." + Note._ID + "<?)";
+
+    private final NoteChunkStore noteChunkStore;
+    private final StatementCache statementCache;
+
+    public NoteService(NoteChunkStore noteChunkStore, StatementCache statementCache) {
+        this.noteChunkStore = noteChunkStore;
+        this.statementCache = statementCache;
+    }
+
+    public static String updateSql(String[] columns, String selection) {
+        StringBuilder sql = new StringBuilder("UPDATE " + Note.TABLE_NAME + " SET ");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(columns[i]).append("=?");
+        }
+        if (selection != null) {
+            sql.append(" WHERE ").append(selection);
+        }
+        return sql.toString();
+    }
+
+    public static String bumpVersionSql(String selection) {
+        return "UPDATE " + Note.TABLE_NAME +
+                " SET " + Note.COLUMN_NAME_VERSION + "=" + Note.COLUMN_NAME_VERSION + "+1" +
+                " WHERE " + selection + ";";
+    }
+
+    public static String preview(String body) {
+        return body.length() > Note.PREVIEW_LENGTH ? body.substring(0, Note.PREVIEW_LENGTH) : body;
+    }
+
+    public static int wordCount(String text) {
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean whitespace = Character.isWhitespace(text.charAt(i));
+            if (!whitespace && !inWord) {
+                count++;
+            }
+            inWord = !whitespace;
+        }
+        return count;
+    }
+
+    /*
+    * Reads the note and its links in one deferred read transaction, so the links
+    * always match the body they were read with without taking the write lock.
+    * db must be a single-connection read connection; the cursors are filled
+    * before the savepoint is released.
+    * */
+    public Cursor queryNote(SQLiteDatabase db,
+                            SQLiteQueryBuilder builder,
+                            String[] projection,
+                            String selection,
+                            String[] selectionArgs,
+                            String sortOrder) {
+        db.execSQL(BEGIN_READ_SQL);
+        try {
+            Cursor note = queryNoteRow(db, builder, projection, selection, selectionArgs, sortOrder);
+            NoteMergeCursor cursor = mergeLinks(db, builder, note, selectionArgs[0]);
+            cursor.getCount();
+            return cursor;
+        } finally {
+            db.execSQL(END_READ_SQL);
+        }
+    }
+
+    public Cursor queryLastSavedNote(SQLiteDatabase db,
+                                     SQLiteQueryBuilder builder,
+                                     String[] projection,
+                                     String selection,
+                                     String[] selectionArgs,
+                                     String sortOrder) {
+        Cursor note = queryNoteRow(db, builder, projection, selection, selectionArgs, sortOrder);
+        if (!note.moveToFirst()) {
+            note.close();
+            return null;
+        }
+
+        String noteId = note.getString(note.getColumnIndexOrThrow(Note._ID));
+        return mergeLinks(db, builder, note, noteId);
+    }
+
+    public Cursor queryNotes(SQLiteDatabase db,
+                             SQLiteQueryBuilder builder,
+                             String[] projection,
+                             String selection,
+                             String[] selectionArgs,
+                             String sortOrder) {
+        builder.setTables(needsNotebookJoin(projection, selection, sortOrder) ? Note.TABLE_NOTEBOOK_JOIN : Note.TABLE_NAME);
+        return builder.query(db, projection == null ? LIST_PROJECTION : projection,
+                selection, selectionArgs, null, null, sortOrder);
+    }
+
+    /*
+    * Seeks past the anchor row on (updated_at, _id) rather than skipping rows
+    * with OFFSET, so every page costs the same however deep the list is.
+    * */
+    public Cursor queryNotesPage(SQLiteDatabase db,
+                                 SQLiteQueryBuilder builder,
+                                 Uri uri,
+                                 String[] projection,
+                                 String selection,
+                                 String[] selectionArgs) {
+        String limit = uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_LIMIT);
+        String anchor = uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR);
+        String anchorId = uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR_ID);
+
+        builder.setTables(Note.TABLE_NOTEBOOK_JOIN);
+        if (anchor != null && anchorId != null) {
+            return builder.query(db,
+                    projection == null ? LIST_PROJECTION : projection,
+                    andSelection(selection, PAGE_ANCHOR_SELECTION),
+                    appendArgs(selectionArgs, anchor, anchor, anchorId),
+                    null,
+                    null,
+                    PAGE_SORT_ORDER,
+                    limit);
+        }
+
+        Cursor page = builder.query(db, projection == null ? LIST_PROJECTION : projection,
+                selection, selectionArgs, null, null, PAGE_SORT_ORDER, limit);
+        if (page == null) {
+            return null;
+        }
+
+        Cursor count = builder.query(db, COUNT_PROJECTION, selection, selectionArgs, null, null, null);
+        int total = -1;
+        if (count != null) {
+            try {
+                if (count.moveToFirst()) {
+                    total = count.getInt(0);
+                }
+            } finally {
+                count.close();
+            }
+        }
+        return new CountedCursor(page, total);
+    }
+
+    public Uri insertNote(Context context, SQLiteDatabase db, ContentValues values) {
+        String body = values.getAsString(Note.COLUMN_NAME_BODY);
+        if (body != null) {
+            putSummary(values, body);
+        }
+
+        long id = db.insert(Note.TABLE_NAME, null, values);
+        Uri uri = ContentUris.withAppendedId(Note.CONTENT_URI, id);
+        context.getContentResolver().notifyChange(Note.CONTENT_URI(id), null);
+        return uri;
+    }
+
+    public int updateNote(Context context,
+                          SQLiteDatabase db,
+                          ContentValues values,
+                          String selection,
+                          String[] selectionArgs) {
+        int count = values.containsKey(Note.COLUMN_NAME_BODY)
+                ? writeNote(db, values, selection, selectionArgs)
+                : updateColumns(db, values, selection, selectionArgs);
+
+        Long noteId = selectedNoteId(selection, selectionArgs);
+        context.getContentResolver().notifyChange(noteId == null ? Note.CONTENT_URI : Note.CONTENT_URI(noteId), null);
+        return count;
+    }
+
+    /*
+    * Updates without a body, such as title or archive changes, bind into a
+    * cached statement of the same shape instead of compiling a new one.
+    * */
+    private int updateColumns(SQLiteDatabase db, ContentValues values, String selection, String[] selectionArgs) {
+        String[] columns = StatementCache.sortedColumns(values);
+        Object[] args = StatementCache.argsFor(values, columns);
+        if (selectionArgs != null) {
+            args = Arrays.copyOf(args, columns.length + selectionArgs.length);
+            System.arraycopy(selectionArgs, 0, args, columns.length, selectionArgs.length);
+        }
+
+        SQLiteStatement statement = statementCache.get(db, StatementCache.UPDATE_NOTE, updateSql(columns, selection));
+        StatementCache.bindAll(statement, args);
+        return statement.executeUpdateDelete();
+    }
+
+    /*
+    * Writes a new body along with its preview, word count and version. A body
+    * over the chunk threshold is stored in note_chunks and the row keeps only
+    * the preview; the note leaves the search index while its chunks are written
+    * and is indexed once, from the finished body.
+    * */
+    public int writeNote(SQLiteDatabase db, ContentValues values, String selection, String[] selectionArgs) {
+        return writeNote(db, values, selectedNoteId(selection, selectionArgs), selection, selectionArgs);
+    }
+
+    private int writeNote(SQLiteDatabase db, ContentValues values, Long noteId, String selection, String[] selectionArgs) {
+        String body = values.getAsString(Note.COLUMN_NAME_BODY);
+        boolean chunked = noteId != null && body != null && body.length() > Note.CHUNKED_BODY_THRESHOLD;
+        if (body != null) {
+            putSummary(values, body);
+        }
+
+        db.beginTransaction();
+        try {
+            int count;
+            if (chunked) {
+                Object[] noteIdArgs = {noteId};
+                db.execSQL(SearchIndexSchema.UNINDEX_NOTE_SQL, noteIdArgs);
+                db.execSQL(SearchIndexSchema.SUSPEND_NOTE_SQL, noteIdArgs);
+                noteChunkStore.write(db, noteId, body);
+
+                values.put(Note.COLUMN_NAME_BODY, values.getAsString(Note.COLUMN_NAME_PREVIEW));
+                values.put(Note.COLUMN_NAME_CHUNKED, Boolean.TRUE.toString());
+                count = db.update(Note.TABLE_NAME, values, selection, selectionArgs);
+                bumpVersion(db, selection, selectionArgs);
+
+                db.execSQL(SearchIndexSchema.RESUME_NOTE_SQL, noteIdArgs);
+                db.execSQL(SearchIndexSchema.INDEX_NOTE_SQL, noteIdArgs);
+            } else {
+                values.put(Note.COLUMN_NAME_CHUNKED, Boolean.FALSE.toString());
+                count = db.update(Note.TABLE_NAME, values, selection, selectionArgs);
+                bumpVersion(db, selection, selectionArgs);
+                if (noteId != null) {
+                    noteChunkStore.delete(db, noteId);
+                }
+            }
+            db.setTransactionSuccessful();
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /*
+    * Applies an EditDelta to the stored body, read back from its chunks when the
+    * note is chunked, and writes the result like a full body save, so the
+    * preview, word count and chunking follow it. Any title in values is written
+    * with it. The write is conditional on the version the delta was made
+    * against, so a delta that lost a race with another save writes nothing and
+    * the caller falls back to a full save.
+    * */
+    public int applyBodyEdits(Context context, SQLiteDatabase db, Uri uri, ContentValues values) {
+        String noteId = uri.getPathSegments().get(1);
+        EditDelta delta = EditDelta.fromJson(values.getAsString(Note.COLUMN_NAME_EDITS));
+
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(Note.TABLE_NAME,
+                    new String[]{Note.COLUMN_NAME_BODY, Note.COLUMN_NAME_VERSION, Note.COLUMN_NAME_CHUNKED},
+                    SELECTION_BY_ID, new String[]{noteId}, null, null, null);
+            String body;
+            int version;
+            boolean chunked;
+            try {
+                if (cursor == null || !cursor.moveToFirst()) {
+                    return 0;
+                }
+                body = cursor.getString(cursor.getColumnIndexOrThrow(Note.COLUMN_NAME_BODY));
+                version = cursor.getInt(cursor.getColumnIndexOrThrow(Note.COLUMN_NAME_VERSION));
+                chunked = Boolean.TRUE.toString().equals(cursor.getString(cursor.getColumnIndexOrThrow(Note.COLUMN_NAME_CHUNKED)));
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            if (version != delta.getBaseVersion()) {
+                return 0;
+            }
+            if (chunked) {
+                body = noteChunkStore.read(db, Long.parseLong(noteId));
+            }
+
+            ContentValues updateValues = new ContentValues(values);
+            updateValues.remove(Note.COLUMN_NAME_EDITS);
+            updateValues.put(Note.COLUMN_NAME_BODY, delta.applyTo(body));
+            int count = writeNote(db, updateValues, Long.valueOf(noteId),
+                    SELECTION_BY_ID + " AND " + Note.COLUMN_NAME_VERSION + "=?",
+                    new String[]{noteId, Integer.toString(version)});
+            db.setTransactionSuccessful();
+
+            context.getContentResolver().notifyChange(Note.CONTENT_URI(Long.parseLong(noteId)), null);
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public int archiveNote(Context context, SQLiteDatabase db, String selection, String[] selectionArgs) {
+        int count = 0;
+        db.beginTransaction();
+        try {
+            count += db.delete(ActionListPosition.TABLE_NAME, ACTION_LIST_POSITION_WHERE_CLAUSE, new String[]{selectionArgs[0]});
+
+            ContentValues actionValues = new ContentValues();
+            actionValues.put(Action.COLUMN_NAME_ARCHIVED, Boolean.TRUE.toString());
+            count += db.update(Action.TABLE_NAME, actionValues, Action.COLUMN_NAME_NOTE_ID + "=?", new String[]{selectionArgs[0]});
+
+            ContentValues noteValues = new ContentValues();
+            noteValues.put(Note.COLUMN_NAME_ARCHIVED, Boolean.TRUE.toString());
+            count += db.update(Note.TABLE_NAME, noteValues, selection, selectionArgs);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        context.getContentResolver().notifyChange(Note.CONTENT_URI(Long.parseLong(selectionArgs[0])), null);
+        context.getContentResolver().notifyChange(Action.CONTENT_URI, null);
+        return count;
+    }
+
+    public int deleteNotes(SQLiteDatabase db, String selection, String[] selectionArgs) {
+        return db.delete(Note.TABLE_NAME, selection, selectionArgs);
+    }
+
+    private Cursor queryNoteRow(SQLiteDatabase db,
+                                SQLiteQueryBuilder builder,
+                                String[] projection,
+                                String selection,
+                                String[] selectionArgs,
+                                String sortOrder) {
+        builder.setTables(Note.TABLE_NAME);
+        return builder.query(db, projection, selection, selectionArgs, null, null, sortOrder);
+    }
+
+    private NoteMergeCursor mergeLinks(SQLiteDatabase db, SQLiteQueryBuilder builder, Cursor note, String noteId) {
+        builder.setTables(Action.TABLE_NAME);
+        Cursor actions = builder.query(db, null,
+                Action.COLUMN_NAME_NOTE_ID + "=? AND " + Action.COLUMN_NAME_ARCHIVED + "='false'",
+                new String[]{noteId}, null, null, null);
+
+        builder.setTables(Style.TABLE_NAME);
+        Cursor styles = builder.query(db, null, Style.COLUMN_NAME_NOTE_ID + "=?", new String[]{noteId}, null, null, null);
+
+        return new NoteMergeCursor(withChunkedBody(db, note), actions, styles);
+    }
+
+    /*
+    * A chunked note row holds only its preview; swap in the body read back from
+    * its chunks.
+    * */
+    private Cursor withChunkedBody(SQLiteDatabase db, Cursor note) {
+        int chunkedIndex = note.getColumnIndex(Note.COLUMN_NAME_CHUNKED);
+        int bodyIndex = note.getColumnIndex(Note.COLUMN_NAME_BODY);
+        int idIndex = note.getColumnIndex(Note._ID);
+        if (chunkedIndex == -1 || bodyIndex == -1 || idIndex == -1 || !note.moveToFirst()
+                || !Boolean.TRUE.toString().equals(note.getString(chunkedIndex))) {
+            return note;
+        }
+
+        String[] columnNames = note.getColumnNames();
+        MatrixCursor copy = new MatrixCursor(columnNames, 1);
+        Object[] row = new Object[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            switch (note.getType(i)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    row[i] = null;
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    row[i] = note.getLong(i);
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    row[i] = note.getDouble(i);
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    row[i] = note.getBlob(i);
+                    break;
+                default:
+                    row[i] = note.getString(i);
+            }
+        }
+        row[bodyIndex] = noteChunkStore.read(db, note.getLong(idIndex));
+        copy.addRow(row);
+        note.close();
+        return copy;
+    }
+
+    private void bumpVersion(SQLiteDatabase db, String selection, String[] selectionArgs) {
+        if (selectionArgs == null) {
+            db.execSQL(bumpVersionSql(selection));
+        } else {
+            db.execSQL(bumpVersionSql(selection), selectionArgs);
+        }
+    }
+
+    private static void putSummary(ContentValues values, String body) {
+        values.put(Note.COLUMN_NAME_PREVIEW, preview(body));
+        values.put(Note.COLUMN_NAME_WORD_COUNT, wordCount(body));
+    }
+
+    private static Long selectedNoteId(String selection, String[] selectionArgs) {
+        if (SELECTION_BY_ID.equals(selection) && selectionArgs != null && selectionArgs.length == 1) {
+            return Long.valueOf(selectionArgs[0]);
+        }
+        return null;
+    }
+
+    private static boolean needsNotebookJoin(String[] projection, String selection, String sortOrder) {
+        if (projection == null) {
+            return true;
+        }
+        for (String column : projection) {
+            if (!column.startsWith(NOTE_COLUMN_PREFIX)) {
+                return true;
+            }
+        }
+        return references(selection, NOTEBOOK_COLUMN_PREFIX) || references(sortOrder, NOTEBOOK_COLUMN_PREFIX);
+    }
+
+    private static boolean references(String clause, String prefix) {
+        return clause != null && clause.contains(prefix);
+    }
+
+    private static String andSelection(String selection, String clause) {
+        return selection == null ? "(" + clause + ")" : "(" + selection + ") AND (" + clause + ")";
+    }
+
+    private static String[] appendArgs(String[] selectionArgs, String... args) {
+        if (selectionArgs == null) {
+            return args;
+        }
+        String[] combined = new String[selectionArgs.length + args.length];
+        System.arraycopy(selectionArgs, 0, combined, 0, selectionArgs.length);
+        System.arraycopy(args, 0, combined, selectionArgs.length, args.length);
+        return combined;
+    }
+
+}
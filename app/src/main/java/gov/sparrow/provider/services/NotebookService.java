@@ -0,0 +1,187 @@
+package gov.sparrow.provider.services;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.net.Uri;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
+import gov.sparrow.provider.ListPositionHelper;
+
+public class NotebookService {
+
+    public static final String ACTION_NOTEBOOK_ID_WHERE_CLAUSE =
+            Action.COLUMN_NAME_NOTE_ID + " IN (SELECT " + Note._ID + " FROM " + Note.TABLE_NAME +
+                    " WHERE " + Note.COLUMN_NAME_NOTEBOOK_ID + "=?)";
+
+    public static final String ACTION_LIST_POSITION_NOTEBOOK_ID_WHERE_CLAUSE =
+            ActionListPosition.COLUMN_NAME_ACTION_ID + " IN (SELECT " + Action._ID + " FROM " + Action.TABLE_NAME +
+                    " WHERE " + ACTION_NOTEBOOK_ID_WHERE_CLAUSE + ")";
+
+    private static final String NOTEBOOK_COLUMN_PREFIX = Notebook.TABLE_NAME + ".";
+
+    private final ListPositionHelper listPositionHelper;
+
+    public NotebookService(ListPositionHelper listPositionHelper) {
+        this.listPositionHelper = listPositionHelper;
+    }
+
+    public Cursor queryNotebooks(SQLiteDatabase db,
+                                 SQLiteQueryBuilder builder,
+                                 String[] projection,
+                                 String selection,
+                                 String[] selectionArgs,
+                                 String sortOrder) {
+        builder.setTables(needsPositionJoin(projection, selection, sortOrder) ? Notebook.TABLE_POSITION_JOIN : Notebook.TABLE_NAME);
+        return builder.query(db, projection, selection, selectionArgs, null, null, sortOrder);
+    }
+
+    public Uri insertNotebook(Context context, SQLiteDatabase db, ContentValues values) {
+        long id = db.insert(Notebook.TABLE_NAME, null, values);
+        context.getContentResolver().notifyChange(Notebook.CONTENT_URI, null);
+        return ContentUris.withAppendedId(Notebook.CONTENT_URI, id);
+    }
+
+    public int updateNotebook(Context context,
+                              SQLiteDatabase db,
+                              ContentValues values,
+                              String selection,
+                              String[] selectionArgs) {
+        int count = db.update(Notebook.TABLE_NAME, values, selection, selectionArgs);
+        context.getContentResolver().notifyChange(Notebook.CONTENT_URI, null);
+        return count;
+    }
+
+    public int updateNotebookListPosition(Context context, SQLiteDatabase db, ContentValues values, String[] selectionArgs) {
+        int count = listPositionHelper.update(
+                db,
+                values,
+                NotebookListPosition.TABLE_NAME,
+                NotebookListPosition.COLUMN_NAME_POSITION,
+                NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID,
+                selectionArgs);
+        context.getContentResolver().notifyChange(Notebook.CONTENT_URI, null);
+        return count;
+    }
+
+    public int moveNotebooks(Context context, SQLiteDatabase db, ContentValues[] moves) {
+        int count = 0;
+        db.beginTransaction();
+        try {
+            for (ContentValues move : moves) {
+                count += listPositionHelper.moveToAnchor(
+                        db,
+                        NotebookListPosition.TABLE_NAME,
+                        NotebookListPosition.COLUMN_NAME_POSITION,
+                        NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID,
+                        move.getAsString(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID),
+                        move.getAsLong(NotebookListPosition.KEY_ANCHOR_ID));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        context.getContentResolver().notifyChange(Notebook.CONTENT_URI, null);
+        return count;
+    }
+
+    /* Ranks change but the order does not; readers reload so later moves target fresh ranks. */
+    public void rebalanceNotebookListPositions(Context context, SQLiteDatabase db) {
+        listPositionHelper.rebalance(
+                db,
+                NotebookListPosition.TABLE_NAME,
+                NotebookListPosition.COLUMN_NAME_POSITION,
+                NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID);
+        context.getContentResolver().notifyChange(Notebook.CONTENT_URI, null);
+    }
+
+    public int reorderNotebooks(Context context, SQLiteDatabase db, ContentValues[] ordering) {
+        long[] ids = new long[ordering.length];
+        for (int i = 0; i < ordering.length; i++) {
+            ids[i] = ordering[i].getAsLong(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID);
+        }
+
+        int count = listPositionHelper.assignRanks(
+                db,
+                NotebookListPosition.TABLE_NAME,
+                NotebookListPosition.COLUMN_NAME_POSITION,
+                NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID,
+                ids);
+        context.getContentResolver().notifyChange(Notebook.CONTENT_URI, null);
+        return count;
+    }
+
+    /*
+    * Archives the notebook. With deleteAll its notes and their actions are
+    * archived too; otherwise the notes move to the unassigned notebook.
+    * */
+    public int archiveNotebook(Context context,
+                               SQLiteDatabase db,
+                               boolean deleteAll,
+                               String selection,
+                               String[] selectionArgs) {
+        int count;
+        db.beginTransaction();
+        try {
+            ContentValues notebookValues = new ContentValues();
+            notebookValues.put(Notebook.COLUMN_NAME_ARCHIVED, Boolean.toString(true));
+            count = db.update(Notebook.TABLE_NAME, notebookValues, selection, selectionArgs);
+
+            ContentValues noteValues = new ContentValues();
+            if (deleteAll) {
+                noteValues.put(Note.COLUMN_NAME_ARCHIVED, Boolean.toString(true));
+            } else {
+                noteValues.put(Note.COLUMN_NAME_NOTEBOOK_ID, Notebook.UNASSIGNED_NOTEBOOK_ID);
+            }
+            db.update(Note.TABLE_NAME, noteValues, Note.COLUMN_NAME_NOTEBOOK_ID + "=?", selectionArgs);
+
+            if (deleteAll) {
+                ContentValues actionValues = new ContentValues();
+                actionValues.put(Action.COLUMN_NAME_ARCHIVED, Boolean.toString(true));
+                db.update(Action.TABLE_NAME, actionValues, ACTION_NOTEBOOK_ID_WHERE_CLAUSE, selectionArgs);
+            }
+
+            db.delete(NotebookListPosition.TABLE_NAME, NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID + "=?", selectionArgs);
+            if (deleteAll) {
+                db.delete(ActionListPosition.TABLE_NAME, ACTION_LIST_POSITION_NOTEBOOK_ID_WHERE_CLAUSE, selectionArgs);
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        context.getContentResolver().notifyChange(Notebook.CONTENT_URI, null);
+        context.getContentResolver().notifyChange(Note.CONTENT_URI, null);
+        context.getContentResolver().notifyChange(Action.CONTENT_URI, null);
+        return count;
+    }
+
+    public int deleteNotebooks(SQLiteDatabase db, String selection, String[] selectionArgs) {
+        return db.delete(Notebook.TABLE_NAME, selection, selectionArgs);
+    }
+
+    private static boolean needsPositionJoin(String[] projection, String selection, String sortOrder) {
+        if (projection == null) {
+            return true;
+        }
+        for (String column : projection) {
+            if (!column.startsWith(NOTEBOOK_COLUMN_PREFIX)) {
+                return true;
+            }
+        }
+        return references(selection) || references(sortOrder);
+    }
+
+    private static boolean references(String clause) {
+        return clause != null && clause.contains(NotebookListPosition.COLUMN_NAME_POSITION);
+    }
+
+}
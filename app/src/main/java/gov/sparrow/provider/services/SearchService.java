@@ -0,0 +1,497 @@
+package gov.sparrow.provider.services;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
+import gov.sparrow.contracts.ActionContract.SearchableActions;
+import gov.sparrow.contracts.NoteContract.SearchableNotes;
+import gov.sparrow.contracts.SearchContract.SearchableColumns;
+import gov.sparrow.database.SearchIndexMaintenance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public class SearchService {
+
+    public static final String[] SEARCH_COLUMNS = {
+            SearchableColumns.SHARED_COLUMN_NAME_ID,
+            SearchableColumns.SHARED_COLUMN_NAME_TITLE,
+            SearchableColumns.SHARED_COLUMN_NAME_BODY,
+            SearchableColumns.SHARED_COLUMN_NAME_NOTEBOOK_ID,
+            SearchableColumns.SHARED_COLUMN_NAME_NOTEBOOK_TITLE,
+            SearchableColumns.SHARED_COLUMN_NAME_COMPLETED,
+            SearchableColumns.SHARED_COLUMN_NAME_TYPE,
+            SearchableColumns.SHARED_COLUMN_NAME_DUE_DATE,
+            SearchableColumns.SHARED_COLUMN_NAME_CREATED_AT
+    };
+
+    public static final String[] RANKED_COLUMNS = {
+            SearchableColumns.SHARED_COLUMN_NAME_ID,
+            SearchableColumns.SHARED_COLUMN_NAME_TITLE,
+            SearchableColumns.SHARED_COLUMN_NAME_BODY,
+            SearchableColumns.SHARED_COLUMN_NAME_NOTEBOOK_ID,
+            SearchableColumns.SHARED_COLUMN_NAME_NOTEBOOK_TITLE,
+            SearchableColumns.SHARED_COLUMN_NAME_COMPLETED,
+            SearchableColumns.SHARED_COLUMN_NAME_TYPE,
+            SearchableColumns.SHARED_COLUMN_NAME_DUE_DATE,
+            SearchableColumns.SHARED_COLUMN_NAME_CREATED_AT,
+            SearchableColumns.SHARED_COLUMN_NAME_SCORE,
+            SearchableColumns.SHARED_COLUMN_NAME_SNIPPET,
+            SearchableColumns.SHARED_COLUMN_NAME_HIGHLIGHTS
+    };
+
+    /* A session result larger than this is not worth refining in SQL. */
+    public static final int MAX_SESSION_CANDIDATES = 500;
+    public static final int MAX_MERGE_STEPS = 16;
+    public static final int MAX_FUZZY_CANDIDATES = 3;
+
+    public static final String VOCABULARY_SQL =
+            "SELECT term FROM " + SearchableNotes.TERMS_TABLE_NAME + " WHERE col='*'" +
+                    " UNION SELECT term FROM " + SearchableActions.TERMS_TABLE_NAME + " WHERE col='*'";
+
+    static final char SNIPPET_START = '\u0002';
+    static final char SNIPPET_END = '\u0003';
+
+    /* Title hits outweigh body hits. */
+    private static final double[] NOTE_COLUMN_WEIGHTS = {4.0, 1.0};
+    private static final double[] ACTION_COLUMN_WEIGHTS = {4.0};
+
+    private static final String NOTE_COLUMNS =
+            "notes._id as _id, notes.title as title, notes.preview as body, notes.notebook_id as notebook_id," +
+                    " notebooks.title as notebook_title, NULL as completed, type as type, NULL as due_date," +
+                    " created_at as created_at";
+    private static final String NOTE_TABLES =
+            " FROM searchable_notes INNER JOIN notes ON (docid = notes._id)";
+    private static final String NOTEBOOK_JOIN =
+            " LEFT JOIN notebooks ON (notebook_id=notebooks._id)";
+
+    private static final String ACTION_COLUMNS =
+            "actions._id as _id, actions.title as title, notes.title as body, NULL as notebook_id," +
+                    " NULL as notebook_title, completed as completed, actions.type as type, due_date as due_date," +
+                    " actions.created_at as created_at";
+    private static final String ACTION_TABLES =
+            " FROM searchable_actions INNER JOIN actions ON (docid = actions._id)";
+    private static final String NOTE_TITLE_JOIN =
+            " LEFT JOIN notes ON (actions.note_id = notes._id)";
+
+    private static final String NOTE_SNIPPET =
+            "snippet(searchable_notes, '" + SNIPPET_START + "', '" + SNIPPET_END + "', '\u2026', -1, 12) as snippet";
+
+    private final SearchIndexMaintenance searchIndexMaintenance;
+    private final Object lock = new Object();
+
+    private SessionCandidates sessionCandidates;
+    private TrigramIndex vocabulary;
+
+    public SearchService(SearchIndexMaintenance searchIndexMaintenance) {
+        this.searchIndexMaintenance = searchIndexMaintenance;
+    }
+
+    public Cursor query(SQLiteDatabase db, SQLiteQueryBuilder builder, String text, String sortOrder) {
+        String match = sanitize(text) + "*";
+        String query = builder.buildUnionQuery(
+                new String[]{noteQuery(match, null), actionQuery(match, null)}, sortOrder, null);
+        return db.rawQuery(query, null);
+    }
+
+    /*
+    * Search-as-you-type. When the text only narrows the session's last completed
+    * query, MATCH re-runs over that query's docids instead of the whole index.
+    * */
+    public Cursor query(SQLiteDatabase db,
+                        SQLiteQueryBuilder builder,
+                        String text,
+                        String sortOrder,
+                        String session,
+                        CancellationSignal cancellationSignal) {
+        String sanitized = sanitize(text);
+        String[] terms = terms(sanitized);
+
+        SessionCandidates previous;
+        synchronized (lock) {
+            previous = sessionCandidates;
+            sessionCandidates = null;
+        }
+        boolean refines = session != null && previous != null && previous.isRefinedBy(session, sortOrder, terms);
+
+        String match = sanitized + "*";
+        List<String> subQueries = new ArrayList<>();
+        if (!refines) {
+            subQueries.add(noteQuery(match, null));
+            subQueries.add(actionQuery(match, null));
+        } else {
+            if (!previous.noteIds.isEmpty()) {
+                subQueries.add(noteQuery(match, previous.noteIds));
+            }
+            if (!previous.actionIds.isEmpty()) {
+                subQueries.add(actionQuery(match, previous.actionIds));
+            }
+        }
+
+        if (subQueries.isEmpty()) {
+            remember(new SessionCandidates(session, sortOrder, terms, previous.noteIds, previous.actionIds));
+            return new MatrixCursor(SEARCH_COLUMNS);
+        }
+
+        String query = builder.buildUnionQuery(subQueries.toArray(new String[subQueries.size()]), sortOrder, null);
+        Cursor cursor = db.rawQuery(query, null, cancellationSignal);
+        if (session != null && cursor != null) {
+            SessionCandidates candidates = SessionCandidates.read(session, sortOrder, terms, cursor);
+            if (candidates != null) {
+                remember(candidates);
+            }
+        }
+        return cursor;
+    }
+
+    /*
+    * Scores every hit from matchinfo alone and keeps the top limit rows, then
+    * reads display columns and snippets for just those rows.
+    * */
+    public Cursor queryRanked(SQLiteDatabase db, SQLiteQueryBuilder builder, String text, int limit) {
+        return rankedQuery(db, builder, sanitize(text) + "*", limit);
+    }
+
+    /*
+    * Expands each term with the closest indexed terms, as "term* OR candidate* ...",
+    * and ranks the result like queryRanked. Every alternative, typed or
+    * suggested and wherever it stands, is matched as a prefix, so a term
+    * matches the same rows whether or not it is the last one.
+    * */
+    public Cursor queryFuzzy(SQLiteDatabase db, SQLiteQueryBuilder builder, String text, int limit) {
+        TrigramIndex index = vocabulary(db);
+        String[] terms = terms(sanitize(text));
+
+        List<String> expanded = new ArrayList<>();
+        for (String term : terms) {
+            List<String> alternatives = new ArrayList<>();
+            alternatives.add(term + "*");
+            for (String candidate : index.candidates(term.toLowerCase(Locale.US), MAX_FUZZY_CANDIDATES)) {
+                alternatives.add(candidate + "*");
+            }
+            expanded.add(TextUtils.join(" OR ", alternatives));
+        }
+        return rankedQuery(db, builder, TextUtils.join(" ", expanded), limit);
+    }
+
+    /*
+    * Runs a bounded merge over both FTS tables, and optimizes them when asked.
+    * Drops the fuzzy vocabulary so the next fuzzy query reloads it.
+    * */
+    public int maintainIndex(SQLiteDatabase db, boolean optimize) {
+        int steps = searchIndexMaintenance.merge(db, MAX_MERGE_STEPS);
+        if (optimize) {
+            searchIndexMaintenance.optimize(db);
+        }
+        synchronized (lock) {
+            vocabulary = null;
+        }
+        return steps;
+    }
+
+    /*
+    * Called after a write that may have changed the rows behind the searchable
+    * tables. Drops the fuzzy vocabulary, so new terms become candidates, and the
+    * session candidates, so the next query searches the whole index again.
+    * */
+    public void onSearchableChanged() {
+        synchronized (lock) {
+            vocabulary = null;
+            sessionCandidates = null;
+        }
+    }
+
+    private Cursor rankedQuery(SQLiteDatabase db, SQLiteQueryBuilder builder, String match, int limit) {
+        String[] scoreQueries = {
+                "SELECT docid as _id, type as type, matchinfo(searchable_notes, 'pcnalx') as match_info" +
+                        NOTE_TABLES + where("searchable_notes", match, "notes"),
+                "SELECT docid as _id, actions.type as type, matchinfo(searchable_actions, 'pcnalx') as match_info" +
+                        ACTION_TABLES + where("searchable_actions", match, "actions")
+        };
+        List<Hit> hits = topHits(db.rawQuery(builder.buildUnionQuery(scoreQueries, null, null), null), limit);
+
+        List<String> noteIds = new ArrayList<>();
+        List<String> actionIds = new ArrayList<>();
+        for (Hit hit : hits) {
+            (hit.isNote ? noteIds : actionIds).add(Long.toString(hit.id));
+        }
+
+        Map<Long, Object[]> noteRows = new HashMap<>();
+        Map<Long, Object[]> actionRows = new HashMap<>();
+        if (!noteIds.isEmpty()) {
+            readRows(db.rawQuery(
+                    "SELECT " + NOTE_COLUMNS + ", " + NOTE_SNIPPET + NOTE_TABLES + NOTEBOOK_JOIN +
+                            " WHERE searchable_notes MATCH '" + match + "' AND docid IN (" + placeholders(noteIds.size()) + ")",
+                    noteIds.toArray(new String[noteIds.size()])), noteRows);
+        }
+        if (!actionIds.isEmpty()) {
+            readRows(db.rawQuery(
+                    "SELECT " + ACTION_COLUMNS + ", NULL as snippet FROM actions" + NOTE_TITLE_JOIN +
+                            " WHERE actions._id IN (" + placeholders(actionIds.size()) + ")",
+                    actionIds.toArray(new String[actionIds.size()])), actionRows);
+        }
+
+        MatrixCursor results = new MatrixCursor(RANKED_COLUMNS, hits.size());
+        for (Hit hit : hits) {
+            Object[] detail = (hit.isNote ? noteRows : actionRows).get(hit.id);
+            if (detail == null) {
+                continue;
+            }
+
+            Object[] row = Arrays.copyOf(detail, RANKED_COLUMNS.length);
+            String snippet = (String) detail[SEARCH_COLUMNS.length];
+            row[SEARCH_COLUMNS.length] = hit.score;
+            if (snippet != null) {
+                StringBuilder highlights = new StringBuilder();
+                row[SEARCH_COLUMNS.length + 1] = stripMarkers(snippet, highlights);
+                row[SEARCH_COLUMNS.length + 2] = highlights.toString();
+            } else {
+                row[SEARCH_COLUMNS.length + 1] = null;
+                row[SEARCH_COLUMNS.length + 2] = null;
+            }
+            results.addRow(row);
+        }
+        return results;
+    }
+
+    private static List<Hit> topHits(Cursor scores, int limit) {
+        PriorityQueue<Hit> top = new PriorityQueue<>(Math.max(1, limit), Hit.BY_SCORE);
+        try {
+            int idIndex = scores.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_ID);
+            int typeIndex = scores.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_TYPE);
+            int matchInfoIndex = scores.getColumnIndexOrThrow("match_info");
+            while (scores.moveToNext()) {
+                boolean isNote = SearchableNotes.TABLE_NAME.equals(scores.getString(typeIndex));
+                double score = Bm25.score(scores.getBlob(matchInfoIndex),
+                        isNote ? NOTE_COLUMN_WEIGHTS : ACTION_COLUMN_WEIGHTS);
+                if (top.size() < limit) {
+                    top.add(new Hit(scores.getLong(idIndex), isNote, score));
+                } else if (limit > 0 && score > top.peek().score) {
+                    top.poll();
+                    top.add(new Hit(scores.getLong(idIndex), isNote, score));
+                }
+            }
+        } finally {
+            scores.close();
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        Collections.sort(hits, Collections.reverseOrder(Hit.BY_SCORE));
+        return hits;
+    }
+
+    private static void readRows(Cursor cursor, Map<Long, Object[]> rows) {
+        try {
+            int idIndex = cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_ID);
+            int[] indexes = new int[SEARCH_COLUMNS.length + 1];
+            for (int i = 0; i < SEARCH_COLUMNS.length; i++) {
+                indexes[i] = cursor.getColumnIndexOrThrow(SEARCH_COLUMNS[i]);
+            }
+            indexes[SEARCH_COLUMNS.length] = cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_SNIPPET);
+
+            while (cursor.moveToNext()) {
+                Object[] row = new Object[indexes.length];
+                for (int i = 0; i < indexes.length; i++) {
+                    row[i] = value(cursor, indexes[i]);
+                }
+                rows.put(cursor.getLong(idIndex), row);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static Object value(Cursor cursor, int index) {
+        switch (cursor.getType(index)) {
+            case Cursor.FIELD_TYPE_NULL:
+                return null;
+            case Cursor.FIELD_TYPE_INTEGER:
+                return cursor.getLong(index);
+            case Cursor.FIELD_TYPE_FLOAT:
+                return cursor.getDouble(index);
+            default:
+                return cursor.getString(index);
+        }
+    }
+
+    /*
+    * Removes the snippet() markers and appends "start,end" offsets of each
+    * highlighted range, relative to the stripped text.
+    * */
+    static String stripMarkers(String snippet, StringBuilder highlights) {
+        StringBuilder text = new StringBuilder(snippet.length());
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (c == SNIPPET_START || c == SNIPPET_END) {
+                if (highlights.length() > 0) {
+                    highlights.append(',');
+                }
+                highlights.append(text.length());
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    private TrigramIndex vocabulary(SQLiteDatabase db) {
+        synchronized (lock) {
+            if (vocabulary != null) {
+                return vocabulary;
+            }
+        }
+
+        TrigramIndex index = new TrigramIndex();
+        Cursor cursor = db.rawQuery(VOCABULARY_SQL, null);
+        try {
+            while (cursor.moveToNext()) {
+                index.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        synchronized (lock) {
+            vocabulary = index;
+        }
+        return index;
+    }
+
+    private void remember(SessionCandidates candidates) {
+        synchronized (lock) {
+            sessionCandidates = candidates;
+        }
+    }
+
+    private static String noteQuery(String match, List<Long> docids) {
+        return "SELECT " + NOTE_COLUMNS + NOTE_TABLES + NOTEBOOK_JOIN +
+                where("searchable_notes", match, "notes") + docidFilter(docids);
+    }
+
+    private static String actionQuery(String match, List<Long> docids) {
+        return "SELECT " + ACTION_COLUMNS + ACTION_TABLES + NOTE_TITLE_JOIN +
+                where("searchable_actions", match, "actions") + docidFilter(docids);
+    }
+
+    private static String where(String searchTable, String match, String contentTable) {
+        return " WHERE " + searchTable + " MATCH '" + match + "' AND " + contentTable + ".archived='false'";
+    }
+
+    private static String docidFilter(List<Long> docids) {
+        return docids == null ? "" : " AND docid IN (" + TextUtils.join(",", docids) + ")";
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        return placeholders.toString();
+    }
+
+    /*
+    * Quotes and the NOT operator cannot reach the MATCH expression.
+    * */
+    private static String sanitize(String text) {
+        return text.replaceAll("['\"-]", " ");
+    }
+
+    private static String[] terms(String sanitized) {
+        String trimmed = sanitized.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+
+    private static final class Hit {
+
+        static final Comparator<Hit> BY_SCORE = new Comparator<Hit>() {
+            @Override
+            public int compare(Hit first, Hit second) {
+                return Double.compare(first.score, second.score);
+            }
+        };
+
+        final long id;
+        final boolean isNote;
+        final double score;
+
+        Hit(long id, boolean isNote, double score) {
+            this.id = id;
+            this.isNote = isNote;
+            this.score = score;
+        }
+    }
+
+    /*
+    * The docids behind a session's last completed query, split by source.
+    * */
+    private static final class SessionCandidates {
+
+        final String session;
+        final String sortOrder;
+        final String[] terms;
+        final List<Long> noteIds;
+        final List<Long> actionIds;
+
+        SessionCandidates(String session, String sortOrder, String[] terms, List<Long> noteIds, List<Long> actionIds) {
+            this.session = session;
+            this.sortOrder = sortOrder;
+            this.terms = terms;
+            this.noteIds = noteIds;
+            this.actionIds = actionIds;
+        }
+
+        /*
+        * Reads the ids and rewinds the cursor. Returns null when the result is
+        * too large to be worth caching.
+        * */
+        static SessionCandidates read(String session, String sortOrder, String[] terms, Cursor cursor) {
+            if (cursor.getCount() > MAX_SESSION_CANDIDATES) {
+                return null;
+            }
+
+            List<Long> noteIds = new ArrayList<>();
+            List<Long> actionIds = new ArrayList<>();
+            int idIndex = cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_ID);
+            int typeIndex = cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_TYPE);
+            while (cursor.moveToNext()) {
+                if (SearchableNotes.TABLE_NAME.equals(cursor.getString(typeIndex))) {
+                    noteIds.add(cursor.getLong(idIndex));
+                } else {
+                    actionIds.add(cursor.getLong(idIndex));
+                }
+            }
+            cursor.moveToPosition(-1);
+            return new SessionCandidates(session, sortOrder, terms, noteIds, actionIds);
+        }
+
+        /*
+        * The new terms keep every earlier term, extend the earlier last term
+        * (which was matched as a prefix) and may append more.
+        * */
+        boolean isRefinedBy(String session, String sortOrder, String[] newTerms) {
+            if (!this.session.equals(session) || !TextUtils.equals(this.sortOrder, sortOrder)) {
+                return false;
+            }
+            if (terms.length == 0 || newTerms.length < terms.length) {
+                return false;
+            }
+            for (int i = 0; i < terms.length - 1; i++) {
+                if (!terms[i].equals(newTerms[i])) {
+                    return false;
+                }
+            }
+            return newTerms[terms.length - 1].startsWith(terms[terms.length - 1]);
+        }
+    }
+
+}
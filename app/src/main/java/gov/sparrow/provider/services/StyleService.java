@@ -0,0 +1,81 @@
+package gov.sparrow.provider.services;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.provider.StatementCache;
+
+
+public class StyleService {
+
+    private final StatementCache statementCache;
+
+    public StyleService(StatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
+    public static String insertSql(String[] columns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO " + Style.TABLE_NAME + " (");
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+                placeholders.append(", ");
+            }
+            sql.append(columns[i]);
+            placeholders.append("?");
+        }
+        return sql.append(") VALUES (").append(placeholders).append(")").toString();
+    }
+
+    public static String deleteSql(String selection) {
+        return selection == null
+                ? "DELETE FROM " + Style.TABLE_NAME
+                : "DELETE FROM " + Style.TABLE_NAME + " WHERE " + selection;
+    }
+
+    public Cursor queryStyles(SQLiteDatabase db,
+                              SQLiteQueryBuilder builder,
+                              String[] projection,
+                              String selection,
+                              String[] selectionArgs,
+                              String sortOrder) {
+        builder.setTables(Style.TABLE_NAME);
+        return builder.query(db, projection, selection, selectionArgs, null, null, sortOrder);
+    }
+
+    public Uri insertStyles(Context context, SQLiteDatabase db, ContentValues values) {
+        String[] columns = StatementCache.sortedColumns(values);
+        Object[] args = StatementCache.argsFor(values, columns);
+
+        SQLiteStatement statement = statementCache.get(db, StatementCache.INSERT_STYLE, insertSql(columns));
+        StatementCache.bindAll(statement, args);
+        long id = statement.executeInsert();
+
+        context.getContentResolver().notifyChange(Style.CONTENT_URI, null);
+        return ContentUris.withAppendedId(Style.CONTENT_URI, id);
+    }
+
+    public int updateStyle(Context context,
+                           SQLiteDatabase db,
+                           ContentValues values,
+                           String selection,
+                           String[] selectionArgs) {
+        int count = db.update(Style.TABLE_NAME, values, selection, selectionArgs);
+        context.getContentResolver().notifyChange(Style.CONTENT_URI, null);
+        return count;
+    }
+
+    public int deleteStyles(SQLiteDatabase db, String selection, String[] selectionArgs) {
+        SQLiteStatement statement = statementCache.get(db, StatementCache.DELETE_STYLES, deleteSql(selection));
+        StatementCache.bindAll(statement, selectionArgs);
+        return statement.executeUpdateDelete();
+    }
+
+}
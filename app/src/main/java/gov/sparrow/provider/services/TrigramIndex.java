@@ -0,0 +1,148 @@
+package gov.sparrow.provider.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+* Finds indexed terms within a small edit distance of a query term. Terms are
+* padded ("  term ") so every character, including the first, starts a gram.
+* One edit changes at most three grams, so a term within k edits shares at
+* least |T(q)| - 3k grams with the query; only those are verified.
+* */
+class TrigramIndex {
+
+    private static final int SHORT_TERM_LENGTH = 4;
+
+    private final List<String> terms = new ArrayList<>();
+    private final Set<String> termSet = new HashSet<>();
+    private final Map<String, List<Integer>> postings = new HashMap<>();
+
+    static Set<String> trigrams(String term) {
+        String padded = "  " + term + " ";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    static double similarity(String first, String second) {
+        Set<String> firstGrams = trigrams(first);
+        Set<String> secondGrams = trigrams(second);
+        int shared = 0;
+        for (String gram : firstGrams) {
+            if (secondGrams.contains(gram)) {
+                shared++;
+            }
+        }
+        return (double) shared / (firstGrams.size() + secondGrams.size() - shared);
+    }
+
+    /*
+    * Optimal string alignment distance: Levenshtein plus adjacent transpositions.
+    * */
+    static int editDistance(String first, String second) {
+        int[][] distance = new int[first.length() + 1][second.length() + 1];
+        for (int i = 0; i <= first.length(); i++) {
+            distance[i][0] = i;
+        }
+        for (int j = 0; j <= second.length(); j++) {
+            distance[0][j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            for (int j = 1; j <= second.length(); j++) {
+                int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+                int best = Math.min(Math.min(distance[i - 1][j] + 1, distance[i][j - 1] + 1), distance[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1
+                        && first.charAt(i - 1) == second.charAt(j - 2)
+                        && first.charAt(i - 2) == second.charAt(j - 1)) {
+                    best = Math.min(best, distance[i - 2][j - 2] + 1);
+                }
+                distance[i][j] = best;
+            }
+        }
+        return distance[first.length()][second.length()];
+    }
+
+    void add(String term) {
+        if (!termSet.add(term)) {
+            return;
+        }
+        int index = terms.size();
+        terms.add(term);
+        for (String gram : trigrams(term)) {
+            List<Integer> posting = postings.get(gram);
+            if (posting == null) {
+                posting = new ArrayList<>();
+                postings.put(gram, posting);
+            }
+            posting.add(index);
+        }
+    }
+
+    int size() {
+        return terms.size();
+    }
+
+    /*
+    * Returns up to limit indexed terms other than the term itself, nearest
+    * first: by edit distance, then by trigram similarity.
+    * */
+    List<String> candidates(final String term, int limit) {
+        int maxDistance = term.length() <= SHORT_TERM_LENGTH ? 1 : 2;
+        Set<String> grams = trigrams(term);
+        int minShared = grams.size() - 3 * maxDistance;
+
+        List<String> matches = new ArrayList<>();
+        for (int index : candidateIndexes(grams, minShared)) {
+            String candidate = terms.get(index);
+            if (!candidate.equals(term) && editDistance(term, candidate) <= maxDistance) {
+                matches.add(candidate);
+            }
+        }
+
+        Collections.sort(matches, new Comparator<String>() {
+            @Override
+            public int compare(String first, String second) {
+                int byDistance = editDistance(term, first) - editDistance(term, second);
+                if (byDistance != 0) {
+                    return byDistance;
+                }
+                return Double.compare(similarity(term, second), similarity(term, first));
+            }
+        });
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private List<Integer> candidateIndexes(Set<String> grams, int minShared) {
+        List<Integer> indexes = new ArrayList<>();
+        if (minShared <= 0) {
+            for (int index = 0; index < terms.size(); index++) {
+                indexes.add(index);
+            }
+            return indexes;
+        }
+
+        int[] shared = new int[terms.size()];
+        for (String gram : grams) {
+            List<Integer> posting = postings.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            for (int index : posting) {
+                if (++shared[index] == minShared) {
+                    indexes.add(index);
+                }
+            }
+        }
+        return indexes;
+    }
+
+}
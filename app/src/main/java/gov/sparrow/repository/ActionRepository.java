@@ -0,0 +1,110 @@
+package gov.sparrow.repository;
+
+import android.content.ContentValues;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+
+import java.util.Map;
+
+public class ActionRepository {
+
+    public static final int CREATE_ACTION_TOKEN = 1;
+    public static final int UPDATE_ACTION_TOKEN = 2;
+    public static final int DELETE_ACTION_TOKEN = 3;
+
+    private static final String SELECTION_BY_ID = Action._ID + "=?";
+
+    private final AsyncRepositoryHelper asyncRepositoryHelper;
+
+    public ActionRepository(AsyncRepositoryHelper asyncRepositoryHelper) {
+        this.asyncRepositoryHelper = asyncRepositoryHelper;
+    }
+
+    public void createAction(String title, CreateActionListener listener) {
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_TITLE, title);
+        asyncRepositoryHelper.startInsert(CREATE_ACTION_TOKEN, listener, Action.CONTENT_URI, values);
+    }
+
+    public void updateActionCompleted(long actionId, String updatedAt, boolean completed, UpdateActionListener listener) {
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_COMPLETED, Boolean.toString(completed));
+        values.put(Action.COLUMN_NAME_CHECKBOX_UPDATED_AT, updatedAt);
+        asyncRepositoryHelper.startUpdate(UPDATE_ACTION_TOKEN, listener, Action.CONTENT_URI, values,
+                SELECTION_BY_ID, new String[]{Long.toString(actionId)});
+    }
+
+    /*
+    * A linked action is updated through its note so the provider can splice the
+    * new title into the note body.
+    * */
+    public void updateAction(gov.sparrow.models.Action action, UpdateActionListener listener) {
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_TITLE, action.getTitle());
+        values.put(Action.COLUMN_NAME_DUE_DATE, action.getDueDate());
+
+        asyncRepositoryHelper.startUpdate(UPDATE_ACTION_TOKEN, listener,
+                action.getNoteId() == null ? Action.CONTENT_URI : Action.CONTENT_URI(action.getNoteId(), action.getId()),
+                values,
+                SELECTION_BY_ID,
+                new String[]{Long.toString(action.getId())});
+    }
+
+    public void updateActionPosition(long actionId, int position) {
+        ContentValues values = new ContentValues();
+        values.put(ActionListPosition.COLUMN_NAME_POSITION, position);
+        asyncRepositoryHelper.startUpdate(UPDATE_ACTION_TOKEN, null, ActionListPosition.CONTENT_URI, values,
+                ActionListPosition.COLUMN_NAME_ACTION_ID + "=?", new String[]{Long.toString(actionId)});
+    }
+
+    /*
+    * Moves several actions in one transaction, in map order. Each action goes
+    * where its anchor, the action under the drop point, is; a null anchor moves
+    * it to the end.
+    * */
+    public void moveActions(Map<Long, Long> anchorIdsByActionId) {
+        ContentValues[] values = new ContentValues[anchorIdsByActionId.size()];
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : anchorIdsByActionId.entrySet()) {
+            values[i++] = anchorValues(entry.getKey(), entry.getValue());
+        }
+        asyncRepositoryHelper.startBulkInsert(UPDATE_ACTION_TOKEN, null, ActionListPosition.MOVE_URI, values);
+    }
+
+    /* Replaces the whole ordering; actionIds is the list top to bottom. */
+    public void reorderActions(long[] actionIds) {
+        ContentValues[] values = new ContentValues[actionIds.length];
+        for (int i = 0; i < actionIds.length; i++) {
+            values[i] = positionValues(actionIds[i], i);
+        }
+        asyncRepositoryHelper.startBulkInsert(UPDATE_ACTION_TOKEN, null, ActionListPosition.ORDER_URI, values);
+    }
+
+    public void archiveAction(long actionId) {
+        asyncRepositoryHelper.startDelete(DELETE_ACTION_TOKEN, null, Action.CONTENT_URI(actionId),
+                SELECTION_BY_ID, new String[]{Long.toString(actionId)});
+    }
+
+    private static ContentValues anchorValues(long actionId, Long anchorId) {
+        ContentValues values = new ContentValues();
+        values.put(ActionListPosition.COLUMN_NAME_ACTION_ID, actionId);
+        values.put(ActionListPosition.KEY_ANCHOR_ID, anchorId);
+        return values;
+    }
+
+    private static ContentValues positionValues(long actionId, int position) {
+        ContentValues values = new ContentValues();
+        values.put(ActionListPosition.COLUMN_NAME_ACTION_ID, actionId);
+        values.put(ActionListPosition.COLUMN_NAME_POSITION, position);
+        return values;
+    }
+
+    public interface CreateActionListener {
+        void onCreateActionComplete(String actionId);
+    }
+
+    public interface UpdateActionListener {
+        void onUpdateActionComplete(int result);
+    }
+
+}
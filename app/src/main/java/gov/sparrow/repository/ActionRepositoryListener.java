@@ -0,0 +1,26 @@
+package gov.sparrow.repository;
+
+import android.net.Uri;
+
+import static gov.sparrow.repository.ActionRepository.CREATE_ACTION_TOKEN;
+import static gov.sparrow.repository.ActionRepository.UPDATE_ACTION_TOKEN;
+
+public class ActionRepositoryListener extends AsyncRepositoryHelper.SimpleAsyncRepositoryListener {
+
+    @Override
+    public void onInsertComplete(int token, Object cookie, Uri uri) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        if (token == CREATE_ACTION_TOKEN && listener != null) {
+            ((ActionRepository.CreateActionListener) listener).onCreateActionComplete(uri.getLastPathSegment());
+        }
+    }
+
+    @Override
+    public void onUpdateComplete(int token, Object cookie, int result) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        if (token == UPDATE_ACTION_TOKEN && listener != null) {
+            ((ActionRepository.UpdateActionListener) listener).onUpdateActionComplete(result);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package gov.sparrow.repository;
+
+import android.content.AsyncQueryHandler;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import java.lang.ref.WeakReference;
+
+public class AsyncRepositoryHelper extends AsyncQueryHandler {
+
+    private static Handler bulkInsertHandler;
+
+    private final ContentResolver contentResolver;
+    private final AsyncRepositoryListener listener;
+
+    public AsyncRepositoryHelper(ContentResolver contentResolver, AsyncRepositoryListener listener) {
+        super(contentResolver);
+        this.contentResolver = contentResolver;
+        this.listener = listener;
+    }
+
+    /*
+    * Cookies are either the listener itself or a WeakReference to it; a cleared
+    * reference reads as null.
+    * */
+    static Object dereference(Object cookie) {
+        if (cookie instanceof WeakReference) {
+            return ((WeakReference<?>) cookie).get();
+        }
+        return cookie;
+    }
+
+    /*
+    * AsyncQueryHandler has no bulk insert, so it runs on a worker thread of its
+    * own and completes on this handler's thread like the other operations.
+    * */
+    public void startBulkInsert(final int token, final Object cookie, final Uri uri, final ContentValues[] values) {
+        getBulkInsertHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                final int result = contentResolver.bulkInsert(uri, values);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onBulkInsertComplete(token, cookie, result);
+                    }
+                });
+            }
+        });
+    }
+
+    private static synchronized Handler getBulkInsertHandler() {
+        if (bulkInsertHandler == null) {
+            HandlerThread thread = new HandlerThread("AsyncRepositoryHelper bulk insert");
+            thread.start();
+            bulkInsertHandler = new Handler(thread.getLooper());
+        }
+        return bulkInsertHandler;
+    }
+
+    @Override
+    public void onQueryComplete(int token, Object cookie, Cursor cursor) {
+        listener.onQueryComplete(token, cookie, cursor);
+    }
+
+    @Override
+    public void onInsertComplete(int token, Object cookie, Uri uri) {
+        listener.onInsertComplete(token, cookie, uri);
+    }
+
+    @Override
+    public void onUpdateComplete(int token, Object cookie, int result) {
+        listener.onUpdateComplete(token, cookie, result);
+    }
+
+    public void onBulkInsertComplete(int token, Object cookie, int result) {
+        listener.onBulkInsertComplete(token, cookie, result);
+    }
+
+    @Override
+    public void onDeleteComplete(int token, Object cookie, int result) {
+        listener.onDeleteComplete(token, cookie, result);
+    }
+
+    public interface AsyncRepositoryListener {
+        void onQueryComplete(int token, Object cookie, Cursor cursor);
+
+        void onInsertComplete(int token, Object cookie, Uri uri);
+
+        void onUpdateComplete(int token, Object cookie, int result);
+
+        void onBulkInsertComplete(int token, Object cookie, int result);
+
+        void onDeleteComplete(int token, Object cookie, int result);
+    }
+
+    /* Ignores every completion; listeners override the ones they care about. */
+    public static class SimpleAsyncRepositoryListener implements AsyncRepositoryListener {
+        @Override
+        public void onQueryComplete(int token, Object cookie, Cursor cursor) {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        @Override
+        public void onInsertComplete(int token, Object cookie, Uri uri) {
+        }
+
+        @Override
+        public void onUpdateComplete(int token, Object cookie, int result) {
+        }
+
+        @Override
+        public void onBulkInsertComplete(int token, Object cookie, int result) {
+        }
+
+        @Override
+        public void onDeleteComplete(int token, Object cookie, int result) {
+        }
+    }
+
+}
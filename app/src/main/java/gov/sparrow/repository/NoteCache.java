@@ -0,0 +1,125 @@
+package gov.sparrow.repository;
+
+import android.net.Uri;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.NoteContract;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.links.ActionLink;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+* A size-bounded LRU of parsed notes keyed by note id. Entries are dropped when
+* the provider reports a change to their note or to one of its actions, except
+* for the notifications that answer the repository's own save.
+* */
+public class NoteCache {
+
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    private final Map<Long, Note> notes;
+    private final Set<Long> pendingOwnSaves = new HashSet<>();
+
+    public NoteCache(final int maxSize) {
+        notes = new LinkedHashMap<Long, Note>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Note> eldest) {
+                if (size() > maxSize) {
+                    pendingOwnSaves.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized Note get(long noteId) {
+        return notes.get(noteId);
+    }
+
+    public synchronized void put(Note note) {
+        notes.put(note.getId(), note);
+    }
+
+    /* Stores a note the repository just wrote; its change notification is expected and kept. */
+    public synchronized void putSaved(Note note) {
+        notes.put(note.getId(), note);
+        pendingOwnSaves.add(note.getId());
+    }
+
+    public synchronized void invalidate(long noteId) {
+        notes.remove(noteId);
+        pendingOwnSaves.remove(noteId);
+    }
+
+    public synchronized void invalidateAll() {
+        notes.clear();
+        pendingOwnSaves.clear();
+    }
+
+    public synchronized void onNoteChanged(Uri uri) {
+        Long noteId = noteId(uri);
+        if (noteId == null) {
+            invalidateAll();
+        } else if (!pendingOwnSaves.remove(noteId)) {
+            notes.remove(noteId);
+        }
+    }
+
+    /*
+    * Completing, renaming or archiving an action changes the links of the note
+    * that owns it. An actions/<noteId>/<actionId> uri names that note; any other
+    * action uri may belong to any note, so every note holding links is dropped.
+    * */
+    public synchronized void onActionChanged(Uri uri) {
+        Long noteId = owningNoteId(uri);
+        if (noteId != null) {
+            if (!pendingOwnSaves.contains(noteId)) {
+                notes.remove(noteId);
+            }
+            return;
+        }
+
+        Iterator<Map.Entry<Long, Note>> entries = notes.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, Note> entry = entries.next();
+            List<ActionLink> actionLinks = entry.getValue().getActionLinks();
+            if (actionLinks != null && !actionLinks.isEmpty()) {
+                entries.remove();
+                pendingOwnSaves.remove(entry.getKey());
+            }
+        }
+    }
+
+    /* The id of a notes/# uri, or null for any uri that may cover several notes. */
+    private static Long noteId(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() != 2 || !NoteContract.Note.TABLE_NAME.equals(segments.get(0))) {
+            return null;
+        }
+        try {
+            return Long.parseLong(segments.get(1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /* The note id of an actions/<noteId>/<actionId> uri, or null for any other action uri. */
+    private static Long owningNoteId(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() != 3 || !Action.TABLE_NAME.equals(segments.get(0))) {
+            return null;
+        }
+        try {
+            return Long.parseLong(segments.get(1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,453 @@
+package gov.sparrow.repository;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.RemoteException;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.NoteContract;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.models.EditDelta;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.NoteSave;
+import gov.sparrow.models.builders.NoteBuilder;
+import gov.sparrow.models.links.ActionLink;
+import gov.sparrow.models.links.StyleLink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class NoteRepository {
+
+    public static final int CREATE_NOTE_TOKEN = 1;
+    public static final int UPDATE_NOTE_TOKEN = 2;
+    public static final int DELETE_NOTE_TOKEN = 3;
+    public static final int QUERY_NOTE_TOKEN = 4;
+
+    public static final String SELECTION_BY_ID = NoteContract.Note._ID + "=?";
+
+    private static final String LAST_SAVED_SELECTION =
+            NoteContract.Note.TABLE_NAME + "." + NoteContract.Note.COLUMN_NAME_ARCHIVED + "=?";
+    private static final String LAST_SAVED_IN_NOTEBOOK_SELECTION =
+            LAST_SAVED_SELECTION + " AND " + NoteContract.Note.COLUMN_NAME_NOTEBOOK_ID + "=?";
+    private static final String LAST_SAVED_SORT_ORDER = NoteContract.Note.COLUMN_NAME_UPDATED_AT + " DESC LIMIT 1";
+
+    private static final String ACTIONS_BY_NOTE_SELECTION = Action.COLUMN_NAME_NOTE_ID + "=?";
+    private static final String STYLES_BY_NOTE_SELECTION = Style.COLUMN_NAME_NOTE_ID + "=?";
+    private static final String STYLE_SELECTION =
+            Style.COLUMN_NAME_NOTE_ID + "=? AND " +
+                    Style.COLUMN_NAME_TYPE + "=? AND " +
+                    Style.COLUMN_NAME_START + "=? AND " +
+                    Style.COLUMN_NAME_END + "=?";
+
+    private final ContentResolver contentResolver;
+    private final AsyncRepositoryHelper asyncRepositoryHelper;
+    private final NoteCache noteCache;
+    private final WriteCounters writeCounters = new WriteCounters();
+
+    public NoteRepository(ContentResolver contentResolver, AsyncRepositoryHelper asyncRepositoryHelper, final NoteCache noteCache) {
+        this.contentResolver = contentResolver;
+        this.asyncRepositoryHelper = asyncRepositoryHelper;
+        this.noteCache = noteCache;
+
+        contentResolver.registerContentObserver(NoteContract.Note.CONTENT_URI, true, new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                noteCache.onNoteChanged(uri == null ? NoteContract.Note.CONTENT_URI : uri);
+            }
+        });
+        contentResolver.registerContentObserver(Action.CONTENT_URI, true, new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                noteCache.onActionChanged(uri == null ? Action.CONTENT_URI : uri);
+            }
+        });
+    }
+
+    public void asyncCreateNote(long notebookId, String title, String body, CreateNoteListener listener) {
+        ContentValues values = new ContentValues();
+        values.put(NoteContract.Note.COLUMN_NAME_NOTEBOOK_ID, notebookId);
+        values.put(NoteContract.Note.COLUMN_NAME_TITLE, title);
+        values.put(NoteContract.Note.COLUMN_NAME_BODY, body);
+        asyncRepositoryHelper.startInsert(CREATE_NOTE_TOKEN, listener, NoteContract.Note.CONTENT_URI, values);
+    }
+
+    public void asyncArchiveNote(long noteId, DeleteNoteListener listener) {
+        asyncRepositoryHelper.startDelete(DELETE_NOTE_TOKEN, listener, NoteContract.Note.CONTENT_URI(noteId),
+                SELECTION_BY_ID, new String[]{Long.toString(noteId)});
+    }
+
+    public void asyncGetNote(long noteId, QueryNoteListener listener) {
+        Note cached = noteCache.get(noteId);
+        if (cached != null) {
+            listener.onQueryNoteComplete(cached);
+            return;
+        }
+        asyncRepositoryHelper.startQuery(QUERY_NOTE_TOKEN, listener, NoteContract.Note.CONTENT_URI(noteId),
+                null, SELECTION_BY_ID, new String[]{Long.toString(noteId)}, null);
+    }
+
+    public void asyncGetLastSavedNote(long notebookId, QueryNoteListener listener) {
+        String selection;
+        String[] selectionArgs;
+        if (notebookId == Notebook.UNASSIGNED_NOTEBOOK_ID) {
+            selection = LAST_SAVED_SELECTION;
+            selectionArgs = new String[]{Boolean.toString(false)};
+        } else {
+            selection = LAST_SAVED_IN_NOTEBOOK_SELECTION;
+            selectionArgs = new String[]{Boolean.toString(false), Long.toString(notebookId)};
+        }
+        asyncRepositoryHelper.startQuery(QUERY_NOTE_TOKEN, listener, NoteContract.Note.CONTENT_URI(notebookId, true),
+                null, selection, selectionArgs, LAST_SAVED_SORT_ORDER);
+    }
+
+    public void asyncUpdateNotebook(long noteId, long notebookId, UpdateNoteListener listener) {
+        ContentValues values = new ContentValues();
+        values.put(NoteContract.Note.COLUMN_NAME_NOTEBOOK_ID, notebookId);
+        asyncRepositoryHelper.startUpdate(UPDATE_NOTE_TOKEN, listener, NoteContract.Note.CONTENT_URI, values,
+                SELECTION_BY_ID, new String[]{Long.toString(noteId)});
+    }
+
+    /*
+    * Writes the note row, its action links and its styles in one batch. When
+    * the persisted note is cached only the links and styles that changed are
+    * written; otherwise they are all rewritten.
+    * */
+    public int updateNote(long noteId,
+                          String title,
+                          String body,
+                          String lastSaved,
+                          List<ActionLink> actionLinks,
+                          List<StyleLink> styleLinks) throws RemoteException, OperationApplicationException {
+        Note note = NoteBuilder.noteBuilder()
+                .id(noteId)
+                .title(title)
+                .body(body)
+                .lastSaved(lastSaved)
+                .actionLinks(actionLinks)
+                .styleLinks(styleLinks)
+                .build();
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        Note saved = addOperations(operations, note, null);
+        ContentProviderResult[] results = contentResolver.applyBatch(SparrowContract.SPARROW_CONTENT_AUTHORITY, operations);
+        onSaved(noteId, saved);
+        return results.length;
+    }
+
+    /*
+    * Sends only the body edits since delta's base version, along with the
+    * title. Returns false when the stored note has moved past that version;
+    * nothing is written then and the caller should save the full body instead.
+    * */
+    public boolean updateNoteBody(long noteId,
+                                  String title,
+                                  EditDelta delta,
+                                  String lastSaved,
+                                  List<ActionLink> actionLinks,
+                                  List<StyleLink> styleLinks) throws RemoteException {
+        Note note = NoteBuilder.noteBuilder()
+                .id(noteId)
+                .title(title)
+                .lastSaved(lastSaved)
+                .actionLinks(actionLinks)
+                .styleLinks(styleLinks)
+                .build();
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        Note saved = addOperations(operations, note, delta);
+        try {
+            contentResolver.applyBatch(SparrowContract.SPARROW_CONTENT_AUTHORITY, operations);
+        } catch (OperationApplicationException e) {
+            noteCache.invalidate(noteId);
+            return false;
+        }
+        onSaved(noteId, saved);
+        return true;
+    }
+
+    /*
+    * Writes every save in one batch, so they commit in a single transaction.
+    * Returns false when any delta no longer applies; nothing is written then.
+    * */
+    public boolean updateNotes(List<NoteSave> saves) throws RemoteException {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        Map<Long, Note> savedNotes = new HashMap<>();
+        for (NoteSave save : saves) {
+            savedNotes.put(save.getNote().getId(), addOperations(operations, save.getNote(), save.getDelta()));
+        }
+
+        try {
+            contentResolver.applyBatch(SparrowContract.SPARROW_CONTENT_AUTHORITY, operations);
+        } catch (OperationApplicationException e) {
+            for (Long noteId : savedNotes.keySet()) {
+                noteCache.invalidate(noteId);
+            }
+            return false;
+        }
+
+        for (Map.Entry<Long, Note> entry : savedNotes.entrySet()) {
+            onSaved(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    public WriteCounters getWriteCounters() {
+        return writeCounters;
+    }
+
+    /*
+    * Appends the operations that save note and returns the note as it will be
+    * persisted, or null when there was no cached baseline to build it from.
+    * */
+    private Note addOperations(ArrayList<ContentProviderOperation> operations, Note note, EditDelta delta) {
+        long noteId = note.getId();
+        Note persisted = noteCache.get(noteId);
+        String body = note.getBody();
+
+        if (delta == null) {
+            ContentValues values = new ContentValues();
+            values.put(NoteContract.Note.COLUMN_NAME_TITLE, note.getTitle());
+            values.put(NoteContract.Note.COLUMN_NAME_BODY, body);
+            values.put(NoteContract.Note.COLUMN_NAME_UPDATED_AT, note.getLastSaved());
+            operations.add(ContentProviderOperation.newUpdate(NoteContract.Note.CONTENT_URI)
+                    .withSelection(SELECTION_BY_ID, new String[]{Long.toString(noteId)})
+                    .withValues(values)
+                    .build());
+        } else {
+            ContentValues values = new ContentValues();
+            if (note.getTitle() != null) {
+                values.put(NoteContract.Note.COLUMN_NAME_TITLE, note.getTitle());
+            }
+            values.put(NoteContract.Note.COLUMN_NAME_EDITS, delta.toJson());
+            values.put(NoteContract.Note.COLUMN_NAME_UPDATED_AT, note.getLastSaved());
+            operations.add(ContentProviderOperation.newUpdate(NoteContract.Note.EDITS_URI(noteId))
+                    .withValues(values)
+                    .withExpectedCount(1)
+                    .build());
+            if (body == null && persisted != null) {
+                body = delta.applyTo(persisted.getBody());
+            }
+        }
+
+        List<ActionLink> actionLinks = nonNull(note.getActionLinks());
+        List<StyleLink> styleLinks = nonNull(note.getStyleLinks());
+        if (persisted == null) {
+            addFullRewrite(operations, noteId, body, actionLinks, styleLinks);
+            return null;
+        }
+
+        addDiff(operations, noteId, body, persisted, actionLinks, styleLinks);
+        return NoteBuilder.noteBuilder()
+                .id(noteId)
+                .title(note.getTitle() != null ? note.getTitle() : persisted.getTitle())
+                .body(body)
+                .notebookId(persisted.getNotebookId())
+                .archived(persisted.isArchived())
+                .createdAt(persisted.getCreatedAt())
+                .lastSaved(note.getLastSaved())
+                .actionLinks(actionLinks)
+                .styleLinks(styleLinks)
+                .build();
+    }
+
+    private void addFullRewrite(ArrayList<ContentProviderOperation> operations,
+                                long noteId,
+                                String body,
+                                List<ActionLink> actionLinks,
+                                List<StyleLink> styleLinks) {
+        String[] linkIds = new String[actionLinks.size()];
+        for (int i = 0; i < actionLinks.size(); i++) {
+            operations.add(upsertActionOperation(noteId, body, actionLinks.get(i)));
+            linkIds[i] = actionLinks.get(i).getLinkId();
+        }
+
+        if (linkIds.length == 0) {
+            operations.add(ContentProviderOperation.newDelete(Action.CONTENT_URI)
+                    .withSelection(ACTIONS_BY_NOTE_SELECTION, new String[]{Long.toString(noteId)})
+                    .build());
+        } else {
+            operations.add(ContentProviderOperation.newDelete(Action.CONTENT_URI)
+                    .withSelection(ACTIONS_BY_NOTE_SELECTION + " AND " + Action.COLUMN_NAME_LINK_ID + " NOT IN (" + placeholders(linkIds.length) + ")",
+                            prepend(Long.toString(noteId), linkIds))
+                    .build());
+        }
+
+        operations.add(ContentProviderOperation.newDelete(Style.CONTENT_URI)
+                .withSelection(STYLES_BY_NOTE_SELECTION, new String[]{Long.toString(noteId)})
+                .build());
+        for (StyleLink styleLink : styleLinks) {
+            operations.add(insertStyleOperation(noteId, styleLink));
+        }
+
+        writeCounters.add(actionLinks.size() + styleLinks.size() + 2, 0);
+    }
+
+    private void addDiff(ArrayList<ContentProviderOperation> operations,
+                         long noteId,
+                         String body,
+                         Note persisted,
+                         List<ActionLink> actionLinks,
+                         List<StyleLink> styleLinks) {
+        int written = 0;
+        int skipped = 0;
+
+        Map<String, ActionLink> persistedLinks = new HashMap<>();
+        for (ActionLink link : nonNull(persisted.getActionLinks())) {
+            persistedLinks.put(link.getLinkId(), link);
+        }
+        for (ActionLink link : actionLinks) {
+            ActionLink persistedLink = persistedLinks.remove(link.getLinkId());
+            if (persistedLink != null
+                    && persistedLink.getStart() == link.getStart()
+                    && persistedLink.getEnd() == link.getEnd()
+                    && sameLinkedText(persisted.getBody(), body, link)) {
+                skipped++;
+            } else {
+                operations.add(upsertActionOperation(noteId, body, link));
+                written++;
+            }
+        }
+        if (!persistedLinks.isEmpty()) {
+            String[] droppedIds = persistedLinks.keySet().toArray(new String[persistedLinks.size()]);
+            operations.add(ContentProviderOperation.newDelete(Action.CONTENT_URI)
+                    .withSelection(ACTIONS_BY_NOTE_SELECTION + " AND " + Action.COLUMN_NAME_LINK_ID + " IN (" + placeholders(droppedIds.length) + ")",
+                            prepend(Long.toString(noteId), droppedIds))
+                    .build());
+            written += droppedIds.length;
+        }
+
+        Set<StyleLink> removedStyles = new LinkedHashSet<>(nonNull(persisted.getStyleLinks()));
+        Set<StyleLink> addedStyles = new LinkedHashSet<>(styleLinks);
+        removedStyles.removeAll(styleLinks);
+        addedStyles.removeAll(nonNull(persisted.getStyleLinks()));
+        skipped += styleLinks.size() - addedStyles.size();
+        for (StyleLink styleLink : removedStyles) {
+            operations.add(ContentProviderOperation.newDelete(Style.CONTENT_URI)
+                    .withSelection(STYLE_SELECTION, new String[]{
+                            Long.toString(noteId),
+                            styleLink.getType(),
+                            Integer.toString(styleLink.getStart()),
+                            Integer.toString(styleLink.getEnd())})
+                    .build());
+            written++;
+        }
+        for (StyleLink styleLink : addedStyles) {
+            operations.add(insertStyleOperation(noteId, styleLink));
+            written++;
+        }
+
+        writeCounters.add(written, skipped);
+    }
+
+    private void onSaved(long noteId, Note saved) {
+        if (saved == null) {
+            noteCache.invalidate(noteId);
+        } else {
+            noteCache.putSaved(saved);
+        }
+    }
+
+    /*
+    * A link whose offsets held still can still cover new text, as when a word
+    * inside it is retyped, so the titles it derives from each body are compared
+    * too. Without the new body no title is written, so the offsets decide.
+    * */
+    private static boolean sameLinkedText(String persistedBody, String body, ActionLink link) {
+        if (body == null) {
+            return true;
+        }
+        if (persistedBody == null || link.getEnd() > persistedBody.length() || link.getEnd() > body.length()) {
+            return false;
+        }
+        return persistedBody.regionMatches(link.getStart(), body, link.getStart(), link.getEnd() - link.getStart());
+    }
+
+    /* The action title is the linked text; it is left out when the body is not known here. */
+    private static ContentProviderOperation upsertActionOperation(long noteId, String body, ActionLink link) {
+        ContentValues values = new ContentValues();
+        if (body != null) {
+            values.put(Action.COLUMN_NAME_TITLE, body.substring(link.getStart(), link.getEnd()));
+        }
+        values.put(Action.COLUMN_NAME_NOTE_ID, noteId);
+        values.put(Action.COLUMN_NAME_LINK_ID, link.getLinkId());
+        values.put(Action.COLUMN_NAME_LINK_START, link.getStart());
+        values.put(Action.COLUMN_NAME_LINK_END, link.getEnd());
+        return ContentProviderOperation.newInsert(Action.CONTENT_URI).withValues(values).build();
+    }
+
+    private static ContentProviderOperation insertStyleOperation(long noteId, StyleLink styleLink) {
+        ContentValues values = new ContentValues();
+        values.put(Style.COLUMN_NAME_TYPE, styleLink.getType());
+        values.put(Style.COLUMN_NAME_NOTE_ID, noteId);
+        values.put(Style.COLUMN_NAME_START, styleLink.getStart());
+        values.put(Style.COLUMN_NAME_END, styleLink.getEnd());
+        return ContentProviderOperation.newInsert(Style.CONTENT_URI).withValues(values).build();
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : list;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
+    private static String[] prepend(String first, String[] rest) {
+        String[] args = new String[rest.length + 1];
+        args[0] = first;
+        System.arraycopy(rest, 0, args, 1, rest.length);
+        return args;
+    }
+
+    /* Link and style rows written and skipped by saves, for checking the diff on device. */
+    public static class WriteCounters {
+        private int rowsWritten;
+        private int rowsSkipped;
+
+        synchronized void add(int written, int skipped) {
+            rowsWritten += written;
+            rowsSkipped += skipped;
+        }
+
+        public synchronized int getRowsWritten() {
+            return rowsWritten;
+        }
+
+        public synchronized int getRowsSkipped() {
+            return rowsSkipped;
+        }
+    }
+
+    public interface CreateNoteListener {
+        void onCreateNoteComplete(long noteId);
+    }
+
+    public interface UpdateNoteListener {
+        void onUpdateNoteComplete(int result);
+    }
+
+    public interface DeleteNoteListener {
+        void onDeleteNoteComplete();
+    }
+
+    public interface QueryNoteListener {
+        void onQueryNoteComplete(Note note);
+    }
+
+}
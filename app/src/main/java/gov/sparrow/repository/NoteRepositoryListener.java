@@ -0,0 +1,114 @@
+package gov.sparrow.repository;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.net.Uri;
+import gov.sparrow.contracts.ActionContract;
+import gov.sparrow.contracts.NoteContract;
+import gov.sparrow.contracts.StyleContract;
+import gov.sparrow.database.NoteMergeCursor;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.builders.NoteBuilder;
+import gov.sparrow.models.links.ActionLink;
+import gov.sparrow.models.links.StyleLink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static gov.sparrow.repository.NoteRepository.CREATE_NOTE_TOKEN;
+import static gov.sparrow.repository.NoteRepository.DELETE_NOTE_TOKEN;
+import static gov.sparrow.repository.NoteRepository.QUERY_NOTE_TOKEN;
+import static gov.sparrow.repository.NoteRepository.UPDATE_NOTE_TOKEN;
+
+public class NoteRepositoryListener extends AsyncRepositoryHelper.SimpleAsyncRepositoryListener {
+
+    private final NoteCache noteCache;
+
+    public NoteRepositoryListener(NoteCache noteCache) {
+        this.noteCache = noteCache;
+    }
+
+    @Override
+    public void onQueryComplete(int token, Object cookie, Cursor cursor) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        try {
+            if (token != QUERY_NOTE_TOKEN || listener == null) {
+                return;
+            }
+            Note note = parseNote(cursor);
+            if (note != null) {
+                noteCache.put(note);
+            }
+            ((NoteRepository.QueryNoteListener) listener).onQueryNoteComplete(note);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    @Override
+    public void onInsertComplete(int token, Object cookie, Uri uri) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        if (token == CREATE_NOTE_TOKEN && listener != null) {
+            ((NoteRepository.CreateNoteListener) listener).onCreateNoteComplete(Long.parseLong(uri.getLastPathSegment()));
+        }
+    }
+
+    @Override
+    public void onUpdateComplete(int token, Object cookie, int result) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        if (token == UPDATE_NOTE_TOKEN && listener != null) {
+            ((NoteRepository.UpdateNoteListener) listener).onUpdateNoteComplete(result);
+        }
+    }
+
+    @Override
+    public void onDeleteComplete(int token, Object cookie, int result) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        if (token == DELETE_NOTE_TOKEN && listener != null) {
+            ((NoteRepository.DeleteNoteListener) listener).onDeleteNoteComplete();
+        }
+    }
+
+    /*
+    * The provider answers a note query with a NoteMergeCursor: the note row, then
+    * its action link rows, then its style rows.
+    * */
+    private static Note parseNote(Cursor cursor) {
+        if (cursor instanceof CursorWrapper) {
+            cursor = ((CursorWrapper) cursor).getWrappedCursor();
+        }
+        if (!(cursor instanceof NoteMergeCursor) || !cursor.moveToFirst()) {
+            return null;
+        }
+        NoteMergeCursor noteCursor = (NoteMergeCursor) cursor;
+
+        NoteBuilder builder = NoteBuilder.noteBuilder()
+                .id(noteCursor.getLong(noteCursor.getColumnIndexOrThrow(NoteContract.Note._ID)))
+                .title(noteCursor.getString(noteCursor.getColumnIndexOrThrow(NoteContract.Note.COLUMN_NAME_TITLE)))
+                .body(noteCursor.getString(noteCursor.getColumnIndexOrThrow(NoteContract.Note.COLUMN_NAME_BODY)))
+                .notebookId(noteCursor.getLong(noteCursor.getColumnIndexOrThrow(NoteContract.Note.COLUMN_NAME_NOTEBOOK_ID)))
+                .lastSaved(noteCursor.getString(noteCursor.getColumnIndexOrThrow(NoteContract.Note.COLUMN_NAME_UPDATED_AT)));
+
+        List<ActionLink> actionLinks = new ArrayList<>();
+        for (int i = 0; i < noteCursor.getActionLinkCount() && noteCursor.moveToNext(); i++) {
+            actionLinks.add(new ActionLink(
+                    noteCursor.getString(noteCursor.getColumnIndexOrThrow(ActionContract.Action.COLUMN_NAME_LINK_ID)),
+                    noteCursor.getInt(noteCursor.getColumnIndexOrThrow(ActionContract.Action.COLUMN_NAME_LINK_START)),
+                    noteCursor.getInt(noteCursor.getColumnIndexOrThrow(ActionContract.Action.COLUMN_NAME_LINK_END)),
+                    Boolean.parseBoolean(noteCursor.getString(noteCursor.getColumnIndexOrThrow(ActionContract.Action.COLUMN_NAME_COMPLETED)))));
+        }
+
+        List<StyleLink> styleLinks = new ArrayList<>();
+        for (int i = 0; i < noteCursor.getStyleCount() && noteCursor.moveToNext(); i++) {
+            styleLinks.add(new StyleLink(
+                    noteCursor.getString(noteCursor.getColumnIndexOrThrow(StyleContract.Style.COLUMN_NAME_TYPE)),
+                    noteCursor.getInt(noteCursor.getColumnIndexOrThrow(StyleContract.Style.COLUMN_NAME_START)),
+                    noteCursor.getInt(noteCursor.getColumnIndexOrThrow(StyleContract.Style.COLUMN_NAME_END))));
+        }
+
+        return builder.actionLinks(actionLinks).styleLinks(styleLinks).build();
+    }
+
+}
@@ -0,0 +1,98 @@
+package gov.sparrow.repository;
+
+import android.content.ContentValues;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+public class NotebookRepository {
+
+    public static final int CREATE_NOTEBOOK_TOKEN = 1;
+    public static final int UPDATE_NOTEBOOK_TOKEN = 2;
+    public static final int DELETE_NOTEBOOK_TOKEN = 3;
+
+    private static final String SELECTION_BY_ID = Notebook._ID + "=?";
+
+    private final AsyncRepositoryHelper asyncRepositoryHelper;
+
+    public NotebookRepository(AsyncRepositoryHelper asyncRepositoryHelper) {
+        this.asyncRepositoryHelper = asyncRepositoryHelper;
+    }
+
+    public void createNotebook(String title, CreateNotebookListener listener) {
+        ContentValues values = new ContentValues();
+        values.put(Notebook.COLUMN_NAME_TITLE, title);
+        asyncRepositoryHelper.startInsert(CREATE_NOTEBOOK_TOKEN, new WeakReference<>(listener), Notebook.CONTENT_URI, values);
+    }
+
+    public void updateNotebook(long notebookId, String title, UpdateNotebookListener listener) {
+        ContentValues values = new ContentValues();
+        values.put(Notebook.COLUMN_NAME_TITLE, title);
+        asyncRepositoryHelper.startUpdate(UPDATE_NOTEBOOK_TOKEN, new WeakReference<>(listener), Notebook.CONTENT_URI, values,
+                SELECTION_BY_ID, new String[]{Long.toString(notebookId)});
+    }
+
+    public void updateNotebookPosition(long notebookId, int position) {
+        ContentValues values = new ContentValues();
+        values.put(NotebookListPosition.COLUMN_NAME_POSITION, position);
+        asyncRepositoryHelper.startUpdate(UPDATE_NOTEBOOK_TOKEN, null, NotebookListPosition.CONTENT_URI, values,
+                NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID + "=?", new String[]{Long.toString(notebookId)});
+    }
+
+    /*
+    * Moves several notebooks in one transaction, in map order. Each notebook goes
+    * where its anchor, the notebook under the drop point, is; a null anchor
+    * moves it to the end.
+    * */
+    public void moveNotebooks(Map<Long, Long> anchorIdsByNotebookId) {
+        ContentValues[] values = new ContentValues[anchorIdsByNotebookId.size()];
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : anchorIdsByNotebookId.entrySet()) {
+            values[i++] = anchorValues(entry.getKey(), entry.getValue());
+        }
+        asyncRepositoryHelper.startBulkInsert(UPDATE_NOTEBOOK_TOKEN, null, NotebookListPosition.MOVE_URI, values);
+    }
+
+    /* Replaces the whole ordering; notebookIds is the list top to bottom. */
+    public void reorderNotebooks(long[] notebookIds) {
+        ContentValues[] values = new ContentValues[notebookIds.length];
+        for (int i = 0; i < notebookIds.length; i++) {
+            values[i] = positionValues(notebookIds[i], i);
+        }
+        asyncRepositoryHelper.startBulkInsert(UPDATE_NOTEBOOK_TOKEN, null, NotebookListPosition.ORDER_URI, values);
+    }
+
+    public void archiveNotebook(long notebookId, boolean deleteAll, DeleteNotebookListener listener) {
+        asyncRepositoryHelper.startDelete(DELETE_NOTEBOOK_TOKEN, new WeakReference<>(listener), Notebook.ARCHIVE_URI(notebookId, deleteAll),
+                SELECTION_BY_ID, new String[]{Long.toString(notebookId)});
+    }
+
+    private static ContentValues anchorValues(long notebookId, Long anchorId) {
+        ContentValues values = new ContentValues();
+        values.put(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID, notebookId);
+        values.put(NotebookListPosition.KEY_ANCHOR_ID, anchorId);
+        return values;
+    }
+
+    private static ContentValues positionValues(long notebookId, int position) {
+        ContentValues values = new ContentValues();
+        values.put(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID, notebookId);
+        values.put(NotebookListPosition.COLUMN_NAME_POSITION, position);
+        return values;
+    }
+
+    public interface CreateNotebookListener {
+        void onCreateNotebookComplete(String notebookId);
+    }
+
+    public interface UpdateNotebookListener {
+        void onUpdateNotebookComplete(int result);
+    }
+
+    public interface DeleteNotebookListener {
+        void onDeleteNotebookComplete(int result);
+    }
+
+}
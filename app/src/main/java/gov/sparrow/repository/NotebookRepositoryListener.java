@@ -0,0 +1,35 @@
+package gov.sparrow.repository;
+
+import android.net.Uri;
+
+import static gov.sparrow.repository.NotebookRepository.CREATE_NOTEBOOK_TOKEN;
+import static gov.sparrow.repository.NotebookRepository.DELETE_NOTEBOOK_TOKEN;
+import static gov.sparrow.repository.NotebookRepository.UPDATE_NOTEBOOK_TOKEN;
+
+public class NotebookRepositoryListener extends AsyncRepositoryHelper.SimpleAsyncRepositoryListener {
+
+    @Override
+    public void onInsertComplete(int token, Object cookie, Uri uri) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        if (token == CREATE_NOTEBOOK_TOKEN && listener != null) {
+            ((NotebookRepository.CreateNotebookListener) listener).onCreateNotebookComplete(uri.getLastPathSegment());
+        }
+    }
+
+    @Override
+    public void onUpdateComplete(int token, Object cookie, int result) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        if (token == UPDATE_NOTEBOOK_TOKEN && listener != null) {
+            ((NotebookRepository.UpdateNotebookListener) listener).onUpdateNotebookComplete(result);
+        }
+    }
+
+    @Override
+    public void onDeleteComplete(int token, Object cookie, int result) {
+        Object listener = AsyncRepositoryHelper.dereference(cookie);
+        if (token == DELETE_NOTEBOOK_TOKEN && listener != null) {
+            ((NotebookRepository.DeleteNotebookListener) listener).onDeleteNotebookComplete(result);
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package gov.sparrow.util;
+
+import javax.inject.Singleton;
+
+import dagger.Component;
+import gov.sparrow.provider.SparrowProvider;
+
+@Singleton
+@Component(modules = SparrowApplicationModule.class)
+public interface SparrowApplicationComponent {
+
+    void inject(SparrowProvider sparrowProvider);
+
+}
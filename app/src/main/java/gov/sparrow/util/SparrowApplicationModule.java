@@ -0,0 +1,228 @@
+package gov.sparrow.util;
+
+import android.app.Application;
+import android.content.ContentResolver;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.os.Environment;
+import com.google.gson.Gson;
+import dagger.Module;
+import dagger.Provides;
+import gov.sparrow.database.SearchIndexMaintenance;
+import gov.sparrow.database.SearchIndexSchema;
+import gov.sparrow.database.SparrowDatabaseBackupWriter;
+import gov.sparrow.database.SparrowDatabaseHelper;
+import gov.sparrow.datasync.ListRebalanceJobService;
+import gov.sparrow.datasync.SparrowRestoreManager;
+import gov.sparrow.datasync.SyncAdapter;
+import gov.sparrow.managers.AutosaveDelayPolicy;
+import gov.sparrow.managers.EditJournal;
+import gov.sparrow.managers.SaveManager;
+import gov.sparrow.provider.LinkedActionSplicer;
+import gov.sparrow.provider.ListPositionHelper;
+import gov.sparrow.provider.NoteChunkStore;
+import gov.sparrow.provider.SQLiteQueryBuilderFactory;
+import gov.sparrow.provider.SqliteFeatures;
+import gov.sparrow.provider.StatementCache;
+import gov.sparrow.provider.services.*;
+import gov.sparrow.repository.ActionRepository;
+import gov.sparrow.repository.ActionRepositoryListener;
+import gov.sparrow.repository.AsyncRepositoryHelper;
+import gov.sparrow.repository.NoteCache;
+import gov.sparrow.repository.NoteRepository;
+import gov.sparrow.repository.NoteRepositoryListener;
+import gov.sparrow.repository.NotebookRepository;
+import gov.sparrow.repository.NotebookRepositoryListener;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.util.concurrent.Executors;
+
+@Module
+public class SparrowApplicationModule {
+
+    private static final String JOURNAL_DIRECTORY = "journal";
+
+    private final Application application;
+
+    public SparrowApplicationModule(Application application) {
+        this.application = application;
+    }
+
+    @Singleton
+    @Provides
+    ContentResolver contentResolver() {
+        return application.getContentResolver();
+    }
+
+    @Singleton
+    @Provides
+    SqliteFeatures sqliteFeatures() {
+        return new SqliteFeatures();
+    }
+
+    @Singleton
+    @Provides
+    SearchIndexSchema searchIndexSchema(SqliteFeatures sqliteFeatures) {
+        return new SearchIndexSchema(sqliteFeatures);
+    }
+
+    @Singleton
+    @Provides
+    SparrowDatabaseHelper sparrowDatabaseHelper(SearchIndexSchema searchIndexSchema) {
+        return new SparrowDatabaseHelper(application, searchIndexSchema);
+    }
+
+    @Singleton
+    @Provides
+    SQLiteQueryBuilder sqLiteQueryBuilder() {
+        return new SQLiteQueryBuilder();
+    }
+
+    @Singleton
+    @Provides
+    SQLiteQueryBuilderFactory sqLiteQueryBuilderFactory() {
+        return new SQLiteQueryBuilderFactory();
+    }
+
+    @Singleton
+    @Provides
+    TimeUtil timeUtil() {
+        return new TimeUtil();
+    }
+
+    @Singleton
+    @Provides
+    UUIDGenerator uuidGenerator() {
+        return new UUIDGenerator();
+    }
+
+    @Singleton
+    @Provides
+    Gson gson() {
+        return new Gson();
+    }
+
+    @Singleton
+    @Provides
+    StatementCache statementCache() {
+        return new StatementCache();
+    }
+
+    @Singleton
+    @Provides
+    NoteChunkStore noteChunkStore() {
+        return new NoteChunkStore();
+    }
+
+    @Singleton
+    @Provides
+    ListPositionHelper listPositionHelper(StatementCache statementCache) {
+        return new ListPositionHelper(statementCache, new ListPositionHelper.RebalanceScheduler() {
+            @Override
+            public void scheduleRebalance() {
+                ListRebalanceJobService.schedule(application);
+            }
+        });
+    }
+
+    @Singleton
+    @Provides
+    LinkedActionSplicer linkedActionSplicer(NoteChunkStore noteChunkStore, NoteService noteService) {
+        return new LinkedActionSplicer(noteChunkStore, noteService);
+    }
+
+    @Singleton
+    @Provides
+    SearchIndexMaintenance searchIndexMaintenance() {
+        return new SearchIndexMaintenance();
+    }
+
+    @Singleton
+    @Provides
+    NotebookService notebookService(ListPositionHelper listPositionHelper) {
+        return new NotebookService(listPositionHelper);
+    }
+
+    @Singleton
+    @Provides
+    NoteService noteService(NoteChunkStore noteChunkStore, StatementCache statementCache) {
+        return new NoteService(noteChunkStore, statementCache);
+    }
+
+    @Singleton
+    @Provides
+    ActionService actionService(ListPositionHelper listPositionHelper,
+                                LinkedActionSplicer linkedActionSplicer,
+                                SqliteFeatures sqliteFeatures,
+                                StatementCache statementCache) {
+        return new ActionService(listPositionHelper, linkedActionSplicer, sqliteFeatures, statementCache);
+    }
+
+    @Singleton
+    @Provides
+    StyleService styleService(StatementCache statementCache) {
+        return new StyleService(statementCache);
+    }
+
+    @Singleton
+    @Provides
+    SearchService searchService(SearchIndexMaintenance searchIndexMaintenance) {
+        return new SearchService(searchIndexMaintenance);
+    }
+
+    @Singleton
+    @Provides
+    BackupService backupService() {
+        return new BackupService();
+    }
+
+    @Singleton
+    @Provides
+    NoteCache noteCache() {
+        return new NoteCache(NoteCache.DEFAULT_MAX_SIZE);
+    }
+
+    @Singleton
+    @Provides
+    NoteRepository noteRepository(ContentResolver contentResolver, NoteCache noteCache) {
+        return new NoteRepository(contentResolver,
+                new AsyncRepositoryHelper(contentResolver, new NoteRepositoryListener(noteCache)),
+                noteCache);
+    }
+
+    @Singleton
+    @Provides
+    ActionRepository actionRepository(ContentResolver contentResolver) {
+        return new ActionRepository(new AsyncRepositoryHelper(contentResolver, new ActionRepositoryListener()));
+    }
+
+    @Singleton
+    @Provides
+    NotebookRepository notebookRepository(ContentResolver contentResolver) {
+        return new NotebookRepository(new AsyncRepositoryHelper(contentResolver, new NotebookRepositoryListener()));
+    }
+
+    @Singleton
+    @Provides
+    SaveManager saveManager(TimeUtil timeUtil, NoteRepository noteRepository) {
+        return new SaveManager(timeUtil,
+                Executors.newSingleThreadScheduledExecutor(),
+                noteRepository,
+                new AutosaveDelayPolicy(),
+                new EditJournal(new File(application.getFilesDir(), JOURNAL_DIRECTORY)));
+    }
+
+    @Singleton
+    @Provides
+    SparrowDatabaseBackupWriter sparrowDatabaseBackupWriter() {
+        return new SparrowDatabaseBackupWriter();
+    }
+
+    @Singleton
+    @Provides
+    SparrowRestoreManager sparrowRestoreManager(ContentResolver contentResolver, TimeUtil timeUtil, Gson gson) {
+        return new SparrowRestoreManager(contentResolver, timeUtil, gson,
+                new File(Environment.getExternalStorageDirectory(), SyncAdapter.BACKUP_DIRECTORY));
+    }
+
+}
@@ -0,0 +1,76 @@
+package gov.sparrow.util;
+
+import android.os.SystemClock;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class TimeUtil {
+
+    /* Timestamps are stored as UTC text in this format. */
+    public static final String DATABASE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
+    private static final String UPDATED_FORMAT = "dd MMMM yyyy HH:mm";
+    private static final String DUE_DATE_FORMAT = "dd MMM";
+    private static final String BACKUP_DATE_FORMAT = "HH:mm 'on' dd MMM yyyy";
+    private static final String BACKUP_FILE_FORMAT = "yyyyMMdd_HHmmss";
+
+    public String getTimeNow() {
+        return databaseFormat().format(new Date());
+    }
+
+    public String getBackUpTimeNow() {
+        return new SimpleDateFormat(BACKUP_FILE_FORMAT, Locale.US).format(new Date());
+    }
+
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    public String getUpdatedTime(String timestamp) {
+        Date date = parse(databaseFormat(), timestamp);
+        if (date == null) {
+            return null;
+        }
+        return new SimpleDateFormat(UPDATED_FORMAT, Locale.US).format(date);
+    }
+
+    /*
+    * Due dates are calendar days, not instants, so they are read and shown in
+    * the same zone.
+    * */
+    public String getFormattedDate(String timestamp) {
+        SimpleDateFormat format = databaseFormat();
+        Date date = parse(format, timestamp);
+        if (date == null) {
+            return null;
+        }
+        SimpleDateFormat dueDateFormat = new SimpleDateFormat(DUE_DATE_FORMAT, Locale.US);
+        dueDateFormat.setTimeZone(format.getTimeZone());
+        return dueDateFormat.format(date).toUpperCase(Locale.US);
+    }
+
+    public String getFormattedBackupDate(long millis) {
+        return new SimpleDateFormat(BACKUP_DATE_FORMAT, Locale.US).format(new Date(millis));
+    }
+
+    private static SimpleDateFormat databaseFormat() {
+        SimpleDateFormat format = new SimpleDateFormat(DATABASE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    private static Date parse(SimpleDateFormat format, String timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        try {
+            return format.parse(timestamp);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,11 @@
+package gov.sparrow.util;
+
+import java.util.UUID;
+
+public class UUIDGenerator {
+
+    public String getUUID() {
+        return UUID.randomUUID().toString();
+    }
+
+}
@@ -0,0 +1,130 @@
+package gov.sparrow.views;
+
+import android.graphics.Typeface;
+import android.text.Editable;
+import android.text.SpanWatcher;
+import android.text.Spannable;
+import android.text.Spanned;
+import android.text.TextWatcher;
+import android.text.style.StyleSpan;
+import gov.sparrow.models.spans.ActionLinkSpan;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+* Tells autosave whether an Editable differs from what was last saved. Text is
+* compared by a content hash, so typing a character and deleting it again is
+* clean, and the spans that get saved (action links and bold) are tracked
+* separately so a text-only change can reuse the last captured spans.
+* */
+public class EditTracker implements TextWatcher, SpanWatcher {
+
+    private final Map<Object, int[]> spanPositions = new IdentityHashMap<>();
+    private Editable editable;
+    private long cleanContentHash;
+    private long contentHash;
+    private boolean textChanged;
+    private boolean spanDirty;
+
+    public void attach(Editable editable) {
+        this.editable = editable;
+        editable.setSpan(this, 0, editable.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+        markClean();
+    }
+
+    public boolean isDirty() {
+        return getContentHash() != cleanContentHash || spanDirty;
+    }
+
+    public boolean isSpanDirty() {
+        return spanDirty;
+    }
+
+    public long getContentHash() {
+        if (textChanged) {
+            contentHash = hash(editable);
+            textChanged = false;
+        }
+        return contentHash;
+    }
+
+    public long getCleanContentHash() {
+        return cleanContentHash;
+    }
+
+    public void markClean() {
+        contentHash = hash(editable);
+        cleanContentHash = contentHash;
+        textChanged = false;
+        spanDirty = false;
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        spanPositions.clear();
+        if (!(s instanceof Spanned)) {
+            return;
+        }
+        Spanned spanned = (Spanned) s;
+        for (Object span : spanned.getSpans(start, spanned.length(), Object.class)) {
+            if (isPersisted(span)) {
+                spanPositions.put(span, new int[]{spanned.getSpanStart(span), spanned.getSpanEnd(span)});
+            }
+        }
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+        textChanged = true;
+        for (Map.Entry<Object, int[]> position : spanPositions.entrySet()) {
+            if (s.getSpanStart(position.getKey()) != position.getValue()[0]
+                    || s.getSpanEnd(position.getKey()) != position.getValue()[1]) {
+                spanDirty = true;
+            }
+        }
+        spanPositions.clear();
+    }
+
+    @Override
+    public void onSpanAdded(Spannable text, Object what, int start, int end) {
+        if (isPersisted(what)) {
+            spanDirty = true;
+        }
+    }
+
+    @Override
+    public void onSpanRemoved(Spannable text, Object what, int start, int end) {
+        if (isPersisted(what)) {
+            spanDirty = true;
+        }
+    }
+
+    @Override
+    public void onSpanChanged(Spannable text, Object what, int ostart, int oend, int nstart, int nend) {
+        if (isPersisted(what)) {
+            spanDirty = true;
+        }
+    }
+
+    private static boolean isPersisted(Object span) {
+        return span instanceof ActionLinkSpan
+                || (span instanceof StyleSpan && ((StyleSpan) span).getStyle() == Typeface.BOLD);
+    }
+
+    private static long hash(CharSequence text) {
+        long hash = 0;
+        if (text == null) {
+            return hash;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+}
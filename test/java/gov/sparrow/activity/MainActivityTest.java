@@ -18,6 +18,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.robolectric.Robolectric;
 import org.robolectric.RuntimeEnvironment;
@@ -70,6 +71,7 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
@@ -122,6 +124,15 @@ public class MainActivityTest {
         assertThat(notePane.updateTimestamp.getText().toString()).isEqualTo("Last Saved updated timestamp");
     }
 
+    @Test
+    public void onCreate_shouldRecoverJournalBeforeLoadingLastSavedNote() {
+        subject = Robolectric.setupActivity(MainActivity.class);
+
+        InOrder inOrder = inOrder(saveManager, noteRepository);
+        inOrder.verify(saveManager).recoverJournal(any(SaveManager.RecoveryListener.class));
+        inOrder.verify(noteRepository).asyncGetLastSavedNote(eq(Notebook.UNASSIGNED_NOTEBOOK_ID), any(NoteRepository.QueryNoteListener.class));
+    }
+
     @Test
     public void onCreate_shouldLoadNotebooksList() {
         setupGetLastSavedNote_forOnCreate();
@@ -5,6 +5,7 @@ import android.content.CursorLoader;
 import android.content.Intent;
 import android.content.Loader;
 import android.database.Cursor;
+import android.net.Uri;
 import android.os.Bundle;
 import android.widget.ArrayAdapter;
 import android.widget.CursorAdapter;
@@ -27,6 +28,7 @@ import gov.sparrow.SparrowTestRunner;
 import gov.sparrow.adapter.SearchResultsListAdapter;
 import gov.sparrow.contracts.ActionContract;
 import gov.sparrow.contracts.NoteContract;
+import gov.sparrow.contracts.SearchContract.Searchable;
 import gov.sparrow.contracts.SparrowContract;
 import gov.sparrow.database.SparrowRoboCursor;
 import gov.sparrow.models.Note;
@@ -277,6 +279,30 @@ public class SearchActivityTest {
         assertThat(result).isTrue();
     }
 
+    @Test
+    public void whenQueryTextChanges_shouldKeepSearchingInTheSameSession() throws Exception {
+        subject.onQueryTextChange("se");
+        String firstSession = loadedUri().getQueryParameter(Searchable.PARAM_SESSION);
+
+        subject.onQueryTextChange("sea");
+        String secondSession = loadedUri().getQueryParameter(Searchable.PARAM_SESSION);
+
+        assertThat(firstSession).isNotNull();
+        assertThat(secondSession).isEqualTo(firstSession);
+        assertThat(loadedUri().getPath()).isEqualTo(Searchable.CONTENT_URI.getPath());
+    }
+
+    @Test
+    public void onCreate_shouldStartNewSearchSession() throws Exception {
+        subject.onQueryTextChange("se");
+        String firstSession = loadedUri().getQueryParameter(Searchable.PARAM_SESSION);
+
+        subject = Robolectric.setupActivity(SearchActivity.class);
+        subject.onQueryTextChange("se");
+
+        assertThat(loadedUri().getQueryParameter(Searchable.PARAM_SESSION)).isNotEqualTo(firstSession);
+    }
+
     @Test
     public void whenQueryTextChange_andQueryTextLessThan2_shouldNotLoadQuery() throws Exception {
         boolean result = subject.onQueryTextChange("s");
@@ -370,6 +396,10 @@ public class SearchActivityTest {
         return cursor;
     }
 
+    private Uri loadedUri() {
+        return ((CursorLoader) subject.getLoaderManager().getLoader(LOADER_ID_SEARCH_ACTIVITY)).getUri();
+    }
+
     private void assertThatQueryLoaded(String searchTerm) {
         AsyncTaskLoader<Cursor> loader = (AsyncTaskLoader) subject.getLoaderManager().getLoader(LOADER_ID_SEARCH_ACTIVITY);
         CursorLoader loader1 = (CursorLoader) loader;
@@ -1,9 +1,13 @@
 package gov.sparrow.adapter;
 
 import android.database.Cursor;
+import android.database.CursorWrapper;
 import android.database.MatrixCursor;
+import android.os.Bundle;
 import gov.sparrow.SparrowTestRunner;
 import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.database.PagingCursor;
+import gov.sparrow.database.PartitionedCursor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -11,6 +15,8 @@ import org.junit.runner.RunWith;
 import static gov.sparrow.contracts.ActionContract.Action;
 import static gov.sparrow.contracts.ActionContract.ActionListPosition;
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.*;
 
 @RunWith(SparrowTestRunner.class)
 public class ActionListAdapterCursorWrapperTest {
@@ -124,6 +130,95 @@ public class ActionListAdapterCursorWrapperTest {
         assertThat(subject.getCount()).isEqualTo(2);
     }
 
+    @Test
+    public void withPartitionCounts_shouldReadBoundariesWithoutScanningRows() throws Exception {
+        Cursor partitionedCursor = mock(Cursor.class);
+        when(partitionedCursor.getCount()).thenReturn(3);
+        when(partitionedCursor.getExtras()).thenReturn(partitionExtras(1, 2));
+
+        subject = new ActionListAdapterCursorWrapper(partitionedCursor, null);
+
+        assertThat(subject.getCount()).isEqualTo(3);
+        assertThat(subject.getFirstCompletedPosition()).isEqualTo(1);
+        assertThat(subject.getLastIncompletePosition()).isEqualTo(0);
+        verify(partitionedCursor, never()).moveToNext();
+        verify(partitionedCursor, never()).moveToPosition(anyInt());
+    }
+
+    @Test
+    public void withPartitionCounts_whenNoCompletedItems_returnsLastPosition() throws Exception {
+        Cursor partitionedCursor = mock(Cursor.class);
+        when(partitionedCursor.getCount()).thenReturn(3);
+        when(partitionedCursor.getExtras()).thenReturn(partitionExtras(3, 0));
+
+        subject = new ActionListAdapterCursorWrapper(partitionedCursor, null);
+
+        assertThat(subject.getFirstCompletedPosition()).isEqualTo(2);
+        assertThat(subject.getLastIncompletePosition()).isEqualTo(2);
+    }
+
+    @Test
+    public void withPartitionCounts_whenNoIncompleteItems_returnsFirstPosition() throws Exception {
+        Cursor partitionedCursor = mock(Cursor.class);
+        when(partitionedCursor.getCount()).thenReturn(3);
+        when(partitionedCursor.getExtras()).thenReturn(partitionExtras(0, 3));
+
+        subject = new ActionListAdapterCursorWrapper(partitionedCursor, null);
+
+        assertThat(subject.getFirstCompletedPosition()).isEqualTo(0);
+        assertThat(subject.getLastIncompletePosition()).isEqualTo(0);
+    }
+
+    @Test
+    public void withPartitionCounts_shouldUseRowsInProviderOrder() throws Exception {
+        cursor = new PartitionedCursor(setupWrappedCursor(new Object[][]{
+                new Object[]{"false", 20, 1L},
+                new Object[]{"true", 10, 2L},
+                new Object[]{"true", 30, 0L}
+        }), 1, 2);
+
+        subject = new ActionListAdapterCursorWrapper(cursor, null);
+
+        subject.moveToPosition(1);
+        assertThat(((CursorWrapper) cursor).getWrappedCursor().getPosition()).isEqualTo(1);
+        assertThat(subject.getMappedPosition(0)).isEqualTo(20);
+        assertThat(subject.getMappedPosition(2)).isEqualTo(30);
+    }
+
+    @Test
+    public void withPagingCursor_shouldReadBoundariesWithoutLoadingLaterPages() throws Exception {
+        PagingCursor.PageLoader pageLoader = mock(PagingCursor.PageLoader.class);
+        cursor = new PagingCursor(new PartitionedCursor(setupWrappedCursor(new Object[][]{
+                new Object[]{"false", 20, 1L}
+        }), 1, 2), 1, pageLoader);
+
+        subject = new ActionListAdapterCursorWrapper(cursor, null);
+
+        assertThat(subject.getCount()).isEqualTo(3);
+        assertThat(subject.getFirstCompletedPosition()).isEqualTo(1);
+        verifyZeroInteractions(pageLoader);
+    }
+
+    @Test
+    public void withPartitionCounts_andNotebookFilter_shouldFallBackToScanning() throws Exception {
+        cursor = new PartitionedCursor(setupWrappedCursor(new Object[][]{
+                new Object[]{"false", 20, 1L},
+                new Object[]{"true", 10, 2L},
+                new Object[]{"true", 30, 2L}
+        }), 1, 2);
+
+        subject = new ActionListAdapterCursorWrapper(cursor, 2L);
+
+        assertThat(subject.getCount()).isEqualTo(2);
+    }
+
+    private Bundle partitionExtras(int incompleteCount, int completedCount) {
+        Bundle extras = new Bundle();
+        extras.putInt(Action.EXTRA_INCOMPLETE_COUNT, incompleteCount);
+        extras.putInt(Action.EXTRA_COMPLETED_COUNT, completedCount);
+        return extras;
+    }
+
     private Cursor setupWrappedCursor(Object[][] rows) {
         MatrixCursor cursor = new MatrixCursor(new String[]{
                 Action.COLUMN_NAME_COMPLETED,
@@ -2,6 +2,7 @@ package gov.sparrow.adapter;
 
 import android.content.ClipData;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.TextView;
@@ -20,11 +21,16 @@ import gov.sparrow.R;
 import gov.sparrow.SparrowTestRunner;
 import gov.sparrow.TestSparrowApplication;
 import gov.sparrow.contracts.NoteContract;
+import gov.sparrow.database.CountedCursor;
+import gov.sparrow.database.PagingCursor;
 import gov.sparrow.listeners.NoteTouchListenerFactory;
 import gov.sparrow.util.TimeUtil;
 
 import static org.fest.assertions.api.ANDROID.assertThat;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -47,7 +53,7 @@ public class NoteListAdapterTest {
 
         when(cursor.getColumnIndexOrThrow(NoteContract.Note._ID)).thenReturn(6363);
         when(cursor.getColumnIndexOrThrow(NoteContract.Note.COLUMN_NAME_TITLE)).thenReturn(4343);
-        when(cursor.getColumnIndexOrThrow(NoteContract.Note.COLUMN_NAME_BODY)).thenReturn(2342);
+        when(cursor.getColumnIndexOrThrow(NoteContract.Note.COLUMN_NAME_PREVIEW)).thenReturn(2342);
         when(cursor.getColumnIndexOrThrow(NoteContract.Note.ALIAS_NAME_NOTEBOOK_TITLE)).thenReturn(3333);
         when(cursor.getColumnIndex(NoteContract.Note.COLUMN_NAME_CREATED_AT)).thenReturn(1212);
         when(cursor.getLong(6363)).thenReturn(343L);
@@ -59,6 +65,22 @@ public class NoteListAdapterTest {
         subject = new NoteListAdapter(null, cursor, 0, timeUtil, noteTouchListenerFactory);
     }
 
+    @Test
+    public void getItem_pastLoadedPage_shouldLoadNextPage() throws Exception {
+        MatrixCursor firstPage = new MatrixCursor(new String[]{NoteContract.Note._ID});
+        firstPage.addRow(new Object[]{1L});
+        MatrixCursor secondPage = new MatrixCursor(new String[]{NoteContract.Note._ID});
+        secondPage.addRow(new Object[]{2L});
+        PagingCursor.PageLoader pageLoader = mock(PagingCursor.PageLoader.class);
+        when(pageLoader.loadPage(any(Cursor.class))).thenReturn(secondPage);
+
+        subject = new NoteListAdapter(null, new PagingCursor(new CountedCursor(firstPage, 2), 1, pageLoader), 0, timeUtil, noteTouchListenerFactory);
+
+        assertThat(subject.getCount()).isEqualTo(2);
+        assertThat(subject.getItemId(1)).isEqualTo(2L);
+        verify(pageLoader).loadPage(any(Cursor.class));
+    }
+
     @Test
     public void bindView() {
         View view = LayoutInflater.from(RuntimeEnvironment.application).inflate(R.layout.note_list_item, null, false);
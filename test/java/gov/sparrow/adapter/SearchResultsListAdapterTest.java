@@ -2,7 +2,10 @@ package gov.sparrow.adapter;
 
 import android.database.Cursor;
 import android.graphics.Paint;
+import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.TextView;
@@ -225,4 +228,46 @@ public class SearchResultsListAdapterTest {
         assertThat(actionBody).isGone();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void bindView_whenRankedResultHasSnippet_shouldHighlightOffsetsInBody() throws Exception {
+        View view = LayoutInflater.from(RuntimeEnvironment.application).
+                inflate(R.layout.search_list_item, null, false);
+
+        when(cursor.getColumnIndex(SearchContract.SearchableColumns.SHARED_COLUMN_NAME_SNIPPET)).thenReturn(6161);
+        when(cursor.getColumnIndex(SearchContract.SearchableColumns.SHARED_COLUMN_NAME_HIGHLIGHTS)).thenReturn(6262);
+        when(cursor.getString(8766)).thenReturn(NoteContract.SearchableNotes.TABLE_NAME);
+        when(cursor.getString(2342)).thenReturn("preview");
+        when(cursor.getString(6161)).thenReturn("\u2026a test of the tests\u2026");
+        when(cursor.getString(6262)).thenReturn("3,7,15,20");
+
+        subject.bindView(view, RuntimeEnvironment.application, cursor);
+
+        TextView body = (TextView) view.findViewById(R.id.search_list_item_body);
+        assertThat(body).hasText("\u2026a test of the tests\u2026");
+
+        Spanned text = (Spanned) body.getText();
+        StyleSpan[] spans = text.getSpans(0, text.length(), StyleSpan.class);
+        Assertions.assertThat(spans).hasSize(2);
+        Assertions.assertThat(spans[0].getStyle()).isEqualTo(Typeface.BOLD);
+        Assertions.assertThat(text.getSpanStart(spans[0])).isEqualTo(3);
+        Assertions.assertThat(text.getSpanEnd(spans[0])).isEqualTo(7);
+        Assertions.assertThat(text.getSpanStart(spans[1])).isEqualTo(15);
+        Assertions.assertThat(text.getSpanEnd(spans[1])).isEqualTo(20);
+    }
+
+    @Test
+    public void bindView_whenResultHasNoSnippet_shouldShowPlainBody() throws Exception {
+        View view = LayoutInflater.from(RuntimeEnvironment.application).
+                inflate(R.layout.search_list_item, null, false);
+
+        when(cursor.getColumnIndex(SearchContract.SearchableColumns.SHARED_COLUMN_NAME_SNIPPET)).thenReturn(-1);
+        when(cursor.getString(8766)).thenReturn(NoteContract.SearchableNotes.TABLE_NAME);
+        when(cursor.getString(2342)).thenReturn("preview");
+
+        subject.bindView(view, RuntimeEnvironment.application, cursor);
+
+        TextView body = (TextView) view.findViewById(R.id.search_list_item_body);
+        assertThat(body).hasText("preview");
+    }
+
+}
@@ -9,6 +9,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.*;
 
 @RunWith(SparrowTestRunner.class)
 public class SortableCursorWrapperTest {
@@ -159,6 +161,98 @@ public class SortableCursorWrapperTest {
         assertThat(subject.getMappedPosition(1)).isEqualTo(22);
     }
 
+    @Test
+    public void constructor_shouldNotReadRows() throws Exception {
+        Cursor wrapped = mock(Cursor.class);
+
+        subject = new TestSortableCursorWrapper(wrapped);
+
+        verify(wrapped, never()).moveToNext();
+        verify(wrapped, never()).moveToPosition(anyInt());
+        verify(wrapped, never()).getInt(anyInt());
+    }
+
+    @Test
+    public void buildIndex_shouldReadEachRowOnce() throws Exception {
+        Cursor wrapped = spy(setupWrappedCursor(new Object[][]{
+                new Object[]{22},
+                new Object[]{10},
+                new Object[]{31}
+        }));
+        subject = new TestSortableCursorWrapper(wrapped);
+
+        subject.buildIndex();
+        subject.buildIndex();
+        subject.moveToFirst();
+
+        verify(wrapped, times(3)).getInt(anyInt());
+    }
+
+    @Test
+    public void isIndexed_shouldReportWhetherIndexWasBuilt() throws Exception {
+        assertThat(subject.isIndexed()).isFalse();
+
+        subject.buildIndex();
+
+        assertThat(subject.isIndexed()).isTrue();
+    }
+
+    @Test
+    public void buildIndex_whenRowsAreAlreadyInPositionOrder_shouldMapRowsDirectly() throws Exception {
+        cursor = setupWrappedCursor(new Object[][]{
+                new Object[]{10},
+                new Object[]{22},
+                new Object[]{31}
+        });
+        subject = new TestSortableCursorWrapper(cursor);
+
+        subject.buildIndex();
+
+        assertThat(subject.isPresorted()).isTrue();
+        subject.moveToPosition(1);
+        assertThat(cursor.getPosition()).isEqualTo(1);
+        assertThat(subject.getMappedPosition(2)).isEqualTo(31);
+    }
+
+    @Test
+    public void buildIndex_whenRowsAreOutOfOrder_shouldNotReportPresorted() throws Exception {
+        subject.buildIndex();
+
+        assertThat(subject.isPresorted()).isFalse();
+    }
+
+    @Test
+    public void moveToPosition_withNegativeAndDuplicateRanks_ordersByRankThenRow() throws Exception {
+        cursor = setupWrappedCursor(new Object[][]{
+                new Object[]{5},
+                new Object[]{-65536},
+                new Object[]{5},
+                new Object[]{0}
+        });
+        subject = new TestSortableCursorWrapper(cursor);
+
+        subject.moveToPosition(0);
+        assertThat(cursor.getPosition()).isEqualTo(1);
+        subject.moveToPosition(1);
+        assertThat(cursor.getPosition()).isEqualTo(3);
+        subject.moveToPosition(2);
+        assertThat(cursor.getPosition()).isEqualTo(0);
+        subject.moveToPosition(3);
+        assertThat(cursor.getPosition()).isEqualTo(2);
+
+        assertThat(subject.getMappedPosition(0)).isEqualTo(-65536);
+    }
+
+    @Test
+    public void getCount_whenIndexNotBuilt_shouldNotReadRows() throws Exception {
+        Cursor wrapped = mock(Cursor.class);
+        when(wrapped.getCount()).thenReturn(3);
+        subject = new TestSortableCursorWrapper(wrapped);
+
+        assertThat(subject.getCount()).isEqualTo(3);
+        verify(wrapped, never()).getInt(anyInt());
+    }
+
     private Cursor setupWrappedCursor(Object[][] rows) {
         MatrixCursor cursor = new MatrixCursor(new String[]{TestSortableCursorWrapper.COLUMN_NAME_POSITION});
         for (Object[] row : rows) {
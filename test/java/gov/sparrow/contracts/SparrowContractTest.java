@@ -2,6 +2,10 @@ package gov.sparrow.contracts;
 
 import android.net.Uri;
 import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -17,4 +21,51 @@ public class SparrowContractTest {
         assertThat(uri.toString()).isEqualTo("content://gov.sparrow.provider.SparrowProvider/notes");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void pageUri_addsPageSizeAndKeysetAnchor() {
+        Uri uri = Note.PAGE_URI(50, "2016-04-20 16:03:04.159", 7L);
+
+        assertThat(uri.getPath()).isEqualTo(Note.CONTENT_URI.getPath());
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_LIMIT)).isEqualTo("50");
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR)).isEqualTo("2016-04-20 16:03:04.159");
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR_ID)).isEqualTo("7");
+    }
+
+    @Test
+    public void actionPageUri_addsPartitionToKeysetAnchor() {
+        Uri uri = Action.PAGE_URI(50, "false", 12, 7L);
+
+        assertThat(uri.getPath()).isEqualTo(Action.CONTENT_URI.getPath());
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_LIMIT)).isEqualTo("50");
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR_PARTITION)).isEqualTo("false");
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR)).isEqualTo("12");
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR_ID)).isEqualTo("7");
+    }
+
+    @Test
+    public void pageUri_withoutAnchor_addsPageSizeOnly() {
+        Uri uri = Action.PAGE_URI(50);
+
+        assertThat(uri.getPath()).isEqualTo(Action.CONTENT_URI.getPath());
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_LIMIT)).isEqualTo("50");
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR_PARTITION)).isNull();
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR)).isNull();
+        assertThat(uri.getQueryParameter(SparrowContract.QUERY_PARAMETER_ANCHOR_ID)).isNull();
+    }
+
+    @Test
+    public void listPositionBatchUris_shouldBeNestedUnderListPositionUris() throws Exception {
+        assertThat(ActionListPosition.MOVE_URI.toString()).isEqualTo(ActionListPosition.CONTENT_URI + "/move");
+        assertThat(ActionListPosition.ORDER_URI.toString()).isEqualTo(ActionListPosition.CONTENT_URI + "/order");
+        assertThat(NotebookListPosition.MOVE_URI.toString()).isEqualTo(NotebookListPosition.CONTENT_URI + "/move");
+        assertThat(NotebookListPosition.ORDER_URI.toString()).isEqualTo(NotebookListPosition.CONTENT_URI + "/order");
+    }
+
+    @Test
+    public void fuzzySearchUri_shouldBeSearchableUriInFuzzyMode() throws Exception {
+        Uri uri = SearchContract.Searchable.FUZZY_CONTENT_URI;
+
+        assertThat(uri.getPath()).isEqualTo(SearchContract.Searchable.CONTENT_URI.getPath());
+        assertThat(uri.getQueryParameter(SearchContract.Searchable.PARAM_MODE)).isEqualTo(SearchContract.Searchable.MODE_FUZZY);
+    }
+}
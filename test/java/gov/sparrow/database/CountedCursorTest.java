@@ -0,0 +1,45 @@
+package gov.sparrow.database;
+
+import android.database.MatrixCursor;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.SparrowContract;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class CountedCursorTest {
+
+    private MatrixCursor wrapped;
+    private CountedCursor subject;
+
+    @Before
+    public void setUp() throws Exception {
+        wrapped = new MatrixCursor(new String[]{Note._ID});
+        wrapped.addRow(new Object[]{1L});
+        subject = new CountedCursor(wrapped, 120);
+    }
+
+    @Test
+    public void getExtras_shouldReturnTotalCount() throws Exception {
+        assertThat(subject.getExtras().getInt(SparrowContract.EXTRA_TOTAL_COUNT)).isEqualTo(120);
+    }
+
+    @Test
+    public void rows_shouldComeFromWrappedCursor() throws Exception {
+        assertThat(subject.getCount()).isEqualTo(1);
+        assertThat(subject.moveToFirst()).isTrue();
+        assertThat(subject.getLong(0)).isEqualTo(1L);
+    }
+
+    @Test
+    public void close_shouldCloseWrappedCursor() throws Exception {
+        subject.close();
+
+        assertThat(wrapped.isClosed()).isTrue();
+    }
+
+}
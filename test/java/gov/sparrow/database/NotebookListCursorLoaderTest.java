@@ -0,0 +1,80 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.adapter.NotebookListAdapterCursorWrapper;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
+import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.provider.SparrowProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class NotebookListCursorLoaderTest {
+
+    private static final String[] PROJECTION = new String[]{Notebook._ID, NotebookListPosition.COLUMN_NAME_POSITION};
+
+    @Mock SparrowProvider contentProvider;
+    private NotebookListCursorLoader subject;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        ShadowContentResolver.registerProvider(SparrowContract.SPARROW_CONTENT_AUTHORITY, contentProvider);
+        subject = new NotebookListCursorLoader(RuntimeEnvironment.application, PROJECTION, "selection", new String[]{"args"});
+    }
+
+    @Test
+    public void constructor_shouldQueryNotebooksInListPositionOrder() throws Exception {
+        assertThat(subject.getUri()).isEqualTo(Notebook.CONTENT_URI);
+        assertThat(subject.getProjection()).isEqualTo(PROJECTION);
+        assertThat(subject.getSortOrder()).isEqualTo(NotebookListPosition.COLUMN_NAME_POSITION + " ASC");
+    }
+
+    @Test
+    public void loadInBackground_shouldHandAdapterAnIndexedCursor() throws Exception {
+        MatrixCursor cursor = new MatrixCursor(PROJECTION);
+        cursor.addRow(new Object[]{1L, 20});
+        cursor.addRow(new Object[]{2L, 10});
+        setupQuery(Notebook.CONTENT_URI, cursor);
+
+        Cursor loaded = subject.loadInBackground();
+
+        assertThat(loaded).isInstanceOf(NotebookListAdapterCursorWrapper.class);
+        NotebookListAdapterCursorWrapper notebooks = (NotebookListAdapterCursorWrapper) loaded;
+        assertThat(notebooks.isIndexed()).isTrue();
+        assertThat(notebooks.getMappedPosition(0)).isEqualTo(10);
+        assertThat(notebooks.moveToFirst()).isTrue();
+        assertThat(notebooks.getLong(0)).isEqualTo(2L);
+    }
+
+    @Test
+    public void loadInBackground_whenQueryReturnsNull_shouldReturnNull() throws Exception {
+        setupQuery(Notebook.CONTENT_URI, null);
+
+        assertThat(subject.loadInBackground()).isNull();
+    }
+
+    private void setupQuery(Uri uri, Cursor cursor) {
+        when(contentProvider.query(eq(uri), any(String[].class), anyString(), any(String[].class), anyString()))
+                .thenReturn(cursor);
+        when(contentProvider.query(eq(uri), any(String[].class), anyString(), any(String[].class), anyString(), any(CancellationSignal.class)))
+                .thenReturn(cursor);
+    }
+
+}
@@ -0,0 +1,180 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.adapter.ActionListAdapterCursorWrapper;
+import gov.sparrow.adapter.helpers.SortableCursorWrapper;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.ActionContract.ActionListPosition;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.provider.SparrowProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class PagingCursorLoaderTest {
+
+    private static final int PAGE_SIZE = 2;
+    private static final String[] PROJECTION = new String[]{"projection"};
+    private static final String SELECTION = "selection";
+    private static final String[] SELECTION_ARGS = new String[]{"args"};
+
+    @Mock SparrowProvider contentProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        ShadowContentResolver.registerProvider(SparrowContract.SPARROW_CONTENT_AUTHORITY, contentProvider);
+    }
+
+    @Test
+    public void forNotes_shouldLoadFirstPageIntoPagingCursor() throws Exception {
+        setupPage(Note.PAGE_URI(PAGE_SIZE), notePage(new Object[][]{
+                new Object[]{1L, "updated 1"},
+                new Object[]{2L, "updated 2"}
+        }));
+
+        PagingCursorLoader loader = PagingCursorLoader.forNotes(
+                RuntimeEnvironment.application, PROJECTION, SELECTION, SELECTION_ARGS, PAGE_SIZE);
+        Cursor cursor = loader.loadInBackground();
+
+        assertThat(loader.getUri()).isEqualTo(Note.PAGE_URI(PAGE_SIZE));
+        assertThat(cursor).isInstanceOf(PagingCursor.class);
+        assertThat(cursor.moveToPosition(1)).isTrue();
+    }
+
+    @Test
+    public void forNotes_shouldAnchorNextPageOnLastRow() throws Exception {
+        setupPage(Note.PAGE_URI(PAGE_SIZE), notePage(new Object[][]{
+                new Object[]{1L, "updated 1"},
+                new Object[]{2L, "updated 2"}
+        }));
+        Uri nextPageUri = Note.PAGE_URI(PAGE_SIZE, "updated 2", 2L);
+        setupPage(nextPageUri, notePage(new Object[][]{
+                new Object[]{3L, "updated 3"}
+        }));
+
+        Cursor cursor = PagingCursorLoader.forNotes(
+                RuntimeEnvironment.application, PROJECTION, SELECTION, SELECTION_ARGS, PAGE_SIZE).loadInBackground();
+
+        assertThat(cursor.moveToPosition(2)).isTrue();
+        assertThat(cursor.getLong(cursor.getColumnIndexOrThrow(Note._ID))).isEqualTo(3L);
+        verify(contentProvider).query(nextPageUri, PROJECTION, SELECTION, SELECTION_ARGS, null);
+    }
+
+    @Test
+    public void forActions_shouldAnchorNextPageOnPartitionPositionAndId() throws Exception {
+        setupPage(Action.PAGE_URI(PAGE_SIZE), partitioned(actionPage(new Object[][]{
+                new Object[]{1L, "false", 10},
+                new Object[]{2L, "false", 20}
+        }), 2, 1));
+        Uri nextPageUri = Action.PAGE_URI(PAGE_SIZE, "false", 20, 2L);
+        setupPage(nextPageUri, actionPage(new Object[][]{
+                new Object[]{3L, "true", 5}
+        }));
+
+        PagingCursorLoader loader = PagingCursorLoader.forActions(
+                RuntimeEnvironment.application, PROJECTION, SELECTION, SELECTION_ARGS, PAGE_SIZE);
+        Cursor cursor = loader.loadInBackground();
+
+        assertThat(loader.getSortOrder()).isEqualTo(Action.PARTITIONED_SORT_ORDER);
+        assertThat(cursor.moveToPosition(2)).isTrue();
+        assertThat(cursor.getLong(cursor.getColumnIndexOrThrow(Action._ID))).isEqualTo(3L);
+        verify(contentProvider).query(nextPageUri, PROJECTION, SELECTION, SELECTION_ARGS, Action.PARTITIONED_SORT_ORDER);
+    }
+
+    @Test
+    public void forActions_shouldHandAdapterAnIndexedListWithoutLoadingLaterPages() throws Exception {
+        setupPage(Action.PAGE_URI(PAGE_SIZE), partitioned(actionPage(new Object[][]{
+                new Object[]{1L, "false", 10},
+                new Object[]{2L, "true", 5}
+        }), 1, 2));
+
+        Cursor cursor = PagingCursorLoader.forActions(
+                RuntimeEnvironment.application, PROJECTION, SELECTION, SELECTION_ARGS, PAGE_SIZE).loadInBackground();
+
+        assertThat(cursor).isInstanceOf(ActionListAdapterCursorWrapper.class);
+        assertThat(((SortableCursorWrapper) cursor).isIndexed()).isTrue();
+        assertThat(cursor.getCount()).isEqualTo(3);
+        verify(contentProvider, never()).query(eq(Action.PAGE_URI(PAGE_SIZE, "true", 5, 2L)),
+                any(String[].class), anyString(), any(String[].class), anyString());
+    }
+
+    @Test
+    public void forActions_withNotebook_shouldIndexEveryPageInBackground() throws Exception {
+        setupPage(Action.PAGE_URI(PAGE_SIZE), actionPage(new Object[][]{
+                new Object[]{1L, "false", 30, 7L},
+                new Object[]{2L, "false", 20, 8L}
+        }));
+        Uri nextPageUri = Action.PAGE_URI(PAGE_SIZE, "false", 20, 2L);
+        setupPage(nextPageUri, actionPage(new Object[][]{
+                new Object[]{3L, "false", 10, 7L}
+        }));
+
+        Cursor cursor = PagingCursorLoader.forActions(
+                RuntimeEnvironment.application, PROJECTION, SELECTION, SELECTION_ARGS, PAGE_SIZE, 7L).loadInBackground();
+
+        assertThat(cursor).isInstanceOf(ActionListAdapterCursorWrapper.class);
+        assertThat(((SortableCursorWrapper) cursor).isIndexed()).isTrue();
+        verify(contentProvider).query(nextPageUri, PROJECTION, SELECTION, SELECTION_ARGS, Action.PARTITIONED_SORT_ORDER);
+
+        assertThat(cursor.getCount()).isEqualTo(2);
+        assertThat(cursor.moveToFirst()).isTrue();
+        assertThat(cursor.getLong(cursor.getColumnIndexOrThrow(Action._ID))).isEqualTo(3L);
+        assertThat(cursor.moveToNext()).isTrue();
+        assertThat(cursor.getLong(cursor.getColumnIndexOrThrow(Action._ID))).isEqualTo(1L);
+    }
+
+    private void setupPage(Uri uri, Cursor page) {
+        when(contentProvider.query(eq(uri), any(String[].class), anyString(), any(String[].class), anyString()))
+                .thenReturn(page);
+        when(contentProvider.query(eq(uri), any(String[].class), anyString(), any(String[].class), anyString(), any(CancellationSignal.class)))
+                .thenReturn(page);
+    }
+
+    private Cursor notePage(Object[][] rows) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{Note._ID, Note.COLUMN_NAME_UPDATED_AT});
+        for (Object[] row : rows) {
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+    private Cursor partitioned(MatrixCursor page, int incomplete, int completed) {
+        Bundle extras = new Bundle();
+        extras.putInt(Action.EXTRA_INCOMPLETE_COUNT, incomplete);
+        extras.putInt(Action.EXTRA_COMPLETED_COUNT, completed);
+        extras.putInt(SparrowContract.EXTRA_TOTAL_COUNT, incomplete + completed);
+        page.setExtras(extras);
+        return page;
+    }
+
+    private MatrixCursor actionPage(Object[][] rows) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{
+                Action._ID, Action.COLUMN_NAME_COMPLETED, ActionListPosition.COLUMN_NAME_POSITION, Note.COLUMN_NAME_NOTEBOOK_ID
+        });
+        for (Object[] row : rows) {
+            cursor.addRow(row.length == 4 ? row : new Object[]{row[0], row[1], row[2], null});
+        }
+        return cursor;
+    }
+
+}
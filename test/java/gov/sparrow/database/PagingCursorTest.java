@@ -0,0 +1,142 @@
+package gov.sparrow.database;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.SparrowContract;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class PagingCursorTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @Mock PagingCursor.PageLoader pageLoader;
+    private Cursor firstPage;
+    private Cursor secondPage;
+    private Cursor thirdPage;
+    private PagingCursor subject;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+
+        firstPage = new CountedCursor(setupPage(new Object[][]{
+                new Object[]{1L, "title 1"},
+                new Object[]{2L, "title 2"}
+        }), 5);
+        secondPage = setupPage(new Object[][]{
+                new Object[]{3L, "title 3"},
+                new Object[]{4L, "title 4"}
+        });
+        thirdPage = setupPage(new Object[][]{
+                new Object[]{5L, "title 5"}
+        });
+
+        when(pageLoader.loadPage(firstPage)).thenReturn(secondPage);
+        when(pageLoader.loadPage(secondPage)).thenReturn(thirdPage);
+
+        subject = new PagingCursor(firstPage, PAGE_SIZE, pageLoader);
+    }
+
+    @Test
+    public void getCount_shouldReportTotalFromFirstPage_beforeLaterPagesLoad() throws Exception {
+        assertThat(subject.getCount()).isEqualTo(5);
+
+        verifyZeroInteractions(pageLoader);
+    }
+
+    @Test
+    public void getExtras_shouldComeFromFirstPage() throws Exception {
+        assertThat(subject.getExtras().getInt(SparrowContract.EXTRA_TOTAL_COUNT)).isEqualTo(5);
+    }
+
+    @Test
+    public void moveToPosition_withinLoadedPages_shouldNotLoadNextPage() throws Exception {
+        assertThat(subject.moveToPosition(1)).isTrue();
+        assertThat(subject.getLong(subject.getColumnIndexOrThrow(Note._ID))).isEqualTo(2L);
+
+        verifyZeroInteractions(pageLoader);
+    }
+
+    @Test
+    public void moveToPosition_pastLoadedPages_shouldLoadNextPageAfterLastRow() throws Exception {
+        assertThat(subject.moveToPosition(2)).isTrue();
+        assertThat(subject.getLong(subject.getColumnIndexOrThrow(Note._ID))).isEqualTo(3L);
+        assertThat(subject.getString(subject.getColumnIndexOrThrow(Note.COLUMN_NAME_TITLE))).isEqualTo("title 3");
+
+        verify(pageLoader).loadPage(firstPage);
+        verify(pageLoader, never()).loadPage(secondPage);
+    }
+
+    @Test
+    public void moveToPosition_severalPagesAhead_shouldLoadEachPageInOrder() throws Exception {
+        assertThat(subject.moveToPosition(4)).isTrue();
+        assertThat(subject.getLong(subject.getColumnIndexOrThrow(Note._ID))).isEqualTo(5L);
+
+        verify(pageLoader).loadPage(firstPage);
+        verify(pageLoader).loadPage(secondPage);
+    }
+
+    @Test
+    public void moveToPosition_afterShortPage_shouldNotLoadAgain() throws Exception {
+        subject.moveToPosition(4);
+
+        assertThat(subject.moveToPosition(5)).isFalse();
+        assertThat(subject.hasMorePages()).isFalse();
+
+        verify(pageLoader, times(2)).loadPage(any(Cursor.class));
+    }
+
+    @Test
+    public void getCount_whenPagesRunOutBeforeTotal_shouldShrinkToLoadedRows() throws Exception {
+        when(pageLoader.loadPage(secondPage)).thenReturn(setupPage(new Object[][]{}));
+
+        assertThat(subject.moveToPosition(4)).isFalse();
+
+        assertThat(subject.getCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void getCount_whenFirstPageHasNoTotal_shouldReportLoadedRows() throws Exception {
+        Cursor uncounted = setupPage(new Object[][]{
+                new Object[]{1L, "title 1"},
+                new Object[]{2L, "title 2"}
+        });
+        when(pageLoader.loadPage(uncounted)).thenReturn(thirdPage);
+        subject = new PagingCursor(uncounted, PAGE_SIZE, pageLoader);
+
+        assertThat(subject.getCount()).isEqualTo(2);
+
+        subject.moveToPosition(2);
+        assertThat(subject.getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void close_shouldCloseEveryLoadedPage() throws Exception {
+        subject.moveToPosition(2);
+
+        subject.close();
+
+        assertThat(firstPage.isClosed()).isTrue();
+        assertThat(secondPage.isClosed()).isTrue();
+    }
+
+    private Cursor setupPage(Object[][] rows) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{Note._ID, Note.COLUMN_NAME_TITLE});
+        for (Object[] row : rows) {
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+}
@@ -0,0 +1,51 @@
+package gov.sparrow.database;
+
+import android.database.MatrixCursor;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.SparrowContract;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class PartitionedCursorTest {
+
+    private MatrixCursor wrapped;
+    private PartitionedCursor subject;
+
+    @Before
+    public void setUp() throws Exception {
+        wrapped = new MatrixCursor(new String[]{Action._ID});
+        wrapped.addRow(new Object[]{1L});
+        subject = new PartitionedCursor(wrapped, 4, 6);
+    }
+
+    @Test
+    public void getExtras_shouldReturnPartitionCounts() throws Exception {
+        assertThat(subject.getExtras().getInt(Action.EXTRA_INCOMPLETE_COUNT)).isEqualTo(4);
+        assertThat(subject.getExtras().getInt(Action.EXTRA_COMPLETED_COUNT)).isEqualTo(6);
+    }
+
+    @Test
+    public void getExtras_shouldReturnTotalCountForPaging() throws Exception {
+        assertThat(subject.getExtras().getInt(SparrowContract.EXTRA_TOTAL_COUNT)).isEqualTo(10);
+    }
+
+    @Test
+    public void rows_shouldComeFromWrappedCursor() throws Exception {
+        assertThat(subject.getCount()).isEqualTo(1);
+        assertThat(subject.moveToFirst()).isTrue();
+        assertThat(subject.getLong(0)).isEqualTo(1L);
+    }
+
+    @Test
+    public void close_shouldCloseWrappedCursor() throws Exception {
+        subject.close();
+
+        assertThat(wrapped.isClosed()).isTrue();
+    }
+
+}
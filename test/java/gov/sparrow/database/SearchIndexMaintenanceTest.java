@@ -0,0 +1,86 @@
+package gov.sparrow.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class SearchIndexMaintenanceTest {
+
+    private static final String MERGE_NOTES_SQL = SearchIndexMaintenance.mergeSql("searchable_notes");
+    private static final String MERGE_ACTIONS_SQL = SearchIndexMaintenance.mergeSql("searchable_actions");
+
+    @Mock SQLiteDatabase db;
+    @Mock SQLiteStatement totalChanges;
+    private SearchIndexMaintenance subject;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        when(db.compileStatement(SearchIndexMaintenance.TOTAL_CHANGES_SQL)).thenReturn(totalChanges);
+        subject = new SearchIndexMaintenance();
+    }
+
+    @Test
+    public void mergeSql_shouldRequestBoundedIncrementalMerge() throws Exception {
+        assertThat(MERGE_NOTES_SQL).isEqualTo(
+                "INSERT INTO searchable_notes(searchable_notes) VALUES('merge=" +
+                        SearchIndexMaintenance.MERGE_PAGES + "," + SearchIndexMaintenance.MERGE_MIN_SEGMENTS + "');");
+    }
+
+    @Test
+    public void merge_shouldStepEachTableUntilMergeStopsWriting() throws Exception {
+        when(totalChanges.simpleQueryForLong()).thenReturn(
+                0L, 40L,
+                40L, 41L,
+                41L, 42L);
+
+        int steps = subject.merge(db, 10);
+        assertThat(steps).isEqualTo(3);
+
+        InOrder inOrder = inOrder(db, totalChanges);
+        inOrder.verify(db, times(2)).execSQL(MERGE_NOTES_SQL);
+        inOrder.verify(db, times(1)).execSQL(MERGE_ACTIONS_SQL);
+        inOrder.verify(totalChanges).close();
+    }
+
+    @Test
+    public void merge_shouldStopAtStepBudget() throws Exception {
+        when(totalChanges.simpleQueryForLong()).thenReturn(0L, 100L, 200L, 300L, 400L, 500L);
+
+        int steps = subject.merge(db, 2);
+        assertThat(steps).isEqualTo(2);
+
+        verify(db, times(2)).execSQL(MERGE_NOTES_SQL);
+        verify(db, never()).execSQL(MERGE_ACTIONS_SQL);
+    }
+
+    @Test
+    public void merge_shouldRunEachStepOutsideAnExplicitTransaction() throws Exception {
+        when(totalChanges.simpleQueryForLong()).thenReturn(0L, 0L);
+
+        subject.merge(db, 10);
+
+        verify(db, never()).beginTransaction();
+    }
+
+    @Test
+    public void optimize_shouldOptimizeBothTables() throws Exception {
+        subject.optimize(db);
+
+        verify(db).execSQL("INSERT INTO searchable_notes(searchable_notes) VALUES('optimize');");
+        verify(db).execSQL("INSERT INTO searchable_actions(searchable_actions) VALUES('optimize');");
+        verify(db, times(2)).execSQL(anyString());
+    }
+
+}
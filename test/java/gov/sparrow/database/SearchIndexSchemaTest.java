@@ -0,0 +1,203 @@
+package gov.sparrow.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NoteContract.NoteChunk;
+import gov.sparrow.database.SearchIndexSchema.Tokenizer;
+import gov.sparrow.provider.SqliteFeatures;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class SearchIndexSchemaTest {
+
+    @Mock SQLiteDatabase db;
+    @Mock SqliteFeatures sqliteFeatures;
+    private SearchIndexSchema subject;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        when(sqliteFeatures.supportsUnicodeTokenizer(db)).thenReturn(true);
+        subject = new SearchIndexSchema(sqliteFeatures);
+    }
+
+    @Test
+    public void defaultTokenizer_isUnicodeAware() throws Exception {
+        assertThat(SearchIndexSchema.DEFAULT_TOKENIZER).isEqualTo(Tokenizer.UNICODE61);
+    }
+
+    @Test
+    public void createNotesSql_shouldReadContentFromNoteContentView() throws Exception {
+        assertThat(SearchIndexSchema.createNotesSql(Tokenizer.UNICODE61)).isEqualTo(
+                "CREATE VIRTUAL TABLE searchable_notes USING fts4(" +
+                        "content=\"searchable_note_content\", title, body," +
+                        " tokenize=unicode61 \"remove_diacritics=1\", prefix=\"2,3\");");
+    }
+
+    @Test
+    public void createActionsSql_shouldReadContentFromActionsTable() throws Exception {
+        assertThat(SearchIndexSchema.createActionsSql(Tokenizer.PORTER)).isEqualTo(
+                "CREATE VIRTUAL TABLE searchable_actions USING fts4(" +
+                        "content=\"actions\", title, tokenize=porter, prefix=\"2,3\");");
+    }
+
+    @Test
+    public void noteContentView_shouldExposeReassembledBodiesByRowid() throws Exception {
+        assertThat(SearchIndexSchema.CREATE_NOTE_CONTENT_VIEW_SQL).isEqualTo(
+                "CREATE VIEW searchable_note_content AS" +
+                        " SELECT notes._id AS rowid, notes.title AS title, " + SearchIndexSchema.NOTE_BODY_COLUMN +
+                        " FROM notes;");
+    }
+
+    @Test
+    public void noteBodyColumn_shouldReassembleChunkedBodiesInsideSqlite() throws Exception {
+        assertThat(SearchIndexSchema.NOTE_BODY_COLUMN).isEqualTo(
+                "CASE WHEN " + Note.TABLE_NAME + "." + Note.COLUMN_NAME_CHUNKED + "='true'" +
+                        " THEN (SELECT group_concat(" + NoteChunk.COLUMN_NAME_TEXT + ", '') FROM" +
+                        " (SELECT " + NoteChunk.COLUMN_NAME_TEXT + " FROM " + NoteChunk.TABLE_NAME +
+                        " WHERE " + NoteChunk.COLUMN_NAME_NOTE_ID + "=" + Note.TABLE_NAME + "." + Note._ID +
+                        " ORDER BY " + NoteChunk.COLUMN_NAME_SEQUENCE + "))" +
+                        " ELSE " + Note.TABLE_NAME + "." + Note.COLUMN_NAME_BODY + " END AS " + Note.COLUMN_NAME_BODY);
+    }
+
+    @Test
+    public void noteTriggers_shouldUnindexBeforeAndReindexAfterEachWrite_unlessSuspended() throws Exception {
+        assertThat(SearchIndexSchema.NOTE_TRIGGERS).containsExactly(
+                "CREATE TRIGGER searchable_notes_bu BEFORE UPDATE OF title, body, chunked ON notes" +
+                        " WHEN old._id NOT IN (SELECT note_id FROM search_index_suspended) BEGIN" +
+                        " DELETE FROM searchable_notes WHERE docid=old._id; END;",
+                "CREATE TRIGGER searchable_notes_bd BEFORE DELETE ON notes BEGIN" +
+                        " DELETE FROM searchable_notes WHERE docid=old._id; END;",
+                "CREATE TRIGGER searchable_notes_au AFTER UPDATE OF title, body, chunked ON notes" +
+                        " WHEN new._id NOT IN (SELECT note_id FROM search_index_suspended) BEGIN" +
+                        " " + SearchIndexSchema.INDEX_NOTE_SQL.replace("?", "new._id") + " END;",
+                "CREATE TRIGGER searchable_notes_ai AFTER INSERT ON notes" +
+                        " WHEN new._id NOT IN (SELECT note_id FROM search_index_suspended) BEGIN" +
+                        " " + SearchIndexSchema.INDEX_NOTE_SQL.replace("?", "new._id") + " END;"
+        );
+    }
+
+    @Test
+    public void actionTriggers_shouldFollowActionTitle() throws Exception {
+        assertThat(SearchIndexSchema.ACTION_TRIGGERS).containsExactly(
+                "CREATE TRIGGER searchable_actions_bu BEFORE UPDATE OF title ON actions BEGIN" +
+                        " DELETE FROM searchable_actions WHERE docid=old._id; END;",
+                "CREATE TRIGGER searchable_actions_bd BEFORE DELETE ON actions BEGIN" +
+                        " DELETE FROM searchable_actions WHERE docid=old._id; END;",
+                "CREATE TRIGGER searchable_actions_au AFTER UPDATE OF title ON actions BEGIN" +
+                        " INSERT INTO searchable_actions(docid, title) VALUES(new._id, new.title); END;",
+                "CREATE TRIGGER searchable_actions_ai AFTER INSERT ON actions BEGIN" +
+                        " INSERT INTO searchable_actions(docid, title) VALUES(new._id, new.title); END;"
+        );
+    }
+
+    @Test
+    public void indexStatements_shouldMoveOneNoteInAndOutOfTheIndex() throws Exception {
+        assertThat(SearchIndexSchema.INDEX_NOTE_SQL).isEqualTo(
+                "INSERT INTO searchable_notes(docid, title, body)" +
+                        " SELECT rowid, title, body FROM searchable_note_content WHERE rowid=?;");
+        assertThat(SearchIndexSchema.UNINDEX_NOTE_SQL).isEqualTo(
+                "DELETE FROM searchable_notes WHERE docid=?;");
+        assertThat(SearchIndexSchema.SUSPEND_NOTE_SQL).isEqualTo(
+                "INSERT INTO search_index_suspended(note_id) VALUES(?);");
+        assertThat(SearchIndexSchema.RESUME_NOTE_SQL).isEqualTo(
+                "DELETE FROM search_index_suspended WHERE note_id=?;");
+    }
+
+    @Test
+    public void rebuild_shouldRecreateExternalContentTablesAndTriggersInOneTransaction() throws Exception {
+        subject.rebuild(db, Tokenizer.UNICODE61);
+
+        InOrder inOrder = inOrder(db);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(db).execSQL("DROP TRIGGER IF EXISTS searchable_notes_bu;");
+        inOrder.verify(db).execSQL("DROP TABLE IF EXISTS searchable_notes;");
+        inOrder.verify(db).execSQL("DROP VIEW IF EXISTS searchable_note_content;");
+        inOrder.verify(db).execSQL(SearchIndexSchema.CREATE_SUSPENDED_TABLE_SQL);
+        inOrder.verify(db).execSQL(SearchIndexSchema.CREATE_NOTE_CONTENT_VIEW_SQL);
+        inOrder.verify(db).execSQL(SearchIndexSchema.createNotesSql(Tokenizer.UNICODE61));
+        inOrder.verify(db).execSQL("INSERT INTO searchable_notes(searchable_notes) VALUES('rebuild');");
+        inOrder.verify(db).execSQL(SearchIndexSchema.NOTE_TRIGGERS[0]);
+        inOrder.verify(db).execSQL("DROP TABLE IF EXISTS searchable_actions;");
+        inOrder.verify(db).execSQL(SearchIndexSchema.createActionsSql(Tokenizer.UNICODE61));
+        inOrder.verify(db).execSQL("INSERT INTO searchable_actions(searchable_actions) VALUES('rebuild');");
+        inOrder.verify(db).execSQL(SearchIndexSchema.ACTION_TRIGGERS[0]);
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+
+        for (String trigger : SearchIndexSchema.NOTE_TRIGGERS) {
+            verify(db).execSQL(trigger);
+        }
+        for (String trigger : SearchIndexSchema.ACTION_TRIGGERS) {
+            verify(db).execSQL(trigger);
+        }
+    }
+
+    @Test
+    public void rebuild_shouldExposeIndexVocabularyThroughAuxTables() throws Exception {
+        subject.rebuild(db, Tokenizer.UNICODE61);
+
+        InOrder inOrder = inOrder(db);
+        inOrder.verify(db).execSQL("DROP TABLE IF EXISTS searchable_notes_terms;");
+        inOrder.verify(db).execSQL("DROP TABLE IF EXISTS searchable_notes;");
+        inOrder.verify(db).execSQL(SearchIndexSchema.createNotesSql(Tokenizer.UNICODE61));
+        inOrder.verify(db).execSQL("CREATE VIRTUAL TABLE searchable_notes_terms USING fts4aux(searchable_notes);");
+        verify(db).execSQL("CREATE VIRTUAL TABLE searchable_actions_terms USING fts4aux(searchable_actions);");
+    }
+
+    @Test
+    public void createSuspendedTableSql_shouldKeyByNoteId() throws Exception {
+        assertThat(SearchIndexSchema.CREATE_SUSPENDED_TABLE_SQL).isEqualTo(
+                "CREATE TABLE IF NOT EXISTS search_index_suspended(note_id INTEGER PRIMARY KEY);");
+    }
+
+    @Test
+    public void rebuild_whenUnicodeTokenizerIsUnavailable_fallsBackToSimple() throws Exception {
+        when(sqliteFeatures.supportsUnicodeTokenizer(db)).thenReturn(false);
+
+        subject.rebuild(db, Tokenizer.UNICODE61);
+
+        verify(db).execSQL(SearchIndexSchema.createNotesSql(Tokenizer.SIMPLE));
+        verify(db).execSQL(SearchIndexSchema.createActionsSql(Tokenizer.SIMPLE));
+        verify(db, never()).execSQL(SearchIndexSchema.createNotesSql(Tokenizer.UNICODE61));
+    }
+
+    @Test
+    public void rebuild_withPorterTokenizer_doesNotNeedUnicodeSupport() throws Exception {
+        when(sqliteFeatures.supportsUnicodeTokenizer(db)).thenReturn(false);
+
+        subject.rebuild(db, Tokenizer.PORTER);
+
+        verify(db).execSQL(SearchIndexSchema.createNotesSql(Tokenizer.PORTER));
+    }
+
+    @Test
+    public void rebuild_whenIndexingFails_shouldNotMarkTransactionSuccessful() throws Exception {
+        doThrow(new RuntimeException("boom")).when(db)
+                .execSQL("INSERT INTO searchable_notes(searchable_notes) VALUES('rebuild');");
+
+        try {
+            subject.rebuild(db, Tokenizer.UNICODE61);
+            Assert.fail();
+        } catch (RuntimeException expected) {
+            assertThat(expected).hasMessage("boom");
+        }
+
+        verify(db, never()).setTransactionSuccessful();
+        verify(db).endTransaction();
+        verify(db, never()).execSQL(SearchIndexSchema.createActionsSql(Tokenizer.UNICODE61));
+        verify(db, atLeastOnce()).execSQL(anyString());
+    }
+
+}
@@ -52,6 +52,22 @@ public class SparrowDatabaseBackupWriterTest {
             NoteContract.Note.COLUMN_NAME_UPDATED_AT
     };
 
+    private final String[] chunkedNotesColumnNames = new String[]{
+            NoteContract.Note._ID,
+            NoteContract.Note.COLUMN_NAME_TITLE,
+            NoteContract.Note.COLUMN_NAME_BODY,
+            NoteContract.Note.COLUMN_NAME_CHUNKED,
+            NoteContract.Note.COLUMN_NAME_NOTEBOOK_ID,
+            NoteContract.Note.COLUMN_NAME_ARCHIVED,
+            NoteContract.Note.COLUMN_NAME_CREATED_AT,
+            NoteContract.Note.COLUMN_NAME_UPDATED_AT
+    };
+
+    private final String[] noteChunkColumnNames = new String[]{
+            NoteContract.NoteChunk.COLUMN_NAME_NOTE_ID,
+            NoteContract.NoteChunk.COLUMN_NAME_TEXT
+    };
+
     private final String[] notebookColumnNames = new String[]{
             NotebookContract.Notebook._ID,
             NotebookContract.Notebook.COLUMN_NAME_TITLE,
@@ -110,6 +126,30 @@ public class SparrowDatabaseBackupWriterTest {
         assertThatFileContentsAreEqual(sparrowDirectoryPath + "/" + testFileName, FixtureReader.TEST_FIXTURES_PATH + "backup.json");
     }
 
+    @Test
+    public void writeBackupToFile_shouldStreamChunkedBodiesFromChunkRows() throws Exception {
+        MatrixCursor notebooksCursor = buildNotebookCursor();
+        MatrixCursor notesCursor = buildChunkedNotesCursor();
+        MatrixCursor actionsCursor = buildActionsCursor();
+        MatrixCursor stylesCursor = buildStyleCursor();
+        MatrixCursor noteChunksCursor = new MatrixCursor(noteChunkColumnNames);
+        noteChunksCursor.addRow(new Object[]{1L, "bo"});
+        noteChunksCursor.addRow(new Object[]{1L, "dy 1"});
+        noteChunksCursor.addRow(new Object[]{3L, "body"});
+        noteChunksCursor.addRow(new Object[]{3L, " "});
+        noteChunksCursor.addRow(new Object[]{3L, "3"});
+
+        BackupMergeCursor cursor = new BackupMergeCursor(notebooksCursor, notesCursor, actionsCursor, stylesCursor, noteChunksCursor);
+
+        String testFileName = "testFileName";
+        subject.backupToFile(cursor, new File(
+                SyncAdapter.makePath(
+                        sparrowDirectoryPath,
+                        testFileName)));
+
+        assertThatFileContentsAreEqual(sparrowDirectoryPath + "/" + testFileName, FixtureReader.TEST_FIXTURES_PATH + "backup.json");
+    }
+
     @After
     public void tearDown() throws Exception {
         File file = new File(sparrowDirectoryPath);
@@ -159,6 +199,27 @@ public class SparrowDatabaseBackupWriterTest {
         return cursor;
     }
 
+    @NonNull
+    private MatrixCursor buildChunkedNotesCursor() {
+        int numOfNotes = 5;
+        MatrixCursor cursor = new MatrixCursor(chunkedNotesColumnNames, numOfNotes);
+
+        for (int i = 0; i < numOfNotes; i++) {
+            boolean chunked = i % 2 == 1;
+            cursor.addRow(new Object[]{
+                    Long.valueOf(i),
+                    "title " + i,
+                    chunked ? "preview " + i : "body " + i,
+                    Boolean.toString(chunked),
+                    10 + i,
+                    i % 2 == 0 ? "true" : "false",
+                    "test timestamp " + i,
+                    "updated at " + i
+            });
+        }
+        return cursor;
+    }
+
     @NonNull
     private MatrixCursor buildNotebookCursor() {
         int numOfNotebooks = 7;
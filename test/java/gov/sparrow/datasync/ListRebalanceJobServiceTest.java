@@ -0,0 +1,27 @@
+package gov.sparrow.datasync;
+
+import android.app.job.JobInfo;
+import android.content.ComponentName;
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class ListRebalanceJobServiceTest {
+
+    @Test
+    public void jobInfo_shouldRunOnceWhileDeviceIsIdle() throws Exception {
+        JobInfo jobInfo = ListRebalanceJobService.jobInfo(RuntimeEnvironment.application);
+
+        assertThat(jobInfo.getId()).isEqualTo(ListRebalanceJobService.JOB_ID);
+        assertThat(jobInfo.getId()).isNotEqualTo(SearchIndexMaintenanceJobService.JOB_ID);
+        assertThat(jobInfo.isRequireDeviceIdle()).isTrue();
+        assertThat(jobInfo.isPeriodic()).isFalse();
+        assertThat(jobInfo.getService()).isEqualTo(
+                new ComponentName(RuntimeEnvironment.application, ListRebalanceJobService.class));
+    }
+
+}
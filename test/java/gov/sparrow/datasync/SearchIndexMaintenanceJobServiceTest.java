@@ -0,0 +1,29 @@
+package gov.sparrow.datasync;
+
+import android.app.job.JobInfo;
+import android.content.ComponentName;
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class SearchIndexMaintenanceJobServiceTest {
+
+    @Test
+    public void jobInfo_shouldOnlyRunWhileDeviceIsIdleAndCharging() throws Exception {
+        JobInfo jobInfo = SearchIndexMaintenanceJobService.jobInfo(RuntimeEnvironment.application);
+
+        assertThat(jobInfo.getId()).isEqualTo(SearchIndexMaintenanceJobService.JOB_ID);
+        assertThat(jobInfo.isRequireDeviceIdle()).isTrue();
+        assertThat(jobInfo.isRequireCharging()).isTrue();
+        assertThat(jobInfo.isPersisted()).isTrue();
+        assertThat(jobInfo.isPeriodic()).isTrue();
+        assertThat(jobInfo.getIntervalMillis()).isEqualTo(SearchIndexMaintenanceJobService.INTERVAL_MS);
+        assertThat(jobInfo.getService()).isEqualTo(
+                new ComponentName(RuntimeEnvironment.application, SearchIndexMaintenanceJobService.class));
+    }
+
+}
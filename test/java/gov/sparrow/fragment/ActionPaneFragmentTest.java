@@ -38,6 +38,7 @@ import gov.sparrow.contracts.NoteContract.Note;
 import gov.sparrow.contracts.NotebookContract.Notebook;
 import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
 import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.database.PagingCursorLoader;
 import gov.sparrow.provider.SparrowProvider;
 import gov.sparrow.repository.ActionRepository;
 
@@ -93,7 +94,8 @@ public class ActionPaneFragmentTest {
     @Test
     public void onCreateLoader_whenActionList_shouldReturnActionCursorLoader() throws Exception {
         CursorLoader loader = (CursorLoader) subject.onCreateLoader(LOADER_ID_ACTION_LIST, null);
-        assertThat(loader.getUri()).isEqualTo(Action.CONTENT_URI);
+        assertThat(loader).isInstanceOf(PagingCursorLoader.class);
+        assertThat(loader.getUri()).isEqualTo(Action.PAGE_URI(ActionPaneFragment.PAGE_SIZE));
         assertThat(loader.getSelection()).isEqualTo(Action.TABLE_NAME + "." + Action.COLUMN_NAME_ARCHIVED + "=?");
         assertThat(loader.getSelectionArgs()).isEqualTo(new String[]{"false"});
         assertThat(loader.getProjection()).isEqualTo(new String[]{
@@ -107,6 +109,7 @@ public class ActionPaneFragmentTest {
                 Action.COLUMN_NAME_DUE_DATE,
                 Action.COLUMN_NAME_CHECKBOX_UPDATED_AT
         });
+        assertThat(loader.getSortOrder()).isEqualTo(Action.PARTITIONED_SORT_ORDER);
     }
 
     @Test
@@ -26,6 +26,7 @@ import gov.sparrow.SparrowTestRunner;
 import gov.sparrow.contracts.NoteContract;
 import gov.sparrow.contracts.NotebookContract;
 import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.database.PagingCursorLoader;
 import gov.sparrow.listeners.NoteTouchListener;
 import gov.sparrow.models.Note;
 import gov.sparrow.models.builders.NoteBuilder;
@@ -104,7 +105,7 @@ public class NoteListFragmentTest {
         roboCursor.setColumnNames(asList(
                 NoteContract.Note._ID,
                 NoteContract.Note.COLUMN_NAME_TITLE,
-                NoteContract.Note.COLUMN_NAME_BODY,
+                NoteContract.Note.COLUMN_NAME_PREVIEW,
                 NoteContract.Note.COLUMN_NAME_NOTEBOOK_ID,
                 NoteContract.Note.COLUMN_NAME_ARCHIVED,
                 NoteContract.Note.COLUMN_NAME_CREATED_AT,
@@ -131,6 +132,14 @@ public class NoteListFragmentTest {
         assertThat(((CursorLoader) result).getSelectionArgs()).isEqualTo(new String[]{"false"});
     }
 
+    @Test
+    public void onCreateLoader_shouldPageThroughNotes() throws Exception {
+        Loader<Cursor> result = subject.onCreateLoader(0, null);
+
+        assertThat(result).isInstanceOf(PagingCursorLoader.class);
+        assertThat(((CursorLoader) result).getUri()).isEqualTo(NoteContract.Note.PAGE_URI(NoteListFragment.PAGE_SIZE));
+    }
+
     @Test
     public void onCreateLoader_filtersOutArchivedNotes() throws Exception {
         subject = NoteListFragment.newInstance(123L, 45L);
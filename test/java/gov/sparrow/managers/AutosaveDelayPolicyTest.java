@@ -0,0 +1,95 @@
+package gov.sparrow.managers;
+
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class AutosaveDelayPolicyTest {
+
+    private AutosaveDelayPolicy subject;
+
+    @Before
+    public void setUp() {
+        subject = new AutosaveDelayPolicy();
+    }
+
+    @Test
+    public void nextDelay_afterPause_usesBaseDelay() throws Exception {
+        assertThat(subject.nextDelay(0L, 1)).isEqualTo(AutosaveDelayPolicy.BASE_DELAY_MS);
+        assertThat(subject.nextDelay(AutosaveDelayPolicy.TYPING_INTERVAL_MS, 1)).isEqualTo(AutosaveDelayPolicy.BASE_DELAY_MS);
+    }
+
+    @Test
+    public void nextDelay_duringSustainedTyping_stretchesUpToMaxDelay() throws Exception {
+        long first = subject.nextDelay(0L, 1);
+        long second = subject.nextDelay(100L, 2);
+        long third = subject.nextDelay(200L, 3);
+
+        assertThat(second).isGreaterThan(first);
+        assertThat(third).isGreaterThan(second);
+
+        long now = 300L;
+        long delay = 0L;
+        for (int i = 0; i < 10; i++, now += 100L) {
+            delay = subject.nextDelay(now, 4);
+        }
+        assertThat(delay).isLessThanOrEqualTo(AutosaveDelayPolicy.MAX_DELAY_MS);
+    }
+
+    @Test
+    public void nextDelay_neverLetsPendingEditsExceedMaxStaleness() throws Exception {
+        long now = 0L;
+        long delay = 0L;
+        while (now < AutosaveDelayPolicy.MAX_STALENESS_MS - 500L) {
+            delay = subject.nextDelay(now, 1);
+            now += 100L;
+        }
+
+        assertThat(now - 100L + delay).isLessThanOrEqualTo(AutosaveDelayPolicy.MAX_STALENESS_MS);
+        assertThat(subject.nextDelay(AutosaveDelayPolicy.MAX_STALENESS_MS + 1L, 1)).isEqualTo(0L);
+    }
+
+    @Test
+    public void nextDelay_whenPendingChangeIsLarge_commitsQuickly() throws Exception {
+        subject.nextDelay(0L, 1);
+        subject.nextDelay(100L, 1);
+
+        assertThat(subject.nextDelay(200L, AutosaveDelayPolicy.LARGE_CHANGE_CHARS)).isEqualTo(AutosaveDelayPolicy.MIN_DELAY_MS);
+    }
+
+    @Test
+    public void nextDelay_whenCommitsAreSlow_waitsLongerBetweenWrites() throws Exception {
+        subject.onCommitted(800L, 1);
+
+        assertThat(subject.nextDelay(0L, 1)).isEqualTo(800L * AutosaveDelayPolicy.LATENCY_MULTIPLIER);
+    }
+
+    @Test
+    public void onCommitted_resetsStalenessWindow() throws Exception {
+        subject.nextDelay(0L, 1);
+        subject.onCommitted(10L, 1);
+
+        long now = AutosaveDelayPolicy.MAX_STALENESS_MS + 1L;
+        assertThat(subject.nextDelay(now, 1)).isEqualTo(AutosaveDelayPolicy.BASE_DELAY_MS);
+    }
+
+    @Test
+    public void metrics_reportChosenDelaysAndCommitLatency() throws Exception {
+        subject.nextDelay(0L, 1);
+        subject.onCommitted(40L, 2);
+        subject.nextDelay(5000L, 1);
+        subject.onCommitted(80L, 1);
+
+        assertThat(subject.getLastDelay()).isEqualTo(AutosaveDelayPolicy.BASE_DELAY_MS);
+        assertThat(subject.getScheduleCount()).isEqualTo(2);
+        assertThat(subject.getCommitCount()).isEqualTo(2);
+        assertThat(subject.getCommittedNoteCount()).isEqualTo(3);
+        assertThat(subject.getLastCommitLatency()).isEqualTo(80L);
+        assertThat(subject.getCommitLatency()).isEqualTo(50L);
+    }
+
+}
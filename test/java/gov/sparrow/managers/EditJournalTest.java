@@ -0,0 +1,149 @@
+package gov.sparrow.managers;
+
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.builders.NoteBuilder;
+import gov.sparrow.models.links.ActionLink;
+import gov.sparrow.models.links.StyleLink;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class EditJournalTest {
+
+    private File directory;
+    private EditJournal subject;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new File(RuntimeEnvironment.application.getFilesDir(), "journal");
+        subject = new EditJournal(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        subject.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void replay_shouldApplyEditsToLastSnapshot() throws Exception {
+        subject.appendSnapshot(note("title", "hello world"));
+        subject.appendEdit(1L, 5, 0, ",");
+        subject.appendTitle(1L, "new title");
+        subject.sync();
+
+        List<Note> recovered = new EditJournal(directory).replay();
+
+        assertThat(recovered).hasSize(1);
+        assertThat(recovered.get(0).getId()).isEqualTo(1L);
+        assertThat(recovered.get(0).getTitle()).isEqualTo("new title");
+        assertThat(recovered.get(0).getBody()).isEqualTo("hello, world");
+    }
+
+    @Test
+    public void replay_shouldShiftLinksAfterEachEdit() throws Exception {
+        subject.appendSnapshot(NoteBuilder.noteBuilder()
+                .id(1L)
+                .title("title")
+                .body("hello world")
+                .actionLinks(asList(new ActionLink("123", 0, 5, false)))
+                .styleLinks(asList(new StyleLink(StyleLink.BOLD_STYLE, 6, 11)))
+                .build());
+        subject.appendEdit(1L, 5, 0, ">>");
+        subject.sync();
+
+        Note recovered = new EditJournal(directory).replay().get(0);
+
+        assertThat(recovered.getActionLinks()).isEqualTo(asList(new ActionLink("123", 0, 5, false)));
+        assertThat(recovered.getStyleLinks()).isEqualTo(asList(new StyleLink(StyleLink.BOLD_STYLE, 8, 13)));
+    }
+
+    @Test
+    public void replay_shouldIgnoreTornTrailingRecord() throws Exception {
+        subject.appendSnapshot(note("title", "hello"));
+        subject.sync();
+        subject.close();
+
+        File[] files = directory.listFiles();
+        FileOutputStream out = new FileOutputStream(files[0], true);
+        out.write(new byte[]{2, 0, 0, 0, 40, 'x'});
+        out.close();
+
+        List<Note> recovered = new EditJournal(directory).replay();
+
+        assertThat(recovered).hasSize(1);
+        assertThat(recovered.get(0).getBody()).isEqualTo("hello");
+    }
+
+    @Test
+    public void syncIfDue_shouldBatchSyncsBySyncInterval() throws Exception {
+        subject.appendSnapshot(note("title", "hello"));
+        assertThat(subject.syncIfDue(0L)).isTrue();
+
+        subject.appendEdit(1L, 5, 0, "!");
+        assertThat(subject.syncIfDue(EditJournal.SYNC_INTERVAL_MS - 1L)).isFalse();
+        assertThat(subject.syncIfDue(EditJournal.SYNC_INTERVAL_MS)).isTrue();
+
+        assertThat(new EditJournal(directory).replay().get(0).getBody()).isEqualTo("hello!");
+    }
+
+    @Test
+    public void truncate_shouldDropOnlySealedSegments() throws Exception {
+        subject.appendSnapshot(note("title", "saved"));
+        long segment = subject.seal(1L);
+        subject.appendSnapshot(note("title", "saved and still typing"));
+        subject.sync();
+
+        subject.truncate(1L, segment);
+
+        List<Note> recovered = new EditJournal(directory).replay();
+        assertThat(recovered).hasSize(1);
+        assertThat(recovered.get(0).getBody()).isEqualTo("saved and still typing");
+    }
+
+    @Test
+    public void truncate_whenNothingWasAppendedSinceSeal_shouldLeaveNothingToReplay() throws Exception {
+        subject.appendSnapshot(note("title", "saved"));
+        subject.truncate(1L, subject.seal(1L));
+
+        assertThat(new EditJournal(directory).replay()).isEmpty();
+    }
+
+    @Test
+    public void clear_shouldDropEverySegmentForNote() throws Exception {
+        subject.appendSnapshot(note("title", "saved"));
+        subject.seal(1L);
+        subject.appendSnapshot(note("title", "saved again"));
+        subject.sync();
+
+        subject.clear(1L);
+
+        assertThat(new EditJournal(directory).replay()).isEmpty();
+    }
+
+    private Note note(String title, String body) {
+        return NoteBuilder.noteBuilder()
+                .id(1L)
+                .title(title)
+                .body(body)
+                .build();
+    }
+
+}
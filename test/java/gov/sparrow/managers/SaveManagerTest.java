@@ -1,20 +1,37 @@
 package gov.sparrow.managers;
 
+import android.os.Looper;
 import android.text.Editable;
+import android.text.SpannableStringBuilder;
 import android.text.style.StyleSpan;
 import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.models.EditDelta;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.NoteSave;
+import gov.sparrow.models.builders.NoteBuilder;
 import gov.sparrow.models.spans.ActionLinkSpan;
 import gov.sparrow.repository.NoteRepository;
 import gov.sparrow.util.TimeUtil;
+import gov.sparrow.views.EditTracker;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.Scheduler;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
@@ -24,12 +41,17 @@ import static org.mockito.MockitoAnnotations.initMocks;
 public class SaveManagerTest {
 
     @Mock TimeUtil timeUtil;
+    @Mock AutosaveDelayPolicy delayPolicy;
+    @Mock EditJournal editJournal;
     @Mock ScheduledExecutorService scheduler;
     @Mock NoteRepository noteRepository;
     @Mock Editable title;
     @Mock Editable body;
     @Mock SaveManager.SaveCompleteListener saveListener;
     @Mock ScheduledFuture scheduledFuture;
+    @Mock SaveManager.RecoveryListener recoveryListener;
+    @Captor ArgumentCaptor<SaveTask> taskCaptor;
+    @Captor ArgumentCaptor<Runnable> runnableCaptor;
     private SaveManager subject;
 
     @Before
@@ -38,6 +60,10 @@ public class SaveManagerTest {
 
         when(timeUtil.getTimeNow())
                 .thenReturn("test time");
+        when(timeUtil.uptimeMillis())
+                .thenReturn(1000L);
+        when(delayPolicy.nextDelay(anyLong(), anyInt()))
+                .thenReturn(SaveManager.DELAY);
 
         when(scheduler.schedule(any(SaveTask.class), anyLong(), any(TimeUnit.class)))
                 .thenReturn(scheduledFuture);
@@ -48,7 +74,7 @@ public class SaveManagerTest {
         when(body.getSpans(0, 10, StyleSpan.class))
                 .thenReturn(new StyleSpan[]{});
 
-        subject = new SaveManager(timeUtil, scheduler, noteRepository);
+        subject = new SaveManager(timeUtil, scheduler, noteRepository, delayPolicy, editJournal);
         subject.setEnabled(true);
 
     }
@@ -73,6 +99,42 @@ public class SaveManagerTest {
         verify(scheduler).schedule(any(SaveTask.class), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
     }
 
+    @Test
+    public void onScheduleSave_shouldUseDelayChosenByPolicy() {
+        when(delayPolicy.nextDelay(1000L, 0)).thenReturn(2500L);
+
+        subject.scheduleSave(1L, title, body, saveListener);
+
+        verify(scheduler).schedule(any(SaveTask.class), eq(2500L), eq(SaveManager.TIME_UNIT));
+    }
+
+    @Test
+    public void onScheduleSave_shouldPassPendingEditSizeToPolicy() {
+        subject.setBaseVersion(1L, 3);
+        subject.recordBodyEdit(1L, 2, 0, "xy");
+
+        subject.scheduleSave(1L, title, body, saveListener);
+
+        verify(delayPolicy).nextDelay(1000L, 2);
+    }
+
+    @Test
+    public void onScheduleSave_shouldReportCommitLatencyToPolicy() {
+        subject.scheduleSave(1L, title, body, saveListener);
+
+        verify(scheduler).schedule(taskCaptor.capture(), anyLong(), any(TimeUnit.class));
+        assertThat(taskCaptor.getValue().getCommitObserver()).isSameAs(delayPolicy);
+    }
+
+    @Test
+    public void onSave_shouldReportCommitLatencyToPolicy() {
+        subject.scheduleSave(1L, title, body, saveListener);
+        subject.save(1L, title, body, saveListener);
+
+        verify(scheduler).submit(taskCaptor.capture());
+        assertThat(taskCaptor.getValue().getCommitObserver()).isSameAs(delayPolicy);
+    }
+
     @Test
     public void onScheduleSave_shouldCancelPreviouslyScheduledSave() {
         subject.scheduleSave(1L, title, body, saveListener);
@@ -95,9 +157,9 @@ public class SaveManagerTest {
     }
 
     @Test
-    public void onSave_shouldNotSave_whenScheduledSaveIsDone() {
+    public void onSave_shouldNotSave_whenScheduledSaveHasStarted() {
         subject.scheduleSave(1L, title, body, saveListener);
-        when(scheduledFuture.isDone()).thenReturn(true);
+        startScheduledFlush();
 
         reset(scheduler);
         subject.save(1L, title, body, saveListener);
@@ -105,14 +167,336 @@ public class SaveManagerTest {
     }
 
     @Test
-    public void onSave_shouldNotSave_whenScheduledSaveIsDone_andCallOnSaveComplete() {
+    public void onSave_shouldNotSave_whenScheduledSaveHasStarted_andCallOnSaveComplete() {
         subject.scheduleSave(1L, title, body, saveListener);
-        when(scheduledFuture.isDone()).thenReturn(true);
+        startScheduledFlush();
 
         subject.save(1L, title, body, saveListener);
         verify(saveListener).onSaveComplete();
     }
 
+    @Test
+    public void onScheduleSave_whenTrackersAreClean_shouldNotCaptureSpans() {
+        EditTracker titleTracker = mock(EditTracker.class);
+        EditTracker bodyTracker = mock(EditTracker.class);
+
+        subject.scheduleSave(1L, title, titleTracker, body, bodyTracker, saveListener);
+
+        verifyZeroInteractions(scheduler);
+        verify(body, never()).getSpans(anyInt(), anyInt(), any(Class.class));
+        verify(saveListener).onSaveComplete();
+    }
+
+    @Test
+    public void onScheduleSave_whenOnlyTextIsDirty_shouldReuseLastCapturedSpans() {
+        EditTracker titleTracker = mock(EditTracker.class);
+        EditTracker bodyTracker = mock(EditTracker.class);
+        when(bodyTracker.isDirty()).thenReturn(true);
+        when(bodyTracker.isSpanDirty()).thenReturn(true, false);
+
+        subject.scheduleSave(1L, title, titleTracker, body, bodyTracker, saveListener);
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        taskCaptor.getValue().getSaves();
+
+        subject.scheduleSave(1L, title, titleTracker, body, bodyTracker, saveListener);
+        verify(scheduler, times(2)).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        taskCaptor.getValue().getSaves();
+
+        verify(body, times(1)).getSpans(0, 10, ActionLinkSpan.class);
+        verify(body, times(1)).getSpans(0, 10, StyleSpan.class);
+    }
+
+    @Test
+    public void onScheduleSave_whenSpansAreDirty_shouldCaptureSpans() {
+        EditTracker titleTracker = mock(EditTracker.class);
+        EditTracker bodyTracker = mock(EditTracker.class);
+        when(bodyTracker.isDirty()).thenReturn(true);
+        when(bodyTracker.isSpanDirty()).thenReturn(true);
+
+        subject.scheduleSave(1L, title, titleTracker, body, bodyTracker, saveListener);
+        verify(body, never()).getSpans(anyInt(), anyInt(), any(Class.class));
+
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        taskCaptor.getValue().getSaves();
+
+        verify(body).getSpans(0, 10, ActionLinkSpan.class);
+        verify(body).getSpans(0, 10, StyleSpan.class);
+    }
+
+    @Test
+    public void onScheduleSave_whenRescheduled_shouldNotReadEditables() {
+        ReadCountingEditable liveTitle = new ReadCountingEditable("title");
+        ReadCountingEditable liveBody = new ReadCountingEditable("body");
+
+        subject.scheduleSave(1L, liveTitle, liveBody, saveListener);
+        subject.scheduleSave(1L, liveTitle, liveBody, saveListener);
+        subject.scheduleSave(1L, liveTitle, liveBody, saveListener);
+
+        verify(scheduler, times(3)).schedule(any(SaveTask.class), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        assertThat(liveTitle.reads).isZero();
+        assertThat(liveBody.reads).isZero();
+    }
+
+    @Test
+    public void onScheduleSave_shouldSnapshotNoteWhenSaveRuns() {
+        ReadCountingEditable liveTitle = new ReadCountingEditable("title");
+        ReadCountingEditable liveBody = new ReadCountingEditable("body");
+
+        subject.scheduleSave(1L, liveTitle, liveBody, saveListener);
+        liveTitle.append(" edited");
+        liveBody.append(" edited");
+
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        List<NoteSave> saves = taskCaptor.getValue().getSaves();
+
+        assertThat(saves.get(0).getNote().getTitle()).isEqualTo("title edited");
+        assertThat(saves.get(0).getNote().getBody()).isEqualTo("body edited");
+        assertThat(liveBody.reads).isGreaterThan(0);
+    }
+
+    @Test
+    public void scheduledSave_shouldSnapshotOnMainLooper_thenWriteFromItsOwnThread() throws Exception {
+        final ReadCountingEditable liveTitle = new ReadCountingEditable("title");
+        final ReadCountingEditable liveBody = new ReadCountingEditable("body");
+        subject.scheduleSave(1L, liveTitle, liveBody, saveListener);
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+
+        ShadowLooper.pauseMainLooper();
+        Thread worker = new Thread(taskCaptor.getValue(), "save-worker");
+        worker.start();
+        Scheduler mainScheduler = Shadows.shadowOf(Looper.getMainLooper()).getScheduler();
+        while (!mainScheduler.areAnyRunnable()) {
+            Thread.sleep(5);
+        }
+
+        assertThat(liveBody.reads).isZero();
+        verifyZeroInteractions(noteRepository);
+
+        mainScheduler.runOneTask();
+        worker.join(1000);
+
+        assertThat(liveTitle.lastReader).isSameAs(Thread.currentThread());
+        assertThat(liveBody.lastReader).isSameAs(Thread.currentThread());
+        verify(noteRepository).updateNote(eq(1L), eq("title"), eq("body"), eq("test time"), anyList(), anyList());
+    }
+
+    @Test
+    public void onScheduleSave_forSeveralNotes_shouldFlushThemInOneTask() {
+        subject.scheduleSave(1L, title, body, saveListener);
+        subject.scheduleSave(2L, title, body, mock(SaveManager.SaveCompleteListener.class));
+
+        verify(scheduledFuture).cancel(false);
+        verify(scheduler, times(2)).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+
+        List<NoteSave> saves = taskCaptor.getValue().getSaves();
+        assertThat(saves).hasSize(2);
+        assertThat(saves.get(0).getNote().getId()).isEqualTo(1L);
+        assertThat(saves.get(1).getNote().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void onScheduleSave_forSameNote_shouldKeepOnlyLatestSnapshot() {
+        when(title.toString()).thenReturn("second title");
+
+        subject.scheduleSave(1L, title, body, saveListener);
+        subject.scheduleSave(1L, title, body, saveListener);
+
+        verify(scheduler, times(2)).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+
+        List<NoteSave> saves = taskCaptor.getValue().getSaves();
+        assertThat(saves).hasSize(1);
+        assertThat(saves.get(0).getNote().getTitle()).isEqualTo("second title");
+    }
+
+    @Test
+    public void onSave_shouldFlushOtherPendingNotesWithIt() {
+        subject.scheduleSave(1L, title, body, saveListener);
+        subject.save(2L, title, body, mock(SaveManager.SaveCompleteListener.class));
+
+        verify(scheduler).submit(taskCaptor.capture());
+
+        List<NoteSave> saves = taskCaptor.getValue().getSaves();
+        assertThat(saves).hasSize(2);
+        assertThat(saves.get(0).getNote().getId()).isEqualTo(1L);
+        assertThat(saves.get(1).getNote().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void onScheduleSave_afterFlushStarted_shouldStartNewBatch() {
+        subject.scheduleSave(1L, title, body, saveListener);
+        startScheduledFlush();
+
+        subject.scheduleSave(2L, title, body, saveListener);
+
+        verify(scheduler, times(2)).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        assertThat(taskCaptor.getAllValues().get(0).getSaves()).hasSize(1);
+        assertThat(taskCaptor.getAllValues().get(1).getSaves()).hasSize(1);
+        assertThat(taskCaptor.getAllValues().get(1).getSaves().get(0).getNote().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void onScheduleSave_whenEarlierFutureWasCancelled_shouldKeepBatchOpen() {
+        subject.scheduleSave(1L, title, body, saveListener);
+        when(scheduledFuture.isDone()).thenReturn(true);
+        when(scheduledFuture.isCancelled()).thenReturn(true);
+
+        subject.scheduleSave(2L, title, body, saveListener);
+
+        verify(scheduler, times(2)).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        assertThat(taskCaptor.getAllValues().get(0).hasStarted()).isFalse();
+        List<NoteSave> saves = taskCaptor.getAllValues().get(1).getSaves();
+        assertThat(saves).hasSize(2);
+        assertThat(saves.get(0).getNote().getId()).isEqualTo(1L);
+        assertThat(saves.get(1).getNote().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void saveTask_shouldMarkFlushStartedOnlyWhenItTakesItsSnapshot() {
+        subject.scheduleSave(1L, title, body, saveListener);
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        SaveTask task = taskCaptor.getValue();
+
+        assertThat(task.hasStarted()).isFalse();
+        task.getSaves();
+        assertThat(task.hasStarted()).isTrue();
+    }
+
+    @Test
+    public void onScheduleSave_whenBodyEditsRecorded_shouldScheduleDeltaSave() {
+        subject.setBaseVersion(1L, 3);
+        subject.recordBodyEdit(1L, 2, 0, "x");
+        subject.recordBodyEdit(1L, 3, 0, "y");
+
+        subject.scheduleSave(1L, title, body, saveListener);
+
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        EditDelta delta = taskCaptor.getValue().getSaves().get(0).getDelta();
+        assertThat(delta.getBaseVersion()).isEqualTo(3);
+        assertThat(delta.applyTo("0123456789")).isEqualTo("01xy23456789");
+    }
+
+    @Test
+    public void onScheduleSave_whenBaseVersionUnknown_shouldScheduleFullSave() {
+        subject.recordBodyEdit(1L, 2, 0, "x");
+
+        subject.scheduleSave(1L, title, body, saveListener);
+
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        assertThat(taskCaptor.getValue().getSaves().get(0).getDelta()).isNull();
+    }
+
+    @Test
+    public void onScheduleSave_whenDeltaHandedToTask_shouldStartNextDeltaFromNextVersion() {
+        subject.setBaseVersion(1L, 3);
+        subject.recordBodyEdit(1L, 2, 0, "x");
+        subject.scheduleSave(1L, title, body, saveListener);
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        taskCaptor.getValue().getSaves();
+
+        subject.recordBodyEdit(1L, 3, 0, "y");
+        subject.scheduleSave(1L, title, body, saveListener);
+
+        verify(scheduler, times(2)).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        EditDelta delta = taskCaptor.getValue().getSaves().get(0).getDelta();
+        assertThat(delta.getBaseVersion()).isEqualTo(4);
+        assertThat(delta.getEdits()).hasSize(1);
+    }
+
+    @Test
+    public void onScheduleSave_shouldJournalSnapshotOncePerBatch_whenSaveRuns() {
+        subject.scheduleSave(1L, title, body, saveListener);
+        subject.scheduleSave(1L, title, body, saveListener);
+
+        verify(editJournal, never()).appendSnapshot(any(Note.class));
+        verify(editJournal, times(2)).syncIfDue(1000L);
+
+        verify(scheduler, times(2)).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        taskCaptor.getValue().getSaves();
+
+        verify(editJournal, times(1)).appendSnapshot(any(Note.class));
+    }
+
+    @Test
+    public void recordBodyEdit_afterSnapshot_shouldJournalEdit() {
+        subject.recordBodyEdit(1L, 2, 0, "x");
+        subject.scheduleSave(1L, title, body, saveListener);
+        verify(editJournal, never()).appendEdit(anyLong(), anyInt(), anyInt(), anyString());
+
+        verify(scheduler).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        taskCaptor.getValue().getSaves();
+        subject.recordBodyEdit(1L, 3, 0, "y");
+
+        verify(editJournal).appendEdit(1L, 3, 0, "y");
+    }
+
+    @Test
+    public void onScheduleSave_shouldJournalTitleWithSnapshot_notOnEachReschedule() {
+        when(title.toString()).thenReturn("second title");
+
+        subject.scheduleSave(1L, title, body, saveListener);
+        subject.scheduleSave(1L, title, body, saveListener);
+        verify(editJournal, never()).appendTitle(anyLong(), anyString());
+
+        verify(scheduler, times(2)).schedule(taskCaptor.capture(), eq(SaveManager.DELAY), eq(SaveManager.TIME_UNIT));
+        taskCaptor.getValue().getSaves();
+
+        ArgumentCaptor<Note> snapshotCaptor = ArgumentCaptor.forClass(Note.class);
+        verify(editJournal).appendSnapshot(snapshotCaptor.capture());
+        assertThat(snapshotCaptor.getValue().getTitle()).isEqualTo("second title");
+    }
+
+    @Test
+    public void onSave_shouldSealJournalAndHandSegmentToTask() {
+        when(editJournal.seal(1L)).thenReturn(4L);
+
+        subject.scheduleSave(1L, title, body, saveListener);
+        subject.save(1L, title, body, saveListener);
+
+        verify(scheduler).submit(taskCaptor.capture());
+        assertThat(taskCaptor.getValue().getJournal()).isSameAs(editJournal);
+        assertThat(taskCaptor.getValue().getJournalSegments()).isEqualTo(Collections.singletonMap(1L, 4L));
+    }
+
+    @Test
+    public void recoverJournal_shouldSaveRecoveredNotesAndClearJournal() throws Exception {
+        Note recovered = NoteBuilder.noteBuilder()
+                .id(1L)
+                .title("recovered title")
+                .body("recovered body")
+                .build();
+        when(editJournal.replay()).thenReturn(asList(recovered));
+        when(noteRepository.updateNotes(anyListOf(NoteSave.class))).thenReturn(true);
+
+        subject.recoverJournal(recoveryListener);
+
+        verify(scheduler).submit(runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+
+        ArgumentCaptor<List> savesCaptor = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(noteRepository, editJournal, recoveryListener);
+        inOrder.verify(noteRepository).updateNotes(savesCaptor.capture());
+        inOrder.verify(editJournal).clear(1L);
+        inOrder.verify(recoveryListener).onRecoveryComplete();
+
+        NoteSave save = (NoteSave) savesCaptor.getValue().get(0);
+        assertThat(save.getNote().getBody()).isEqualTo("recovered body");
+        assertThat(save.getNote().getLastSaved()).isEqualTo("test time");
+        assertThat(save.getDelta()).isNull();
+    }
+
+    @Test
+    public void recoverJournal_whenJournalIsEmpty_shouldNotWrite() {
+        when(editJournal.replay()).thenReturn(Collections.<Note>emptyList());
+
+        subject.recoverJournal(recoveryListener);
+
+        verify(scheduler).submit(runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+
+        verifyZeroInteractions(noteRepository);
+        verify(recoveryListener).onRecoveryComplete();
+    }
+
     @Test
     public void setEnabled_whenFalse_shouldDisableSave() throws Exception {
         subject.setEnabled(false);
@@ -141,4 +525,33 @@ public class SaveManagerTest {
         subject.setEnabled(false);
         verifyZeroInteractions(scheduledFuture);
     }
-}
\ No newline at end of file
+
+    private void startScheduledFlush() {
+        ArgumentCaptor<SaveTask> scheduledTask = ArgumentCaptor.forClass(SaveTask.class);
+        verify(scheduler, atLeastOnce()).schedule(scheduledTask.capture(), anyLong(), any(TimeUnit.class));
+        scheduledTask.getValue().getSaves();
+    }
+
+    private static class ReadCountingEditable extends SpannableStringBuilder {
+        private volatile int reads;
+        private volatile Thread lastReader;
+
+        ReadCountingEditable(CharSequence text) {
+            super(text);
+        }
+
+        @Override
+        public String toString() {
+            reads++;
+            lastReader = Thread.currentThread();
+            return super.toString();
+        }
+
+        @Override
+        public <T> T[] getSpans(int queryStart, int queryEnd, Class<T> kind) {
+            reads++;
+            lastReader = Thread.currentThread();
+            return super.getSpans(queryStart, queryEnd, kind);
+        }
+    }
+}
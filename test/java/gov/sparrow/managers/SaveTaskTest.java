@@ -2,7 +2,9 @@ package gov.sparrow.managers;
 
 import android.os.Handler;
 import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.models.EditDelta;
 import gov.sparrow.models.Note;
+import gov.sparrow.models.NoteSave;
 import gov.sparrow.models.builders.NoteBuilder;
 import gov.sparrow.models.links.ActionLink;
 import gov.sparrow.models.links.StyleLink;
@@ -12,11 +14,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 
+import java.util.Collections;
+
 import static java.util.Arrays.asList;
 import static org.mockito.Matchers.*;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 @RunWith(SparrowTestRunner.class)
@@ -26,13 +31,14 @@ public class SaveTaskTest {
     @Mock Handler handler;
     @Mock SaveManager.SaveCompleteListener saveListener;
     @Captor ArgumentCaptor<Runnable> taskCaptor;
+    private Note note;
     private SaveTask subject;
 
     @Before
     public void setUp() {
         initMocks(this);
 
-        Note note = NoteBuilder.noteBuilder()
+        note = NoteBuilder.noteBuilder()
                 .id(1L)
                 .title("test title")
                 .body("test body")
@@ -60,6 +66,136 @@ public class SaveTaskTest {
                 eq(asList(new StyleLink(StyleLink.BOLD_STYLE, 26, 29))));
     }
 
+    @Test
+    public void onRun_withDelta_shouldSendOnlyEdits() throws Exception {
+        EditDelta delta = new EditDelta(3);
+        delta.record(0, 0, "x");
+        when(noteRepository.updateNoteBody(anyLong(), anyString(), any(EditDelta.class), anyString(), anyListOf(ActionLink.class), anyListOf(StyleLink.class)))
+                .thenReturn(true);
+
+        subject = new SaveTask(noteRepository, note, delta, handler, saveListener);
+        subject.run();
+
+        verify(handler).post(taskCaptor.capture());
+        taskCaptor.getValue().run();
+
+        verify(noteRepository).updateNoteBody(
+                eq(1L),
+                eq("test title"),
+                eq(delta),
+                eq("test time"),
+                eq(asList(new ActionLink("123", 0, 25, false))),
+                eq(asList(new StyleLink(StyleLink.BOLD_STYLE, 26, 29))));
+        verify(noteRepository, never()).updateNote(anyLong(), anyString(), anyString(), anyString(), anyListOf(ActionLink.class), anyListOf(StyleLink.class));
+        verify(saveListener).onSaveComplete();
+    }
+
+    @Test
+    public void onRun_withDelta_whenEditsConflict_shouldFallBackToFullSave() throws Exception {
+        when(noteRepository.updateNoteBody(anyLong(), anyString(), any(EditDelta.class), anyString(), anyListOf(ActionLink.class), anyListOf(StyleLink.class)))
+                .thenReturn(false);
+
+        subject = new SaveTask(noteRepository, note, new EditDelta(3), handler, saveListener);
+        subject.run();
+
+        verify(handler).post(taskCaptor.capture());
+        taskCaptor.getValue().run();
+
+        verify(noteRepository).updateNote(
+                eq(1L),
+                eq("test title"),
+                eq("test body"),
+                eq("test time"),
+                anyListOf(ActionLink.class),
+                anyListOf(StyleLink.class));
+        verify(saveListener).onSaveComplete();
+    }
+
+    @Test
+    public void onRun_withSeveralNotes_shouldSaveThemInOneBatch() throws Exception {
+        Note otherNote = NoteBuilder.noteBuilder()
+                .id(2L)
+                .title("other title")
+                .body("other body")
+                .lastSaved("test time")
+                .build();
+        SaveManager.SaveCompleteListener otherListener = mock(SaveManager.SaveCompleteListener.class);
+        when(noteRepository.updateNotes(anyListOf(NoteSave.class))).thenReturn(true);
+
+        subject = new SaveTask(
+                noteRepository,
+                asList(new NoteSave(note, null), new NoteSave(otherNote, null)),
+                asList(saveListener, otherListener),
+                handler);
+        subject.run();
+
+        verify(handler).post(taskCaptor.capture());
+        taskCaptor.getValue().run();
+
+        verify(noteRepository).updateNotes(asList(new NoteSave(note, null), new NoteSave(otherNote, null)));
+        verify(noteRepository, never()).updateNote(anyLong(), anyString(), anyString(), anyString(), anyListOf(ActionLink.class), anyListOf(StyleLink.class));
+        verify(saveListener).onSaveComplete();
+        verify(otherListener).onSaveComplete();
+    }
+
+    @Test
+    public void onRun_withSeveralNotes_whenEditsConflict_shouldRetryBatchAsFullSaves() throws Exception {
+        Note otherNote = NoteBuilder.noteBuilder()
+                .id(2L)
+                .title("other title")
+                .body("other body")
+                .lastSaved("test time")
+                .build();
+        EditDelta delta = new EditDelta(3);
+        when(noteRepository.updateNotes(anyListOf(NoteSave.class))).thenReturn(false, true);
+
+        subject = new SaveTask(
+                noteRepository,
+                asList(new NoteSave(note, delta), new NoteSave(otherNote, null)),
+                asList(saveListener, saveListener),
+                handler);
+        subject.run();
+
+        verify(handler).post(taskCaptor.capture());
+        taskCaptor.getValue().run();
+
+        InOrder inOrder = inOrder(noteRepository);
+        inOrder.verify(noteRepository).updateNotes(asList(new NoteSave(note, delta), new NoteSave(otherNote, null)));
+        inOrder.verify(noteRepository).updateNotes(asList(new NoteSave(note, null), new NoteSave(otherNote, null)));
+        verify(saveListener, times(2)).onSaveComplete();
+    }
+
+    @Test
+    public void onRun_shouldReportCommitToObserver() throws Exception {
+        SaveTask.CommitObserver commitObserver = mock(SaveTask.CommitObserver.class);
+        subject.setCommitObserver(commitObserver);
+
+        subject.run();
+
+        verify(handler).post(taskCaptor.capture());
+        taskCaptor.getValue().run();
+
+        InOrder inOrder = inOrder(noteRepository, commitObserver, saveListener);
+        inOrder.verify(noteRepository).updateNote(anyLong(), anyString(), anyString(), anyString(), anyListOf(ActionLink.class), anyListOf(StyleLink.class));
+        inOrder.verify(commitObserver).onCommitted(anyLong(), eq(1));
+        inOrder.verify(saveListener).onSaveComplete();
+    }
+
+    @Test
+    public void onRun_shouldTruncateJournalSegmentsAfterCommit() throws Exception {
+        EditJournal journal = mock(EditJournal.class);
+        subject.setJournal(journal, Collections.singletonMap(1L, 4L));
+
+        subject.run();
+
+        verify(handler).post(taskCaptor.capture());
+        taskCaptor.getValue().run();
+
+        InOrder inOrder = inOrder(noteRepository, journal);
+        inOrder.verify(noteRepository).updateNote(anyLong(), anyString(), anyString(), anyString(), anyListOf(ActionLink.class), anyListOf(StyleLink.class));
+        inOrder.verify(journal).truncate(1L, 4L);
+    }
+
     @Test
     public void onRun_shouldCallSaveCompleteListener() throws Exception {
         subject.run();
@@ -0,0 +1,75 @@
+package gov.sparrow.models;
+
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class EditDeltaTest {
+
+    private EditDelta subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new EditDelta(3);
+    }
+
+    @Test
+    public void applyTo_appliesEditsInOrder() throws Exception {
+        subject.record(6, 0, "there ");
+        subject.record(0, 5, "Hi");
+
+        assertThat(subject.applyTo("hello world")).isEqualTo("Hi there world");
+    }
+
+    @Test
+    public void record_coalescesConsecutiveTyping() throws Exception {
+        subject.record(5, 0, " ");
+        subject.record(6, 0, "t");
+        subject.record(7, 0, "o");
+
+        assertThat(subject.getEdits()).hasSize(1);
+        assertThat(subject.applyTo("hello world")).isEqualTo("hello to world");
+    }
+
+    @Test
+    public void record_coalescesBackspacesIntoPendingInsert() throws Exception {
+        subject.record(5, 0, "abc");
+        subject.record(7, 1, "");
+
+        assertThat(subject.getEdits()).hasSize(1);
+        assertThat(subject.applyTo("hello world")).isEqualTo("helloab world");
+    }
+
+    @Test
+    public void getPayloadSize_isProportionalToEditNotBody() throws Exception {
+        subject.record(2, 1, "xy");
+
+        assertThat(subject.getPayloadSize()).isEqualTo(2);
+        assertThat(subject.isEmpty()).isFalse();
+        assertThat(new EditDelta(3).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void toJson_roundTripsEditsAndBaseVersion() throws Exception {
+        subject.record(6, 0, "there ");
+        subject.record(0, 5, "Hi");
+
+        EditDelta parsed = EditDelta.fromJson(subject.toJson());
+
+        assertThat(parsed.getBaseVersion()).isEqualTo(3);
+        assertThat(parsed.getEdits()).isEqualTo(subject.getEdits());
+        assertThat(parsed.applyTo("hello world")).isEqualTo("Hi there world");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void applyTo_whenEditFallsOutsideBody_throws() throws Exception {
+        subject.record(20, 0, "x");
+
+        subject.applyTo("hello world");
+    }
+
+}
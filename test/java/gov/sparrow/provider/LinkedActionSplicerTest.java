@@ -0,0 +1,294 @@
+package gov.sparrow.provider;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.ActionContract.Action;
+import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.database.SearchIndexSchema;
+import gov.sparrow.provider.services.NoteService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class LinkedActionSplicerTest {
+
+    @Mock SQLiteDatabase db;
+    @Mock NoteChunkStore noteChunkStore;
+    @Captor ArgumentCaptor<Object[]> argsCaptor;
+    private LinkedActionSplicer subject;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        subject = new LinkedActionSplicer(noteChunkStore, new NoteService(noteChunkStore, new StatementCache()));
+    }
+
+    @Test
+    public void splice_shouldRewriteBodyOnce_andShiftOnlyDownstreamOffsets() throws Exception {
+        setupSource("see old task here", false, 4, 12);
+
+        int written = subject.splice(db, 11L, 1L, "new");
+        assertThat(written).isEqualTo(3);
+
+        InOrder inOrder = inOrder(db);
+        inOrder.verify(db).execSQL(eq(LinkedActionSplicer.UPDATE_NOTE_BODY_SQL), argsCaptor.capture());
+        assertThat(argsCaptor.getValue()).containsExactly("see new here", "see new here", -1, 11L);
+
+        inOrder.verify(db).execSQL(eq(LinkedActionSplicer.SHIFT_STYLES_SQL), argsCaptor.capture());
+        assertThat(argsCaptor.getValue()).containsExactly(12, -5, 11L);
+
+        inOrder.verify(db).execSQL(eq(LinkedActionSplicer.SHIFT_ACTION_LINKS_SQL), argsCaptor.capture());
+        assertThat(argsCaptor.getValue()).containsExactly(12, -5, 11L);
+
+        verify(db, times(1)).rawQuery(anyString(), any(String[].class));
+    }
+
+    @Test
+    public void splice_whenTitleLengthIsUnchanged_shouldNotShiftOffsets() throws Exception {
+        setupSource("see old task here", false, 4, 12);
+
+        int written = subject.splice(db, 11L, 1L, "new task");
+        assertThat(written).isEqualTo(1);
+
+        verify(db).execSQL(eq(LinkedActionSplicer.UPDATE_NOTE_BODY_SQL), argsCaptor.capture());
+        assertThat(argsCaptor.getValue()).containsExactly("see new task here", "see new task here", 0, 11L);
+        verify(db, never()).execSQL(eq(LinkedActionSplicer.SHIFT_STYLES_SQL), any(Object[].class));
+        verify(db, never()).execSQL(eq(LinkedActionSplicer.SHIFT_ACTION_LINKS_SQL), any(Object[].class));
+    }
+
+    @Test
+    public void splice_whenTitleIsUnchanged_shouldWriteNothing() throws Exception {
+        setupSource("see old task here", false, 4, 12);
+
+        assertThat(subject.splice(db, 11L, 1L, "old task")).isEqualTo(0);
+
+        verify(db, never()).execSQL(anyString(), any(Object[].class));
+    }
+
+    @Test
+    public void splice_whenPreviewIsLongerThanBody_shouldTruncatePreview() throws Exception {
+        StringBuilder body = new StringBuilder("x");
+        for (int i = 0; i < Note.PREVIEW_LENGTH; i++) {
+            body.append('-');
+        }
+        setupSource(body.toString(), false, 0, 1);
+
+        subject.splice(db, 11L, 1L, "y");
+
+        verify(db).execSQL(eq(LinkedActionSplicer.UPDATE_NOTE_BODY_SQL), argsCaptor.capture());
+        assertThat((String) argsCaptor.getValue()[1]).hasSize(Note.PREVIEW_LENGTH);
+        assertThat((String) argsCaptor.getValue()[1]).startsWith("y-");
+    }
+
+    @Test
+    public void updateNoteBodySql_shouldBumpVersion() throws Exception {
+        assertThat(LinkedActionSplicer.UPDATE_NOTE_BODY_SQL).isEqualTo(
+                "UPDATE " + Note.TABLE_NAME + " SET " +
+                        Note.COLUMN_NAME_BODY + "=?, " +
+                        Note.COLUMN_NAME_PREVIEW + "=?, " +
+                        Note.COLUMN_NAME_WORD_COUNT + "=" + Note.COLUMN_NAME_WORD_COUNT + "+?, " +
+                        Note.COLUMN_NAME_VERSION + "=" + Note.COLUMN_NAME_VERSION + "+1" +
+                        " WHERE " + Note._ID + "=?;");
+    }
+
+    @Test
+    public void splice_whenNoteIsChunked_shouldWriteThroughNoteServiceChunkedPath() throws Exception {
+        String tail = longTail();
+        setupSource("", true, 4, 12);
+        when(noteChunkStore.read(db, 11L)).thenReturn("see old task here" + tail);
+
+        int written = subject.splice(db, 11L, 1L, "new");
+        assertThat(written).isEqualTo(3);
+
+        ArgumentCaptor<ContentValues> valuesCaptor = ArgumentCaptor.forClass(ContentValues.class);
+        InOrder inOrder = inOrder(db, noteChunkStore);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(db).execSQL(SearchIndexSchema.UNINDEX_NOTE_SQL, new Object[]{11L});
+        inOrder.verify(db).execSQL(SearchIndexSchema.SUSPEND_NOTE_SQL, new Object[]{11L});
+        inOrder.verify(noteChunkStore).write(db, 11L, "see new here" + tail);
+        inOrder.verify(db).update(eq(Note.TABLE_NAME), valuesCaptor.capture(), eq(Note._ID + "=?"), eq(new String[]{"11"}));
+        inOrder.verify(db).execSQL(NoteService.bumpVersionSql(Note._ID + "=?"), new Object[]{"11"});
+        inOrder.verify(db).execSQL(SearchIndexSchema.RESUME_NOTE_SQL, new Object[]{11L});
+        inOrder.verify(db).execSQL(SearchIndexSchema.INDEX_NOTE_SQL, new Object[]{11L});
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+        inOrder.verify(db).execSQL(eq(LinkedActionSplicer.SHIFT_STYLES_SQL), any(Object[].class));
+        inOrder.verify(db).execSQL(eq(LinkedActionSplicer.SHIFT_ACTION_LINKS_SQL), any(Object[].class));
+
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_CHUNKED)).isEqualTo("true");
+        verify(db, never()).execSQL(eq(LinkedActionSplicer.UPDATE_NOTE_BODY_SQL), any(Object[].class));
+    }
+
+    @Test
+    public void splice_whenBodyGrowsPastChunkThreshold_shouldWriteThroughNoteService() throws Exception {
+        StringBuilder body = new StringBuilder("see old here");
+        while (body.length() < Note.CHUNKED_BODY_THRESHOLD) {
+            body.append('-');
+        }
+        setupSource(body.toString(), false, 4, 7);
+
+        subject.splice(db, 11L, 1L, "much longer title");
+
+        verify(noteChunkStore).write(eq(db), eq(11L), startsWith("see much longer title here"));
+        verify(db).execSQL(NoteService.bumpVersionSql(Note._ID + "=?"), new Object[]{"11"});
+        verify(db, never()).execSQL(eq(LinkedActionSplicer.UPDATE_NOTE_BODY_SQL), any(Object[].class));
+    }
+
+    @Test
+    public void splice_whenActionIsNotLinkedToNote_shouldWriteNothing() throws Exception {
+        when(db.rawQuery(LinkedActionSplicer.SOURCE_SQL, new String[]{"1", "11"}))
+                .thenReturn(new MatrixCursor(sourceColumns()));
+
+        assertThat(subject.splice(db, 11L, 1L, "new")).isEqualTo(0);
+
+        verify(db, never()).execSQL(anyString(), any(Object[].class));
+        verify(noteChunkStore, never()).write(any(SQLiteDatabase.class), anyLong(), anyString());
+    }
+
+    @Test
+    public void shiftSql_shouldMoveEndsAtOrAfterOldLinkEnd_andStartsOnlyWhenTheyStartThere() throws Exception {
+        assertThat(LinkedActionSplicer.SHIFT_STYLES_SQL).isEqualTo(
+                "UPDATE " + Style.TABLE_NAME + " SET " +
+                        Style.COLUMN_NAME_START + " = CASE WHEN " + Style.COLUMN_NAME_START + " >= ?1" +
+                        " THEN " + Style.COLUMN_NAME_START + " + ?2 ELSE " + Style.COLUMN_NAME_START + " END, " +
+                        Style.COLUMN_NAME_END + " = " + Style.COLUMN_NAME_END + " + ?2" +
+                        " WHERE " + Style.COLUMN_NAME_NOTE_ID + " = ?3 AND " + Style.COLUMN_NAME_END + " >= ?1;");
+        assertThat(LinkedActionSplicer.SHIFT_ACTION_LINKS_SQL).isEqualTo(
+                "UPDATE " + Action.TABLE_NAME + " SET " +
+                        Action.COLUMN_NAME_LINK_START + " = CASE WHEN " + Action.COLUMN_NAME_LINK_START + " >= ?1" +
+                        " THEN " + Action.COLUMN_NAME_LINK_START + " + ?2 ELSE " + Action.COLUMN_NAME_LINK_START + " END, " +
+                        Action.COLUMN_NAME_LINK_END + " = " + Action.COLUMN_NAME_LINK_END + " + ?2" +
+                        " WHERE " + Action.COLUMN_NAME_NOTE_ID + " = ?3 AND " + Action.COLUMN_NAME_LINK_END + " >= ?1;");
+    }
+
+    @Test
+    public void splice_shouldMoveRenamedActionsOwnLinkEndByDelta() throws Exception {
+        SQLiteDatabase realDb = spliceDatabase("see old task here");
+        insertAction(realDb, 1L, 11L, 4, 12);
+        insertAction(realDb, 2L, 11L, 13, 17);
+        insertAction(realDb, 3L, 12L, 13, 17);
+
+        subject.splice(realDb, 11L, 1L, "new");
+
+        assertThat(rangeOf(realDb, Action.TABLE_NAME, Action.COLUMN_NAME_LINK_START, Action.COLUMN_NAME_LINK_END, 1L))
+                .isEqualTo(new int[]{4, 7});
+        assertThat(rangeOf(realDb, Action.TABLE_NAME, Action.COLUMN_NAME_LINK_START, Action.COLUMN_NAME_LINK_END, 2L))
+                .isEqualTo(new int[]{8, 12});
+        assertThat(rangeOf(realDb, Action.TABLE_NAME, Action.COLUMN_NAME_LINK_START, Action.COLUMN_NAME_LINK_END, 3L))
+                .isEqualTo(new int[]{13, 17});
+        assertThat(bodyOf(realDb, 11L)).isEqualTo("see new here");
+        realDb.close();
+    }
+
+    @Test
+    public void splice_whenStyleStraddlesLink_shouldShiftOnlyItsEnd() throws Exception {
+        SQLiteDatabase realDb = spliceDatabase("see old task here");
+        insertAction(realDb, 1L, 11L, 4, 12);
+        insertStyle(realDb, 1L, 0, 3);
+        insertStyle(realDb, 2L, 0, 17);
+        insertStyle(realDb, 3L, 6, 12);
+        insertStyle(realDb, 4L, 13, 17);
+
+        subject.splice(realDb, 11L, 1L, "new");
+
+        assertThat(rangeOf(realDb, Style.TABLE_NAME, Style.COLUMN_NAME_START, Style.COLUMN_NAME_END, 1L))
+                .isEqualTo(new int[]{0, 3});
+        assertThat(rangeOf(realDb, Style.TABLE_NAME, Style.COLUMN_NAME_START, Style.COLUMN_NAME_END, 2L))
+                .isEqualTo(new int[]{0, 12});
+        assertThat(rangeOf(realDb, Style.TABLE_NAME, Style.COLUMN_NAME_START, Style.COLUMN_NAME_END, 3L))
+                .isEqualTo(new int[]{6, 7});
+        assertThat(rangeOf(realDb, Style.TABLE_NAME, Style.COLUMN_NAME_START, Style.COLUMN_NAME_END, 4L))
+                .isEqualTo(new int[]{8, 12});
+        realDb.close();
+    }
+
+    private SQLiteDatabase spliceDatabase(String body) {
+        SQLiteDatabase realDb = SQLiteDatabase.create(null);
+        realDb.execSQL("CREATE TABLE " + Note.TABLE_NAME + " (" + Note._ID + " INTEGER PRIMARY KEY, " +
+                Note.COLUMN_NAME_BODY + " TEXT, " + Note.COLUMN_NAME_PREVIEW + " TEXT, " +
+                Note.COLUMN_NAME_WORD_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                Note.COLUMN_NAME_VERSION + " INTEGER NOT NULL DEFAULT 0, " +
+                Note.COLUMN_NAME_CHUNKED + " TEXT NOT NULL DEFAULT 'false');");
+        realDb.execSQL("CREATE TABLE " + Action.TABLE_NAME + " (" + Action._ID + " INTEGER PRIMARY KEY, " +
+                Action.COLUMN_NAME_NOTE_ID + " INTEGER, " + Action.COLUMN_NAME_LINK_START + " INTEGER, " +
+                Action.COLUMN_NAME_LINK_END + " INTEGER);");
+        realDb.execSQL("CREATE TABLE " + Style.TABLE_NAME + " (" + Style._ID + " INTEGER PRIMARY KEY, " +
+                Style.COLUMN_NAME_NOTE_ID + " INTEGER, " + Style.COLUMN_NAME_START + " INTEGER, " +
+                Style.COLUMN_NAME_END + " INTEGER);");
+        realDb.execSQL("INSERT INTO " + Note.TABLE_NAME + " (" + Note._ID + ", " + Note.COLUMN_NAME_BODY + ") VALUES (11, ?);",
+                new Object[]{body});
+        return realDb;
+    }
+
+    private void insertAction(SQLiteDatabase realDb, long id, long noteId, int linkStart, int linkEnd) {
+        realDb.execSQL("INSERT INTO " + Action.TABLE_NAME + " VALUES (?, ?, ?, ?);", new Object[]{id, noteId, linkStart, linkEnd});
+    }
+
+    private void insertStyle(SQLiteDatabase realDb, long id, int start, int end) {
+        realDb.execSQL("INSERT INTO " + Style.TABLE_NAME + " VALUES (?, 11, ?, ?);", new Object[]{id, start, end});
+    }
+
+    private int[] rangeOf(SQLiteDatabase realDb, String tableName, String columnNameStart, String columnNameEnd, long id) {
+        Cursor cursor = realDb.rawQuery("SELECT " + columnNameStart + ", " + columnNameEnd + " FROM " + tableName +
+                " WHERE _id=?", new String[]{Long.toString(id)});
+        try {
+            cursor.moveToFirst();
+            return new int[]{cursor.getInt(0), cursor.getInt(1)};
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private String bodyOf(SQLiteDatabase realDb, long noteId) {
+        Cursor cursor = realDb.rawQuery("SELECT " + Note.COLUMN_NAME_BODY + " FROM " + Note.TABLE_NAME +
+                " WHERE " + Note._ID + "=?", new String[]{Long.toString(noteId)});
+        try {
+            cursor.moveToFirst();
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void setupSource(String body, boolean chunked, int linkStart, int linkEnd) {
+        MatrixCursor cursor = new MatrixCursor(sourceColumns());
+        cursor.addRow(new Object[]{body, Boolean.toString(chunked), linkStart, linkEnd});
+        when(db.rawQuery(LinkedActionSplicer.SOURCE_SQL, new String[]{"1", "11"})).thenReturn(cursor);
+    }
+
+    private String longTail() {
+        StringBuilder tail = new StringBuilder();
+        while (tail.length() <= Note.CHUNKED_BODY_THRESHOLD) {
+            tail.append(" 0123456789");
+        }
+        return tail.toString();
+    }
+
+    private String[] sourceColumns() {
+        return new String[]{
+                Note.COLUMN_NAME_BODY,
+                Note.COLUMN_NAME_CHUNKED,
+                Action.COLUMN_NAME_LINK_START,
+                Action.COLUMN_NAME_LINK_END
+        };
+    }
+
+}
@@ -2,7 +2,9 @@ package gov.sparrow.provider;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import gov.sparrow.SparrowTestRunner;
 import org.junit.Before;
 import org.junit.Test;
@@ -10,6 +12,9 @@ import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -25,92 +30,478 @@ public class ListPositionHelperTest {
     private final String[] selectionArgs = new String[]{"2"};
 
     @Mock SQLiteDatabase db;
-    @Mock Cursor cursor;
+    @Mock SQLiteStatement moveStatement;
+    @Mock SQLiteStatement shiftStatement;
+    @Mock ListPositionHelper.RebalanceScheduler rebalanceScheduler;
     private ListPositionHelper subject;
 
     @Before
     public void setUp() {
         initMocks(this);
-        subject = new ListPositionHelper();
+        when(db.compileStatement(ListPositionHelper.moveRankSql(tableName, columnNamePosition, columnNameId)))
+                .thenReturn(moveStatement);
+        subject = new ListPositionHelper(new StatementCache(), rebalanceScheduler);
     }
 
     @Test
-    public void updateActionListPosition_whenEndPositionGreaterThanStart_shouldShiftActionsBetweenPositionsUpOne() throws Exception {
+    public void update_whenMovingDown_shouldWriteOnlyMovedRow_withRankAfterTargetRow() throws Exception {
         ContentValues contentValues = new ContentValues();
+        contentValues.put(columnNamePosition, 300);
+        setupCurrentRank(100);
+        setupNextRank(300, 400);
+        when(moveStatement.executeUpdateDelete()).thenReturn(1);
+
+        int updateCount = subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
+        assertThat(updateCount).isEqualTo(1);
 
-        setupForUpdateActionListPosition(1, 3, selectionArgs, contentValues);
+        InOrder inOrder = inOrder(db, moveStatement);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(moveStatement).bindLong(1, 350);
+        inOrder.verify(moveStatement).bindString(2, "2");
+        inOrder.verify(moveStatement).executeUpdateDelete();
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+        verify(db, never()).execSQL(anyString());
+        verifyZeroInteractions(rebalanceScheduler);
+    }
+
+    @Test
+    public void update_whenMovingUp_shouldWriteOnlyMovedRow_withRankBeforeTargetRow() throws Exception {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(columnNamePosition, 300);
+        setupCurrentRank(500);
+        setupPreviousRank(300, 200);
 
         subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
-        InOrder inOrder = inOrder(db);
 
+        verifyMovedTo(250);
+    }
+
+    @Test
+    public void update_whenMovedAboveFirstRow_shouldRankOneSpacingBeforeIt() throws Exception {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(columnNamePosition, 0);
+        setupCurrentRank(300);
+        setupPreviousRank(0);
+
+        subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
+
+        verifyMovedTo(-ListPositionHelper.RANK_SPACING);
+    }
+
+    @Test
+    public void update_whenMovedBelowLastRow_shouldRankOneSpacingAfterIt() throws Exception {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(columnNamePosition, 400);
+        setupCurrentRank(0);
+        setupNextRank(400);
+
+        subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
+
+        verifyMovedTo(400 + ListPositionHelper.RANK_SPACING);
+    }
+
+    @Test
+    public void update_whenTargetIsMovedRow_writesNothing() throws Exception {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(columnNamePosition, 300);
+        setupCurrentRank(300);
+
+        int updateCount = subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
+
+        assertThat(updateCount).isEqualTo(0);
+        verify(moveStatement, never()).executeUpdateDelete();
+        verify(db, never()).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+    }
+
+    @Test
+    public void update_whenGapAfterTargetIsExhausted_shouldShiftAdjacentRanks_andScheduleRebalance() throws Exception {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(columnNamePosition, 3);
+        setupCurrentRank(1);
+        setupNextRank(3, 4);
+        MatrixCursor freeRank = new MatrixCursor(new String[]{"free"});
+        freeRank.addRow(new Object[]{5});
+        when(db.rawQuery(ListPositionHelper.freeRankSql(tableName, columnNamePosition, true), new String[]{"3"}))
+                .thenReturn(freeRank);
+        when(db.compileStatement(ListPositionHelper.shiftRunSql(tableName, columnNamePosition, true)))
+                .thenReturn(shiftStatement);
+        when(shiftStatement.executeUpdateDelete()).thenReturn(1);
+        when(moveStatement.executeUpdateDelete()).thenReturn(1);
+
+        int updateCount = subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
+        assertThat(updateCount).isEqualTo(2);
+
+        InOrder inOrder = inOrder(db, shiftStatement, moveStatement);
         inOrder.verify(db).beginTransaction();
-        inOrder.verify(db).execSQL("UPDATE " + tableName + " SET " +
-                columnNamePosition + " = (" +
-                columnNamePosition + " - 1)" +
-                " WHERE " + columnNamePosition + " <= 3 AND " +
-                columnNamePosition + " > 1;");
-        inOrder.verify(db).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+        inOrder.verify(shiftStatement).bindLong(1, 3);
+        inOrder.verify(shiftStatement).bindLong(2, 5);
+        inOrder.verify(shiftStatement).executeUpdateDelete();
+        inOrder.verify(shiftStatement).close();
+        inOrder.verify(moveStatement).bindLong(1, 4);
+        inOrder.verify(moveStatement).executeUpdateDelete();
         inOrder.verify(db).setTransactionSuccessful();
         inOrder.verify(db).endTransaction();
+        verify(db, never()).execSQL(anyString());
+        verify(rebalanceScheduler).scheduleRebalance();
+        assertThat(freeRank.isClosed()).isTrue();
     }
 
     @Test
-    public void updateActionListPosition_whenEndPositionLessThanStart_shouldShiftActionsBetweenPositionsDownOne() throws Exception {
+    public void update_acrossSeveralMoves_shouldCompileMoveStatementOnce() throws Exception {
         ContentValues contentValues = new ContentValues();
-        setupForUpdateActionListPosition(5, 3, selectionArgs, contentValues);
+        contentValues.put(columnNamePosition, 300);
+        for (int i = 0; i < 3; i++) {
+            setupCurrentRank(500);
+            setupPreviousRank(300, 200);
+            subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
+        }
 
-        subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
+        verify(db, times(1)).compileStatement(ListPositionHelper.moveRankSql(tableName, columnNamePosition, columnNameId));
+        verify(moveStatement, times(3)).executeUpdateDelete();
+        verify(moveStatement, never()).close();
+    }
+
+    @Test
+    public void moveRankSql_shouldWriteOneRowById() throws Exception {
+        assertThat(ListPositionHelper.moveRankSql(tableName, columnNamePosition, columnNameId)).isEqualTo(
+                "UPDATE " + tableName + " SET " + columnNamePosition + " = ? WHERE " + columnNameId + " = ?;");
+    }
+
+    @Test
+    public void rebalanceSql_shouldSnapshotOrdinalsBeforeRewritingRanks() throws Exception {
+        assertThat(ListPositionHelper.rebalanceSql(tableName, columnNamePosition, columnNameId)).containsExactly(
+                "CREATE TEMP TABLE IF NOT EXISTS rank_ordinals (ordinal INTEGER PRIMARY KEY, row_id INTEGER NOT NULL);",
+                "DELETE FROM temp.rank_ordinals;",
+                "INSERT INTO temp.rank_ordinals (row_id) SELECT " + columnNameId + " FROM " + tableName +
+                        " ORDER BY " + columnNamePosition + ", " + columnNameId + ";",
+                "UPDATE " + tableName + " SET " + columnNamePosition + " = ((" +
+                        "SELECT ordinal FROM temp.rank_ordinals WHERE row_id = " + tableName + "." + columnNameId +
+                        ") - 1) * " + ListPositionHelper.RANK_SPACING + ";",
+                "DROP TABLE temp.rank_ordinals;");
+    }
+
+    @Test
+    public void rebalance_shouldRunInItsOwnTransaction() throws Exception {
+        subject.rebalance(db, tableName, columnNamePosition, columnNameId);
 
         InOrder inOrder = inOrder(db);
         inOrder.verify(db).beginTransaction();
-        inOrder.verify(db).execSQL("UPDATE " + tableName + " SET " +
-                columnNamePosition + " = (" +
-                columnNamePosition + " + 1)" +
-                " WHERE " + columnNamePosition + " >= 3 AND " +
-                columnNamePosition + " < 5;");
-        inOrder.verify(db).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+        for (String statement : ListPositionHelper.rebalanceSql(tableName, columnNamePosition, columnNameId)) {
+            inOrder.verify(db).execSQL(statement);
+        }
         inOrder.verify(db).setTransactionSuccessful();
         inOrder.verify(db).endTransaction();
     }
 
     @Test
-    public void updateActionListPosition_whenEndPositionEqualsStart_shiftsNoRows() throws Exception {
-        int position = 3;
+    public void rebalance_onRealDatabase_shouldKeepRowOrder_withDistinctSpacedRanks() throws Exception {
+        SQLiteDatabase realDb = itemsDatabase(new long[][]{{1, 100}, {2, 5000}, {3, 3000}, {4, 3000}});
+
+        subject.rebalance(realDb, "items", "pos", "_id");
+
+        assertThat(ranksById(realDb)).containsExactly(
+                0L,
+                3L * ListPositionHelper.RANK_SPACING,
+                1L * ListPositionHelper.RANK_SPACING,
+                2L * ListPositionHelper.RANK_SPACING);
+        realDb.close();
+    }
+
+    @Test
+    public void update_onRealDatabase_whenGapAfterTargetIsExhausted_shouldShiftOnlyTheRunAfterTarget() throws Exception {
+        SQLiteDatabase realDb = itemsDatabase(new long[][]{{1, 1}, {2, 2}, {3, 3}, {4, 4}, {5, 9}});
         ContentValues contentValues = new ContentValues();
-        setupForUpdateActionListPosition(position, position, selectionArgs, contentValues);
+        contentValues.put("pos", 3);
 
-        subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
+        int updateCount = subject.update(realDb, contentValues, "items", "pos", "_id", new String[]{"1"});
 
-        verify(db, never()).execSQL(anyString());
+        assertThat(updateCount).isEqualTo(2);
+        assertThat(idsInOrder(realDb)).containsExactly(2L, 3L, 1L, 4L, 5L);
+        assertThat(ranksById(realDb)).containsExactly(4L, 2L, 3L, 5L, 9L);
+        verify(rebalanceScheduler).scheduleRebalance();
+        realDb.close();
     }
 
     @Test
-    public void updateActionListPosition_returnsNumberOfRowsAffectedIncludingShiftedActions() throws Exception {
+    public void update_onRealDatabase_whenGapBeforeTargetIsExhausted_shouldShiftOnlyTheRunBeforeTarget() throws Exception {
+        SQLiteDatabase realDb = itemsDatabase(new long[][]{{1, -5}, {2, 1}, {3, 2}, {4, 3}, {5, 4}});
         ContentValues contentValues = new ContentValues();
-        contentValues.put(columnNamePosition, 3);
+        contentValues.put("pos", 3);
+
+        int updateCount = subject.update(realDb, contentValues, "items", "pos", "_id", new String[]{"5"});
+
+        assertThat(updateCount).isEqualTo(3);
+        assertThat(idsInOrder(realDb)).containsExactly(1L, 2L, 3L, 5L, 4L);
+        assertThat(ranksById(realDb)).containsExactly(-5L, 0L, 1L, 3L, 2L);
+        verify(rebalanceScheduler).scheduleRebalance();
+        realDb.close();
+    }
 
-        when(db.update(
-                anyString(),
-                any(ContentValues.class),
-                anyString(),
-                any(String[].class)
-        )).thenReturn(1);
+    @Test
+    public void appendRankSql_onRealDatabase_shouldRankNewRowsOneSpacingAfterTheLast() throws Exception {
+        SQLiteDatabase realDb = itemsDatabase(new long[0][]);
+        String insert = "INSERT INTO items (pos) VALUES (" + ListPositionHelper.appendRankSql("items", "pos") + ");";
+
+        realDb.execSQL(insert);
+        realDb.execSQL(insert);
+        realDb.execSQL("UPDATE items SET pos = 5000 WHERE _id = 1;");
+        realDb.execSQL(insert);
+
+        assertThat(ranksById(realDb)).containsExactly(
+                5000L, 1L * ListPositionHelper.RANK_SPACING, 5000L + ListPositionHelper.RANK_SPACING);
+        realDb.close();
+    }
 
-        when(db.query(tableName,
+    @Test
+    public void moveToAnchor_shouldReadTargetRankByAnchorId() throws Exception {
+        when(db.query(
+                tableName,
                 new String[]{columnNamePosition},
                 columnNameId + "=?",
-                selectionArgs, null, null, null)).thenReturn(cursor);
-        when(cursor.moveToFirst()).thenReturn(true);
-        when(cursor.getColumnIndexOrThrow(columnNamePosition)).thenReturn(10);
-        when(cursor.getInt(10)).thenReturn(9);
+                new String[]{"7"},
+                null,
+                null,
+                null
+        )).thenReturn(rankCursor(300));
+        setupCurrentRank(100);
+        setupNextRank(300, 400);
 
-        int updateCount = subject.update(db, contentValues, tableName, columnNamePosition, columnNameId, selectionArgs);
-        assertThat(updateCount).isEqualTo(7);
+        subject.moveToAnchor(db, tableName, columnNamePosition, columnNameId, "2", 7L);
+
+        verifyMovedTo(350);
+    }
+
+    @Test
+    public void moveToAnchor_withoutAnchor_shouldMoveAfterLastRank() throws Exception {
+        when(db.query(
+                tableName,
+                new String[]{columnNamePosition},
+                null,
+                null,
+                null,
+                null,
+                columnNamePosition + " DESC",
+                "1"
+        )).thenReturn(rankCursor(400));
+        setupCurrentRank(100);
+        setupNextRank(400);
+
+        subject.moveToAnchor(db, tableName, columnNamePosition, columnNameId, "2", null);
+
+        verifyMovedTo(400 + ListPositionHelper.RANK_SPACING);
+    }
+
+    @Test
+    public void moveToAnchor_onRealDatabase_shouldPlaceRowWhereAnchorWas() throws Exception {
+        SQLiteDatabase realDb = spacedItemsDatabase(4);
+
+        subject.moveToAnchor(realDb, "items", "pos", "_id", "1", 3L);
+        assertThat(idsInOrder(realDb)).containsExactly(2L, 3L, 1L, 4L);
+
+        subject.moveToAnchor(realDb, "items", "pos", "_id", "4", 2L);
+        assertThat(idsInOrder(realDb)).containsExactly(4L, 2L, 3L, 1L);
+        realDb.close();
+    }
+
+    @Test
+    public void moveToAnchor_onRealDatabase_withoutAnchor_shouldPlaceRowLast() throws Exception {
+        SQLiteDatabase realDb = spacedItemsDatabase(4);
+
+        subject.moveToAnchor(realDb, "items", "pos", "_id", "2", null);
+
+        assertThat(idsInOrder(realDb)).containsExactly(1L, 3L, 4L, 2L);
+        realDb.close();
+    }
+
+    @Test
+    public void moveToAnchor_onRealDatabase_ontoItself_shouldWriteNothing() throws Exception {
+        SQLiteDatabase realDb = spacedItemsDatabase(4);
+
+        int updateCount = subject.moveToAnchor(realDb, "items", "pos", "_id", "3", 3L);
+
+        assertThat(updateCount).isEqualTo(0);
+        assertThat(ranksById(realDb)).containsExactly(
+                0L, 1L * ListPositionHelper.RANK_SPACING, 2L * ListPositionHelper.RANK_SPACING, 3L * ListPositionHelper.RANK_SPACING);
+        realDb.close();
+    }
+
+    @Test
+    public void moveToAnchor_onRealDatabase_whenAnchorIsGone_shouldWriteNothing() throws Exception {
+        SQLiteDatabase realDb = spacedItemsDatabase(4);
+
+        int updateCount = subject.moveToAnchor(realDb, "items", "pos", "_id", "3", 99L);
+
+        assertThat(updateCount).isEqualTo(0);
+        assertThat(idsInOrder(realDb)).containsExactly(1L, 2L, 3L, 4L);
+        realDb.close();
+    }
+
+    @Test
+    public void assignRanks_shouldRankListedRowsFirst_thenRowsOutsideTheList() throws Exception {
+        SQLiteStatement ordinalStatement = mock(SQLiteStatement.class);
+        SQLiteStatement rankStatement = mock(SQLiteStatement.class);
+        when(db.compileStatement(ListPositionHelper.INSERT_ORDINAL_SQL)).thenReturn(ordinalStatement);
+        when(db.compileStatement(ListPositionHelper.assignRankSql(tableName, columnNamePosition, columnNameId)))
+                .thenReturn(rankStatement);
+        when(rankStatement.executeUpdateDelete()).thenReturn(2);
+
+        int updateCount = subject.assignRanks(db, tableName, columnNamePosition, columnNameId, new long[]{7L, 3L});
+        assertThat(updateCount).isEqualTo(2);
+
+        InOrder inOrder = inOrder(db, ordinalStatement, rankStatement);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(db).execSQL(ListPositionHelper.CREATE_ORDINALS_SQL);
+        inOrder.verify(db).execSQL(ListPositionHelper.CLEAR_ORDINALS_SQL);
+        inOrder.verify(ordinalStatement).bindLong(1, 7L);
+        inOrder.verify(ordinalStatement).executeInsert();
+        inOrder.verify(ordinalStatement).bindLong(1, 3L);
+        inOrder.verify(ordinalStatement).executeInsert();
+        inOrder.verify(db).execSQL(ListPositionHelper.appendUnlistedSql(tableName, columnNamePosition, columnNameId));
+        inOrder.verify(rankStatement).executeUpdateDelete();
+        inOrder.verify(db).execSQL(ListPositionHelper.CLEAR_ORDINALS_SQL);
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+        verify(ordinalStatement, never()).close();
+        verify(rankStatement, never()).close();
+    }
+
+    @Test
+    public void assignRanks_acrossSeveralReorders_shouldCompileStatementsOnce() throws Exception {
+        SQLiteStatement ordinalStatement = mock(SQLiteStatement.class);
+        SQLiteStatement rankStatement = mock(SQLiteStatement.class);
+        when(db.compileStatement(ListPositionHelper.INSERT_ORDINAL_SQL)).thenReturn(ordinalStatement);
+        when(db.compileStatement(ListPositionHelper.assignRankSql(tableName, columnNamePosition, columnNameId)))
+                .thenReturn(rankStatement);
+
+        subject.assignRanks(db, tableName, columnNamePosition, columnNameId, new long[]{7L, 3L});
+        subject.assignRanks(db, tableName, columnNamePosition, columnNameId, new long[]{3L, 7L});
+
+        verify(db, times(1)).compileStatement(ListPositionHelper.INSERT_ORDINAL_SQL);
+        verify(db, times(1)).compileStatement(ListPositionHelper.assignRankSql(tableName, columnNamePosition, columnNameId));
+        verify(ordinalStatement, times(4)).executeInsert();
+        verify(rankStatement, times(2)).executeUpdateDelete();
+    }
+
+    @Test
+    public void assignRanks_onRealDatabase_withPartialList_shouldKeepRanksDistinct() throws Exception {
+        SQLiteDatabase realDb = spacedItemsDatabase(4);
+
+        int updateCount = subject.assignRanks(realDb, "items", "pos", "_id", new long[]{3L, 1L});
+
+        assertThat(updateCount).isEqualTo(3);
+        assertThat(idsInOrder(realDb)).containsExactly(3L, 1L, 2L, 4L);
+        assertThat(ranksById(realDb)).containsExactly(
+                1L * ListPositionHelper.RANK_SPACING,
+                2L * ListPositionHelper.RANK_SPACING,
+                0L,
+                3L * ListPositionHelper.RANK_SPACING);
+        realDb.close();
+    }
+
+    @Test
+    public void assignRanks_onRealDatabase_whenRowsAreAlreadyInPlace_shouldWriteNothing() throws Exception {
+        SQLiteDatabase realDb = spacedItemsDatabase(3);
+
+        assertThat(subject.assignRanks(realDb, "items", "pos", "_id", new long[]{1L, 2L, 3L})).isEqualTo(0);
+        assertThat(subject.assignRanks(realDb, "items", "pos", "_id", new long[]{1L})).isEqualTo(0);
+        realDb.close();
+    }
+
+    @Test
+    public void reorderSql_shouldListRowsThenAppendTheRestInCurrentOrder() throws Exception {
+        assertThat(ListPositionHelper.CREATE_ORDINALS_SQL).isEqualTo(
+                "CREATE TEMP TABLE IF NOT EXISTS rank_ordinals (ordinal INTEGER PRIMARY KEY, row_id INTEGER NOT NULL);");
+        assertThat(ListPositionHelper.CLEAR_ORDINALS_SQL).isEqualTo("DELETE FROM temp.rank_ordinals;");
+        assertThat(ListPositionHelper.INSERT_ORDINAL_SQL).isEqualTo("INSERT INTO temp.rank_ordinals (row_id) VALUES (?);");
+        assertThat(ListPositionHelper.appendUnlistedSql(tableName, columnNamePosition, columnNameId)).isEqualTo(
+                "INSERT INTO temp.rank_ordinals (row_id) SELECT " + columnNameId + " FROM " + tableName +
+                        " WHERE " + columnNameId + " NOT IN (SELECT row_id FROM temp.rank_ordinals)" +
+                        " ORDER BY " + columnNamePosition + ", " + columnNameId + ";");
+    }
+
+    @Test
+    public void assignRankSql_shouldOnlyMatchRowsWhoseRankDiffers() throws Exception {
+        String rank = "(SELECT (ordinal - 1) * " + ListPositionHelper.RANK_SPACING +
+                " FROM temp.rank_ordinals WHERE row_id = " + tableName + "." + columnNameId + ")";
+        assertThat(ListPositionHelper.assignRankSql(tableName, columnNamePosition, columnNameId)).isEqualTo(
+                "UPDATE " + tableName + " SET " + columnNamePosition + " = " + rank +
+                        " WHERE " + columnNamePosition + " IS NOT " + rank + ";");
+    }
+
+    @Test
+    public void appendRankSql_shouldRankOneSpacingAfterLastRank_orZeroWhenEmpty() throws Exception {
+        assertThat(ListPositionHelper.appendRankSql(tableName, columnNamePosition)).isEqualTo(
+                "(SELECT COALESCE(MAX(" + columnNamePosition + ") + " + ListPositionHelper.RANK_SPACING + ", 0)" +
+                        " FROM " + tableName + ")");
+    }
+
+    @Test
+    public void freeRankSql_shouldSeekFirstFreeRankInMoveDirection() throws Exception {
+        assertThat(ListPositionHelper.freeRankSql(tableName, columnNamePosition, true)).isEqualTo(
+                "SELECT " + columnNamePosition + " + 1 FROM " + tableName + " WHERE " + columnNamePosition + " >= ?" +
+                        " AND " + columnNamePosition + " + 1 NOT IN (SELECT " + columnNamePosition + " FROM " + tableName + ")" +
+                        " ORDER BY " + columnNamePosition + " ASC LIMIT 1");
+        assertThat(ListPositionHelper.freeRankSql(tableName, columnNamePosition, false)).isEqualTo(
+                "SELECT " + columnNamePosition + " - 1 FROM " + tableName + " WHERE " + columnNamePosition + " <= ?" +
+                        " AND " + columnNamePosition + " - 1 NOT IN (SELECT " + columnNamePosition + " FROM " + tableName + ")" +
+                        " ORDER BY " + columnNamePosition + " DESC LIMIT 1");
+    }
+
+    @Test
+    public void shiftRunSql_shouldMoveRanksBetweenTargetAndFreeRank() throws Exception {
+        assertThat(ListPositionHelper.shiftRunSql(tableName, columnNamePosition, true)).isEqualTo(
+                "UPDATE " + tableName + " SET " + columnNamePosition + " = " + columnNamePosition + " + 1" +
+                        " WHERE " + columnNamePosition + " > ?1 AND " + columnNamePosition + " < ?2;");
+        assertThat(ListPositionHelper.shiftRunSql(tableName, columnNamePosition, false)).isEqualTo(
+                "UPDATE " + tableName + " SET " + columnNamePosition + " = " + columnNamePosition + " - 1" +
+                        " WHERE " + columnNamePosition + " < ?1 AND " + columnNamePosition + " > ?2;");
+    }
+
+    private void verifyMovedTo(long rank) {
+        verify(moveStatement).bindLong(1, rank);
+        verify(moveStatement).bindString(2, selectionArgs[0]);
+        verify(moveStatement).executeUpdateDelete();
+    }
+
+    private SQLiteDatabase itemsDatabase(long[][] rows) {
+        SQLiteDatabase realDb = SQLiteDatabase.create(null);
+        realDb.execSQL("CREATE TABLE items (_id INTEGER PRIMARY KEY, pos INTEGER);");
+        for (long[] row : rows) {
+            realDb.execSQL("INSERT INTO items (_id, pos) VALUES (?, ?);", new Object[]{row[0], row[1]});
+        }
+        return realDb;
+    }
+
+    private SQLiteDatabase spacedItemsDatabase(int count) {
+        long[][] rows = new long[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new long[]{i + 1, i * ListPositionHelper.RANK_SPACING};
+        }
+        return itemsDatabase(rows);
     }
 
-    private void setupForUpdateActionListPosition(int startPosition, int endPosition, String[] selectionArgs, ContentValues contentValues) {
-        contentValues.put(columnNamePosition, endPosition);
+    private List<Long> idsInOrder(SQLiteDatabase realDb) {
+        Cursor cursor = realDb.rawQuery("SELECT _id FROM items ORDER BY pos, _id", null);
+        List<Long> order = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            order.add(cursor.getLong(0));
+        }
+        cursor.close();
+        return order;
+    }
+
+    private List<Long> ranksById(SQLiteDatabase realDb) {
+        Cursor cursor = realDb.rawQuery("SELECT pos FROM items ORDER BY _id", null);
+        List<Long> ranks = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            ranks.add(cursor.getLong(0));
+        }
+        cursor.close();
+        return ranks;
+    }
 
+    private void setupCurrentRank(int rank) {
         when(db.query(
                 tableName,
                 new String[]{columnNamePosition},
@@ -119,11 +510,41 @@ public class ListPositionHelperTest {
                 null,
                 null,
                 null
-        )).thenReturn(cursor);
+        )).thenReturn(rankCursor(rank));
+    }
+
+    private void setupNextRank(int targetRank, Integer... nextRank) {
+        when(db.query(
+                tableName,
+                new String[]{columnNamePosition},
+                columnNamePosition + ">?",
+                new String[]{Integer.toString(targetRank)},
+                null,
+                null,
+                columnNamePosition + " ASC",
+                "1"
+        )).thenReturn(rankCursor(nextRank));
+    }
+
+    private void setupPreviousRank(int targetRank, Integer... previousRank) {
+        when(db.query(
+                tableName,
+                new String[]{columnNamePosition},
+                columnNamePosition + "<?",
+                new String[]{Integer.toString(targetRank)},
+                null,
+                null,
+                columnNamePosition + " DESC",
+                "1"
+        )).thenReturn(rankCursor(previousRank));
+    }
 
-        when(cursor.moveToFirst()).thenReturn(true);
-        when(cursor.getColumnIndexOrThrow(columnNamePosition)).thenReturn(10);
-        when(cursor.getInt(10)).thenReturn(startPosition);
+    private MatrixCursor rankCursor(Integer... ranks) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{columnNamePosition});
+        for (Integer rank : ranks) {
+            cursor.addRow(new Object[]{rank});
+        }
+        return cursor;
     }
 
-}
\ No newline at end of file
+}
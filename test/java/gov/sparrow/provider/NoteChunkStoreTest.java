@@ -0,0 +1,121 @@
+package gov.sparrow.provider;
+
+import android.content.ContentValues;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.NoteContract.NoteChunk;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class NoteChunkStoreTest {
+
+    private static final int CHUNK_SIZE = 4;
+
+    @Mock SQLiteDatabase db;
+    private NoteChunkStore subject;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        subject = new NoteChunkStore(CHUNK_SIZE);
+    }
+
+    @Test
+    public void write_whenNoChunksExist_shouldInsertEveryChunk() throws Exception {
+        setupExistingChunks();
+
+        int written = subject.write(db, 1L, "aaaabbbbcc");
+        assertThat(written).isEqualTo(3);
+
+        InOrder inOrder = inOrder(db);
+        inOrder.verify(db).insert(NoteChunk.TABLE_NAME, null, chunkValues(0, "aaaa"));
+        inOrder.verify(db).insert(NoteChunk.TABLE_NAME, null, chunkValues(1, "bbbb"));
+        inOrder.verify(db).insert(NoteChunk.TABLE_NAME, null, chunkValues(2, "cc"));
+        verify(db, never()).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+    }
+
+    @Test
+    public void write_whenChunksExist_shouldOnlyRewriteTouchedChunks_andDropTheTail() throws Exception {
+        setupExistingChunks("aaaa", "bbbb", "cccc", "dddd");
+
+        int written = subject.write(db, 1L, "aaaabbbbcc");
+        assertThat(written).isEqualTo(1);
+
+        ContentValues updatedChunk = new ContentValues();
+        updatedChunk.put(NoteChunk.COLUMN_NAME_TEXT, "cc");
+
+        verify(db).update(
+                NoteChunk.TABLE_NAME,
+                updatedChunk,
+                NoteChunk.COLUMN_NAME_NOTE_ID + "=? AND " + NoteChunk.COLUMN_NAME_SEQUENCE + "=?",
+                new String[]{"1", "2"});
+        verify(db, times(1)).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+        verify(db, never()).insert(anyString(), anyString(), any(ContentValues.class));
+        verify(db).delete(
+                NoteChunk.TABLE_NAME,
+                NoteChunk.COLUMN_NAME_NOTE_ID + "=? AND " + NoteChunk.COLUMN_NAME_SEQUENCE + ">=?",
+                new String[]{"1", "3"});
+    }
+
+    @Test
+    public void write_whenBodyIsUnchanged_shouldWriteNothing() throws Exception {
+        setupExistingChunks("aaaa", "bb");
+
+        assertThat(subject.write(db, 1L, "aaaabb")).isEqualTo(0);
+
+        verify(db, never()).insert(anyString(), anyString(), any(ContentValues.class));
+        verify(db, never()).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+    }
+
+    @Test
+    public void read_shouldStreamChunksBackInSequenceOrder() throws Exception {
+        setupExistingChunks("aaaa", "bbbb", "cc");
+
+        assertThat(subject.read(db, 1L)).isEqualTo("aaaabbbbcc");
+    }
+
+    @Test
+    public void delete_shouldRemoveAllChunksForNote() throws Exception {
+        subject.delete(db, 1L);
+
+        verify(db).delete(NoteChunk.TABLE_NAME, NoteChunk.COLUMN_NAME_NOTE_ID + "=?", new String[]{"1"});
+    }
+
+    private void setupExistingChunks(String... chunks) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{NoteChunk.COLUMN_NAME_SEQUENCE, NoteChunk.COLUMN_NAME_TEXT});
+        for (int i = 0; i < chunks.length; i++) {
+            cursor.addRow(new Object[]{i, chunks[i]});
+        }
+
+        when(db.query(
+                eq(NoteChunk.TABLE_NAME),
+                eq(new String[]{NoteChunk.COLUMN_NAME_SEQUENCE, NoteChunk.COLUMN_NAME_TEXT}),
+                eq(NoteChunk.COLUMN_NAME_NOTE_ID + "=?"),
+                eq(new String[]{"1"}),
+                (String) isNull(),
+                (String) isNull(),
+                eq(NoteChunk.COLUMN_NAME_SEQUENCE + " ASC")
+        )).thenReturn(cursor);
+    }
+
+    private ContentValues chunkValues(int sequence, String text) {
+        ContentValues values = new ContentValues();
+        values.put(NoteChunk.COLUMN_NAME_NOTE_ID, 1L);
+        values.put(NoteChunk.COLUMN_NAME_SEQUENCE, sequence);
+        values.put(NoteChunk.COLUMN_NAME_TEXT, text);
+        return values;
+    }
+
+}
@@ -4,9 +4,14 @@ import android.content.ContentProviderOperation;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
 import gov.sparrow.SparrowTestRunner;
 import gov.sparrow.TestSparrowApplication;
 import gov.sparrow.contracts.ActionContract.Action;
@@ -16,9 +21,13 @@ import gov.sparrow.contracts.NoteContract.Note;
 import gov.sparrow.contracts.NotebookContract.Notebook;
 import gov.sparrow.contracts.NotebookContract.NotebookListPosition;
 import gov.sparrow.contracts.SearchContract.Searchable;
+import gov.sparrow.contracts.SparrowContract;
 import gov.sparrow.contracts.StyleContract.Style;
+import gov.sparrow.database.SearchIndexMaintenance;
+import gov.sparrow.database.SearchIndexSchema;
 import gov.sparrow.database.SparrowDatabaseHelper;
 import gov.sparrow.provider.services.*;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -26,10 +35,15 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowContentResolver;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -58,9 +72,13 @@ public class SparrowProviderTest {
     @Mock SQLiteQueryBuilder builder;
     @Mock Cursor expectedCursor;
     @Mock SQLiteDatabase db;
+    @Mock SQLiteDatabase snapshotDb;
+    @Mock SQLiteDatabase readableDb;
+    @Mock SQLiteDatabase readConnection;
     @Mock ContentValues values;
 
     private SparrowProvider subject;
+    private final List<String> plannedSql = new ArrayList<>();
 
     @Before
     public void setUp() {
@@ -137,7 +155,7 @@ public class SparrowProviderTest {
                 anyString()
         )).thenReturn(expectedCursor);
 
-        when(backupService.queryBackup(eq(db), any(SQLiteQueryBuilder.class)))
+        when(backupService.queryBackup(eq(snapshotDb), any(SQLiteQueryBuilder.class)))
                 .thenReturn(expectedCursor);
 
         subject = new SparrowProvider();
@@ -145,6 +163,12 @@ public class SparrowProviderTest {
 
         when(sparrowDatabaseHelper.getWritableDatabase())
                 .thenReturn(db);
+        when(sparrowDatabaseHelper.getReadableDatabase())
+                .thenReturn(db);
+        when(sparrowDatabaseHelper.getReadConnection())
+                .thenReturn(db);
+        when(sparrowDatabaseHelper.openSnapshotConnection())
+                .thenReturn(snapshotDb);
 
         when(sqLiteQueryBuilderFactory.getInstance())
                 .thenReturn(builder);
@@ -169,6 +193,35 @@ public class SparrowProviderTest {
         }
     }
 
+    @Test
+    public void query_shouldUseReadableDatabase() throws Exception {
+        when(sparrowDatabaseHelper.getReadableDatabase()).thenReturn(readableDb);
+        when(sparrowDatabaseHelper.getReadConnection()).thenReturn(readConnection);
+
+        for (Uri uri : asList(Notebook.CONTENT_URI, Note.CONTENT_URI(1L), Note.CONTENT_URI, Action.CONTENT_URI, Style.CONTENT_URI, BackupContract.BACKUP_URI)) {
+            subject.query(uri, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        }
+
+        verify(notebookService).queryNotebooks(readableDb, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        verify(noteService).queryNote(readConnection, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        verify(noteService).queryNotes(readableDb, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        verify(actionService).queryActions(readableDb, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        verify(styleService).queryStyles(readableDb, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        verify(backupService).queryBackup(snapshotDb, builder);
+        verify(sparrowDatabaseHelper, never()).getWritableDatabase();
+        verifyZeroInteractions(db);
+    }
+
+    @Test
+    public void write_shouldUseWritableDatabase() throws Exception {
+        subject.insert(Note.CONTENT_URI, values);
+        subject.update(Note.CONTENT_URI, values, SELECTION, SELECTION_ARGS);
+        subject.delete(Note.CONTENT_URI, SELECTION, SELECTION_ARGS);
+
+        verify(sparrowDatabaseHelper, atLeastOnce()).getWritableDatabase();
+        verify(sparrowDatabaseHelper, never()).getReadableDatabase();
+    }
+
     @Test
     public void queryNoMatch_shouldThrowException() {
         exception.expect(IllegalArgumentException.class);
@@ -254,16 +307,73 @@ public class SparrowProviderTest {
 
         InOrder inOrder = inOrder(db, noteService, actionService);
         inOrder.verify(db).beginTransaction();
-        inOrder.verify(noteService).insertNote(subject.getContext(), db, noteContentValues);
-        inOrder.verify(actionService).upsertAction(subject.getContext(), db, actionContentValues);
+        inOrder.verify(noteService).insertNote(any(Context.class), eq(db), eq(noteContentValues));
+        inOrder.verify(actionService).upsertAction(any(Context.class), eq(db), eq(actionContentValues));
         inOrder.verify(db).setTransactionSuccessful();
         inOrder.verify(db).endTransaction();
     }
 
+    @Test
+    public void applyBatch_notifiesEachChangedUriOnce_afterEndTransaction() throws Exception {
+        final ShadowContentResolver resolver = Shadows.shadowOf(subject.getContext().getContentResolver());
+
+        doAnswer(notifyChange(Note.CONTENT_URI, Note.CONTENT_URI(777L)))
+                .when(noteService).insertNote(any(Context.class), eq(db), any(ContentValues.class));
+        doAnswer(notifyChange(Action.CONTENT_URI, Action.CONTENT_URI(777L)))
+                .when(actionService).upsertAction(any(Context.class), eq(db), any(ContentValues.class));
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                assertThat(resolver.getNotifiedUris()).isEmpty();
+                return null;
+            }
+        }).when(db).endTransaction();
+
+        ArrayList<ContentProviderOperation> contentProviderOperations = new ArrayList();
+        contentProviderOperations.addAll(asList(
+                ContentProviderOperation.newInsert(Note.CONTENT_URI).withValues(new ContentValues()).build(),
+                ContentProviderOperation.newInsert(Note.CONTENT_URI).withValues(new ContentValues()).build(),
+                ContentProviderOperation.newInsert(Action.CONTENT_URI).withValues(new ContentValues()).build()));
+
+        subject.applyBatch(contentProviderOperations);
+
+        verify(db).endTransaction();
+        assertThat(resolver.getNotifiedUris()).hasSize(2);
+        assertThat(resolver.getNotifiedUris().get(0).uri).isEqualTo(Note.CONTENT_URI);
+        assertThat(resolver.getNotifiedUris().get(1).uri).isEqualTo(Action.CONTENT_URI);
+    }
+
+    @Test
+    public void applyBatch_whenOperationFails_shouldNotNotify() throws Exception {
+        ShadowContentResolver resolver = Shadows.shadowOf(subject.getContext().getContentResolver());
+
+        doAnswer(notifyChange(Note.CONTENT_URI, Note.CONTENT_URI(777L)))
+                .when(noteService).insertNote(any(Context.class), eq(db), any(ContentValues.class));
+        when(actionService.upsertAction(any(Context.class), eq(db), any(ContentValues.class)))
+                .thenThrow(new IllegalStateException());
+
+        ArrayList<ContentProviderOperation> contentProviderOperations = new ArrayList();
+        contentProviderOperations.addAll(asList(
+                ContentProviderOperation.newInsert(Note.CONTENT_URI).withValues(new ContentValues()).build(),
+                ContentProviderOperation.newInsert(Action.CONTENT_URI).withValues(new ContentValues()).build()));
+
+        try {
+            subject.applyBatch(contentProviderOperations);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        verify(db, never()).setTransactionSuccessful();
+        verify(db).endTransaction();
+        assertThat(resolver.getNotifiedUris()).isEmpty();
+    }
+
     @Test
     public void queryNoteIdMatch_callsNoteService_queryNote() throws Exception {
         subject.query(Note.CONTENT_URI(123L), PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
 
+        verify(sparrowDatabaseHelper).getReadConnection();
+        verify(sparrowDatabaseHelper, never()).getReadableDatabase();
         verify(noteService).queryNote(db, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
     }
 
@@ -288,6 +398,16 @@ public class SparrowProviderTest {
         verify(noteService).queryNotes(db, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
     }
 
+    @Test
+    public void queryNotePageMatch_callsNoteService_queryNotesPage() throws Exception {
+        Uri uri = Note.PAGE_URI(50, "test updated at", 7L);
+
+        subject.query(uri, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+
+        verify(noteService).queryNotesPage(db, builder, uri, PROJECTION, SELECTION, SELECTION_ARGS);
+        verify(noteService, never()).queryNotes(eq(db), eq(builder), any(String[].class), anyString(), any(String[].class), anyString());
+    }
+
     @Test
     public void updateNoteMatch_callsNoteService_updateNote() throws Exception {
         subject.update(Note.CONTENT_URI, values, SELECTION, SELECTION_ARGS);
@@ -295,6 +415,16 @@ public class SparrowProviderTest {
         verify(noteService).updateNote(subject.getContext(), db, values, SELECTION, SELECTION_ARGS);
     }
 
+    @Test
+    public void updateNoteEditsMatch_callsNoteService_applyBodyEdits() throws Exception {
+        Uri uri = Note.EDITS_URI(123L);
+
+        subject.update(uri, values, null, null);
+
+        verify(noteService).applyBodyEdits(subject.getContext(), db, uri, values);
+        verify(noteService, never()).updateNote(any(Context.class), eq(db), any(ContentValues.class), anyString(), any(String[].class));
+    }
+
     @Test
     public void insertNoteMatch_callsNoteService_insertNote() throws Exception {
         subject.insert(Note.CONTENT_URI, values);
@@ -302,6 +432,44 @@ public class SparrowProviderTest {
         verify(noteService).insertNote(subject.getContext(), db, values);
     }
 
+    @Test
+    public void insertNoteMatch_shouldDropSearchCachesAfterInsert() throws Exception {
+        subject.insert(Note.CONTENT_URI, values);
+
+        InOrder inOrder = inOrder(noteService, searchService);
+        inOrder.verify(noteService).insertNote(subject.getContext(), db, values);
+        inOrder.verify(searchService).onSearchableChanged();
+    }
+
+    @Test
+    public void updateLinkedActionMatch_shouldDropSearchCaches() throws Exception {
+        subject.update(Action.CONTENT_URI(11L, 1L), values, SELECTION, SELECTION_ARGS);
+
+        verify(searchService).onSearchableChanged();
+    }
+
+    @Test
+    public void writesOutsideNotesAndActions_shouldKeepSearchCaches() throws Exception {
+        subject.insert(Style.CONTENT_URI, values);
+        subject.update(Notebook.CONTENT_URI, values, SELECTION, SELECTION_ARGS);
+        subject.delete(Style.CONTENT_URI, SELECTION, SELECTION_ARGS);
+
+        verify(searchService, never()).onSearchableChanged();
+    }
+
+    @Test
+    public void applyBatch_shouldDropSearchCachesAfterEndTransaction() throws Exception {
+        ArrayList<ContentProviderOperation> contentProviderOperations = new ArrayList();
+        contentProviderOperations.add(
+                ContentProviderOperation.newDelete(Style.CONTENT_URI).build());
+
+        subject.applyBatch(contentProviderOperations);
+
+        InOrder inOrder = inOrder(db, searchService);
+        inOrder.verify(db).endTransaction();
+        inOrder.verify(searchService).onSearchableChanged();
+    }
+
     @Test
     public void deleteNoteIdMatch_callsNoteService_archiveNote() throws Exception {
         subject.delete(Note.CONTENT_URI(123L), SELECTION, SELECTION_ARGS);
@@ -323,6 +491,16 @@ public class SparrowProviderTest {
         verify(actionService).queryActions(db, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
     }
 
+    @Test
+    public void queryActionPageMatch_callsActionService_queryActionsPage() throws Exception {
+        Uri uri = Action.PAGE_URI(50, "false", 12, 7L);
+
+        subject.query(uri, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+
+        verify(actionService).queryActionsPage(db, builder, uri, PROJECTION, SELECTION, SELECTION_ARGS);
+        verify(actionService, never()).queryActions(eq(db), eq(builder), any(String[].class), anyString(), any(String[].class), anyString());
+    }
+
     @Test
     public void insertActionMatch_callsActionService_upsertAction() throws Exception {
         subject.insert(Action.CONTENT_URI, values);
@@ -356,6 +534,24 @@ public class SparrowProviderTest {
         verify(actionService).updateActionListPosition(subject.getContext(), db, values, new String[]{"args"});
     }
 
+    @Test
+    public void bulkInsertActionListPositionMoveMatch_callsActionService_moveActions() throws Exception {
+        ContentValues[] moves = new ContentValues[]{values};
+
+        subject.bulkInsert(ActionListPosition.MOVE_URI, moves);
+
+        verify(actionService).moveActions(subject.getContext(), db, moves);
+    }
+
+    @Test
+    public void bulkInsertActionListPositionOrderMatch_callsActionService_reorderActions() throws Exception {
+        ContentValues[] ordering = new ContentValues[]{values};
+
+        subject.bulkInsert(ActionListPosition.ORDER_URI, ordering);
+
+        verify(actionService).reorderActions(subject.getContext(), db, ordering);
+    }
+
     @Test
     public void deleteActionIdMatch_callsActionService_archiveAction() throws Exception {
         subject.delete(Action.CONTENT_URI(1L), SELECTION, SELECTION_ARGS);
@@ -401,6 +597,24 @@ public class SparrowProviderTest {
         verify(notebookService).updateNotebookListPosition(subject.getContext(), db, values, new String[]{"args"});
     }
 
+    @Test
+    public void bulkInsertNotebookListPositionMoveMatch_callsNotebookService_moveNotebooks() throws Exception {
+        ContentValues[] moves = new ContentValues[]{values};
+
+        subject.bulkInsert(NotebookListPosition.MOVE_URI, moves);
+
+        verify(notebookService).moveNotebooks(subject.getContext(), db, moves);
+    }
+
+    @Test
+    public void bulkInsertNotebookListPositionOrderMatch_callsNotebookService_reorderNotebooks() throws Exception {
+        ContentValues[] ordering = new ContentValues[]{values};
+
+        subject.bulkInsert(NotebookListPosition.ORDER_URI, ordering);
+
+        verify(notebookService).reorderNotebooks(subject.getContext(), db, ordering);
+    }
+
     @Test
     public void deleteNotebookMatch_callsNotebookService_deleteNotebooks() throws Exception {
         subject.delete(Notebook.CONTENT_URI, SELECTION, SELECTION_ARGS);
@@ -457,6 +671,93 @@ public class SparrowProviderTest {
         verify(searchService).query(db, builder, SELECTION_ARGS[0], SORT_ORDER);
     }
 
+    @Test
+    public void querySearchMatch_withCancellationSignal_passesSessionAndSignalToSearchService() throws Exception {
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        Uri uri = Searchable.CONTENT_URI.buildUpon()
+                .appendQueryParameter(Searchable.PARAM_SESSION, "session")
+                .build();
+        when(searchService.query(db, builder, SELECTION_ARGS[0], SORT_ORDER, "session", cancellationSignal))
+                .thenReturn(expectedCursor);
+
+        Cursor cursor = subject.query(uri, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER, cancellationSignal);
+        assertThat(cursor).isEqualTo(expectedCursor);
+
+        verify(searchService).query(db, builder, SELECTION_ARGS[0], SORT_ORDER, "session", cancellationSignal);
+        verify(expectedCursor).setNotificationUri(subject.getContext().getContentResolver(), uri);
+    }
+
+    @Test
+    public void query_withCancellationSignal_forOtherMatches_shouldQueryAsBefore() throws Exception {
+        subject.query(Action.CONTENT_URI, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER, new CancellationSignal());
+
+        verify(actionService).queryActions(db, builder, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        verifyZeroInteractions(searchService);
+    }
+
+    @Test
+    public void queryFuzzySearchMatch_callsSearchService_queryFuzzy() throws Exception {
+        when(searchService.queryFuzzy(db, builder, SELECTION_ARGS[0], Searchable.RANKED_LIMIT))
+                .thenReturn(expectedCursor);
+
+        Cursor cursor = subject.query(Searchable.FUZZY_CONTENT_URI, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        assertThat(cursor).isEqualTo(expectedCursor);
+
+        verify(searchService).queryFuzzy(db, builder, SELECTION_ARGS[0], Searchable.RANKED_LIMIT);
+        verify(searchService, never()).query(any(SQLiteDatabase.class), any(SQLiteQueryBuilder.class), anyString(), anyString());
+    }
+
+    @Test
+    public void queryRankedSearchMatch_callsSearchService_queryRanked() throws Exception {
+        when(searchService.queryRanked(db, builder, SELECTION_ARGS[0], Searchable.RANKED_LIMIT))
+                .thenReturn(expectedCursor);
+
+        Cursor cursor = subject.query(Searchable.RANKED_CONTENT_URI, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+        assertThat(cursor).isEqualTo(expectedCursor);
+
+        verify(searchService).queryRanked(db, builder, SELECTION_ARGS[0], Searchable.RANKED_LIMIT);
+        verify(searchService, never()).query(any(SQLiteDatabase.class), any(SQLiteQueryBuilder.class), anyString(), anyString());
+        verify(expectedCursor).setNotificationUri(subject.getContext().getContentResolver(), Searchable.RANKED_CONTENT_URI);
+    }
+
+    @Test
+    public void callMaintainIndex_shouldMergeSearchIndexOnWritableDatabase() throws Exception {
+        when(searchService.maintainIndex(db, false)).thenReturn(4);
+
+        Bundle result = subject.call(Searchable.METHOD_MAINTAIN_INDEX, null, null);
+
+        verify(sparrowDatabaseHelper).getWritableDatabase();
+        verify(searchService).maintainIndex(db, false);
+        assertThat(result.getInt(Searchable.EXTRA_MERGE_STEPS)).isEqualTo(4);
+    }
+
+    @Test
+    public void callMaintainIndex_withOptimizeExtra_shouldOptimizeSearchIndex() throws Exception {
+        Bundle extras = new Bundle();
+        extras.putBoolean(Searchable.EXTRA_OPTIMIZE, true);
+
+        subject.call(Searchable.METHOD_MAINTAIN_INDEX, null, extras);
+
+        verify(searchService).maintainIndex(db, true);
+    }
+
+    @Test
+    public void callRebalanceListPositions_shouldRebalanceBothListsOnWritableDatabase() throws Exception {
+        assertThat(subject.call(SparrowContract.METHOD_REBALANCE_LIST_POSITIONS, null, null)).isNull();
+
+        verify(sparrowDatabaseHelper).getWritableDatabase();
+        verify(actionService).rebalanceActionListPositions(subject.getContext(), db);
+        verify(notebookService).rebalanceNotebookListPositions(subject.getContext(), db);
+        verifyZeroInteractions(searchService);
+    }
+
+    @Test
+    public void call_withUnknownMethod_shouldNotTouchSearchIndex() throws Exception {
+        assertThat(subject.call("unknown", null, null)).isNull();
+
+        verifyZeroInteractions(searchService);
+    }
+
     @Test
     public void querySearchMatch_shouldIgnoreEmptySearch() throws Exception {
         Cursor cursor = subject.query(Searchable.CONTENT_URI, PROJECTION, SELECTION, new String[]{}, SORT_ORDER);
@@ -468,7 +769,322 @@ public class SparrowProviderTest {
     @Test
     public void queryBackupMatch_callsBackupService_queryBackup() throws Exception {
         subject.query(BackupContract.BACKUP_URI, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
-        verify(backupService).queryBackup(db, builder);
+        verify(backupService).queryBackup(snapshotDb, builder);
+    }
+
+    @Test
+    public void queryBackupMatch_shouldReadFromSeparateSnapshotConnection() throws Exception {
+        subject.query(BackupContract.BACKUP_URI, PROJECTION, SELECTION, SELECTION_ARGS, SORT_ORDER);
+
+        verify(sparrowDatabaseHelper).openSnapshotConnection();
+        verify(sparrowDatabaseHelper, never()).getReadableDatabase();
+        verify(sparrowDatabaseHelper, never()).getWritableDatabase();
+    }
+
+    @Test
+    public void queryNotebooks_withNotebookColumnsOnly_shouldPlanWithoutPositionJoin() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Notebook.CONTENT_URI, new String[]{
+                Notebook.TABLE_NAME + "." + Notebook._ID,
+                Notebook.TABLE_NAME + "." + Notebook.COLUMN_NAME_TITLE
+        }, null, null, null);
+
+        assertThat(plannedSql).containsExactly("SELECT notebooks._id, notebooks.title FROM notebooks");
+        String plan = queryPlan(realDb, plannedSql.get(0));
+        assertThat(plan).contains("SCAN TABLE notebooks");
+        assertThat(plan).doesNotContain(NotebookListPosition.TABLE_NAME);
+        realDb.close();
+    }
+
+    @Test
+    public void queryNotebooks_withListPosition_shouldPlanPositionLookupByNotebookId() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Notebook.CONTENT_URI, new String[]{
+                Notebook._ID,
+                Notebook.COLUMN_NAME_TITLE,
+                NotebookListPosition.COLUMN_NAME_POSITION
+        }, Notebook.TABLE_NAME + "." + Notebook.COLUMN_NAME_ARCHIVED + "=?", new String[]{"false"},
+                NotebookListPosition.COLUMN_NAME_POSITION + " ASC");
+
+        assertThat(plannedSql).containsExactly("SELECT _id, title, position FROM " + Notebook.TABLE_POSITION_JOIN +
+                " WHERE (notebooks.archived=?) ORDER BY position ASC");
+        assertThat(queryPlan(realDb, plannedSql.get(0))).contains(
+                "SEARCH TABLE notebook_list_position USING INDEX sqlite_autoindex_notebook_list_position_1 (notebook_id=?)");
+        realDb.close();
+    }
+
+    @Test
+    public void queryNotes_withNoteColumnsOnly_shouldPlanWithoutNotebookJoin() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Note.CONTENT_URI, new String[]{Note.TABLE_NAME + "." + Note._ID},
+                Note.TABLE_NAME + "." + Note.COLUMN_NAME_ARCHIVED + "=?", new String[]{"false"}, null);
+
+        assertThat(plannedSql).containsExactly("SELECT notes._id FROM notes WHERE (notes.archived=?)");
+        String plan = queryPlan(realDb, plannedSql.get(0));
+        assertThat(plan).contains("SCAN TABLE notes");
+        assertThat(plan).doesNotContain(Notebook.TABLE_NAME);
+        realDb.close();
+    }
+
+    @Test
+    public void queryNotes_withListProjection_shouldPlanNotebookLookupByPrimaryKey() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Note.CONTENT_URI, null, null, null, null);
+
+        assertThat(plannedSql).hasSize(1);
+        assertThat(plannedSql.get(0)).startsWith("SELECT notes._id, notes.title, notes.preview");
+        assertThat(plannedSql.get(0)).endsWith(" FROM " + Note.TABLE_NOTEBOOK_JOIN);
+        assertThat(queryPlan(realDb, plannedSql.get(0))).contains(
+                "SEARCH TABLE notebooks USING INTEGER PRIMARY KEY (rowid=?)");
+        realDb.close();
+    }
+
+    @Test
+    public void queryNotesPage_firstPage_shouldPlanIndexOrderWithoutSort() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Note.PAGE_URI(20), null, null, null, null);
+
+        assertThat(plannedSql).hasSize(2);
+        assertThat(plannedSql.get(0)).endsWith(
+                " FROM " + Note.TABLE_NOTEBOOK_JOIN + " ORDER BY notes.updated_at DESC, notes._id DESC LIMIT 20");
+        String plan = queryPlan(realDb, plannedSql.get(0));
+        assertThat(plan).contains("SCAN TABLE notes USING INDEX notes_updated_at");
+        assertThat(plan).doesNotContain("TEMP B-TREE");
+        assertThat(plannedSql.get(1)).isEqualTo("SELECT COUNT(*) FROM " + Note.TABLE_NOTEBOOK_JOIN);
+        realDb.close();
+    }
+
+    @Test
+    public void queryNotesPage_afterAnchor_shouldPlanIndexSeek() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Note.PAGE_URI(20, "2016-01-01 00:00:00.000", 3L), null, null, null, null);
+
+        assertThat(plannedSql).hasSize(1);
+        assertThat(plannedSql.get(0)).endsWith(" FROM " + Note.TABLE_NOTEBOOK_JOIN +
+                " WHERE ((notes.updated_at<? OR (notes.updated_at=? AND notes._id<?)))" +
+                " ORDER BY notes.updated_at DESC, notes._id DESC LIMIT 20");
+        assertThat(queryPlan(realDb, plannedSql.get(0))).contains(
+                "SEARCH TABLE notes USING INDEX notes_updated_at (updated_at<?)");
+        realDb.close();
+    }
+
+    @Test
+    public void queryNote_shouldPlanNoteByPrimaryKeyAndLinksByNoteIndexes() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Note.CONTENT_URI(1L), null, Note._ID + "=?", new String[]{"1"}, null);
+
+        assertThat(plannedSql).containsExactly(
+                "SELECT * FROM notes WHERE (_id=?)",
+                "SELECT * FROM actions WHERE (note_id=? AND archived='false')",
+                "SELECT * FROM styles WHERE (note_id=?)");
+        assertThat(queryPlan(realDb, plannedSql.get(0))).contains("SEARCH TABLE notes USING INTEGER PRIMARY KEY (rowid=?)");
+        assertThat(queryPlan(realDb, plannedSql.get(1))).contains("SEARCH TABLE actions USING INDEX actions_note_id (note_id=?)");
+        assertThat(queryPlan(realDb, plannedSql.get(2))).contains("SEARCH TABLE styles USING INDEX styles_note_id (note_id=?)");
+        realDb.close();
+    }
+
+    @Test
+    public void queryLastSavedNote_inNotebook_shouldPlanNotebookIndexSearch() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Note.CONTENT_URI(2L, true), null,
+                Note.TABLE_NAME + "." + Note.COLUMN_NAME_ARCHIVED + "=? AND " + Note.COLUMN_NAME_NOTEBOOK_ID + "=?",
+                new String[]{"false", "2"}, Note.COLUMN_NAME_UPDATED_AT + " DESC LIMIT 1");
+
+        assertThat(plannedSql).containsExactly(
+                "SELECT * FROM notes WHERE (notes.archived=? AND notebook_id=?) ORDER BY updated_at DESC LIMIT 1");
+        String plan = queryPlan(realDb, plannedSql.get(0));
+        assertThat(plan).contains("SEARCH TABLE notes USING INDEX notes_notebook_id (notebook_id=?)");
+        assertThat(plan).doesNotContain(Notebook.TABLE_NAME);
+        realDb.close();
+    }
+
+    @Test
+    public void queryActions_partitioned_shouldPlanNoteAndPositionLookups() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Action.CONTENT_URI, null,
+                Action.TABLE_NAME + "." + Action.COLUMN_NAME_ARCHIVED + "=?", new String[]{"false"},
+                Action.PARTITIONED_SORT_ORDER);
+
+        assertThat(plannedSql).containsExactly(
+                "SELECT * FROM " + Action.TABLE_NOTE_POSITION_JOIN +
+                        " WHERE (actions.archived=?) ORDER BY " + Action.PARTITIONED_SORT_ORDER,
+                "SELECT " + ActionService.PARTITION_COUNT_PROJECTION[0] + ", " + ActionService.PARTITION_COUNT_PROJECTION[1] +
+                        " FROM " + Action.TABLE_NOTE_POSITION_JOIN + " WHERE (actions.archived=?)");
+        String plan = queryPlan(realDb, plannedSql.get(0));
+        assertThat(plan).contains("SEARCH TABLE notes USING INTEGER PRIMARY KEY (rowid=?)");
+        assertThat(plan).contains(
+                "SEARCH TABLE action_list_position USING INDEX sqlite_autoindex_action_list_position_1 (action_id=?)");
+        assertThat(queryPlan(realDb, plannedSql.get(1))).contains(
+                "SEARCH TABLE action_list_position USING COVERING INDEX sqlite_autoindex_action_list_position_1 (action_id=?)");
+        realDb.close();
+    }
+
+    @Test
+    public void queryActionsPage_afterAnchor_shouldPlanNoteAndPositionLookups() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Action.PAGE_URI(20, "false", 10, 3L), null,
+                Action.TABLE_NAME + "." + Action.COLUMN_NAME_ARCHIVED + "=?", new String[]{"false"}, null);
+
+        assertThat(plannedSql).hasSize(1);
+        assertThat(plannedSql.get(0)).isEqualTo("SELECT * FROM " + Action.TABLE_NOTE_POSITION_JOIN +
+                " WHERE ((actions.archived=?) AND (completed>? OR (completed=? AND" +
+                " (position>? OR (position=? AND actions._id>?)))))" +
+                " ORDER BY " + Action.PARTITIONED_SORT_ORDER + ", actions._id ASC LIMIT 20");
+        String plan = queryPlan(realDb, plannedSql.get(0));
+        assertThat(plan).contains("SEARCH TABLE notes USING INTEGER PRIMARY KEY (rowid=?)");
+        assertThat(plan).contains(
+                "SEARCH TABLE action_list_position USING INDEX sqlite_autoindex_action_list_position_1 (action_id=?)");
+        realDb.close();
+    }
+
+    @Test
+    public void queryStyles_byNote_shouldPlanNoteIndexSearch() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Style.CONTENT_URI, null, Style.COLUMN_NAME_NOTE_ID + "=?", new String[]{"1"}, null);
+
+        assertThat(plannedSql).containsExactly("SELECT * FROM styles WHERE (note_id=?)");
+        assertThat(queryPlan(realDb, plannedSql.get(0))).contains(
+                "SEARCH TABLE styles USING INDEX styles_note_id (note_id=?)");
+        realDb.close();
+    }
+
+    @Test
+    public void querySearch_shouldPlanFullTextMatchesWithRowLookupsByPrimaryKey() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+        SparrowProvider provider = plannedProvider(realDb);
+        Uri ranked = Searchable.CONTENT_URI.buildUpon()
+                .appendQueryParameter(Searchable.PARAM_MODE, Searchable.MODE_RANKED).build();
+
+        for (Uri uri : asList(Searchable.CONTENT_URI, ranked)) {
+            plannedSql.clear();
+            provider.query(uri, null, null, new String[]{"word"}, null);
+
+            assertThat(plannedSql).hasSize(1);
+            assertThat(plannedSql.get(0)).contains(" FROM searchable_notes INNER JOIN notes ON (docid = notes._id)");
+            assertThat(plannedSql.get(0)).contains(" UNION ALL ");
+            String plan = queryPlan(realDb, plannedSql.get(0));
+            assertThat(plan).contains("SCAN TABLE searchable_notes VIRTUAL TABLE INDEX");
+            assertThat(plan).contains("SCAN TABLE searchable_actions VIRTUAL TABLE INDEX");
+            assertThat(plan).contains("SEARCH TABLE notes USING INTEGER PRIMARY KEY (rowid=?)");
+            assertThat(plan).contains("SEARCH TABLE actions USING INTEGER PRIMARY KEY (rowid=?)");
+        }
+        realDb.close();
+    }
+
+    @Test
+    public void querySearch_fuzzy_shouldPlanVocabularyScanThenRankedMatch() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+
+        plannedProvider(realDb).query(Searchable.CONTENT_URI.buildUpon()
+                .appendQueryParameter(Searchable.PARAM_MODE, Searchable.MODE_FUZZY).build(),
+                null, null, new String[]{"word"}, null);
+
+        assertThat(plannedSql).hasSize(2);
+        assertThat(plannedSql.get(0)).isEqualTo("SELECT term FROM searchable_notes_terms WHERE col='*'" +
+                " UNION SELECT term FROM searchable_actions_terms WHERE col='*'");
+        assertThat(queryPlan(realDb, plannedSql.get(0))).contains("SCAN TABLE searchable_notes_terms VIRTUAL TABLE INDEX");
+        assertThat(queryPlan(realDb, plannedSql.get(1))).contains("SCAN TABLE searchable_notes VIRTUAL TABLE INDEX");
+        realDb.close();
+    }
+
+    @Test
+    public void queryBackup_shouldPlanOrderedReadsWithoutSorting() throws Exception {
+        SQLiteDatabase realDb = plannedDatabase();
+        SQLiteDatabase explainDb = plannedDatabase();
+        SparrowProvider provider = plannedProvider(realDb);
+        when(provider.sparrowDatabaseHelper.openSnapshotConnection()).thenReturn(realDb);
+
+        provider.query(BackupContract.BACKUP_URI, null, null, null, null).close();
+
+        assertThat(plannedSql).containsExactly(
+                "SELECT * FROM notebooks",
+                "SELECT _id, title, body, chunked, notebook_id, archived, created_at, updated_at FROM notes ORDER BY _id ASC",
+                "SELECT note_id, text FROM note_chunks ORDER BY note_id ASC, sequence ASC",
+                "SELECT * FROM actions",
+                "SELECT * FROM styles");
+        assertThat(queryPlan(explainDb, plannedSql.get(1))).contains("SCAN TABLE notes USING INTEGER PRIMARY KEY");
+        assertThat(queryPlan(explainDb, plannedSql.get(2))).contains(
+                "SCAN TABLE note_chunks USING INDEX sqlite_autoindex_note_chunks_1");
+        for (String sql : new ArrayList<>(plannedSql)) {
+            assertThat(queryPlan(explainDb, sql)).doesNotContain("TEMP B-TREE");
+        }
+        explainDb.close();
+    }
+
+    /*
+    * An in-memory database with the full schema that records the SQL of every
+    * cursor it opens, so a route's statements can be checked and explained.
+    * */
+    private SQLiteDatabase plannedDatabase() {
+        SQLiteDatabase realDb = SQLiteDatabase.create(new SQLiteDatabase.CursorFactory() {
+            @Override
+            public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver driver, String editTable, SQLiteQuery query) {
+                plannedSql.add(query.toString().replaceFirst("^SQLiteQuery: ", ""));
+                return new SQLiteCursor(driver, editTable, query);
+            }
+        });
+        SqliteFeatures sqliteFeatures = new SqliteFeatures();
+        new SparrowDatabaseHelper(RuntimeEnvironment.application, new SearchIndexSchema(sqliteFeatures)).onCreate(realDb);
+        plannedSql.clear();
+        return realDb;
+    }
+
+    private SparrowProvider plannedProvider(SQLiteDatabase realDb) {
+        SparrowProvider provider = new SparrowProvider();
+        provider.onCreate();
+
+        StatementCache statementCache = new StatementCache();
+        ListPositionHelper listPositionHelper = new ListPositionHelper(statementCache, null);
+        provider.sparrowDatabaseHelper = mock(SparrowDatabaseHelper.class);
+        when(provider.sparrowDatabaseHelper.getReadableDatabase()).thenReturn(realDb);
+        when(provider.sparrowDatabaseHelper.getReadConnection()).thenReturn(realDb);
+        provider.sqLiteQueryBuilderFactory = new SQLiteQueryBuilderFactory();
+        provider.notebookService = new NotebookService(listPositionHelper);
+        provider.noteService = new NoteService(new NoteChunkStore(), statementCache);
+        provider.actionService = new ActionService(listPositionHelper, null, new SqliteFeatures(), statementCache);
+        provider.styleService = new StyleService(statementCache);
+        provider.searchService = new SearchService(new SearchIndexMaintenance());
+        provider.backupService = new BackupService();
+        return provider;
+    }
+
+    /* The plan's detail lines, without the row estimates. */
+    private String queryPlan(SQLiteDatabase realDb, String sql) {
+        int recorded = plannedSql.size();
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = realDb.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+        try {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail).replaceAll(" \\(~\\d+ rows\\)$", "")).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        plannedSql.subList(recorded, plannedSql.size()).clear();
+        return plan.toString();
+    }
+
+    private Answer notifyChange(final Uri notifyUri, final Uri result) {
+        return new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Context context = (Context) invocation.getArguments()[0];
+                context.getContentResolver().notifyChange(notifyUri, null);
+                return result;
+            }
+        };
     }
 
 }
@@ -0,0 +1,99 @@
+package gov.sparrow.provider;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class SqliteFeaturesTest {
+
+    @Mock SQLiteDatabase db;
+    @Mock SQLiteStatement statement;
+    private SqliteFeatures subject;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        when(db.compileStatement(SqliteFeatures.VERSION_SQL)).thenReturn(statement);
+        subject = new SqliteFeatures();
+    }
+
+    @Test
+    public void supportsUpsertReturning_whenVersionHasReturningClause_returnsTrue() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.35.0");
+        assertThat(subject.supportsUpsertReturning(db)).isTrue();
+    }
+
+    @Test
+    public void supportsUpsertReturning_whenVersionIsNewerMajorOrMinor_returnsTrue() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.41.2");
+        assertThat(subject.supportsUpsertReturning(db)).isTrue();
+    }
+
+    @Test
+    public void supportsUpsertReturning_whenVersionPredatesReturningClause_returnsFalse() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.28.0");
+        assertThat(subject.supportsUpsertReturning(db)).isFalse();
+    }
+
+    @Test
+    public void supportsUpsertReturning_whenVersionIsUnreadable_returnsFalse() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("unknown");
+        assertThat(subject.supportsUpsertReturning(db)).isFalse();
+    }
+
+    @Test
+    public void supportsUpsertReturning_shouldQueryVersionOnce() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.35.0");
+
+        subject.supportsUpsertReturning(db);
+        subject.supportsUpsertReturning(db);
+
+        verify(db, times(1)).compileStatement(SqliteFeatures.VERSION_SQL);
+        verify(statement).close();
+    }
+
+    @Test
+    public void supportsUpsert_whenVersionHasUpsertButNotReturning_returnsTrue() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.24.0");
+        assertThat(subject.supportsUpsert(db)).isTrue();
+        assertThat(subject.supportsUpsertReturning(db)).isFalse();
+    }
+
+    @Test
+    public void supportsUpsert_whenVersionPredatesUpsert_returnsFalse() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.23.1");
+        assertThat(subject.supportsUpsert(db)).isFalse();
+    }
+
+    @Test
+    public void supportsUnicodeTokenizer_whenVersionHasUnicode61_returnsTrue() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.7.13");
+        assertThat(subject.supportsUnicodeTokenizer(db)).isTrue();
+    }
+
+    @Test
+    public void supportsUnicodeTokenizer_whenVersionPredatesUnicode61_returnsFalse() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.7.11");
+        assertThat(subject.supportsUnicodeTokenizer(db)).isFalse();
+    }
+
+    @Test
+    public void supportsUnicodeTokenizer_sharesVersionQueryWithUpsertCheck() throws Exception {
+        when(statement.simpleQueryForString()).thenReturn("3.8.4");
+
+        subject.supportsUnicodeTokenizer(db);
+        subject.supportsUpsertReturning(db);
+
+        verify(db, times(1)).compileStatement(SqliteFeatures.VERSION_SQL);
+    }
+
+}
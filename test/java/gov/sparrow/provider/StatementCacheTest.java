@@ -0,0 +1,136 @@
+package gov.sparrow.provider;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(SparrowTestRunner.class)
+public class StatementCacheTest {
+
+    private static final String SQL = "UPDATE notes SET title=?, body=?, updated_at=? WHERE _id=?";
+
+    @Mock SQLiteDatabase db;
+    @Mock SQLiteDatabase otherDb;
+    @Mock SQLiteStatement statement;
+    @Mock SQLiteStatement otherStatement;
+    private StatementCache subject;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(db.compileStatement(SQL)).thenReturn(statement);
+        when(otherDb.compileStatement(SQL)).thenReturn(otherStatement);
+
+        subject = new StatementCache();
+    }
+
+    @Test
+    public void get_shouldCompileStatementOncePerOperation() throws Exception {
+        assertThat(subject.get(db, StatementCache.UPDATE_NOTE, SQL)).isEqualTo(statement);
+        assertThat(subject.get(db, StatementCache.UPDATE_NOTE, SQL)).isEqualTo(statement);
+
+        verify(db, times(1)).compileStatement(SQL);
+    }
+
+    @Test
+    public void get_whenStatementIsReused_shouldClearBindings() throws Exception {
+        subject.get(db, StatementCache.UPDATE_NOTE, SQL);
+        verify(statement, never()).clearBindings();
+
+        subject.get(db, StatementCache.UPDATE_NOTE, SQL);
+        verify(statement).clearBindings();
+    }
+
+    @Test
+    public void get_whenDatabaseDiffers_shouldCompileForEachConnection() throws Exception {
+        assertThat(subject.get(db, StatementCache.UPDATE_NOTE, SQL)).isEqualTo(statement);
+        assertThat(subject.get(otherDb, StatementCache.UPDATE_NOTE, SQL)).isEqualTo(otherStatement);
+
+        verify(db).compileStatement(SQL);
+        verify(otherDb).compileStatement(SQL);
+    }
+
+    @Test
+    public void get_whenOperationHasSeveralShapes_shouldCompileEachShapeOnce() throws Exception {
+        String otherSql = "UPDATE notes SET title=? WHERE _id=?";
+        when(db.compileStatement(otherSql)).thenReturn(otherStatement);
+
+        assertThat(subject.get(db, StatementCache.UPDATE_NOTE, SQL)).isEqualTo(statement);
+        assertThat(subject.get(db, StatementCache.UPDATE_NOTE, otherSql)).isEqualTo(otherStatement);
+        assertThat(subject.get(db, StatementCache.UPDATE_NOTE, SQL)).isEqualTo(statement);
+        assertThat(subject.get(db, StatementCache.UPDATE_NOTE, otherSql)).isEqualTo(otherStatement);
+
+        verify(db, times(1)).compileStatement(SQL);
+        verify(db, times(1)).compileStatement(otherSql);
+        verify(statement, never()).close();
+    }
+
+    @Test
+    public void clear_shouldCloseCachedStatements() throws Exception {
+        subject.get(db, StatementCache.UPDATE_NOTE, SQL);
+        subject.get(otherDb, StatementCache.UPDATE_NOTE, SQL);
+
+        subject.clear(db);
+
+        verify(statement).close();
+        verify(otherStatement, never()).close();
+
+        subject.get(db, StatementCache.UPDATE_NOTE, SQL);
+        verify(db, times(2)).compileStatement(SQL);
+    }
+
+    @Test
+    public void get_whenCacheIsFull_shouldCloseLeastRecentlyUsedStatement() throws Exception {
+        String otherSql = "UPDATE notes SET title=? WHERE _id=?";
+        String thirdSql = "UPDATE notes SET archived=? WHERE _id=?";
+        SQLiteStatement thirdStatement = mock(SQLiteStatement.class);
+        when(db.compileStatement(otherSql)).thenReturn(otherStatement);
+        when(db.compileStatement(thirdSql)).thenReturn(thirdStatement);
+        subject = new StatementCache(2);
+
+        subject.get(db, StatementCache.UPDATE_NOTE, SQL);
+        subject.get(db, StatementCache.UPDATE_NOTE, otherSql);
+        subject.get(db, StatementCache.UPDATE_NOTE, SQL);
+        subject.get(db, StatementCache.UPDATE_NOTE, thirdSql);
+
+        verify(otherStatement).close();
+        verify(statement, never()).close();
+
+        subject.get(db, StatementCache.UPDATE_NOTE, SQL);
+        verify(db, times(1)).compileStatement(SQL);
+        subject.get(db, StatementCache.UPDATE_NOTE, otherSql);
+        verify(db, times(2)).compileStatement(otherSql);
+    }
+
+    @Test
+    public void bindAll_shouldBindEachArgumentByType() throws Exception {
+        StatementCache.bindAll(statement, new Object[]{null, 3L, 4, 1.5, "text", true, new byte[]{1}});
+
+        verify(statement).bindNull(1);
+        verify(statement).bindLong(2, 3L);
+        verify(statement).bindLong(3, 4L);
+        verify(statement).bindDouble(4, 1.5);
+        verify(statement).bindString(5, "text");
+        verify(statement).bindString(6, "true");
+        verify(statement).bindBlob(7, new byte[]{1});
+        verify(statement, never()).bindAllArgsAsStrings(any(String[].class));
+    }
+
+    @Test
+    public void bindAll_withoutArgs_shouldBindNothing() throws Exception {
+        StatementCache.bindAll(statement, null);
+
+        verifyZeroInteractions(statement);
+    }
+
+}
@@ -3,15 +3,22 @@ package gov.sparrow.provider.services;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import gov.sparrow.SparrowTestRunner;
 import gov.sparrow.contracts.ActionContract.Action;
 import gov.sparrow.contracts.ActionContract.ActionListPosition;
 import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.SparrowContract;
+import gov.sparrow.provider.LinkedActionSplicer;
 import gov.sparrow.provider.ListPositionHelper;
+import gov.sparrow.provider.SqliteFeatures;
+import gov.sparrow.provider.StatementCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -20,6 +27,11 @@ import org.mockito.Captor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 
+import java.util.Arrays;
+
+import static gov.sparrow.util.StatementBindings.argsFor;
+import static gov.sparrow.util.StatementBindings.sortedColumns;
+import static gov.sparrow.util.StatementBindings.verifyBound;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
@@ -37,8 +49,11 @@ public class ActionServiceTest {
     @Mock SQLiteQueryBuilder builder;
     @Mock SQLiteDatabase db;
     @Mock ListPositionHelper listPositionHelper;
+    @Mock LinkedActionSplicer linkedActionSplicer;
+    @Mock SqliteFeatures sqliteFeatures;
+    @Mock SQLiteStatement statement;
+    @Mock SQLiteStatement insertStatement;
     @Captor ArgumentCaptor<String[]> queryCaptor;
-    @Captor ArgumentCaptor<Object[]> actionUpdateCaptor;
     private ActionService subject;
 
     @Before
@@ -47,7 +62,7 @@ public class ActionServiceTest {
 
         when(context.getContentResolver()).thenReturn(resolver);
 
-        subject = new ActionService(listPositionHelper);
+        subject = new ActionService(listPositionHelper, linkedActionSplicer, sqliteFeatures, new StatementCache());
     }
 
     @Test
@@ -71,57 +86,330 @@ public class ActionServiceTest {
         inOrder.verify(builder).query(db, new String[]{"projection"}, "selection", new String[]{"args"}, null, null, "sort");
     }
 
+    @Test
+    public void queryActions_withPartitionedSortOrder_shouldReturnPartitionCountsInExtras() throws Exception {
+        MatrixCursor actions = new MatrixCursor(new String[]{Action._ID});
+        when(builder.query(db, new String[]{"projection"}, "selection", new String[]{"args"}, null, null, Action.PARTITIONED_SORT_ORDER))
+                .thenReturn(actions);
+        MatrixCursor counts = new MatrixCursor(new String[]{"incomplete", "completed"});
+        counts.addRow(new Object[]{3, 2});
+        when(builder.query(db, ActionService.PARTITION_COUNT_PROJECTION, "selection", new String[]{"args"}, null, null, null))
+                .thenReturn(counts);
+
+        Cursor cursor = subject.queryActions(db, builder, new String[]{"projection"}, "selection", new String[]{"args"}, Action.PARTITIONED_SORT_ORDER);
+
+        assertThat(cursor.getExtras().getInt(Action.EXTRA_INCOMPLETE_COUNT)).isEqualTo(3);
+        assertThat(cursor.getExtras().getInt(Action.EXTRA_COMPLETED_COUNT)).isEqualTo(2);
+        assertThat(counts.isClosed()).isTrue();
+
+        verify(builder).setTables(Action.TABLE_NOTE_POSITION_JOIN);
+    }
+
+    @Test
+    public void partitionedSortOrder_shouldPlaceIncompleteActionsFirst_thenListPosition() throws Exception {
+        assertThat(Action.PARTITIONED_SORT_ORDER).isEqualTo(
+                Action.COLUMN_NAME_COMPLETED + " ASC, " + ActionListPosition.COLUMN_NAME_POSITION + " ASC");
+    }
+
+    @Test
+    public void queryActionsPage_shouldSeekPastAnchor_inPartitionedSortOrder_andLimitToPageSize() throws Exception {
+        Cursor expectedCursor = mock(Cursor.class);
+        when(builder.query(
+                eq(db),
+                any(String[].class),
+                anyString(),
+                any(String[].class),
+                anyString(),
+                anyString(),
+                anyString(),
+                anyString())
+        ).thenReturn(expectedCursor);
+
+        Cursor cursor = subject.queryActionsPage(db, builder, Action.PAGE_URI(50, "false", 12, 7L), new String[]{"projection"}, "selection", new String[]{"args"});
+        assertThat(cursor).isEqualTo(expectedCursor);
+
+        String completed = Action.COLUMN_NAME_COMPLETED;
+        String position = ActionListPosition.COLUMN_NAME_POSITION;
+        String id = Action.TABLE_NAME + "." + Action._ID;
+
+        InOrder inOrder = inOrder(builder);
+        inOrder.verify(builder).setTables(Action.TABLE_NOTE_POSITION_JOIN);
+        inOrder.verify(builder).query(
+                db,
+                new String[]{"projection"},
+                "(selection) AND (" + completed + ">? OR (" + completed + "=? AND (" +
+                        position + ">? OR (" + position + "=? AND " + id + ">?))))",
+                new String[]{"args", "false", "false", "12", "12", "7"},
+                null,
+                null,
+                Action.PARTITIONED_SORT_ORDER + ", " + id + " ASC",
+                "50");
+        verify(builder, never()).query(db, ActionService.PARTITION_COUNT_PROJECTION, "selection", new String[]{"args"}, null, null, null);
+    }
+
+    @Test
+    public void queryActionsPage_withoutAnchor_shouldReturnPartitionCountsInExtras() throws Exception {
+        MatrixCursor actions = new MatrixCursor(new String[]{Action._ID});
+        String id = Action.TABLE_NAME + "." + Action._ID;
+        when(builder.query(db, new String[]{"projection"}, "selection", new String[]{"args"}, null, null,
+                Action.PARTITIONED_SORT_ORDER + ", " + id + " ASC", "50"))
+                .thenReturn(actions);
+        MatrixCursor counts = new MatrixCursor(new String[]{"incomplete", "completed"});
+        counts.addRow(new Object[]{3, 2});
+        when(builder.query(db, ActionService.PARTITION_COUNT_PROJECTION, "selection", new String[]{"args"}, null, null, null))
+                .thenReturn(counts);
+
+        Cursor cursor = subject.queryActionsPage(db, builder, Action.PAGE_URI(50), new String[]{"projection"}, "selection", new String[]{"args"});
+
+        assertThat(cursor.getExtras().getInt(Action.EXTRA_INCOMPLETE_COUNT)).isEqualTo(3);
+        assertThat(cursor.getExtras().getInt(Action.EXTRA_COMPLETED_COUNT)).isEqualTo(2);
+        assertThat(cursor.getExtras().getInt(SparrowContract.EXTRA_TOTAL_COUNT)).isEqualTo(5);
+        assertThat(counts.isClosed()).isTrue();
+    }
+
     @Test
     public void upsertAction_shouldInsertIntoDatabase() {
         ContentValues values = new ContentValues();
         values.put("key", "value");
 
-        when(db.insertWithOnConflict(
-                eq(Action.TABLE_NAME),
-                isNull(String.class),
-                eq(values),
-                anyInt())
-        ).thenReturn(123l);
+        when(db.compileStatement(ActionService.insertSql(new String[]{"key"}))).thenReturn(insertStatement);
+        when(insertStatement.executeInsert()).thenReturn(123L);
 
         Uri uri = subject.upsertAction(context, db, values);
 
         assertThat(uri).isEqualTo(Action.CONTENT_URI(123L));
-        verify(db).insertWithOnConflict(Action.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        InOrder inOrder = inOrder(insertStatement);
+        verifyBound(inOrder, insertStatement, new String[]{"value"});
+        inOrder.verify(insertStatement).executeInsert();
 
+        verify(db, never()).insertWithOnConflict(anyString(), anyString(), any(ContentValues.class), anyInt());
         verify(resolver).notifyChange(Action.CONTENT_URI, null);
     }
 
     @Test
-    public void upsertAction_whenActionExists_shouldUpdateDatabase() {
+    public void upsertAction_whenActionExists_shouldOnlyUpdateDatabase() {
         ContentValues values = new ContentValues();
         values.put(Action.COLUMN_NAME_LINK_ID, "test link id");
         values.put(Action.COLUMN_NAME_NOTE_ID, 2L);
+        String[] columns = sortedColumns(values);
 
-        when(db.update(
-                eq(Action.TABLE_NAME),
-                eq(values),
-                anyString(),
-                any(String[].class))
-        ).thenReturn(1);
+        SQLiteStatement lookupStatement = mock(SQLiteStatement.class);
+        when(db.compileStatement(ActionService.updateByLinkSql(columns))).thenReturn(statement);
+        when(statement.executeUpdateDelete()).thenReturn(1);
+        when(db.compileStatement(ActionService.SELECT_ID_BY_LINK_SQL)).thenReturn(lookupStatement);
+        when(lookupStatement.simpleQueryForLong()).thenReturn(42L);
+
+        Uri uri = subject.upsertAction(context, db, values);
+        assertThat(uri).isEqualTo(Action.CONTENT_URI(42L));
+
+        Object[] args = Arrays.copyOf(argsFor(values, columns), columns.length + 2);
+        args[columns.length] = "test link id";
+        args[columns.length + 1] = Long.toString(2L);
+
+        InOrder inOrder = inOrder(statement);
+        verifyBound(inOrder, statement, args);
+        inOrder.verify(statement).executeUpdateDelete();
+        verify(db, never()).compileStatement(ActionService.insertSql(columns));
+        verify(db, never()).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+
+        verify(resolver).notifyChange(Action.CONTENT_URI(2L, 42L), null);
+    }
+
+    @Test
+    public void upsertAction_whenActionDoesNotExist_shouldInsertAfterMissedUpdate() {
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_LINK_ID, "test link id");
+        values.put(Action.COLUMN_NAME_NOTE_ID, 2L);
+        String[] columns = sortedColumns(values);
 
-        when(db.insertWithOnConflict(
-                eq(Action.TABLE_NAME),
-                isNull(String.class),
-                eq(values),
-                anyInt())
-        ).thenReturn(123l);
+        when(db.compileStatement(ActionService.updateByLinkSql(columns))).thenReturn(statement);
+        when(statement.executeUpdateDelete()).thenReturn(0);
+        when(db.compileStatement(ActionService.insertSql(columns))).thenReturn(insertStatement);
+        when(insertStatement.executeInsert()).thenReturn(123L);
 
         Uri uri = subject.upsertAction(context, db, values);
         assertThat(uri).isEqualTo(Action.CONTENT_URI(123L));
 
-        verify(db).update(
-                Action.TABLE_NAME,
-                values,
-                Action.COLUMN_NAME_LINK_ID + "=? AND " + Action.COLUMN_NAME_NOTE_ID + "=?",
-                new String[]{"test link id", Long.toString(2L)});
-        verify(db).insertWithOnConflict(Action.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        InOrder inOrder = inOrder(statement, insertStatement);
+        inOrder.verify(statement).executeUpdateDelete();
+        verifyBound(inOrder, insertStatement, argsFor(values, columns));
+        inOrder.verify(insertStatement).executeInsert();
+    }
 
-        verify(resolver).notifyChange(Action.CONTENT_URI, null);
+    @Test
+    public void upsertAction_acrossSeveralSaves_shouldCompileEachStatementOnce() {
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_LINK_ID, "test link id");
+        values.put(Action.COLUMN_NAME_NOTE_ID, 2L);
+        String[] columns = sortedColumns(values);
+
+        when(db.compileStatement(ActionService.updateByLinkSql(columns))).thenReturn(statement);
+        when(statement.executeUpdateDelete()).thenReturn(0);
+        when(db.compileStatement(ActionService.insertSql(columns))).thenReturn(insertStatement);
+
+        subject.upsertAction(context, db, values);
+        subject.upsertAction(context, db, values);
+        subject.upsertAction(context, db, values);
+
+        verify(db, times(1)).compileStatement(ActionService.updateByLinkSql(columns));
+        verify(db, times(1)).compileStatement(ActionService.insertSql(columns));
+        verify(statement, times(3)).executeUpdateDelete();
+        verify(insertStatement, times(3)).executeInsert();
+    }
+
+    @Test
+    public void updateByLinkSql_shouldMatchOnLinkAndNote() {
+        assertThat(ActionService.updateByLinkSql(new String[]{Action.COLUMN_NAME_LINK_ID, Action.COLUMN_NAME_TITLE}))
+                .isEqualTo("UPDATE " + Action.TABLE_NAME +
+                        " SET " + Action.COLUMN_NAME_LINK_ID + "=?, " + Action.COLUMN_NAME_TITLE + "=?" +
+                        " WHERE " + Action.COLUMN_NAME_LINK_ID + "=? AND " + Action.COLUMN_NAME_NOTE_ID + "=?");
+    }
+
+    @Test
+    public void insertSql_shouldIgnoreLinkConflicts() {
+        assertThat(ActionService.insertSql(new String[]{Action.COLUMN_NAME_LINK_ID, Action.COLUMN_NAME_TITLE}))
+                .isEqualTo("INSERT OR IGNORE INTO " + Action.TABLE_NAME +
+                        " (" + Action.COLUMN_NAME_LINK_ID + ", " + Action.COLUMN_NAME_TITLE + ")" +
+                        " VALUES (?, ?)");
+    }
+
+    @Test
+    public void upsertAction_whenUpsertIsSupported_shouldRunSingleStatement() {
+        when(sqliteFeatures.supportsUpsertReturning(db)).thenReturn(true);
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_LINK_ID, "test link id");
+        values.put(Action.COLUMN_NAME_NOTE_ID, 2L);
+        values.put(Action.COLUMN_NAME_TITLE, "test title");
+        String[] columns = sortedColumns(values);
+
+        when(db.compileStatement(ActionService.upsertReturningSql(columns))).thenReturn(statement);
+        when(statement.simpleQueryForLong()).thenReturn(42L);
+
+        Uri uri = subject.upsertAction(context, db, values);
+        assertThat(uri).isEqualTo(Action.CONTENT_URI(42L));
+
+        InOrder inOrder = inOrder(statement);
+        verifyBound(inOrder, statement, argsFor(values, columns));
+        inOrder.verify(statement).simpleQueryForLong();
+
+        verify(db, never()).rawQuery(anyString(), any(String[].class));
+        verify(db, never()).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+        verify(db, never()).insertWithOnConflict(anyString(), anyString(), any(ContentValues.class), anyInt());
+        verify(resolver).notifyChange(Action.CONTENT_URI(2L, 42L), null);
+    }
+
+    @Test
+    public void upsertAction_whenUpsertIsSupported_shouldCompileUpsertOnceAcrossSeveralSaves() {
+        when(sqliteFeatures.supportsUpsertReturning(db)).thenReturn(true);
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_LINK_ID, "test link id");
+        values.put(Action.COLUMN_NAME_NOTE_ID, 2L);
+        values.put(Action.COLUMN_NAME_TITLE, "test title");
+        String[] columns = sortedColumns(values);
+
+        when(db.compileStatement(ActionService.upsertReturningSql(columns))).thenReturn(statement);
+
+        subject.upsertAction(context, db, values);
+        subject.upsertAction(context, db, values);
+        subject.upsertAction(context, db, values);
+
+        verify(db, times(1)).compileStatement(ActionService.upsertReturningSql(columns));
+        verify(statement, times(3)).simpleQueryForLong();
+        verify(statement, times(2)).clearBindings();
+    }
+
+    @Test
+    public void upsertSql_shouldUpdateNonKeyColumnsOnLinkConflict() {
+        String sql = ActionService.upsertSql(new String[]{
+                Action.COLUMN_NAME_LINK_ID,
+                Action.COLUMN_NAME_NOTE_ID,
+                Action.COLUMN_NAME_TITLE
+        });
+
+        assertThat(sql).isEqualTo("INSERT INTO " + Action.TABLE_NAME +
+                " (" + Action.COLUMN_NAME_LINK_ID + ", " + Action.COLUMN_NAME_NOTE_ID + ", " + Action.COLUMN_NAME_TITLE + ")" +
+                " VALUES (?, ?, ?)" +
+                " ON CONFLICT (" + Action.COLUMN_NAME_LINK_ID + ", " + Action.COLUMN_NAME_NOTE_ID + ")" +
+                " DO UPDATE SET " + Action.COLUMN_NAME_TITLE + " = excluded." + Action.COLUMN_NAME_TITLE);
+    }
+
+    @Test
+    public void upsertReturningSql_shouldReturnRowId() {
+        String[] columns = {Action.COLUMN_NAME_LINK_ID, Action.COLUMN_NAME_NOTE_ID, Action.COLUMN_NAME_TITLE};
+
+        assertThat(ActionService.upsertReturningSql(columns))
+                .isEqualTo(ActionService.upsertSql(columns) + " RETURNING " + Action._ID);
+    }
+
+    @Test
+    public void upsertSql_withOnlyKeyColumns_shouldNoOpUpdateOnLinkConflict() {
+        String sql = ActionService.upsertReturningSql(new String[]{
+                Action.COLUMN_NAME_LINK_ID,
+                Action.COLUMN_NAME_NOTE_ID
+        });
+
+        assertThat(sql).isEqualTo("INSERT INTO " + Action.TABLE_NAME +
+                " (" + Action.COLUMN_NAME_LINK_ID + ", " + Action.COLUMN_NAME_NOTE_ID + ")" +
+                " VALUES (?, ?)" +
+                " ON CONFLICT (" + Action.COLUMN_NAME_LINK_ID + ", " + Action.COLUMN_NAME_NOTE_ID + ")" +
+                " DO UPDATE SET " + Action.COLUMN_NAME_LINK_ID + " = " + Action.COLUMN_NAME_LINK_ID +
+                " RETURNING " + Action._ID);
+        assertThat(sql).doesNotContain("DO NOTHING");
+    }
+
+    @Test
+    public void upsertAction_whenKeyOnlyUpsertHitsExistingRow_shouldReturnIdWithoutLookup() {
+        when(sqliteFeatures.supportsUpsertReturning(db)).thenReturn(true);
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_LINK_ID, "test link id");
+        values.put(Action.COLUMN_NAME_NOTE_ID, 2L);
+        String[] columns = sortedColumns(values);
+
+        when(db.compileStatement(ActionService.upsertReturningSql(columns))).thenReturn(statement);
+        when(statement.simpleQueryForLong()).thenReturn(42L);
+
+        Uri uri = subject.upsertAction(context, db, values);
+        assertThat(uri).isEqualTo(Action.CONTENT_URI(42L));
+
+        verify(db, never()).compileStatement(ActionService.SELECT_ID_BY_LINK_SQL);
+        verify(resolver).notifyChange(Action.CONTENT_URI(2L, 42L), null);
+    }
+
+    @Test
+    public void upsertAction_whenUpsertLacksReturning_shouldUpsertThenLookUpIdOnce() {
+        when(sqliteFeatures.supportsUpsert(db)).thenReturn(true);
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_LINK_ID, "test link id");
+        values.put(Action.COLUMN_NAME_NOTE_ID, 2L);
+        values.put(Action.COLUMN_NAME_TITLE, "test title");
+        String[] columns = sortedColumns(values);
+
+        SQLiteStatement lookupStatement = mock(SQLiteStatement.class);
+        when(db.compileStatement(ActionService.upsertSql(columns))).thenReturn(statement);
+        when(statement.executeUpdateDelete()).thenReturn(1);
+        when(db.compileStatement(ActionService.SELECT_ID_BY_LINK_SQL)).thenReturn(lookupStatement);
+        when(lookupStatement.simpleQueryForLong()).thenReturn(42L);
+
+        Uri uri = subject.upsertAction(context, db, values);
+        assertThat(uri).isEqualTo(Action.CONTENT_URI(42L));
+
+        InOrder inOrder = inOrder(statement, lookupStatement);
+        verifyBound(inOrder, statement, argsFor(values, columns));
+        inOrder.verify(statement).executeUpdateDelete();
+        verifyBound(inOrder, lookupStatement, new String[]{"test link id", Long.toString(2L)});
+        inOrder.verify(lookupStatement).simpleQueryForLong();
+
+        verify(lookupStatement, times(1)).simpleQueryForLong();
+        verify(db, never()).compileStatement(ActionService.updateByLinkSql(columns));
+        verify(db, never()).compileStatement(ActionService.insertSql(columns));
+        verify(resolver).notifyChange(Action.CONTENT_URI(2L, 42L), null);
+    }
+
+    @Test
+    public void selectIdByLinkSql_shouldMatchOnLinkAndNote() {
+        assertThat(ActionService.SELECT_ID_BY_LINK_SQL).isEqualTo(
+                "SELECT " + Action._ID + " FROM " + Action.TABLE_NAME +
+                        " WHERE " + Action.COLUMN_NAME_LINK_ID + "=? AND " + Action.COLUMN_NAME_NOTE_ID + "=?");
     }
 
     @Test
@@ -143,8 +431,6 @@ public class ActionServiceTest {
     @Test
     public void updateLinkedAction_shouldUpdateAction_andLinkedNote_andLinkedNoteStyles() {
         String actionTitle = "foo";
-        String actionId = "1";
-        String noteId = "11";
 
         ContentValues values = new ContentValues();
         values.put(Action.COLUMN_NAME_TITLE, actionTitle);
@@ -161,28 +447,33 @@ public class ActionServiceTest {
                 new String[]{"args"});
         assertThat(count).isEqualTo(777);
 
-        InOrder inOrder = inOrder(db);
+        InOrder inOrder = inOrder(db, linkedActionSplicer);
         inOrder.verify(db).beginTransaction();
-
-        inOrder.verify(db).execSQL(eq(Action.UPDATE_LINKED_NOTE_BODY_SQL), actionUpdateCaptor.capture());
-        assertThat(actionUpdateCaptor.getValue()).containsExactly(actionTitle, actionId, noteId);
-
-        inOrder.verify(db).execSQL(eq(Action.UPDATE_NOTE_STYLES_SQL), actionUpdateCaptor.capture());
-        assertThat(actionUpdateCaptor.getValue()).containsExactly(actionTitle.length(), actionId, actionTitle.length(), actionId, noteId, actionId);
-
-        inOrder.verify(db).execSQL(eq(Action.UPDATE_LINKED_NOTE_ACTION_LINKS_SQL), actionUpdateCaptor.capture());
-        assertThat(actionUpdateCaptor.getValue()).containsExactly(actionTitle.length(), actionId, actionTitle.length(), actionId, noteId, actionId);
-
-        inOrder.verify(db).execSQL(eq(Action.UPDATE_ACTION_LINK_START_END_SQL), actionUpdateCaptor.capture());
-        assertThat(actionUpdateCaptor.getValue()).containsExactly(actionTitle.length(), actionId);
-
+        inOrder.verify(linkedActionSplicer).splice(db, 11L, 1L, actionTitle);
         inOrder.verify(db).update(Action.TABLE_NAME, values, "selection", new String[]{"args"});
 
         inOrder.verify(db).setTransactionSuccessful();
         inOrder.verify(db).endTransaction();
 
-        verify(resolver).notifyChange(Note.CONTENT_URI, null);
-        verify(resolver).notifyChange(Action.CONTENT_URI, null);
+        verify(resolver).notifyChange(Note.CONTENT_URI(11L), null);
+        verify(resolver).notifyChange(Action.CONTENT_URI(11L, 1L), null);
+    }
+
+    @Test
+    public void updateLinkedAction_withoutTitle_shouldNotSpliceNote() {
+        ContentValues values = new ContentValues();
+        values.put(Action.COLUMN_NAME_COMPLETED, Boolean.toString(true));
+
+        subject.updateLinkedAction(
+                context,
+                db,
+                Action.CONTENT_URI(11L, 1L),
+                values,
+                "selection",
+                new String[]{"args"});
+
+        verifyZeroInteractions(linkedActionSplicer);
+        verify(db).update(Action.TABLE_NAME, values, "selection", new String[]{"args"});
     }
 
     @Test
@@ -203,6 +494,73 @@ public class ActionServiceTest {
         verify(resolver).notifyChange(Action.CONTENT_URI, null);
     }
 
+    @Test
+    public void moveActions_shouldMoveEveryActionOntoItsAnchorInOneTransaction_andNotifyOnce() throws Exception {
+        when(listPositionHelper.moveToAnchor(eq(db), anyString(), anyString(), anyString(), anyString(), anyLong()))
+                .thenReturn(1);
+        ContentValues first = new ContentValues();
+        first.put(ActionListPosition.COLUMN_NAME_ACTION_ID, 3L);
+        first.put(ActionListPosition.KEY_ANCHOR_ID, 5L);
+        ContentValues second = new ContentValues();
+        second.put(ActionListPosition.COLUMN_NAME_ACTION_ID, 8L);
+        second.put(ActionListPosition.KEY_ANCHOR_ID, 3L);
+
+        int count = subject.moveActions(context, db, new ContentValues[]{first, second});
+        assertThat(count).isEqualTo(2);
+
+        InOrder inOrder = inOrder(db, listPositionHelper, resolver);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(listPositionHelper).moveToAnchor(
+                db,
+                ActionListPosition.TABLE_NAME,
+                ActionListPosition.COLUMN_NAME_POSITION,
+                ActionListPosition.COLUMN_NAME_ACTION_ID,
+                "3",
+                5L);
+        inOrder.verify(listPositionHelper).moveToAnchor(
+                db,
+                ActionListPosition.TABLE_NAME,
+                ActionListPosition.COLUMN_NAME_POSITION,
+                ActionListPosition.COLUMN_NAME_ACTION_ID,
+                "8",
+                3L);
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+        inOrder.verify(resolver).notifyChange(Action.CONTENT_URI, null);
+        verify(resolver, times(1)).notifyChange(any(Uri.class), any(ContentObserver.class));
+        verify(listPositionHelper, never()).update(
+                any(SQLiteDatabase.class), any(ContentValues.class), anyString(), anyString(), anyString(), any(String[].class));
+    }
+
+    @Test
+    public void rebalanceActionListPositions_shouldRenumberRanks_thenNotify() throws Exception {
+        subject.rebalanceActionListPositions(context, db);
+
+        InOrder inOrder = inOrder(listPositionHelper, resolver);
+        inOrder.verify(listPositionHelper).rebalance(
+                db,
+                ActionListPosition.TABLE_NAME,
+                ActionListPosition.COLUMN_NAME_POSITION,
+                ActionListPosition.COLUMN_NAME_ACTION_ID);
+        inOrder.verify(resolver).notifyChange(Action.CONTENT_URI, null);
+    }
+
+    @Test
+    public void reorderActions_shouldAssignRanksInListOrder_andNotifyOnce() throws Exception {
+        subject.reorderActions(context, db, new ContentValues[]{
+                positionValues(ActionListPosition.COLUMN_NAME_ACTION_ID, 8L, 0),
+                positionValues(ActionListPosition.COLUMN_NAME_ACTION_ID, 3L, 1)
+        });
+
+        verify(listPositionHelper).assignRanks(
+                db,
+                ActionListPosition.TABLE_NAME,
+                ActionListPosition.COLUMN_NAME_POSITION,
+                ActionListPosition.COLUMN_NAME_ACTION_ID,
+                new long[]{8L, 3L});
+        verify(resolver, times(1)).notifyChange(Action.CONTENT_URI, null);
+    }
+
     @Test
     public void archiveAction_shouldUpdateDatabase() throws Exception {
         ContentValues values = new ContentValues();
@@ -224,8 +582,40 @@ public class ActionServiceTest {
 
     @Test
     public void deleteAction_shouldDeleteFromDatabase() {
-        subject.deleteActions(db, "test selection", new String[]{"test"});
-        verify(db).delete(Action.TABLE_NAME, "test selection", new String[]{"test"});
+        when(db.compileStatement(ActionService.deleteSql("test selection"))).thenReturn(statement);
+        when(statement.executeUpdateDelete()).thenReturn(3);
+
+        assertThat(subject.deleteActions(db, "test selection", new String[]{"test"})).isEqualTo(3);
+
+        InOrder inOrder = inOrder(statement);
+        verifyBound(inOrder, statement, new String[]{"test"});
+        inOrder.verify(statement).executeUpdateDelete();
+        verify(db, never()).delete(anyString(), anyString(), any(String[].class));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void deleteActions_acrossSeveralSaves_shouldCompileEachSelectionOnce() {
+        when(db.compileStatement(anyString())).thenReturn(statement);
+
+        subject.deleteActions(db, "test selection", new String[]{"1"});
+        subject.deleteActions(db, "test selection", new String[]{"2"});
+        subject.deleteActions(db, "test selection", new String[]{"3"});
+
+        verify(db, times(1)).compileStatement(ActionService.deleteSql("test selection"));
+        verify(statement, times(3)).executeUpdateDelete();
+    }
+
+    @Test
+    public void deleteSql_shouldOnlyAddWhereClauseForSelection() {
+        assertThat(ActionService.deleteSql("test selection"))
+                .isEqualTo("DELETE FROM " + Action.TABLE_NAME + " WHERE test selection");
+        assertThat(ActionService.deleteSql(null)).isEqualTo("DELETE FROM " + Action.TABLE_NAME);
+    }
+
+    private ContentValues positionValues(String idColumn, long id, int position) {
+        ContentValues values = new ContentValues();
+        values.put(idColumn, id);
+        values.put(ActionListPosition.COLUMN_NAME_POSITION, position);
+        return values;
+    }
+}
@@ -2,8 +2,10 @@ package gov.sparrow.provider.services;
 
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteQueryBuilder;
 import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.NoteContract.NoteChunk;
 import gov.sparrow.contracts.StyleContract.Style;
 import gov.sparrow.database.BackupMergeCursor;
 import org.junit.Before;
@@ -16,8 +18,10 @@ import static gov.sparrow.contracts.ActionContract.Action;
 import static gov.sparrow.contracts.NoteContract.Note;
 import static gov.sparrow.contracts.NotebookContract.Notebook;
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -48,13 +52,13 @@ public class BackupServiceTest {
                 anyString(),
                 anyString(),
                 anyString()
-        )).thenReturn(cursor, cursor, cursor, cursor);
+        )).thenReturn(cursor, cursor, cursor, cursor, cursor);
 
         subject.queryBackup(db, builder);
 
         InOrder inOrder = inOrder(builder, db);
 
-        inOrder.verify(db).beginTransaction();
+        inOrder.verify(db).execSQL(BackupService.BEGIN_SNAPSHOT_SQL);
 
         inOrder.verify(builder).setTables(Notebook.TABLE_NAME);
         inOrder.verify(builder).query(
@@ -69,12 +73,22 @@ public class BackupServiceTest {
         inOrder.verify(builder).setTables(Note.TABLE_NAME);
         inOrder.verify(builder).query(
                 any(SQLiteDatabase.class),
+                eq(BackupService.NOTE_PROJECTION),
+                (String) isNull(),
                 (String[]) isNull(),
                 (String) isNull(),
+                (String) isNull(),
+                eq(Note._ID + " ASC"));
+
+        inOrder.verify(builder).setTables(NoteChunk.TABLE_NAME);
+        inOrder.verify(builder).query(
+                any(SQLiteDatabase.class),
+                eq(BackupService.NOTE_CHUNK_PROJECTION),
+                (String) isNull(),
                 (String[]) isNull(),
                 (String) isNull(),
                 (String) isNull(),
-                (String) isNull());
+                eq(NoteChunk.COLUMN_NAME_NOTE_ID + " ASC, " + NoteChunk.COLUMN_NAME_SEQUENCE + " ASC"));
 
         inOrder.verify(builder).setTables(Action.TABLE_NAME);
         inOrder.verify(builder).query(
@@ -96,8 +110,77 @@ public class BackupServiceTest {
                 (String) isNull(),
                 (String) isNull());
 
-        inOrder.verify(db).setTransactionSuccessful();
-        inOrder.verify(db).endTransaction();
+        verify(db, never()).beginTransaction();
+        verify(db, never()).beginTransactionNonExclusive();
+        verify(db, never()).execSQL(BackupService.END_SNAPSHOT_SQL);
+        verify(db, never()).close();
+    }
+
+    @Test
+    public void snapshotSql_shouldOpenDeferredReadTransaction() throws Exception {
+        assertThat(BackupService.BEGIN_SNAPSHOT_SQL).isEqualTo("SAVEPOINT backup_snapshot;");
+        assertThat(BackupService.END_SNAPSHOT_SQL).isEqualTo("RELEASE backup_snapshot;");
+    }
+
+    @Test
+    public void queryBackup_whenCursorIsClosed_shouldEndSnapshotAndCloseConnection() throws Exception {
+        Cursor cursor = mock(Cursor.class);
+        when(builder.query(
+                any(SQLiteDatabase.class),
+                (String[]) any(),
+                anyString(),
+                (String[]) any(),
+                anyString(),
+                anyString(),
+                anyString()
+        )).thenReturn(cursor);
+
+        subject.queryBackup(db, builder).close();
+
+        InOrder inOrder = inOrder(db, cursor);
+        inOrder.verify(cursor, atLeastOnce()).close();
+        inOrder.verify(db).execSQL(BackupService.END_SNAPSHOT_SQL);
+        inOrder.verify(db).close();
+    }
+
+    @Test
+    public void queryBackup_whenQueryThrows_shouldEndSnapshotAndCloseConnection() throws Exception {
+        Cursor notebookCursor = mock(Cursor.class);
+        when(builder.query(
+                any(SQLiteDatabase.class),
+                (String[]) any(),
+                anyString(),
+                (String[]) any(),
+                anyString(),
+                anyString(),
+                anyString()
+        )).thenReturn(notebookCursor).thenThrow(new SQLiteException("disk I/O error"));
+
+        try {
+            subject.queryBackup(db, builder);
+            fail("expected SQLiteException");
+        } catch (SQLiteException e) {
+            InOrder inOrder = inOrder(db, notebookCursor);
+            inOrder.verify(db).execSQL(BackupService.BEGIN_SNAPSHOT_SQL);
+            inOrder.verify(notebookCursor).close();
+            inOrder.verify(db).execSQL(BackupService.END_SNAPSHOT_SQL);
+            inOrder.verify(db).close();
+        }
+    }
+
+    @Test
+    public void noteProjection_shouldReadStoredBodyAndChunkedFlag_withoutConcatenatingChunks() throws Exception {
+        assertThat(BackupService.NOTE_PROJECTION)
+                .contains(Note.COLUMN_NAME_BODY, Note.COLUMN_NAME_CHUNKED);
+        for (String column : BackupService.NOTE_PROJECTION) {
+            assertThat(column).doesNotContain("group_concat");
+        }
+    }
+
+    @Test
+    public void noteChunkProjection_shouldReadNoteIdAndText() throws Exception {
+        assertThat(BackupService.NOTE_CHUNK_PROJECTION).containsExactly(
+                NoteChunk.COLUMN_NAME_NOTE_ID, NoteChunk.COLUMN_NAME_TEXT);
     }
 
     @Test
@@ -114,6 +197,9 @@ public class BackupServiceTest {
         Cursor styleCursor = mock(Cursor.class);
         when(styleCursor.getCount()).thenReturn(10);
 
+        Cursor noteChunkCursor = mock(Cursor.class);
+        when(noteChunkCursor.getCount()).thenReturn(6);
+
         when(builder.query(
                 any(SQLiteDatabase.class),
                 (String[]) any(),
@@ -122,7 +208,7 @@ public class BackupServiceTest {
                 anyString(),
                 anyString(),
                 anyString()
-        )).thenReturn(notebookCursor, noteCursor, actionCursor, styleCursor);
+        )).thenReturn(notebookCursor, noteCursor, noteChunkCursor, actionCursor, styleCursor);
 
         BackupMergeCursor cursor = (BackupMergeCursor) subject.queryBackup(db, builder);
 
@@ -131,6 +217,7 @@ public class BackupServiceTest {
         assertThat(cursor.getNotebookCount()).isEqualTo(4);
         assertThat(cursor.getNoteCount()).isEqualTo(5);
         assertThat(cursor.getStyleCount()).isEqualTo(10);
+        assertThat(cursor.getNoteChunks()).isEqualTo(noteChunkCursor);
     }
 
 
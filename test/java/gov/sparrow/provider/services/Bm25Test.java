@@ -0,0 +1,111 @@
+package gov.sparrow.provider.services;
+
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class Bm25Test {
+
+    private static final double[] EQUAL_WEIGHTS = new double[]{1.0, 1.0};
+
+    @Test
+    public void score_whenPhraseHasNoHits_returnsZero() throws Exception {
+        byte[] matchInfo = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 100},
+                0, 0, 5, 0, 0, 20);
+
+        assertThat(Bm25.score(matchInfo, EQUAL_WEIGHTS)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void score_withMoreHitsInRow_scoresHigher() throws Exception {
+        byte[] oneHit = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 100},
+                0, 0, 5, 1, 30, 20);
+        byte[] threeHits = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 100},
+                0, 0, 5, 3, 30, 20);
+
+        assertThat(Bm25.score(threeHits, EQUAL_WEIGHTS)).isGreaterThan(Bm25.score(oneHit, EQUAL_WEIGHTS));
+    }
+
+    @Test
+    public void score_forShorterRowWithSameHits_scoresHigher() throws Exception {
+        byte[] longRow = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 400},
+                0, 0, 5, 2, 30, 20);
+        byte[] shortRow = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 25},
+                0, 0, 5, 2, 30, 20);
+
+        assertThat(Bm25.score(shortRow, EQUAL_WEIGHTS)).isGreaterThan(Bm25.score(longRow, EQUAL_WEIGHTS));
+    }
+
+    @Test
+    public void score_forRarerPhrase_scoresHigher() throws Exception {
+        byte[] common = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 100},
+                0, 0, 0, 1, 30, 60);
+        byte[] rare = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 100},
+                0, 0, 0, 1, 3, 2);
+
+        assertThat(Bm25.score(rare, EQUAL_WEIGHTS)).isGreaterThan(Bm25.score(common, EQUAL_WEIGHTS));
+    }
+
+    @Test
+    public void score_whenPhraseIsInMostRows_stillScoresAboveZero() throws Exception {
+        byte[] matchInfo = matchInfo(1, 2, 10, new int[]{10, 100}, new int[]{10, 100},
+                0, 0, 0, 1, 10, 10);
+
+        assertThat(Bm25.score(matchInfo, EQUAL_WEIGHTS)).isGreaterThan(0.0);
+    }
+
+    @Test
+    public void score_shouldApplyColumnWeights() throws Exception {
+        byte[] titleHit = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 100},
+                1, 5, 5, 0, 30, 20);
+        byte[] bodyHit = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 100},
+                0, 5, 5, 1, 30, 20);
+        double[] titleWeighted = new double[]{10.0, 1.0};
+
+        assertThat(Bm25.score(titleHit, titleWeighted)).isGreaterThan(Bm25.score(bodyHit, titleWeighted));
+    }
+
+    @Test
+    public void score_shouldSumOverPhrases() throws Exception {
+        byte[] onePhrase = matchInfo(1, 1, 100, new int[]{50}, new int[]{50},
+                1, 5, 5);
+        byte[] twoPhrases = matchInfo(2, 1, 100, new int[]{50}, new int[]{50},
+                1, 5, 5,
+                1, 5, 5);
+
+        assertThat(Bm25.score(twoPhrases, new double[]{1.0}))
+                .isEqualTo(2 * Bm25.score(onePhrase, new double[]{1.0}));
+    }
+
+    @Test
+    public void score_whenWeightsAreMissingForColumn_defaultsToOne() throws Exception {
+        byte[] matchInfo = matchInfo(1, 2, 100, new int[]{10, 100}, new int[]{10, 100},
+                0, 0, 5, 1, 30, 20);
+
+        assertThat(Bm25.score(matchInfo, new double[]{1.0})).isEqualTo(Bm25.score(matchInfo, EQUAL_WEIGHTS));
+    }
+
+    static byte[] matchInfo(int phrases, int columns, int rows, int[] averageLengths, int[] lengths, int... hits) {
+        ByteBuffer buffer = ByteBuffer
+                .allocate(4 * (3 + 2 * columns + hits.length))
+                .order(ByteOrder.nativeOrder());
+        buffer.putInt(phrases).putInt(columns).putInt(rows);
+        for (int averageLength : averageLengths) {
+            buffer.putInt(averageLength);
+        }
+        for (int length : lengths) {
+            buffer.putInt(length);
+        }
+        for (int hit : hits) {
+            buffer.putInt(hit);
+        }
+        return buffer.array();
+    }
+
+}
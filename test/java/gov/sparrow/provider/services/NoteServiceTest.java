@@ -4,15 +4,24 @@ import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import gov.sparrow.SparrowTestRunner;
 import gov.sparrow.contracts.ActionContract.Action;
 import gov.sparrow.contracts.ActionContract.ActionListPosition;
 import gov.sparrow.contracts.NoteContract.Note;
+import gov.sparrow.contracts.NotebookContract.Notebook;
+import gov.sparrow.contracts.SparrowContract;
 import gov.sparrow.contracts.StyleContract;
 import gov.sparrow.database.NoteMergeCursor;
+import gov.sparrow.database.SearchIndexSchema;
+import gov.sparrow.models.EditDelta;
+import gov.sparrow.provider.NoteChunkStore;
+import gov.sparrow.provider.StatementCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -21,7 +30,10 @@ import org.mockito.Captor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 
+import static gov.sparrow.util.StatementBindings.verifyBound;
+import static java.util.Arrays.asList;
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -35,6 +47,8 @@ public class NoteServiceTest {
     @Mock ContentResolver resolver;
     @Mock SQLiteQueryBuilder builder;
     @Mock SQLiteDatabase db;
+    @Mock NoteChunkStore noteChunkStore;
+    @Mock SQLiteStatement statement;
     @Captor ArgumentCaptor<String[]> queryCaptor;
     private NoteService subject;
 
@@ -43,14 +57,18 @@ public class NoteServiceTest {
         initMocks(this);
 
         when(context.getContentResolver()).thenReturn(resolver);
+        when(db.compileStatement(anyString())).thenReturn(statement);
 
-        subject = new NoteService();
+        subject = new NoteService(noteChunkStore, new StatementCache());
     }
 
     @Test
     public void queryNote_shouldReturnNoteCursor() throws Exception {
         Cursor noteCursor = mock(Cursor.class);
-        when(noteCursor.getCount()).thenReturn(20).thenReturn(34);
+        Cursor actionCursor = mock(Cursor.class);
+        Cursor styleCursor = mock(Cursor.class);
+        when(actionCursor.getCount()).thenReturn(20);
+        when(styleCursor.getCount()).thenReturn(34);
 
         when(builder.query(
                 any(SQLiteDatabase.class),
@@ -60,12 +78,12 @@ public class NoteServiceTest {
                 anyString(),
                 anyString(),
                 anyString())
-        ).thenReturn(noteCursor);
+        ).thenReturn(noteCursor, actionCursor, styleCursor);
 
         Cursor cursor = subject.queryNote(db, builder, null, Note._ID + "=?", new String[]{"1"}, null);
 
-        InOrder inOrder = inOrder(db, builder);
-        inOrder.verify(db).beginTransaction();
+        InOrder inOrder = inOrder(db, builder, styleCursor);
+        inOrder.verify(db).execSQL(NoteService.BEGIN_READ_SQL);
 
         inOrder.verify(builder).setTables(Note.TABLE_NAME);
         inOrder.verify(builder).query(eq(db), any(String[].class), eq(Note._ID + "=?"), eq(new String[]{"1"}), anyString(), anyString(), anyString());
@@ -76,14 +94,61 @@ public class NoteServiceTest {
         inOrder.verify(builder).setTables(StyleContract.Style.TABLE_NAME);
         inOrder.verify(builder).query(eq(db), any(String[].class), eq(StyleContract.Style.COLUMN_NAME_NOTE_ID + "=?"), eq(new String[]{"1"}), anyString(), anyString(), anyString());
 
-        inOrder.verify(db).setTransactionSuccessful();
-        inOrder.verify(db).endTransaction();
+        inOrder.verify(styleCursor).getCount();
+        inOrder.verify(db).execSQL(NoteService.END_READ_SQL);
 
         assertThat(cursor).isInstanceOf(NoteMergeCursor.class);
 
         NoteMergeCursor noteMergeCursor = (NoteMergeCursor) cursor;
         assertThat(noteMergeCursor.getActionLinkCount()).isEqualTo(20);
         assertThat(noteMergeCursor.getStyleCount()).isEqualTo(34);
+
+        verify(db, never()).beginTransaction();
+        verify(db, never()).beginTransactionNonExclusive();
+    }
+
+    @Test
+    public void queryNote_whenQueryThrows_shouldReleaseReadSavepoint() throws Exception {
+        when(builder.query(
+                any(SQLiteDatabase.class),
+                any(String[].class),
+                anyString(),
+                any(String[].class),
+                anyString(),
+                anyString(),
+                anyString())
+        ).thenThrow(new SQLiteException("disk I/O error"));
+
+        try {
+            subject.queryNote(db, builder, null, Note._ID + "=?", new String[]{"1"}, null);
+            fail("expected SQLiteException");
+        } catch (SQLiteException e) {
+            InOrder inOrder = inOrder(db);
+            inOrder.verify(db).execSQL(NoteService.BEGIN_READ_SQL);
+            inOrder.verify(db).execSQL(NoteService.END_READ_SQL);
+        }
+    }
+
+    @Test
+    public void queryNote_whenBodyIsChunked_shouldStreamBodyFromChunks() throws Exception {
+        MatrixCursor noteCursor = new MatrixCursor(new String[]{Note._ID, Note.COLUMN_NAME_BODY, Note.COLUMN_NAME_CHUNKED});
+        noteCursor.addRow(new Object[]{1L, "preview only", "true"});
+
+        when(builder.query(
+                any(SQLiteDatabase.class),
+                any(String[].class),
+                anyString(),
+                any(String[].class),
+                anyString(),
+                anyString(),
+                anyString())
+        ).thenReturn(noteCursor, new MatrixCursor(new String[]{Action._ID}), new MatrixCursor(new String[]{StyleContract.Style._ID}));
+        when(noteChunkStore.read(db, 1L)).thenReturn("the full chunked body");
+
+        Cursor cursor = subject.queryNote(db, builder, null, Note._ID + "=?", new String[]{"1"}, null);
+
+        assertThat(cursor.moveToFirst()).isTrue();
+        assertThat(cursor.getString(cursor.getColumnIndexOrThrow(Note.COLUMN_NAME_BODY))).isEqualTo("the full chunked body");
     }
 
     @Test
@@ -163,6 +228,121 @@ public class NoteServiceTest {
         inOrder.verify(builder).query(db, new String[]{"projection"}, "selection", new String[]{"args"}, null, null, "sort");
     }
 
+    @Test
+    public void queryNotes_whenOnlyNoteColumnsAreReferenced_shouldSkipNotebookJoin() throws Exception {
+        String[] projection = {Note.TABLE_NAME + "." + Note._ID, Note.TABLE_NAME + "." + Note.COLUMN_NAME_TITLE};
+        String selection = Note.TABLE_NAME + "." + Note.COLUMN_NAME_ARCHIVED + "=? AND " + Note.COLUMN_NAME_NOTEBOOK_ID + "=?";
+        String sortOrder = Note.TABLE_NAME + "." + Note.COLUMN_NAME_UPDATED_AT + " DESC";
+
+        subject.queryNotes(db, builder, projection, selection, new String[]{"false", "1"}, sortOrder);
+
+        InOrder inOrder = inOrder(builder);
+        inOrder.verify(builder).setTables(Note.TABLE_NAME);
+        inOrder.verify(builder).query(db, projection, selection, new String[]{"false", "1"}, null, null, sortOrder);
+    }
+
+    @Test
+    public void queryNotes_whenNotebookColumnIsReferenced_shouldJoinNotebooks() throws Exception {
+        String notebookColumn = Notebook.TABLE_NAME + "." + Notebook.COLUMN_NAME_TITLE;
+        String noteId = Note.TABLE_NAME + "." + Note._ID;
+
+        subject.queryNotes(db, builder, new String[]{noteId, notebookColumn + " as " + Note.ALIAS_NAME_NOTEBOOK_TITLE}, null, null, null);
+        subject.queryNotes(db, builder, new String[]{noteId}, notebookColumn + "=?", new String[]{"title"}, null);
+        subject.queryNotes(db, builder, new String[]{noteId}, null, null, notebookColumn + " ASC");
+
+        verify(builder, times(3)).setTables(Note.TABLE_NOTEBOOK_JOIN);
+        verify(builder, never()).setTables(Note.TABLE_NAME);
+    }
+
+    @Test
+    public void queryNotes_whenProjectionIsNull_shouldJoinNotebooks() throws Exception {
+        subject.queryNotes(db, builder, null, null, null, null);
+
+        verify(builder).setTables(Note.TABLE_NOTEBOOK_JOIN);
+    }
+
+    @Test
+    public void queryNotes_whenProjectionIsNull_shouldReadPreviewInsteadOfBody() throws Exception {
+        subject.queryNotes(db, builder, null, "selection", new String[]{"args"}, "sort");
+
+        verify(builder).query(db, NoteService.LIST_PROJECTION, "selection", new String[]{"args"}, null, null, "sort");
+        assertThat(NoteService.LIST_PROJECTION)
+                .contains(Note.TABLE_NAME + "." + Note.COLUMN_NAME_PREVIEW)
+                .contains(Note.TABLE_NAME + "." + Note.COLUMN_NAME_WORD_COUNT)
+                .doesNotContain(Note.TABLE_NAME + "." + Note.COLUMN_NAME_BODY);
+    }
+
+    @Test
+    public void queryNotesPage_shouldSeekPastAnchor_andLimitToPageSize() throws Exception {
+        Cursor expectedCursor = mock(Cursor.class);
+        when(builder.query(
+                any(SQLiteDatabase.class),
+                any(String[].class),
+                anyString(),
+                any(String[].class),
+                anyString(),
+                anyString(),
+                anyString(),
+                anyString())
+        ).thenReturn(expectedCursor);
+
+        Cursor cursor = subject.queryNotesPage(db, builder, Note.PAGE_URI(50, "test updated at", 7L), new String[]{"projection"}, "selection", new String[]{"args"});
+        assertThat(cursor).isEqualTo(expectedCursor);
+
+        String updatedAt = Note.TABLE_NAME + "." + Note.COLUMN_NAME_UPDATED_AT;
+        String id = Note.TABLE_NAME + "." + Note._ID;
+
+        InOrder inOrder = inOrder(builder);
+        inOrder.verify(builder).setTables(Note.TABLE_NOTEBOOK_JOIN);
+        inOrder.verify(builder).query(
+                db,
+                new String[]{"projection"},
+                "(selection) AND (" + updatedAt + "<? OR (" + updatedAt + "=? AND " + id + "<?))",
+                new String[]{"args", "test updated at", "test updated at", "7"},
+                null,
+                null,
+                updatedAt + " DESC, " + id + " DESC",
+                "50");
+    }
+
+    @Test
+    public void queryNotesPage_withoutAnchor_shouldReturnFirstPage() throws Exception {
+        subject.queryNotesPage(db, builder, Note.PAGE_URI(50), new String[]{"projection"}, "selection", new String[]{"args"});
+
+        verify(builder).query(
+                db,
+                new String[]{"projection"},
+                "selection",
+                new String[]{"args"},
+                null,
+                null,
+                Note.TABLE_NAME + "." + Note.COLUMN_NAME_UPDATED_AT + " DESC, " + Note.TABLE_NAME + "." + Note._ID + " DESC",
+                "50");
+    }
+
+    @Test
+    public void queryNotesPage_withoutAnchor_shouldReturnTotalCountInExtras() throws Exception {
+        String sortOrder = Note.TABLE_NAME + "." + Note.COLUMN_NAME_UPDATED_AT + " DESC, " + Note.TABLE_NAME + "." + Note._ID + " DESC";
+        when(builder.query(db, new String[]{"projection"}, "selection", new String[]{"args"}, null, null, sortOrder, "50"))
+                .thenReturn(new MatrixCursor(new String[]{Note._ID}));
+        MatrixCursor count = new MatrixCursor(new String[]{"count"});
+        count.addRow(new Object[]{120});
+        when(builder.query(db, NoteService.COUNT_PROJECTION, "selection", new String[]{"args"}, null, null, null))
+                .thenReturn(count);
+
+        Cursor cursor = subject.queryNotesPage(db, builder, Note.PAGE_URI(50), new String[]{"projection"}, "selection", new String[]{"args"});
+
+        assertThat(cursor.getExtras().getInt(SparrowContract.EXTRA_TOTAL_COUNT)).isEqualTo(120);
+        assertThat(count.isClosed()).isTrue();
+    }
+
+    @Test
+    public void queryNotesPage_withAnchor_shouldNotCountAgain() throws Exception {
+        subject.queryNotesPage(db, builder, Note.PAGE_URI(50, "test updated at", 7L), new String[]{"projection"}, "selection", new String[]{"args"});
+
+        verify(builder, never()).query(eq(db), eq(NoteService.COUNT_PROJECTION), anyString(), any(String[].class), anyString(), anyString(), anyString());
+    }
+
     @Test
     public void insertNote_shouldInsertIntoDatabase() {
         when(db.insert(anyString(), anyString(), any(ContentValues.class)))
@@ -177,13 +357,13 @@ public class NoteServiceTest {
         assertThat(uri.toString()).isEqualTo(Note.CONTENT_URI.toString() + "/123");
 
         verify(db).insert(Note.TABLE_NAME, null, values);
-        verify(resolver).notifyChange(Note.CONTENT_URI, null);
+        verify(resolver).notifyChange(Note.CONTENT_URI(123L), null);
+        verify(resolver, never()).notifyChange(Note.CONTENT_URI, null);
     }
 
     @Test
-    public void updateNote_shouldUpdateDatabase() {
-        when(db.update(anyString(), any(ContentValues.class), anyString(), any(String[].class)))
-                .thenReturn(777);
+    public void updateNote_shouldUpdateThroughCachedStatement() {
+        when(statement.executeUpdateDelete()).thenReturn(777);
 
         ContentValues values = new ContentValues();
         values.put("title", "fakeTitle");
@@ -192,10 +372,340 @@ public class NoteServiceTest {
 
         assertThat(count).isEqualTo(777);
 
-        verify(db).update(Note.TABLE_NAME, values, "selection", new String[]{"args"});
+        verify(db).compileStatement(NoteService.updateSql(new String[]{"title"}, "selection"));
+        InOrder inOrder = inOrder(statement);
+        verifyBound(inOrder, statement, "fakeTitle", "args");
+        inOrder.verify(statement).executeUpdateDelete();
+        verify(db, never()).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
         verify(resolver).notifyChange(Note.CONTENT_URI, null);
     }
 
+    @Test
+    public void updateNote_acrossSeveralSaves_shouldCompileUpdateOnce() {
+        for (String title : asList("one", "two", "three")) {
+            ContentValues values = new ContentValues();
+            values.put(Note.COLUMN_NAME_TITLE, title);
+            subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+        }
+
+        verify(db, times(1)).compileStatement(NoteService.updateSql(new String[]{Note.COLUMN_NAME_TITLE}, Note._ID + "=?"));
+        verify(statement, times(3)).executeUpdateDelete();
+    }
+
+    @Test
+    public void updateNote_withNullValue_shouldBindNull() {
+        ContentValues values = new ContentValues();
+        values.putNull(Note.COLUMN_NAME_NOTEBOOK_ID);
+        values.put(Note.COLUMN_NAME_TITLE, "fakeTitle");
+
+        subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+
+        InOrder inOrder = inOrder(statement);
+        inOrder.verify(statement).bindNull(1);
+        inOrder.verify(statement).bindString(2, "fakeTitle");
+        inOrder.verify(statement).bindString(3, "1");
+        inOrder.verify(statement).executeUpdateDelete();
+    }
+
+    @Test
+    public void updateSql_shouldSetEachColumnForSelection() {
+        assertThat(NoteService.updateSql(new String[]{Note.COLUMN_NAME_ARCHIVED, Note.COLUMN_NAME_TITLE}, Note._ID + "=?"))
+                .isEqualTo("UPDATE " + Note.TABLE_NAME +
+                        " SET " + Note.COLUMN_NAME_ARCHIVED + "=?, " + Note.COLUMN_NAME_TITLE + "=?" +
+                        " WHERE " + Note._ID + "=?");
+        assertThat(NoteService.updateSql(new String[]{Note.COLUMN_NAME_TITLE}, null))
+                .isEqualTo("UPDATE " + Note.TABLE_NAME + " SET " + Note.COLUMN_NAME_TITLE + "=?");
+    }
+
+    @Test
+    public void updateNote_whenSelectingOneNoteById_shouldNotifyOnlyThatNote() {
+        when(statement.executeUpdateDelete()).thenReturn(1);
+
+        ContentValues values = new ContentValues();
+        values.put("title", "fakeTitle");
+
+        subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+
+        verify(resolver).notifyChange(Note.CONTENT_URI(1L), null);
+        verify(resolver, never()).notifyChange(Note.CONTENT_URI, null);
+    }
+
+    @Test
+    public void updateNote_whenBodyChanges_shouldMaintainPreviewAndWordCount() {
+        StringBuilder body = new StringBuilder("one two  three\nfour ");
+        while (body.length() < Note.PREVIEW_LENGTH * 2) {
+            body.append("x");
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_BODY, body.toString());
+
+        subject.updateNote(context, db, values, "selection", new String[]{"args"});
+
+        verify(db).update(Note.TABLE_NAME, values, "selection", new String[]{"args"});
+        assertThat(values.getAsString(Note.COLUMN_NAME_PREVIEW)).isEqualTo(body.substring(0, Note.PREVIEW_LENGTH));
+        assertThat(values.getAsInteger(Note.COLUMN_NAME_WORD_COUNT)).isEqualTo(5);
+    }
+
+    @Test
+    public void updateNote_whenBodyExceedsChunkThreshold_shouldStoreBodyInChunks() {
+        StringBuilder body = new StringBuilder();
+        while (body.length() <= Note.CHUNKED_BODY_THRESHOLD) {
+            body.append("0123456789");
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_BODY, body.toString());
+
+        subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+
+        InOrder inOrder = inOrder(noteChunkStore, db);
+        inOrder.verify(noteChunkStore).write(db, 1L, body.toString());
+        inOrder.verify(db).update(Note.TABLE_NAME, values, Note._ID + "=?", new String[]{"1"});
+
+        assertThat(values.getAsString(Note.COLUMN_NAME_BODY)).isEqualTo(values.getAsString(Note.COLUMN_NAME_PREVIEW));
+        assertThat(values.getAsString(Note.COLUMN_NAME_CHUNKED)).isEqualTo("true");
+    }
+
+    @Test
+    public void updateNote_whenBodyIsChunked_shouldMoveNoteOutOfSearchIndexAroundChunkWrite() {
+        StringBuilder body = new StringBuilder();
+        while (body.length() <= Note.CHUNKED_BODY_THRESHOLD) {
+            body.append("0123456789");
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_BODY, body.toString());
+
+        subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+
+        InOrder inOrder = inOrder(noteChunkStore, db);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(db).execSQL(SearchIndexSchema.UNINDEX_NOTE_SQL, new Object[]{1L});
+        inOrder.verify(db).execSQL(SearchIndexSchema.SUSPEND_NOTE_SQL, new Object[]{1L});
+        inOrder.verify(noteChunkStore).write(db, 1L, body.toString());
+        inOrder.verify(db).update(Note.TABLE_NAME, values, Note._ID + "=?", new String[]{"1"});
+        inOrder.verify(db).execSQL(NoteService.bumpVersionSql(Note._ID + "=?"), new Object[]{"1"});
+        inOrder.verify(db).execSQL(SearchIndexSchema.RESUME_NOTE_SQL, new Object[]{1L});
+        inOrder.verify(db).execSQL(SearchIndexSchema.INDEX_NOTE_SQL, new Object[]{1L});
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+    }
+
+    @Test
+    public void updateNote_whenBodyIsBelowChunkThreshold_shouldLeaveIndexToTriggers_andDropChunksAfterRowUpdate() {
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_BODY, "short body");
+
+        subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+
+        InOrder inOrder = inOrder(noteChunkStore, db);
+        inOrder.verify(db).update(Note.TABLE_NAME, values, Note._ID + "=?", new String[]{"1"});
+        inOrder.verify(noteChunkStore).delete(db, 1L);
+        verify(db, never()).execSQL(eq(SearchIndexSchema.UNINDEX_NOTE_SQL), any(Object[].class));
+        verify(db, never()).execSQL(eq(SearchIndexSchema.INDEX_NOTE_SQL), any(Object[].class));
+    }
+
+    @Test
+    public void updateNote_whenBodyIsBelowChunkThreshold_shouldDropChunks() {
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_BODY, "short body");
+
+        subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+
+        verify(noteChunkStore).delete(db, 1L);
+        verify(noteChunkStore, never()).write(any(SQLiteDatabase.class), anyLong(), anyString());
+        assertThat(values.getAsString(Note.COLUMN_NAME_BODY)).isEqualTo("short body");
+        assertThat(values.getAsString(Note.COLUMN_NAME_CHUNKED)).isEqualTo("false");
+    }
+
+    @Test
+    public void updateNote_whenBodyChanges_shouldBumpVersionInSameTransaction() {
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_BODY, "short body");
+
+        subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+
+        InOrder inOrder = inOrder(db);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(db).update(Note.TABLE_NAME, values, Note._ID + "=?", new String[]{"1"});
+        inOrder.verify(db).execSQL(NoteService.bumpVersionSql(Note._ID + "=?"), new Object[]{"1"});
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+        assertThat(values.containsKey(Note.COLUMN_NAME_VERSION)).isFalse();
+    }
+
+    @Test
+    public void updateNote_whenBodyChangesForAnySelection_shouldBumpVersionOfSelectedNotes() {
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_BODY, "short body");
+
+        subject.updateNote(context, db, values, "selection", new String[]{"args"});
+
+        verify(db).execSQL(NoteService.bumpVersionSql("selection"), new Object[]{"args"});
+    }
+
+    @Test
+    public void updateNote_whenBodyIsUnchanged_shouldNotBumpVersion() {
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_TITLE, "fakeTitle");
+
+        subject.updateNote(context, db, values, Note._ID + "=?", new String[]{"1"});
+
+        verify(db, never()).execSQL(anyString(), any(Object[].class));
+    }
+
+    @Test
+    public void bumpVersionSql_shouldIncrementStoredVersion() {
+        assertThat(NoteService.bumpVersionSql(Note._ID + "=?")).isEqualTo(
+                "UPDATE " + Note.TABLE_NAME +
+                        " SET " + Note.COLUMN_NAME_VERSION + "=" + Note.COLUMN_NAME_VERSION + "+1" +
+                        " WHERE " + Note._ID + "=?;");
+    }
+
+    @Test
+    public void updateNote_whenBodyIsUnchanged_shouldNotTouchPreview() {
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_TITLE, "fakeTitle");
+
+        subject.updateNote(context, db, values, "selection", new String[]{"args"});
+
+        assertThat(values.containsKey(Note.COLUMN_NAME_PREVIEW)).isFalse();
+        assertThat(values.containsKey(Note.COLUMN_NAME_WORD_COUNT)).isFalse();
+    }
+
+    @Test
+    public void insertNote_whenBodyGiven_shouldMaintainPreviewAndWordCount() {
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_BODY, "short body");
+
+        subject.insertNote(context, db, values);
+
+        verify(db).insert(Note.TABLE_NAME, null, values);
+        assertThat(values.getAsString(Note.COLUMN_NAME_PREVIEW)).isEqualTo("short body");
+        assertThat(values.getAsInteger(Note.COLUMN_NAME_WORD_COUNT)).isEqualTo(2);
+    }
+
+    @Test
+    public void applyBodyEdits_whenVersionMatches_shouldApplyEditsToStoredBody() throws Exception {
+        setupStoredBody("hello world", 3);
+        when(db.update(
+                eq(Note.TABLE_NAME),
+                any(ContentValues.class),
+                eq(Note._ID + "=? AND " + Note.COLUMN_NAME_VERSION + "=?"),
+                eq(new String[]{"1", "3"}))
+        ).thenReturn(1);
+
+        EditDelta delta = new EditDelta(3);
+        delta.record(6, 0, "there ");
+
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_EDITS, delta.toJson());
+        values.put(Note.COLUMN_NAME_UPDATED_AT, "test update time");
+
+        int count = subject.applyBodyEdits(context, db, Note.EDITS_URI(1L), values);
+        assertThat(count).isEqualTo(1);
+
+        ArgumentCaptor<ContentValues> valuesCaptor = ArgumentCaptor.forClass(ContentValues.class);
+        InOrder inOrder = inOrder(db);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(db).update(
+                eq(Note.TABLE_NAME),
+                valuesCaptor.capture(),
+                eq(Note._ID + "=? AND " + Note.COLUMN_NAME_VERSION + "=?"),
+                eq(new String[]{"1", "3"}));
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_BODY)).isEqualTo("hello there world");
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_PREVIEW)).isEqualTo("hello there world");
+        assertThat(valuesCaptor.getValue().getAsInteger(Note.COLUMN_NAME_WORD_COUNT)).isEqualTo(3);
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_UPDATED_AT)).isEqualTo("test update time");
+        assertThat(valuesCaptor.getValue().containsKey(Note.COLUMN_NAME_EDITS)).isFalse();
+        verify(db).execSQL(
+                NoteService.bumpVersionSql(Note._ID + "=? AND " + Note.COLUMN_NAME_VERSION + "=?"),
+                new Object[]{"1", "3"});
+
+        verify(resolver).notifyChange(Note.CONTENT_URI(1L), null);
+    }
+
+    @Test
+    public void applyBodyEdits_withTitle_shouldWriteTitleWithEditedBody() throws Exception {
+        setupStoredBody("hello world", 3);
+
+        EditDelta delta = new EditDelta(3);
+        delta.record(6, 0, "there ");
+
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_TITLE, "edited title");
+        values.put(Note.COLUMN_NAME_EDITS, delta.toJson());
+
+        subject.applyBodyEdits(context, db, Note.EDITS_URI(1L), values);
+
+        ArgumentCaptor<ContentValues> valuesCaptor = ArgumentCaptor.forClass(ContentValues.class);
+        verify(db).update(eq(Note.TABLE_NAME), valuesCaptor.capture(), anyString(), any(String[].class));
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_TITLE)).isEqualTo("edited title");
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_BODY)).isEqualTo("hello there world");
+    }
+
+    @Test
+    public void applyBodyEdits_whenEditedBodyExceedsChunkThreshold_shouldStoreBodyInChunks() throws Exception {
+        StringBuilder stored = new StringBuilder();
+        while (stored.length() <= Note.CHUNKED_BODY_THRESHOLD) {
+            stored.append("0123456789 ");
+        }
+        setupStoredBody("preview only", 3, true);
+        when(noteChunkStore.read(db, 1L)).thenReturn(stored.toString());
+
+        EditDelta delta = new EditDelta(3);
+        delta.record(0, 0, "more ");
+
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_EDITS, delta.toJson());
+
+        subject.applyBodyEdits(context, db, Note.EDITS_URI(1L), values);
+
+        String edited = "more " + stored;
+        ArgumentCaptor<ContentValues> valuesCaptor = ArgumentCaptor.forClass(ContentValues.class);
+        InOrder inOrder = inOrder(noteChunkStore, db);
+        inOrder.verify(noteChunkStore).read(db, 1L);
+        inOrder.verify(db).execSQL(SearchIndexSchema.UNINDEX_NOTE_SQL, new Object[]{1L});
+        inOrder.verify(noteChunkStore).write(db, 1L, edited);
+        inOrder.verify(db).update(
+                eq(Note.TABLE_NAME),
+                valuesCaptor.capture(),
+                eq(Note._ID + "=? AND " + Note.COLUMN_NAME_VERSION + "=?"),
+                eq(new String[]{"1", "3"}));
+        inOrder.verify(db).execSQL(
+                NoteService.bumpVersionSql(Note._ID + "=? AND " + Note.COLUMN_NAME_VERSION + "=?"),
+                new Object[]{"1", "3"});
+        inOrder.verify(db).execSQL(SearchIndexSchema.INDEX_NOTE_SQL, new Object[]{1L});
+
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_CHUNKED)).isEqualTo("true");
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_PREVIEW)).isEqualTo(NoteService.preview(edited));
+        assertThat(valuesCaptor.getValue().getAsString(Note.COLUMN_NAME_BODY)).isEqualTo(NoteService.preview(edited));
+        assertThat(valuesCaptor.getValue().getAsInteger(Note.COLUMN_NAME_WORD_COUNT)).isEqualTo(NoteService.wordCount(edited));
+    }
+
+    @Test
+    public void applyBodyEdits_whenVersionIsStale_shouldNotWrite() throws Exception {
+        setupStoredBody("hello world", 4);
+
+        EditDelta delta = new EditDelta(3);
+        delta.record(6, 0, "there ");
+
+        ContentValues values = new ContentValues();
+        values.put(Note.COLUMN_NAME_EDITS, delta.toJson());
+
+        int count = subject.applyBodyEdits(context, db, Note.EDITS_URI(1L), values);
+        assertThat(count).isEqualTo(0);
+
+        verify(db, never()).update(anyString(), any(ContentValues.class), anyString(), any(String[].class));
+        verify(db, never()).setTransactionSuccessful();
+        verify(db).endTransaction();
+        verifyZeroInteractions(resolver);
+    }
+
     @Test
     public void archiveNote_shouldUpdateDatabase() throws Exception {
         when(db.delete(anyString(), anyString(), any(String[].class))).thenReturn(10);
@@ -224,7 +734,8 @@ public class NoteServiceTest {
         inOrder.verify(db).setTransactionSuccessful();
         inOrder.verify(db).endTransaction();
 
-        verify(resolver).notifyChange(Note.CONTENT_URI, null);
+        verify(resolver).notifyChange(Note.CONTENT_URI(1L), null);
+        verify(resolver, never()).notifyChange(Note.CONTENT_URI, null);
         verify(resolver).notifyChange(Action.CONTENT_URI, null);
     }
 
@@ -235,4 +746,23 @@ public class NoteServiceTest {
         verify(db).delete(Note.TABLE_NAME, "test selection", new String[]{"test"});
     }
 
-}
\ No newline at end of file
+    private void setupStoredBody(String body, int version) {
+        setupStoredBody(body, version, false);
+    }
+
+    private void setupStoredBody(String body, int version, boolean chunked) {
+        MatrixCursor noteCursor = new MatrixCursor(new String[]{Note.COLUMN_NAME_BODY, Note.COLUMN_NAME_VERSION, Note.COLUMN_NAME_CHUNKED});
+        noteCursor.addRow(new Object[]{body, version, Boolean.toString(chunked)});
+
+        when(db.query(
+                eq(Note.TABLE_NAME),
+                eq(new String[]{Note.COLUMN_NAME_BODY, Note.COLUMN_NAME_VERSION, Note.COLUMN_NAME_CHUNKED}),
+                eq(Note._ID + "=?"),
+                eq(new String[]{"1"}),
+                (String) isNull(),
+                (String) isNull(),
+                (String) isNull())
+        ).thenReturn(noteCursor);
+    }
+
+}
@@ -65,6 +65,29 @@ public class NotebookServiceTest {
         inOrder.verify(builder).query(db, PROJECTION, SELECTION, SELECTION_ARGS, null, null, SORT);
     }
 
+    @Test
+    public void queryNotebooks_whenOnlyNotebookColumnsAreReferenced_shouldSkipPositionJoin() throws Exception {
+        String[] projection = {Notebook.TABLE_NAME + "." + Notebook._ID, Notebook.TABLE_NAME + "." + Notebook.COLUMN_NAME_TITLE};
+        String selection = Notebook.TABLE_NAME + "." + Notebook.COLUMN_NAME_ARCHIVED + "=?";
+
+        subject.queryNotebooks(db, builder, projection, selection, new String[]{"false"}, null);
+
+        InOrder inOrder = inOrder(builder);
+        inOrder.verify(builder).setTables(Notebook.TABLE_NAME);
+        inOrder.verify(builder).query(db, projection, selection, new String[]{"false"}, null, null, null);
+    }
+
+    @Test
+    public void queryNotebooks_whenPositionIsReferenced_shouldJoinPositions() throws Exception {
+        String[] projection = {Notebook.TABLE_NAME + "." + Notebook._ID};
+
+        subject.queryNotebooks(db, builder, new String[]{NotebookListPosition.COLUMN_NAME_POSITION}, null, null, null);
+        subject.queryNotebooks(db, builder, projection, null, null, NotebookListPosition.COLUMN_NAME_POSITION + " ASC");
+
+        verify(builder, times(2)).setTables(Notebook.TABLE_POSITION_JOIN);
+        verify(builder, never()).setTables(Notebook.TABLE_NAME);
+    }
+
     @Test
     public void insertNotebook_shouldInsertIntoDatabase() throws Exception {
         when(db.insert(Notebook.TABLE_NAME, null, values))
@@ -107,6 +130,61 @@ public class NotebookServiceTest {
         verify(resolver).notifyChange(Notebook.CONTENT_URI, null);
     }
 
+    @Test
+    public void moveNotebooks_shouldMoveEveryNotebookOntoItsAnchorInOneTransaction_andNotifyOnce() throws Exception {
+        ContentValues move = new ContentValues();
+        move.put(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID, 4L);
+        move.putNull(NotebookListPosition.KEY_ANCHOR_ID);
+
+        subject.moveNotebooks(context, db, new ContentValues[]{move});
+
+        InOrder inOrder = inOrder(db, listPositionHelper, resolver);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(listPositionHelper).moveToAnchor(
+                db,
+                NotebookListPosition.TABLE_NAME,
+                NotebookListPosition.COLUMN_NAME_POSITION,
+                NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID,
+                "4",
+                null);
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+        inOrder.verify(resolver).notifyChange(Notebook.CONTENT_URI, null);
+    }
+
+    @Test
+    public void rebalanceNotebookListPositions_shouldRenumberRanks_thenNotify() throws Exception {
+        subject.rebalanceNotebookListPositions(context, db);
+
+        InOrder inOrder = inOrder(listPositionHelper, resolver);
+        inOrder.verify(listPositionHelper).rebalance(
+                db,
+                NotebookListPosition.TABLE_NAME,
+                NotebookListPosition.COLUMN_NAME_POSITION,
+                NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID);
+        inOrder.verify(resolver).notifyChange(Notebook.CONTENT_URI, null);
+    }
+
+    @Test
+    public void reorderNotebooks_shouldAssignRanksInListOrder_andNotifyOnce() throws Exception {
+        ContentValues first = new ContentValues();
+        first.put(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID, 4L);
+        first.put(NotebookListPosition.COLUMN_NAME_POSITION, 0);
+        ContentValues second = new ContentValues();
+        second.put(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID, 2L);
+        second.put(NotebookListPosition.COLUMN_NAME_POSITION, 1);
+
+        subject.reorderNotebooks(context, db, new ContentValues[]{first, second});
+
+        verify(listPositionHelper).assignRanks(
+                db,
+                NotebookListPosition.TABLE_NAME,
+                NotebookListPosition.COLUMN_NAME_POSITION,
+                NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID,
+                new long[]{4L, 2L});
+        verify(resolver, times(1)).notifyChange(Notebook.CONTENT_URI, null);
+    }
+
     @Test
     public void deleteNotebook_shouldDeleteFromDatabase() throws Exception {
         subject.deleteNotebooks(db, SELECTION, SELECTION_ARGS);
@@ -1,23 +1,39 @@
 package gov.sparrow.provider.services;
 
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.provider.BaseColumns;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 
 import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.ActionContract.SearchableActions;
+import gov.sparrow.contracts.NoteContract.SearchableNotes;
+import gov.sparrow.contracts.SearchContract.SearchableColumns;
+import gov.sparrow.database.SearchIndexMaintenance;
 
+import static gov.sparrow.provider.services.Bm25Test.matchInfo;
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -26,10 +42,13 @@ public class SearchServiceTest {
 
     public static final String SORT_ORDER = "created_at DESC";
     public static final String QUERY_STRING = "query string";
+    public static final String SESSION = "session";
 
     @Mock private SQLiteDatabase db;
     @Mock private SQLiteQueryBuilder builder;
     @Mock private Cursor expectedCursor;
+    @Mock private CancellationSignal cancellationSignal;
+    @Mock private SearchIndexMaintenance searchIndexMaintenance;
 
     @Captor private ArgumentCaptor<String[]> queryCaptor;
 
@@ -38,7 +57,7 @@ public class SearchServiceTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        subject = new SearchService();
+        subject = new SearchService(searchIndexMaintenance);
     }
 
     @Test
@@ -47,7 +66,7 @@ public class SearchServiceTest {
                 .thenReturn(expectedCursor);
 
         String[] subQueries = new String[]{
-                "SELECT notes._id as _id, notes.title as title, substr(notes.body, 0, 128) as body, notes.notebook_id as notebook_id, notebooks.title as notebook_title, NULL as completed, type as type, NULL as due_date, created_at as created_at FROM searchable_notes INNER JOIN notes ON (docid = notes._id) LEFT JOIN notebooks ON (notebook_id=notebooks._id) WHERE searchable_notes MATCH 'test text*' AND notes.archived='false'",
+                "SELECT notes._id as _id, notes.title as title, notes.preview as body, notes.notebook_id as notebook_id, notebooks.title as notebook_title, NULL as completed, type as type, NULL as due_date, created_at as created_at FROM searchable_notes INNER JOIN notes ON (docid = notes._id) LEFT JOIN notebooks ON (notebook_id=notebooks._id) WHERE searchable_notes MATCH 'test text*' AND notes.archived='false'",
                 "SELECT actions._id as _id, actions.title as title, notes.title as body, NULL as notebook_id, NULL as notebook_title, completed as completed, actions.type as type, due_date as due_date, actions.created_at as created_at FROM searchable_actions INNER JOIN actions ON (docid = actions._id) LEFT JOIN notes ON (actions.note_id = notes._id) WHERE searchable_actions MATCH 'test text*' AND actions.archived='false'"
         };
         when(builder.buildUnionQuery(subQueries, SORT_ORDER, null))
@@ -71,7 +90,7 @@ public class SearchServiceTest {
                 .thenReturn(expectedCursor);
 
         String[] subQueries = new String[]{
-                "SELECT notes._id as _id, notes.title as title, substr(notes.body, 0, 128) as body, notes.notebook_id as notebook_id, notebooks.title as notebook_title, NULL as completed, type as type, NULL as due_date, created_at as created_at FROM searchable_notes INNER JOIN notes ON (docid = notes._id) LEFT JOIN notebooks ON (notebook_id=notebooks._id) WHERE searchable_notes MATCH ' test  text  select *  from   notes  where _id=23*' AND notes.archived='false'",
+                "SELECT notes._id as _id, notes.title as title, notes.preview as body, notes.notebook_id as notebook_id, notebooks.title as notebook_title, NULL as completed, type as type, NULL as due_date, created_at as created_at FROM searchable_notes INNER JOIN notes ON (docid = notes._id) LEFT JOIN notebooks ON (notebook_id=notebooks._id) WHERE searchable_notes MATCH ' test  text  select *  from   notes  where _id=23*' AND notes.archived='false'",
                 "SELECT actions._id as _id, actions.title as title, notes.title as body, NULL as notebook_id, NULL as notebook_title, completed as completed, actions.type as type, due_date as due_date, actions.created_at as created_at FROM searchable_actions INNER JOIN actions ON (docid = actions._id) LEFT JOIN notes ON (actions.note_id = notes._id) WHERE searchable_actions MATCH ' test  text  select *  from   notes  where _id=23*' AND actions.archived='false'"
         };
         when(builder.buildUnionQuery(subQueries, SORT_ORDER, null))
@@ -85,4 +104,439 @@ public class SearchServiceTest {
         assertThat(actualQueries[0]).isEqualTo(subQueries[0]);
         assertThat(actualQueries[1]).isEqualTo(subQueries[1]);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void queryRanked_shouldScoreFromDocidAndMatchInfoOnly_withoutSortingInSql() throws Exception {
+        setupRankedQueries();
+
+        String[] subQueries = new String[]{
+                "SELECT docid as _id, type as type, matchinfo(searchable_notes, 'pcnalx') as match_info FROM searchable_notes INNER JOIN notes ON (docid = notes._id) WHERE searchable_notes MATCH 'test text*' AND notes.archived='false'",
+                "SELECT docid as _id, actions.type as type, matchinfo(searchable_actions, 'pcnalx') as match_info FROM searchable_actions INNER JOIN actions ON (docid = actions._id) WHERE searchable_actions MATCH 'test text*' AND actions.archived='false'"
+        };
+
+        subject.queryRanked(db, builder, "test text", 10);
+
+        verify(builder).buildUnionQuery(queryCaptor.capture(), isNull(String.class), isNull(String.class));
+
+        String[] actualQueries = queryCaptor.getValue();
+        assertThat(actualQueries[0]).isEqualTo(subQueries[0]);
+        assertThat(actualQueries[1]).isEqualTo(subQueries[1]);
+
+        verify(db).rawQuery(QUERY_STRING, null);
+    }
+
+    @Test
+    public void queryRanked_shouldFetchSnippetsOnlyForTopResults() throws Exception {
+        setupRankedQueries();
+
+        subject.queryRanked(db, builder, "test", 2);
+
+        InOrder inOrder = inOrder(db);
+        inOrder.verify(db).rawQuery(QUERY_STRING, null);
+        inOrder.verify(db).rawQuery(
+                "SELECT notes._id as _id, notes.title as title, notes.preview as body, notes.notebook_id as notebook_id, notebooks.title as notebook_title, NULL as completed, type as type, NULL as due_date, created_at as created_at, snippet(searchable_notes, '\u0002', '\u0003', '\u2026', -1, 12) as snippet FROM searchable_notes INNER JOIN notes ON (docid = notes._id) LEFT JOIN notebooks ON (notebook_id=notebooks._id) WHERE searchable_notes MATCH 'test*' AND docid IN (?)",
+                new String[]{"1"});
+        inOrder.verify(db).rawQuery(
+                "SELECT actions._id as _id, actions.title as title, notes.title as body, NULL as notebook_id, NULL as notebook_title, completed as completed, actions.type as type, due_date as due_date, actions.created_at as created_at, NULL as snippet FROM actions LEFT JOIN notes ON (actions.note_id = notes._id) WHERE actions._id IN (?)",
+                new String[]{"3"});
+        verify(db, times(3)).rawQuery(anyString(), any(String[].class));
+    }
+
+    @Test
+    public void queryRanked_whenTopResultsAreAllNotes_shouldNotQueryActionRows() throws Exception {
+        setupRankedQueries();
+        MatrixCursor noteScores = new MatrixCursor(new String[]{"_id", "type", "match_info"});
+        noteScores.addRow(new Object[]{1L, "searchable_notes",
+                matchInfo(1, 2, 100, new int[]{5, 100}, new int[]{5, 100}, 0, 0, 10, 2, 20, 10)});
+        when(db.rawQuery(QUERY_STRING, null)).thenReturn(noteScores);
+
+        Cursor cursor = subject.queryRanked(db, builder, "test", 10);
+
+        assertThat(cursor.getCount()).isEqualTo(1);
+        verify(db, never()).rawQuery(startsWith("SELECT actions._id"), any(String[].class));
+    }
+
+    @Test
+    public void queryRanked_shouldMergeBothSourcesByScore_andKeepTopResults() throws Exception {
+        setupRankedQueries();
+
+        Cursor cursor = subject.queryRanked(db, builder, "test", 2);
+
+        assertThat(cursor.getCount()).isEqualTo(2);
+        assertThat(cursor.getColumnIndex("match_info")).isEqualTo(-1);
+
+        cursor.moveToFirst();
+        assertThat(cursor.getLong(cursor.getColumnIndexOrThrow(BaseColumns._ID))).isEqualTo(3L);
+        assertThat(cursor.getString(cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_TITLE))).isEqualTo("test action");
+        double firstScore = cursor.getDouble(cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_SCORE));
+
+        cursor.moveToNext();
+        assertThat(cursor.getLong(cursor.getColumnIndexOrThrow(BaseColumns._ID))).isEqualTo(1L);
+        double secondScore = cursor.getDouble(cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_SCORE));
+
+        assertThat(firstScore).isGreaterThan(secondScore);
+    }
+
+    @Test
+    public void queryRanked_shouldReturnSnippetWithHighlightOffsets_andStripMarkers() throws Exception {
+        setupRankedQueries();
+
+        Cursor cursor = subject.queryRanked(db, builder, "test", 10);
+
+        cursor.moveToPosition(1);
+        assertThat(cursor.getString(cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_SNIPPET)))
+                .isEqualTo("\u2026a test of the tests\u2026");
+        assertThat(cursor.getString(cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_HIGHLIGHTS)))
+                .isEqualTo("3,7,15,20");
+        assertThat(cursor.getString(cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_BODY)))
+                .isEqualTo("preview");
+
+        cursor.moveToPosition(0);
+        assertThat(cursor.isNull(cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_SNIPPET))).isTrue();
+        assertThat(cursor.isNull(cursor.getColumnIndexOrThrow(SearchableColumns.SHARED_COLUMN_NAME_HIGHLIGHTS))).isTrue();
+    }
+
+    @Test
+    public void queryRanked_shouldCloseSourceCursors() throws Exception {
+        MatrixCursor scores = scoreRows();
+        MatrixCursor notes = noteDetailRows();
+        MatrixCursor actions = actionDetailRows();
+        when(builder.buildUnionQuery(any(String[].class), isNull(String.class), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null)).thenReturn(scores);
+        when(db.rawQuery(startsWith("SELECT notes._id"), any(String[].class))).thenReturn(notes);
+        when(db.rawQuery(startsWith("SELECT actions._id"), any(String[].class))).thenReturn(actions);
+
+        subject.queryRanked(db, builder, "test", 10);
+
+        assertThat(scores.isClosed()).isTrue();
+        assertThat(notes.isClosed()).isTrue();
+        assertThat(actions.isClosed()).isTrue();
+    }
+
+    @Test
+    public void queryWithSession_shouldPassCancellationSignalToDatabase() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(sessionRows());
+
+        subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+
+        verify(db).rawQuery(QUERY_STRING, null, cancellationSignal);
+    }
+
+    @Test
+    public void queryWithSession_shouldReturnCursorBeforeFirstRow() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(sessionRows());
+
+        Cursor cursor = subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+
+        assertThat(cursor.getPosition()).isEqualTo(-1);
+        assertThat(cursor.getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void queryWithSession_whenQueryRefinesPreviousQuery_shouldConstrainEachSourceToItsCandidates() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(sessionRows());
+
+        subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+        subject.query(db, builder, "tes", SORT_ORDER, SESSION, cancellationSignal);
+
+        verify(builder, times(2)).buildUnionQuery(queryCaptor.capture(), eq(SORT_ORDER), isNull(String.class));
+        String[] refinedQueries = queryCaptor.getAllValues().get(1);
+        assertThat(refinedQueries).hasSize(2);
+        assertThat(refinedQueries[0]).endsWith("WHERE searchable_notes MATCH 'tes*' AND notes.archived='false' AND docid IN (1,2)");
+        assertThat(refinedQueries[1]).endsWith("WHERE searchable_actions MATCH 'tes*' AND actions.archived='false' AND docid IN (5)");
+    }
+
+    @Test
+    public void queryWithSession_whenQueryAddsTerms_shouldConstrainToCandidates() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(sessionRows());
+
+        subject.query(db, builder, "test", SORT_ORDER, SESSION, cancellationSignal);
+        subject.query(db, builder, "test te", SORT_ORDER, SESSION, cancellationSignal);
+
+        verify(builder, times(2)).buildUnionQuery(queryCaptor.capture(), eq(SORT_ORDER), isNull(String.class));
+        assertThat(queryCaptor.getAllValues().get(1)[0]).endsWith("MATCH 'test te*' AND notes.archived='false' AND docid IN (1,2)");
+    }
+
+    @Test
+    public void queryWithSession_whenSearchableChanged_shouldSearchWholeIndexAgain() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(sessionRows());
+
+        subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+        subject.onSearchableChanged();
+        subject.query(db, builder, "tes", SORT_ORDER, SESSION, cancellationSignal);
+
+        verify(builder, times(2)).buildUnionQuery(queryCaptor.capture(), eq(SORT_ORDER), isNull(String.class));
+        assertThat(queryCaptor.getAllValues().get(1)[0]).endsWith("MATCH 'tes*' AND notes.archived='false'");
+        assertThat(queryCaptor.getAllValues().get(1)[1]).endsWith("MATCH 'tes*' AND actions.archived='false'");
+    }
+
+    @Test
+    public void queryWithSession_whenRefinedSourceHasNoCandidates_shouldSkipThatSource() throws Exception {
+        MatrixCursor notesOnly = new MatrixCursor(SearchService.SEARCH_COLUMNS);
+        notesOnly.addRow(row(1L, SearchableNotes.TABLE_NAME));
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(notesOnly, sessionRows());
+
+        subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+        subject.query(db, builder, "tes", SORT_ORDER, SESSION, cancellationSignal);
+
+        verify(builder, times(2)).buildUnionQuery(queryCaptor.capture(), eq(SORT_ORDER), isNull(String.class));
+        String[] refinedQueries = queryCaptor.getAllValues().get(1);
+        assertThat(refinedQueries).hasSize(1);
+        assertThat(refinedQueries[0]).contains("FROM searchable_notes").endsWith("AND docid IN (1)");
+    }
+
+    @Test
+    public void queryWithSession_whenPreviousQueryHadNoResults_shouldNotQueryDatabaseForRefinement() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(new MatrixCursor(SearchService.SEARCH_COLUMNS));
+
+        subject.query(db, builder, "zz", SORT_ORDER, SESSION, cancellationSignal);
+        Cursor cursor = subject.query(db, builder, "zzz", SORT_ORDER, SESSION, cancellationSignal);
+
+        assertThat(cursor.getCount()).isEqualTo(0);
+        assertThat(cursor.getColumnNames()).isEqualTo(SearchService.SEARCH_COLUMNS);
+        verify(db, times(1)).rawQuery(QUERY_STRING, null, cancellationSignal);
+    }
+
+    @Test
+    public void queryWithSession_whenQueryDoesNotRefinePreviousQuery_shouldRunFullSearch() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(sessionRows());
+
+        subject.query(db, builder, "te x", SORT_ORDER, SESSION, cancellationSignal);
+        subject.query(db, builder, "tex", SORT_ORDER, SESSION, cancellationSignal);
+        subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+
+        verify(builder, times(3)).buildUnionQuery(queryCaptor.capture(), eq(SORT_ORDER), isNull(String.class));
+        for (String[] queries : queryCaptor.getAllValues()) {
+            assertThat(queries[0]).doesNotContain("docid IN");
+            assertThat(queries[1]).doesNotContain("docid IN");
+        }
+    }
+
+    @Test
+    public void queryWithSession_whenSessionOrSortOrderChanges_shouldRunFullSearch() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), anyString(), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(sessionRows());
+
+        subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+        subject.query(db, builder, "tes", SORT_ORDER, "another session", cancellationSignal);
+        subject.query(db, builder, "test", "created_at ASC", "another session", cancellationSignal);
+        subject.query(db, builder, "test", SORT_ORDER, null, cancellationSignal);
+
+        verify(builder, times(4)).buildUnionQuery(queryCaptor.capture(), anyString(), isNull(String.class));
+        for (String[] queries : queryCaptor.getAllValues()) {
+            assertThat(queries[0]).doesNotContain("docid IN");
+        }
+    }
+
+    @Test
+    public void queryWithSession_whenCandidatesExceedLimit_shouldNotCacheThem() throws Exception {
+        MatrixCursor manyRows = new MatrixCursor(SearchService.SEARCH_COLUMNS);
+        for (long id = 1; id <= SearchService.MAX_SESSION_CANDIDATES + 1; id++) {
+            manyRows.addRow(row(id, SearchableNotes.TABLE_NAME));
+        }
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(manyRows, sessionRows());
+
+        subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+        subject.query(db, builder, "tes", SORT_ORDER, SESSION, cancellationSignal);
+
+        verify(builder, times(2)).buildUnionQuery(queryCaptor.capture(), eq(SORT_ORDER), isNull(String.class));
+        assertThat(queryCaptor.getAllValues().get(1)[0]).doesNotContain("docid IN");
+    }
+
+    @Test
+    public void queryWithSession_whenCancelled_shouldNotCacheCandidates() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal))
+                .thenThrow(new OperationCanceledException())
+                .thenReturn(sessionRows());
+
+        try {
+            subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+        } catch (OperationCanceledException expected) {
+        }
+        subject.query(db, builder, "tes", SORT_ORDER, SESSION, cancellationSignal);
+
+        verify(builder, times(2)).buildUnionQuery(queryCaptor.capture(), eq(SORT_ORDER), isNull(String.class));
+        assertThat(queryCaptor.getAllValues().get(1)[0]).doesNotContain("docid IN");
+    }
+
+    @Test
+    public void queryWithoutSession_shouldNotTouchSessionCache() throws Exception {
+        when(builder.buildUnionQuery(any(String[].class), eq(SORT_ORDER), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null, cancellationSignal)).thenReturn(sessionRows());
+        when(db.rawQuery(QUERY_STRING, null)).thenReturn(expectedCursor);
+
+        subject.query(db, builder, "te", SORT_ORDER, SESSION, cancellationSignal);
+        subject.query(db, builder, "tes", SORT_ORDER);
+
+        verifyZeroInteractions(expectedCursor);
+        verify(builder, times(2)).buildUnionQuery(queryCaptor.capture(), eq(SORT_ORDER), isNull(String.class));
+        assertThat(queryCaptor.getAllValues().get(1)[0]).doesNotContain("docid IN");
+    }
+
+    @Test
+    public void maintainIndex_shouldRunBoundedMerge() throws Exception {
+        when(searchIndexMaintenance.merge(db, SearchService.MAX_MERGE_STEPS)).thenReturn(3);
+
+        assertThat(subject.maintainIndex(db, false)).isEqualTo(3);
+
+        verify(searchIndexMaintenance).merge(db, SearchService.MAX_MERGE_STEPS);
+        verify(searchIndexMaintenance, never()).optimize(db);
+    }
+
+    @Test
+    public void maintainIndex_whenOptimizeRequested_shouldOptimizeAfterMerge() throws Exception {
+        subject.maintainIndex(db, true);
+
+        InOrder inOrder = inOrder(searchIndexMaintenance);
+        inOrder.verify(searchIndexMaintenance).merge(db, SearchService.MAX_MERGE_STEPS);
+        inOrder.verify(searchIndexMaintenance).optimize(db);
+    }
+
+    @Test
+    public void queryFuzzy_shouldExpandEachTermWithCloseIndexedTerms_andRankResults() throws Exception {
+        when(db.rawQuery(SearchService.VOCABULARY_SQL, null)).thenReturn(vocabulary("receive", "recipe", "budget"));
+        setupRankedQueries();
+
+        Cursor cursor = subject.queryFuzzy(db, builder, "recieve budgt", 2);
+        assertThat(cursor.getCount()).isEqualTo(2);
+        assertThat(cursor.getColumnIndex(SearchableColumns.SHARED_COLUMN_NAME_SCORE)).isNotEqualTo(-1);
+
+        verify(builder).buildUnionQuery(queryCaptor.capture(), isNull(String.class), isNull(String.class));
+        assertThat(queryCaptor.getValue()[0]).contains("MATCH 'recieve* OR receive* OR recipe* budgt* OR budget*'");
+        assertThat(queryCaptor.getValue()[1]).contains("MATCH 'recieve* OR receive* OR recipe* budgt* OR budget*'");
+    }
+
+    @Test
+    public void queryFuzzy_whenNoTermIsClose_shouldSearchOriginalTerms() throws Exception {
+        when(db.rawQuery(SearchService.VOCABULARY_SQL, null)).thenReturn(vocabulary("receive"));
+        setupRankedQueries();
+
+        subject.queryFuzzy(db, builder, "zebra", 2);
+
+        verify(builder).buildUnionQuery(queryCaptor.capture(), isNull(String.class), isNull(String.class));
+        assertThat(queryCaptor.getValue()[0]).contains("MATCH 'zebra*'");
+    }
+
+    @Test
+    public void queryFuzzy_shouldLoadVocabularyOnce_untilIndexIsMaintained() throws Exception {
+        MatrixCursor firstVocabulary = vocabulary("receive");
+        when(db.rawQuery(SearchService.VOCABULARY_SQL, null)).thenReturn(firstVocabulary, vocabulary("receive"));
+        setupRankedQueries();
+        when(db.rawQuery(QUERY_STRING, null)).thenReturn(scoreRows(), scoreRows(), scoreRows());
+
+        subject.queryFuzzy(db, builder, "recieve", 2);
+        subject.queryFuzzy(db, builder, "recieve", 2);
+        verify(db, times(1)).rawQuery(SearchService.VOCABULARY_SQL, null);
+        assertThat(firstVocabulary.isClosed()).isTrue();
+
+        subject.maintainIndex(db, false);
+        subject.queryFuzzy(db, builder, "recieve", 2);
+        verify(db, times(2)).rawQuery(SearchService.VOCABULARY_SQL, null);
+    }
+
+    @Test
+    public void queryFuzzy_whenNoteIsInsertedAfterFirstQuery_shouldSuggestItsTerms() throws Exception {
+        when(db.rawQuery(SearchService.VOCABULARY_SQL, null)).thenReturn(vocabulary("receive"), vocabulary("receive", "budget"));
+        setupRankedQueries();
+        when(db.rawQuery(QUERY_STRING, null)).thenReturn(scoreRows(), scoreRows());
+
+        subject.queryFuzzy(db, builder, "budgt", 2);
+        subject.onSearchableChanged();
+        subject.queryFuzzy(db, builder, "budgt", 2);
+
+        verify(builder, times(2)).buildUnionQuery(queryCaptor.capture(), isNull(String.class), isNull(String.class));
+        assertThat(queryCaptor.getAllValues().get(0)[0]).contains("MATCH 'budgt*'");
+        assertThat(queryCaptor.getAllValues().get(1)[0]).contains("MATCH 'budgt* OR budget*'");
+    }
+
+    @Test
+    public void queryFuzzy_shouldMatchEveryAlternativeAsPrefix_whateverItsPosition() throws Exception {
+        when(db.rawQuery(SearchService.VOCABULARY_SQL, null)).thenReturn(vocabulary("budget"));
+        setupRankedQueries();
+
+        subject.queryFuzzy(db, builder, "budgt plan", 2);
+
+        verify(builder).buildUnionQuery(queryCaptor.capture(), isNull(String.class), isNull(String.class));
+        assertThat(queryCaptor.getValue()[0]).contains("MATCH 'budgt* OR budget* plan*'");
+    }
+
+    @Test
+    public void vocabularySql_shouldReadDistinctTermsFromBothAuxTables() throws Exception {
+        assertThat(SearchService.VOCABULARY_SQL).isEqualTo(
+                "SELECT term FROM searchable_notes_terms WHERE col='*'" +
+                        " UNION SELECT term FROM searchable_actions_terms WHERE col='*'");
+    }
+
+    private MatrixCursor vocabulary(String... terms) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"term"});
+        for (String term : terms) {
+            cursor.addRow(new Object[]{term});
+        }
+        return cursor;
+    }
+
+    private MatrixCursor sessionRows() {
+        MatrixCursor cursor = new MatrixCursor(SearchService.SEARCH_COLUMNS);
+        cursor.addRow(row(1L, SearchableNotes.TABLE_NAME));
+        cursor.addRow(row(5L, SearchableActions.TABLE_NAME));
+        cursor.addRow(row(2L, SearchableNotes.TABLE_NAME));
+        return cursor;
+    }
+
+    private Object[] row(long id, String type) {
+        return new Object[]{id, "title", "body", null, null, null, type, null, "2016-04-20 16:03:04.159"};
+    }
+
+    private void setupRankedQueries() {
+        when(builder.buildUnionQuery(any(String[].class), isNull(String.class), isNull(String.class))).thenReturn(QUERY_STRING);
+        when(db.rawQuery(QUERY_STRING, null)).thenReturn(scoreRows());
+        when(db.rawQuery(startsWith("SELECT notes._id"), any(String[].class)))
+                .thenReturn(noteDetailRows(), noteDetailRows(), noteDetailRows());
+        when(db.rawQuery(startsWith("SELECT actions._id"), any(String[].class)))
+                .thenReturn(actionDetailRows(), actionDetailRows(), actionDetailRows());
+    }
+
+    private MatrixCursor scoreRows() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"_id", "type", "match_info"});
+        cursor.addRow(new Object[]{1L, "searchable_notes",
+                matchInfo(1, 2, 100, new int[]{5, 100}, new int[]{5, 100}, 0, 0, 10, 2, 20, 10)});
+        cursor.addRow(new Object[]{2L, "searchable_notes",
+                matchInfo(1, 2, 100, new int[]{5, 100}, new int[]{5, 900}, 0, 0, 10, 1, 20, 10)});
+        cursor.addRow(new Object[]{3L, "searchable_actions",
+                matchInfo(1, 1, 40, new int[]{4}, new int[]{2}, 1, 1, 1)});
+        return cursor;
+    }
+
+    private MatrixCursor noteDetailRows() {
+        MatrixCursor cursor = new MatrixCursor(detailColumns());
+        cursor.addRow(new Object[]{1L, "note", "preview", 4L, "notebook", null, "searchable_notes", null,
+                "2016-04-20 16:03:04.159", "\u2026a \u0002test\u0003 of the \u0002tests\u0003\u2026"});
+        cursor.addRow(new Object[]{2L, "note", "preview", 4L, "notebook", null, "searchable_notes", null,
+                "2016-04-21 16:03:04.159", "long \u0002test\u0003"});
+        return cursor;
+    }
+
+    private MatrixCursor actionDetailRows() {
+        MatrixCursor cursor = new MatrixCursor(detailColumns());
+        cursor.addRow(new Object[]{3L, "test action", null, null, null, "false", "searchable_actions", null,
+                "2016-04-22 16:03:04.159", null});
+        return cursor;
+    }
+
+    private String[] detailColumns() {
+        return new String[]{
+                "_id", "title", "body", "notebook_id", "notebook_title", "completed", "type", "due_date",
+                "created_at", "snippet"
+        };
+    }
+}
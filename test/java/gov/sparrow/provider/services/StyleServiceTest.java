@@ -6,8 +6,10 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.provider.StatementCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -15,6 +17,9 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 
 import static gov.sparrow.contracts.StyleContract.Style;
+import static gov.sparrow.util.StatementBindings.argsFor;
+import static gov.sparrow.util.StatementBindings.sortedColumns;
+import static gov.sparrow.util.StatementBindings.verifyBound;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -35,6 +40,7 @@ public class StyleServiceTest {
     @Mock private SQLiteDatabase db;
     @Mock private Cursor cursor;
     @Mock private ContentValues values;
+    @Mock private SQLiteStatement statement;
     private StyleService subject;
 
     @Before
@@ -43,7 +49,7 @@ public class StyleServiceTest {
 
         when(context.getContentResolver()).thenReturn(resolver);
 
-        subject = new StyleService();
+        subject = new StyleService(new StatementCache());
     }
 
     @Test
@@ -68,18 +74,44 @@ public class StyleServiceTest {
 
     @Test
     public void insertStyles_shouldInsertIntoDatabase() throws Exception {
-        when(db.insert(anyString(), anyString(), any(ContentValues.class)))
-                .thenReturn(123L);
+        ContentValues styleValues = styleValues(3, 5);
+        String[] columns = sortedColumns(styleValues);
+        when(db.compileStatement(StyleService.insertSql(columns))).thenReturn(statement);
+        when(statement.executeInsert()).thenReturn(123L);
 
-        Uri uri = subject.insertStyles(context, db, values);
+        Uri uri = subject.insertStyles(context, db, styleValues);
 
         assertThat(uri).isNotNull();
         assertThat(uri.toString()).isEqualTo(Style.CONTENT_URI.toString() + "/123");
 
-        verify(db).insert(Style.TABLE_NAME, null, values);
+        InOrder inOrder = inOrder(statement);
+        verifyBound(inOrder, statement, argsFor(styleValues, columns));
+        inOrder.verify(statement).executeInsert();
+        verify(db, never()).insert(anyString(), anyString(), any(ContentValues.class));
         verify(resolver).notifyChange(Style.CONTENT_URI, null);
     }
 
+    @Test
+    public void insertStyles_acrossSeveralSaves_shouldCompileInsertOnce() throws Exception {
+        String[] columns = sortedColumns(styleValues(0, 0));
+        when(db.compileStatement(StyleService.insertSql(columns))).thenReturn(statement);
+
+        subject.insertStyles(context, db, styleValues(3, 5));
+        subject.insertStyles(context, db, styleValues(7, 9));
+        subject.insertStyles(context, db, styleValues(10, 12));
+
+        verify(db, times(1)).compileStatement(StyleService.insertSql(columns));
+        verify(statement, times(3)).executeInsert();
+    }
+
+    @Test
+    public void insertSql_shouldBindColumnsInGivenOrder() throws Exception {
+        assertThat(StyleService.insertSql(new String[]{Style.COLUMN_NAME_TYPE, Style.COLUMN_NAME_START})).isEqualTo(
+                "INSERT INTO " + Style.TABLE_NAME +
+                        " (" + Style.COLUMN_NAME_TYPE + ", " + Style.COLUMN_NAME_START + ")" +
+                        " VALUES (?, ?)");
+    }
+
     @Test
     public void updateStyle_shouldUpdateDatabase() {
         when(db.update(anyString(), any(ContentValues.class), anyString(), any(String[].class)))
@@ -95,9 +127,42 @@ public class StyleServiceTest {
 
     @Test
     public void deleteStyles_shouldDeleteFromDatabase() throws Exception {
-        when(db.delete(anyString(), anyString(), any(String[].class))).thenReturn(123);
+        when(db.compileStatement(StyleService.deleteSql(SELECTION))).thenReturn(statement);
+        when(statement.executeUpdateDelete()).thenReturn(123);
+
         assertThat(subject.deleteStyles(db, SELECTION, SELECTION_ARGS)).isEqualTo(123);
-        verify(db).delete(Style.TABLE_NAME, SELECTION, SELECTION_ARGS);
+
+        InOrder inOrder = inOrder(statement);
+        verifyBound(inOrder, statement, SELECTION_ARGS);
+        inOrder.verify(statement).executeUpdateDelete();
+        verify(db, never()).delete(anyString(), anyString(), any(String[].class));
+    }
+
+    @Test
+    public void deleteStyles_acrossSeveralSaves_shouldCompileDeleteOnce() throws Exception {
+        when(db.compileStatement(StyleService.deleteSql(SELECTION))).thenReturn(statement);
+
+        subject.deleteStyles(db, SELECTION, new String[]{"1"});
+        subject.deleteStyles(db, SELECTION, new String[]{"2"});
+        subject.deleteStyles(db, SELECTION, new String[]{"3"});
+
+        verify(db, times(1)).compileStatement(StyleService.deleteSql(SELECTION));
+        verify(statement, times(3)).executeUpdateDelete();
+    }
+
+    @Test
+    public void deleteSql_shouldOnlyAddWhereClauseForSelection() throws Exception {
+        assertThat(StyleService.deleteSql(SELECTION)).isEqualTo("DELETE FROM " + Style.TABLE_NAME + " WHERE " + SELECTION);
+        assertThat(StyleService.deleteSql(null)).isEqualTo("DELETE FROM " + Style.TABLE_NAME);
+    }
+
+    private ContentValues styleValues(int start, int end) {
+        ContentValues styleValues = new ContentValues();
+        styleValues.put(Style.COLUMN_NAME_TYPE, "bold");
+        styleValues.put(Style.COLUMN_NAME_NOTE_ID, 1L);
+        styleValues.put(Style.COLUMN_NAME_START, start);
+        styleValues.put(Style.COLUMN_NAME_END, end);
+        return styleValues;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package gov.sparrow.provider.services;
+
+import gov.sparrow.SparrowTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class TrigramIndexTest {
+
+    private TrigramIndex subject;
+
+    @Before
+    public void setUp() {
+        subject = new TrigramIndex();
+        for (String term : asList("receive", "recipe", "the", "then", "budget", "budgets", "widget")) {
+            subject.add(term);
+        }
+    }
+
+    @Test
+    public void trigrams_shouldPadTermSoShortTermsStillHaveGrams() throws Exception {
+        assertThat(TrigramIndex.trigrams("teh")).containsOnly("  t", " te", "teh", "eh ");
+    }
+
+    @Test
+    public void similarity_shouldCompareTrigramSets() throws Exception {
+        assertThat(TrigramIndex.similarity("budget", "budget")).isEqualTo(1.0);
+        assertThat(TrigramIndex.similarity("budget", "budgets")).isGreaterThan(TrigramIndex.similarity("budget", "widget"));
+        assertThat(TrigramIndex.similarity("abc", "xyz")).isEqualTo(0.0);
+    }
+
+    @Test
+    public void editDistance_shouldCountTranspositionAsOneEdit() throws Exception {
+        assertThat(TrigramIndex.editDistance("recieve", "receive")).isEqualTo(1);
+        assertThat(TrigramIndex.editDistance("teh", "the")).isEqualTo(1);
+        assertThat(TrigramIndex.editDistance("budget", "widget")).isEqualTo(2);
+        assertThat(TrigramIndex.editDistance("", "abc")).isEqualTo(3);
+    }
+
+    @Test
+    public void candidates_shouldFindMisspelledTerm() throws Exception {
+        assertThat(subject.candidates("recieve", 5)).containsExactly("receive", "recipe");
+    }
+
+    @Test
+    public void candidates_forShortTerm_allowOnlyOneEdit() throws Exception {
+        assertThat(subject.candidates("teh", 5)).containsExactly("the");
+    }
+
+    @Test
+    public void candidates_shouldOrderByEditDistanceThenSimilarity_andRespectLimit() throws Exception {
+        assertThat(subject.candidates("budgt", 5)).containsExactly("budget", "budgets");
+        assertThat(subject.candidates("budgt", 1)).containsExactly("budget");
+    }
+
+    @Test
+    public void candidates_shouldSkipExactTerm() throws Exception {
+        assertThat(subject.candidates("receive", 5)).doesNotContain("receive");
+    }
+
+    @Test
+    public void candidates_whenNothingIsClose_returnsEmpty() throws Exception {
+        assertThat(subject.candidates("zebra", 5)).isEmpty();
+    }
+
+    @Test
+    public void add_shouldIgnoreDuplicateTerms() throws Exception {
+        subject.add("receive");
+
+        assertThat(subject.size()).isEqualTo(7);
+        assertThat(subject.candidates("recieve", 5)).containsExactly("receive", "recipe");
+    }
+
+}
@@ -10,6 +10,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 
+import java.util.LinkedHashMap;
+
 import static gov.sparrow.contracts.ActionContract.Action;
 import static gov.sparrow.contracts.ActionContract.ActionListPosition;
 import static gov.sparrow.repository.ActionRepository.*;
@@ -131,6 +133,32 @@ public class ActionRepositoryTest {
                 eq(new String[]{"1"}));
     }
 
+    @Test
+    public void moveActions_startsOneAsyncBulkInsert() throws Exception {
+        LinkedHashMap<Long, Long> moves = new LinkedHashMap<>();
+        moves.put(1L, 5L);
+        moves.put(2L, null);
+
+        subject.moveActions(moves);
+
+        verify(asyncRepositoryHelper).startBulkInsert(
+                eq(UPDATE_ACTION_TOKEN),
+                isNull(),
+                eq(ActionListPosition.MOVE_URI),
+                eq(new ContentValues[]{anchorValues(1L, 5L), anchorValues(2L, null)}));
+    }
+
+    @Test
+    public void reorderActions_sendsCompleteOrderingInOneAsyncBulkInsert() throws Exception {
+        subject.reorderActions(new long[]{9L, 4L});
+
+        verify(asyncRepositoryHelper).startBulkInsert(
+                eq(UPDATE_ACTION_TOKEN),
+                isNull(),
+                eq(ActionListPosition.ORDER_URI),
+                eq(new ContentValues[]{positionValues(9L, 0), positionValues(4L, 1)}));
+    }
+
     @Test
     public void archiveAction_startsAsyncDelete() throws Exception {
         String selection = Action._ID + "=?";
@@ -142,4 +170,18 @@ public class ActionRepositoryTest {
                 eq(selection),
                 eq(new String[]{"1"}));
     }
+
+    private ContentValues anchorValues(long actionId, Long anchorId) {
+        ContentValues values = new ContentValues();
+        values.put(ActionListPosition.COLUMN_NAME_ACTION_ID, actionId);
+        values.put(ActionListPosition.KEY_ANCHOR_ID, anchorId);
+        return values;
+    }
+
+    private ContentValues positionValues(long actionId, int position) {
+        ContentValues values = new ContentValues();
+        values.put(ActionListPosition.COLUMN_NAME_ACTION_ID, actionId);
+        values.put(ActionListPosition.COLUMN_NAME_POSITION, position);
+        return values;
+    }
 }
@@ -45,6 +45,12 @@ public class AsyncRepositoryHelperTest {
         verify(listener).onUpdateComplete(1, null, 123);
     }
 
+    @Test
+    public void onBulkInsertComplete_notifiesListener() {
+        subject.onBulkInsertComplete(1, null, 3);
+        verify(listener).onBulkInsertComplete(1, null, 3);
+    }
+
     @Test
     public void onDeleteComplete_notifiesListener() {
         subject.onDeleteComplete(1, null, 123);
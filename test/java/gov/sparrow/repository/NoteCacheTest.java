@@ -0,0 +1,157 @@
+package gov.sparrow.repository;
+
+import android.net.Uri;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.contracts.ActionContract;
+import gov.sparrow.contracts.NoteContract;
+import gov.sparrow.models.Note;
+import gov.sparrow.models.builders.NoteBuilder;
+import gov.sparrow.models.links.ActionLink;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class NoteCacheTest {
+
+    private NoteCache subject;
+
+    @Before
+    public void setUp() {
+        subject = new NoteCache(2);
+    }
+
+    @Test
+    public void get_whenNoteWasPut_returnsNote() throws Exception {
+        Note note = note(1L);
+        subject.put(note);
+
+        assertThat(subject.get(1L)).isEqualTo(note);
+        assertThat(subject.get(2L)).isNull();
+    }
+
+    @Test
+    public void put_whenFull_evictsLeastRecentlyUsedNote() throws Exception {
+        subject.put(note(1L));
+        subject.put(note(2L));
+        subject.get(1L);
+
+        subject.put(note(3L));
+
+        assertThat(subject.get(1L)).isNotNull();
+        assertThat(subject.get(2L)).isNull();
+        assertThat(subject.get(3L)).isNotNull();
+    }
+
+    @Test
+    public void onNoteChanged_withNoteUri_invalidatesOnlyThatNote() throws Exception {
+        subject.put(note(1L));
+        subject.put(note(2L));
+
+        subject.onNoteChanged(NoteContract.Note.CONTENT_URI(1L));
+
+        assertThat(subject.get(1L)).isNull();
+        assertThat(subject.get(2L)).isNotNull();
+    }
+
+    @Test
+    public void onNoteChanged_forOwnSave_keepsSavedNote() throws Exception {
+        Note saved = note(1L);
+        subject.putSaved(saved);
+
+        subject.onNoteChanged(NoteContract.Note.CONTENT_URI(1L));
+
+        assertThat(subject.get(1L)).isEqualTo(saved);
+    }
+
+    @Test
+    public void onNoteChanged_afterOwnSaveWasNotified_invalidatesNote() throws Exception {
+        subject.putSaved(note(1L));
+        subject.onNoteChanged(NoteContract.Note.CONTENT_URI(1L));
+
+        subject.onNoteChanged(NoteContract.Note.CONTENT_URI(1L));
+
+        assertThat(subject.get(1L)).isNull();
+    }
+
+    @Test
+    public void invalidate_shouldForgetPendingOwnSave() throws Exception {
+        subject.putSaved(note(1L));
+        subject.invalidate(1L);
+        subject.put(note(1L));
+
+        subject.onNoteChanged(NoteContract.Note.CONTENT_URI(1L));
+
+        assertThat(subject.get(1L)).isNull();
+    }
+
+    @Test
+    public void onNoteChanged_withCollectionUri_invalidatesAllNotes() throws Exception {
+        subject.put(note(1L));
+        subject.put(note(2L));
+
+        subject.onNoteChanged(NoteContract.Note.CONTENT_URI);
+
+        assertThat(subject.get(1L)).isNull();
+        assertThat(subject.get(2L)).isNull();
+    }
+
+    @Test
+    public void onActionChanged_withOwnerUri_invalidatesOnlyOwningNote() throws Exception {
+        subject.put(linkedNote(1L));
+        subject.put(linkedNote(2L));
+
+        subject.onActionChanged(ActionContract.Action.CONTENT_URI(1L, 7L));
+
+        assertThat(subject.get(1L)).isNull();
+        assertThat(subject.get(2L)).isNotNull();
+    }
+
+    @Test
+    public void onActionChanged_withOwnerUri_forOwnSave_keepsSavedNote() throws Exception {
+        subject.putSaved(linkedNote(1L));
+
+        subject.onActionChanged(ActionContract.Action.CONTENT_URI(1L, 7L));
+        assertThat(subject.get(1L)).isNotNull();
+
+        subject.onNoteChanged(NoteContract.Note.CONTENT_URI(1L));
+        assertThat(subject.get(1L)).isNotNull();
+    }
+
+    @Test
+    public void onActionChanged_whenOwnerIsUnknown_invalidatesNotesWithActionLinks() throws Exception {
+        subject = new NoteCache(3);
+        subject.put(linkedNote(1L));
+        subject.putSaved(linkedNote(2L));
+        subject.put(note(3L));
+
+        for (Uri uri : asList(ActionContract.Action.CONTENT_URI, ActionContract.Action.CONTENT_URI(7L))) {
+            subject.onActionChanged(uri);
+        }
+
+        assertThat(subject.get(1L)).isNull();
+        assertThat(subject.get(2L)).isNull();
+        assertThat(subject.get(3L)).isNotNull();
+    }
+
+    private Note linkedNote(long id) {
+        return NoteBuilder.noteBuilder()
+                .id(id)
+                .title("title " + id)
+                .body("body " + id)
+                .actionLinks(asList(new ActionLink("link " + id, 0, 4, false)))
+                .build();
+    }
+
+    private Note note(long id) {
+        return NoteBuilder.noteBuilder()
+                .id(id)
+                .title("title " + id)
+                .body("body " + id)
+                .build();
+    }
+
+}
@@ -16,19 +16,23 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mock;
 
 import static gov.sparrow.repository.NoteRepository.*;
 import static java.util.Arrays.asList;
 import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
 
 @RunWith(SparrowTestRunner.class)
 public class NoteRepositoryListenerTest {
 
+    @Mock NoteCache noteCache;
     private NoteRepositoryListener subject;
 
     @Before
     public void setUp() {
-        subject = new NoteRepositoryListener();
+        initMocks(this);
+        subject = new NoteRepositoryListener(noteCache);
     }
 
     @Test
@@ -193,6 +197,7 @@ public class NoteRepositoryListenerTest {
                 listener,
                 cursor);
         verify(listener).onQueryNoteComplete(expectedNote);
+        verify(noteCache).put(expectedNote);
         verify(cursor).close();
     }
 
@@ -3,13 +3,17 @@ package gov.sparrow.repository;
 import android.content.ContentProviderOperation;
 import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.ContentObserver;
 import android.net.Uri;
 import gov.sparrow.SparrowTestRunner;
 import gov.sparrow.contracts.ActionContract;
 import gov.sparrow.contracts.NoteContract;
 import gov.sparrow.contracts.SparrowContract;
 import gov.sparrow.contracts.StyleContract;
+import gov.sparrow.models.EditDelta;
 import gov.sparrow.models.Note;
+import gov.sparrow.models.NoteSave;
 import gov.sparrow.models.builders.NoteBuilder;
 import gov.sparrow.models.links.ActionLink;
 import gov.sparrow.models.links.StyleLink;
@@ -26,6 +30,7 @@ import org.robolectric.shadows.ShadowContentProviderOperation;
 import org.robolectric.shadows.ShadowContentResolver;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 
 import static gov.sparrow.contracts.NotebookContract.Notebook;
@@ -53,6 +58,7 @@ public class NoteRepositoryTest {
 
     @Mock SparrowProvider contentProvider;
     @Mock AsyncRepositoryHelper asyncRepositoryHelper;
+    @Mock NoteCache noteCache;
     @Captor ArgumentCaptor<Object> listenerCaptor;
     @Captor ArgumentCaptor<ArrayList<ContentProviderOperation>> operationsCaptor;
     private NoteRepository subject;
@@ -72,7 +78,7 @@ public class NoteRepositoryTest {
         when(contentProvider.applyBatch(any(ArrayList.class)))
                 .thenReturn(new ContentProviderResult[2]);
 
-        subject = new NoteRepository(RuntimeEnvironment.application.getContentResolver(), asyncRepositoryHelper);
+        subject = new NoteRepository(RuntimeEnvironment.application.getContentResolver(), asyncRepositoryHelper, noteCache);
     }
 
     @Test
@@ -128,6 +134,64 @@ public class NoteRepositoryTest {
         assertThat((listenerCaptor.getValue())).isEqualTo(listener);
     }
 
+    @Test
+    public void asyncGetNote_whenNoteIsCached_completesWithoutQuery() {
+        NoteRepository.QueryNoteListener listener = mock(NoteRepository.QueryNoteListener.class);
+        when(noteCache.get(1L)).thenReturn(testNote);
+
+        subject.asyncGetNote(1L, listener);
+
+        verify(listener).onQueryNoteComplete(testNote);
+        verifyZeroInteractions(asyncRepositoryHelper);
+    }
+
+    @Test
+    public void noteChange_shouldBeForwardedToNoteCache() {
+        for (ContentObserver observer : observersOn(NoteContract.Note.CONTENT_URI)) {
+            observer.dispatchChange(false, NoteContract.Note.CONTENT_URI(1L));
+        }
+
+        verify(noteCache).onNoteChanged(NoteContract.Note.CONTENT_URI(1L));
+    }
+
+    @Test
+    public void actionChange_shouldBeForwardedToNoteCache() {
+        for (ContentObserver observer : observersOn(ActionContract.Action.CONTENT_URI)) {
+            observer.dispatchChange(false, ActionContract.Action.CONTENT_URI(1L, 7L));
+        }
+
+        verify(noteCache).onActionChanged(ActionContract.Action.CONTENT_URI(1L, 7L));
+    }
+
+    @Test
+    public void actionChange_whenActionIsCompleted_shouldDropOwningNote() {
+        NoteCache cache = new NoteCache(2);
+        cache.put(testNote);
+        subject = new NoteRepository(RuntimeEnvironment.application.getContentResolver(), asyncRepositoryHelper, cache);
+
+        for (ContentObserver observer : observersOn(ActionContract.Action.CONTENT_URI)) {
+            observer.dispatchChange(false, ActionContract.Action.CONTENT_URI);
+        }
+
+        assertThat(cache.get(testNote.getId())).isNull();
+    }
+
+    @Test
+    public void noteChange_whenOneNoteIsSaved_shouldKeepOtherNotesCached() {
+        NoteCache cache = new NoteCache(2);
+        Note otherNote = NoteBuilder.noteBuilder().id(2L).title("other title").body("other body").build();
+        cache.put(testNote);
+        cache.put(otherNote);
+        subject = new NoteRepository(RuntimeEnvironment.application.getContentResolver(), asyncRepositoryHelper, cache);
+
+        for (ContentObserver observer : observersOn(NoteContract.Note.CONTENT_URI)) {
+            observer.dispatchChange(false, NoteContract.Note.CONTENT_URI(1L));
+        }
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(2L)).isEqualTo(otherNote);
+    }
+
     @Test
     public void asyncGetLastSavedNote_startsAsyncQuery() throws Exception {
         NoteRepository.QueryNoteListener listener = mock(NoteRepository.QueryNoteListener.class);
@@ -242,6 +306,264 @@ public class NoteRepositoryTest {
         assertThat(insertStylesOperation.getContentValues()).isEqualTo(expectedStyleValues);
     }
 
+    @Test
+    public void updateNote_whenPersistedNoteIsCached_shouldOnlyWriteChangedLinksAndStyles() throws Exception {
+        Note persistedNote = NoteBuilder.noteBuilder()
+                .id(1L)
+                .title("test title")
+                .body("0123456789abcdef")
+                .notebookId(11L)
+                .lastSaved("test saved time")
+                .actionLinks(asList(
+                        new ActionLink("123", 0, 2, false),
+                        new ActionLink("456", 4, 6, false),
+                        new ActionLink("999", 13, 15, false)))
+                .styleLinks(asList(
+                        new StyleLink(StyleLink.BOLD_STYLE, 3, 5),
+                        new StyleLink(StyleLink.BOLD_STYLE, 7, 9)))
+                .build();
+        when(noteCache.get(1L)).thenReturn(persistedNote);
+
+        subject.updateNote(
+                1L,
+                "test title",
+                "0123456789abcdef",
+                "test update time",
+                asList(
+                        new ActionLink("123", 0, 2, false),
+                        new ActionLink("456", 5, 7, false),
+                        new ActionLink("789", 11, 12, false)),
+                asList(
+                        new StyleLink(StyleLink.BOLD_STYLE, 3, 5),
+                        new StyleLink(StyleLink.BOLD_STYLE, 10, 12)));
+
+        verify(contentProvider).applyBatch(operationsCaptor.capture());
+        ArrayList<ContentProviderOperation> operations = operationsCaptor.getValue();
+
+        assertThat(operations).hasSize(6);
+
+        assertThat(operations.get(0).getUri()).isEqualTo(NoteContract.Note.CONTENT_URI);
+
+        assertThat(operations.get(1).getUri()).isEqualTo(ActionContract.Action.CONTENT_URI);
+        assertThat(Shadows.shadowOf(operations.get(1)).getContentValues().getAsString(ActionContract.Action.COLUMN_NAME_LINK_ID)).isEqualTo("456");
+        assertThat(Shadows.shadowOf(operations.get(1)).getContentValues().getAsInteger(ActionContract.Action.COLUMN_NAME_LINK_START)).isEqualTo(5);
+
+        assertThat(operations.get(2).getUri()).isEqualTo(ActionContract.Action.CONTENT_URI);
+        assertThat(Shadows.shadowOf(operations.get(2)).getContentValues().getAsString(ActionContract.Action.COLUMN_NAME_LINK_ID)).isEqualTo("789");
+
+        ShadowContentProviderOperation deleteActionsOperation = Shadows.shadowOf(operations.get(3));
+        assertThat(operations.get(3).getUri()).isEqualTo(ActionContract.Action.CONTENT_URI);
+        assertThat(deleteActionsOperation.getSelection()).isEqualTo(
+                ActionContract.Action.COLUMN_NAME_NOTE_ID + "=? AND " +
+                        ActionContract.Action.COLUMN_NAME_LINK_ID + " IN (?)");
+        assertThat(deleteActionsOperation.getSelectionArgs()).containsOnly("1", "999");
+
+        ShadowContentProviderOperation deleteStyleOperation = Shadows.shadowOf(operations.get(4));
+        assertThat(operations.get(4).getUri()).isEqualTo(StyleContract.Style.CONTENT_URI);
+        assertThat(deleteStyleOperation.getSelection()).isEqualTo(
+                StyleContract.Style.COLUMN_NAME_NOTE_ID + "=? AND " +
+                        StyleContract.Style.COLUMN_NAME_TYPE + "=? AND " +
+                        StyleContract.Style.COLUMN_NAME_START + "=? AND " +
+                        StyleContract.Style.COLUMN_NAME_END + "=?");
+        assertThat(deleteStyleOperation.getSelectionArgs()).containsExactly("1", StyleLink.BOLD_STYLE, "7", "9");
+
+        ContentValues expectedStyleValues = new ContentValues();
+        expectedStyleValues.put(StyleContract.Style.COLUMN_NAME_TYPE, StyleLink.BOLD_STYLE);
+        expectedStyleValues.put(StyleContract.Style.COLUMN_NAME_NOTE_ID, 1L);
+        expectedStyleValues.put(StyleContract.Style.COLUMN_NAME_START, 10);
+        expectedStyleValues.put(StyleContract.Style.COLUMN_NAME_END, 12);
+        assertThat(operations.get(5).getUri()).isEqualTo(StyleContract.Style.CONTENT_URI);
+        assertThat(Shadows.shadowOf(operations.get(5)).getContentValues()).isEqualTo(expectedStyleValues);
+
+        assertThat(subject.getWriteCounters().getRowsWritten()).isEqualTo(5);
+        assertThat(subject.getWriteCounters().getRowsSkipped()).isEqualTo(2);
+    }
+
+    @Test
+    public void updateNote_whenLinkedTextChangesInPlace_shouldRewriteActionTitle() throws Exception {
+        Note persistedNote = NoteBuilder.noteBuilder()
+                .id(1L)
+                .title("test title")
+                .body("buy milk today")
+                .notebookId(11L)
+                .actionLinks(asList(
+                        new ActionLink("123", 4, 8, false),
+                        new ActionLink("456", 9, 14, false)))
+                .styleLinks(Collections.<StyleLink>emptyList())
+                .build();
+        when(noteCache.get(1L)).thenReturn(persistedNote);
+
+        subject.updateNote(
+                1L,
+                "test title",
+                "buy eggs today",
+                "test update time",
+                asList(
+                        new ActionLink("123", 4, 8, false),
+                        new ActionLink("456", 9, 14, false)),
+                Collections.<StyleLink>emptyList());
+
+        verify(contentProvider).applyBatch(operationsCaptor.capture());
+        ArrayList<ContentProviderOperation> operations = operationsCaptor.getValue();
+
+        assertThat(operations).hasSize(2);
+        ContentValues actionValues = Shadows.shadowOf(operations.get(1)).getContentValues();
+        assertThat(actionValues.getAsString(ActionContract.Action.COLUMN_NAME_LINK_ID)).isEqualTo("123");
+        assertThat(actionValues.getAsString(ActionContract.Action.COLUMN_NAME_TITLE)).isEqualTo("eggs");
+
+        assertThat(subject.getWriteCounters().getRowsWritten()).isEqualTo(1);
+        assertThat(subject.getWriteCounters().getRowsSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    public void updateNote_whenPersistedNoteIsCached_shouldRefreshCachedNote() throws Exception {
+        when(noteCache.get(1L)).thenReturn(testNote);
+        ArgumentCaptor<Note> noteCaptor = ArgumentCaptor.forClass(Note.class);
+
+        subject.updateNote(
+                1L,
+                "new title",
+                "new body",
+                "new update time",
+                Collections.<ActionLink>emptyList(),
+                testNote.getStyleLinks());
+
+        verify(noteCache).putSaved(noteCaptor.capture());
+        assertThat(noteCaptor.getValue().getId()).isEqualTo(1L);
+        assertThat(noteCaptor.getValue().getNotebookId()).isEqualTo(11L);
+        assertThat(noteCaptor.getValue().getTitle()).isEqualTo("new title");
+        assertThat(noteCaptor.getValue().getBody()).isEqualTo("new body");
+        assertThat(noteCaptor.getValue().getActionLinks()).isEmpty();
+        assertThat(noteCaptor.getValue().getStyleLinks()).isEqualTo(testNote.getStyleLinks());
+    }
+
+    @Test
+    public void updateNote_afterOwnSaveIsNotified_shouldStillDiffAgainstCachedNote() throws Exception {
+        NoteCache cache = new NoteCache(2);
+        cache.put(testNote);
+        subject = new NoteRepository(RuntimeEnvironment.application.getContentResolver(), asyncRepositoryHelper, cache);
+
+        subject.updateNote(
+                1L,
+                "new title",
+                testNote.getBody(),
+                "new update time",
+                testNote.getActionLinks(),
+                testNote.getStyleLinks());
+        RuntimeEnvironment.application.getContentResolver().notifyChange(NoteContract.Note.CONTENT_URI(1L), null);
+
+        subject.updateNote(
+                1L,
+                "newer title",
+                testNote.getBody(),
+                "newer update time",
+                testNote.getActionLinks(),
+                testNote.getStyleLinks());
+
+        verify(contentProvider, times(2)).applyBatch(operationsCaptor.capture());
+        assertThat(operationsCaptor.getAllValues().get(1)).hasSize(1);
+        assertThat(operationsCaptor.getAllValues().get(1).get(0).getUri()).isEqualTo(NoteContract.Note.CONTENT_URI);
+        assertThat(subject.getWriteCounters().getRowsWritten()).isEqualTo(0);
+        assertThat(subject.getWriteCounters().getRowsSkipped()).isEqualTo(4);
+        assertThat(cache.get(1L).getTitle()).isEqualTo("newer title");
+    }
+
+    @Test
+    public void updateNote_whenNoPersistedNoteIsCached_shouldRewriteLinksAndInvalidateCache() throws Exception {
+        subject.updateNote(
+                testNote.getId(),
+                testNote.getTitle(),
+                testNote.getBody(),
+                testNote.getLastSaved(),
+                testNote.getActionLinks(),
+                testNote.getStyleLinks());
+
+        verify(noteCache).invalidate(testNote.getId());
+        assertThat(subject.getWriteCounters().getRowsWritten()).isEqualTo(4);
+        assertThat(subject.getWriteCounters().getRowsSkipped()).isEqualTo(0);
+    }
+
+    @Test
+    public void updateNotes_shouldWriteEveryNoteInOneBatch() throws Exception {
+        Note firstNote = NoteBuilder.noteBuilder()
+                .id(1L)
+                .title("first title")
+                .body("first body")
+                .lastSaved("test update time")
+                .actionLinks(Collections.<ActionLink>emptyList())
+                .styleLinks(Collections.<StyleLink>emptyList())
+                .build();
+        Note secondNote = NoteBuilder.noteBuilder()
+                .id(2L)
+                .title("second title")
+                .body("second body")
+                .lastSaved("test update time")
+                .actionLinks(Collections.<ActionLink>emptyList())
+                .styleLinks(Collections.<StyleLink>emptyList())
+                .build();
+
+        boolean applied = subject.updateNotes(asList(new NoteSave(firstNote, null), new NoteSave(secondNote, null)));
+        assertThat(applied).isTrue();
+
+        verify(contentProvider, times(1)).applyBatch(operationsCaptor.capture());
+        ArrayList<ContentProviderOperation> operations = operationsCaptor.getValue();
+
+        assertThat(operations).hasSize(6);
+        assertThat(operations.get(0).getUri()).isEqualTo(NoteContract.Note.CONTENT_URI);
+        assertThat(Shadows.shadowOf(operations.get(0)).getSelectionArgs()).containsOnly("1");
+        assertThat(operations.get(3).getUri()).isEqualTo(NoteContract.Note.CONTENT_URI);
+        assertThat(Shadows.shadowOf(operations.get(3)).getSelectionArgs()).containsOnly("2");
+
+        verify(noteCache).invalidate(1L);
+        verify(noteCache).invalidate(2L);
+    }
+
+    @Test
+    public void updateNoteBody_shouldSendEditsInsteadOfBody() throws Exception {
+        EditDelta delta = new EditDelta(3);
+        delta.record(4, 0, " more");
+
+        boolean applied = subject.updateNoteBody(
+                testNote.getId(),
+                "edited title",
+                delta,
+                testNote.getLastSaved(),
+                testNote.getActionLinks(),
+                testNote.getStyleLinks());
+        assertThat(applied).isTrue();
+
+        ContentValues expectedNoteValues = new ContentValues();
+        expectedNoteValues.put(NoteContract.Note.COLUMN_NAME_TITLE, "edited title");
+        expectedNoteValues.put(NoteContract.Note.COLUMN_NAME_EDITS, delta.toJson());
+        expectedNoteValues.put(NoteContract.Note.COLUMN_NAME_UPDATED_AT, "test update time");
+
+        verify(contentProvider).applyBatch(operationsCaptor.capture());
+        ArrayList<ContentProviderOperation> operations = operationsCaptor.getValue();
+
+        assertThat(operations).hasSize(5);
+        assertThat(operations.get(0).getUri()).isEqualTo(NoteContract.Note.EDITS_URI(testNote.getId()));
+        assertThat(Shadows.shadowOf(operations.get(0)).getContentValues()).isEqualTo(expectedNoteValues);
+        assertThat(operations.get(1).getUri()).isEqualTo(ActionContract.Action.CONTENT_URI);
+        assertThat(operations.get(3).getUri()).isEqualTo(StyleContract.Style.CONTENT_URI);
+    }
+
+    @Test
+    public void updateNoteBody_whenStoredVersionMoved_shouldReportConflict() throws Exception {
+        when(contentProvider.applyBatch(any(ArrayList.class)))
+                .thenThrow(new OperationApplicationException("wrong number of rows: 0"));
+
+        boolean applied = subject.updateNoteBody(
+                testNote.getId(),
+                testNote.getTitle(),
+                new EditDelta(3),
+                testNote.getLastSaved(),
+                testNote.getActionLinks(),
+                testNote.getStyleLinks());
+
+        assertThat(applied).isFalse();
+        verify(noteCache).invalidate(testNote.getId());
+    }
+
     @Test
     public void updateNote_shouldDeleteAllActions_whenThereAreNoActionLinks() throws Exception {
         subject.updateNote(
@@ -289,4 +611,9 @@ public class NoteRepositoryTest {
         assertThat(deleteOperation.getSelection()).isEqualTo(StyleContract.Style.COLUMN_NAME_NOTE_ID + "=?");
         assertThat(deleteOperation.getSelectionArgs()).containsOnly(Long.toString(testNote.getId()));
     }
+
+    /* The shadow resolver only notifies observers registered on the exact uri, so descendant changes are dispatched directly. */
+    private Collection<ContentObserver> observersOn(Uri uri) {
+        return Shadows.shadowOf(RuntimeEnvironment.application.getContentResolver()).getContentObservers(uri);
+    }
 }
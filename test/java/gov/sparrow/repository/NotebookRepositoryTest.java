@@ -8,6 +8,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 
 import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
 
 import static gov.sparrow.contracts.NotebookContract.Notebook;
 import static gov.sparrow.contracts.NotebookContract.NotebookListPosition;
@@ -78,6 +79,32 @@ public class NotebookRepositoryTest {
                 eq(new String[]{"1"}));
     }
 
+    @Test
+    public void moveNotebooks_startsOneAsyncBulkInsert() throws Exception {
+        LinkedHashMap<Long, Long> moves = new LinkedHashMap<>();
+        moves.put(1L, 5L);
+        moves.put(3L, 1L);
+
+        subject.moveNotebooks(moves);
+
+        verify(asyncRepositoryHelper).startBulkInsert(
+                eq(UPDATE_NOTEBOOK_TOKEN),
+                isNull(),
+                eq(NotebookListPosition.MOVE_URI),
+                eq(new ContentValues[]{anchorValues(1L, 5L), anchorValues(3L, 1L)}));
+    }
+
+    @Test
+    public void reorderNotebooks_sendsCompleteOrderingInOneAsyncBulkInsert() throws Exception {
+        subject.reorderNotebooks(new long[]{3L, 1L});
+
+        verify(asyncRepositoryHelper).startBulkInsert(
+                eq(UPDATE_NOTEBOOK_TOKEN),
+                isNull(),
+                eq(NotebookListPosition.ORDER_URI),
+                eq(new ContentValues[]{positionValues(3L, 0), positionValues(1L, 1)}));
+    }
+
     @Test
     public void deleteNotebook_withDeleteAll_startsAsyncArchive() throws Exception {
         NotebookRepository.DeleteNotebookListener listener = mock(NotebookRepository.DeleteNotebookListener.class);
@@ -102,4 +129,17 @@ public class NotebookRepositoryTest {
                 eq(new String[]{Long.toString(1L)}));
     }
 
+    private ContentValues anchorValues(long notebookId, Long anchorId) {
+        ContentValues values = new ContentValues();
+        values.put(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID, notebookId);
+        values.put(NotebookListPosition.KEY_ANCHOR_ID, anchorId);
+        return values;
+    }
+
+    private ContentValues positionValues(long notebookId, int position) {
+        ContentValues values = new ContentValues();
+        values.put(NotebookListPosition.COLUMN_NAME_NOTEBOOK_ID, notebookId);
+        values.put(NotebookListPosition.COLUMN_NAME_POSITION, position);
+        return values;
+    }
 }
@@ -0,0 +1,38 @@
+package gov.sparrow.util;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteStatement;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+
+public class StatementBindings {
+
+    public static String[] sortedColumns(ContentValues values) {
+        String[] columns = values.keySet().toArray(new String[values.size()]);
+        Arrays.sort(columns);
+        return columns;
+    }
+
+    public static Object[] argsFor(ContentValues values, String[] columns) {
+        Object[] args = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            args[i] = values.get(columns[i]);
+        }
+        return args;
+    }
+
+    public static void verifyBound(InOrder inOrder, SQLiteStatement statement, Object... args) {
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                inOrder.verify(statement).bindNull(i + 1);
+            } else if (arg instanceof Long || arg instanceof Integer) {
+                inOrder.verify(statement).bindLong(i + 1, ((Number) arg).longValue());
+            } else {
+                inOrder.verify(statement).bindString(i + 1, arg.toString());
+            }
+        }
+    }
+
+}
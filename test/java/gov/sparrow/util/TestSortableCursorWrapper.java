@@ -8,11 +8,7 @@ public class TestSortableCursorWrapper extends SortableCursorWrapper {
     public static String COLUMN_NAME_POSITION = "position";
 
     public TestSortableCursorWrapper(Cursor cursor) {
-        super(cursor);
-        while (getWrappedCursor().moveToNext()) {
-            int cursorInt = getWrappedCursor().getInt(getWrappedCursor().getColumnIndexOrThrow(COLUMN_NAME_POSITION));
-            positions.put(cursorInt, getWrappedCursor().getPosition());
-        }
+        super(cursor, COLUMN_NAME_POSITION);
     }
 
 }
@@ -13,8 +13,13 @@ import gov.sparrow.repository.ActionRepository;
 import gov.sparrow.repository.NoteRepository;
 import gov.sparrow.repository.NotebookRepository;
 
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
 import javax.inject.Singleton;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -74,6 +79,13 @@ public class TestSparrowApplicationModule {
     SaveManager saveManager() {
         SaveManager saveManager = mock(SaveManager.class);
         when(saveManager.isEnabled()).thenReturn(true);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((SaveManager.RecoveryListener) invocation.getArguments()[0]).onRecoveryComplete();
+                return null;
+            }
+        }).when(saveManager).recoverJournal(any(SaveManager.RecoveryListener.class));
         return saveManager;
     }
 
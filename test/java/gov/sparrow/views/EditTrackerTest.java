@@ -0,0 +1,102 @@
+package gov.sparrow.views;
+
+import android.graphics.Typeface;
+import android.text.Editable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import gov.sparrow.SparrowTestRunner;
+import gov.sparrow.models.spans.ActionLinkSpan;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SparrowTestRunner.class)
+public class EditTrackerTest {
+
+    private Editable editable;
+    private EditTracker subject;
+
+    @Before
+    public void setUp() throws Exception {
+        editable = new SpannableStringBuilder("hello world");
+        subject = new EditTracker();
+        subject.attach(editable);
+    }
+
+    @Test
+    public void attach_startsClean() throws Exception {
+        assertThat(subject.isDirty()).isFalse();
+        assertThat(subject.isSpanDirty()).isFalse();
+    }
+
+    @Test
+    public void textChange_marksDirty() throws Exception {
+        editable.insert(5, ",");
+
+        assertThat(subject.isDirty()).isTrue();
+        assertThat(subject.isSpanDirty()).isFalse();
+    }
+
+    @Test
+    public void textChange_whenRevertedToCleanContent_isNotDirty() throws Exception {
+        editable.insert(5, ",");
+        editable.delete(5, 6);
+
+        assertThat(subject.isDirty()).isFalse();
+        assertThat(subject.getContentHash()).isEqualTo(subject.getCleanContentHash());
+    }
+
+    @Test
+    public void markClean_resetsDirtyState() throws Exception {
+        editable.append("!");
+        editable.setSpan(new StyleSpan(Typeface.BOLD), 0, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        subject.markClean();
+
+        assertThat(subject.isDirty()).isFalse();
+        assertThat(subject.isSpanDirty()).isFalse();
+        assertThat(subject.getCleanContentHash()).isEqualTo(subject.getContentHash());
+    }
+
+    @Test
+    public void persistedSpanChange_marksSpanDirty() throws Exception {
+        StyleSpan bold = new StyleSpan(Typeface.BOLD);
+        editable.setSpan(bold, 0, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        assertThat(subject.isSpanDirty()).isTrue();
+
+        subject.markClean();
+        editable.removeSpan(bold);
+        assertThat(subject.isSpanDirty()).isTrue();
+
+        subject.markClean();
+        editable.setSpan(new ActionLinkSpan("123", 0, false), 6, 11, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        assertThat(subject.isSpanDirty()).isTrue();
+        assertThat(subject.isDirty()).isTrue();
+    }
+
+    @Test
+    public void textChange_whenItMovesPersistedSpan_marksSpanDirty() throws Exception {
+        editable.setSpan(new StyleSpan(Typeface.BOLD), 6, 11, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        subject.markClean();
+
+        editable.append("!");
+        assertThat(subject.isSpanDirty()).isFalse();
+
+        editable.insert(0, ">");
+        assertThat(subject.isSpanDirty()).isTrue();
+    }
+
+    @Test
+    public void unpersistedSpanChange_isIgnored() throws Exception {
+        editable.setSpan(new ForegroundColorSpan(0), 0, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        editable.setSpan(new StyleSpan(Typeface.ITALIC), 0, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        assertThat(subject.isSpanDirty()).isFalse();
+        assertThat(subject.isDirty()).isFalse();
+    }
+
+}
@@ -52,4 +52,24 @@ public class SparrowEditTextTest {
 
         verify(selectionListener).selectionChanged(1, 2);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getEditTracker_tracksCurrentText() throws Exception {
+        subject.setText("first text");
+        subject.getEditTracker().markClean();
+
+        subject.getText().append("!");
+
+        assertThat(subject.getEditTracker().isDirty()).isTrue();
+    }
+
+    @Test
+    public void setText_shouldStartTrackerClean() throws Exception {
+        subject.setText("first text");
+        subject.getText().append("!");
+
+        subject.setText("loaded text");
+
+        assertThat(subject.getEditTracker().isDirty()).isFalse();
+    }
+}